@@ -3,11 +3,17 @@ package peggy42.cn;
 import peggy42.cn.compounddai.CompoundDai;
 import peggy42.cn.contractneedsprovider.*;
 import peggy42.cn.dai.Dai;
+import peggy42.cn.engine.Strategy;
+import peggy42.cn.engine.TradingEngine;
+import peggy42.cn.engine.Trigger;
 import peggy42.cn.flipper.Flipper;
+import peggy42.cn.gasprovider.Eip1559TransactionManager;
+import peggy42.cn.gasprovider.FeeEngine;
 import peggy42.cn.gasprovider.GasProvider;
 import peggy42.cn.medianizer.Medianizer;
 import peggy42.cn.numberutil.Wad18;
 import peggy42.cn.oasis.Oasis;
+import peggy42.cn.tickstore.TickStore;
 import peggy42.cn.uniswap.Uniswap;
 import peggy42.cn.util.Balances;
 import peggy42.cn.util.Ethereum;
@@ -17,16 +23,18 @@ import org.slf4j.LoggerFactory;
 import org.web3j.crypto.Credentials;
 import org.web3j.protocol.Web3j;
 
+import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.math.BigInteger;
-import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.nio.file.Path;
 
 public class Main {
   private static final org.slf4j.Logger logger =
       LoggerFactory.getLogger(MethodHandles.lookup().lookupClass().getSimpleName());
   private static final boolean IS_DEVELOPMENT_ENVIRONMENT = true;
+  private static final long CHAIN_ID = 1; // mainnet, the Infura URL of the Web3jProvider
   private static Web3j web3j;
+  private static TickStore tickStore;
 
   public static void main(String[] args) {
     logger.trace("NEW START");
@@ -40,19 +48,36 @@ public class Main {
             Boolean.parseBoolean(javaProperties.getValue("transactionsRequireConfirmation"));
 
     CircuitBreaker circuitBreaker = new CircuitBreaker();
-    web3j = new Web3jProvider(infuraProjectId).web3j;
+    Web3jProvider web3jProvider = new Web3jProvider(infuraProjectId);
+    web3j = web3jProvider.web3j;
     Credentials credentials = new Wallet(password, wallet).getCredentials();
+    Wad18 maximumGasPrice =
+            new Wad18(
+                    BigInteger.valueOf(Long.parseLong(javaProperties.getValue("maximumGasPrice"))));
     GasProvider gasProvider =
             new GasProvider(
                     web3j,
                     new Wad18(BigInteger.valueOf(Long.parseLong(javaProperties.getValue("minimumGasPrice")))),
-                    new Wad18(BigInteger.valueOf(Long.parseLong(javaProperties.getValue("maximumGasPrice")))));
+                    maximumGasPrice);
+    gasProvider.start();
+    circuitBreaker.addFailedTransactionListener(gasProvider::recordFailedTransaction);
     Permissions permissions =
             new Permissions(transactionsRequireConfirmation, playSoundOnTransaction);
+    FeeEngine feeEngine = new FeeEngine(web3jProvider.web3jService, maximumGasPrice);
     ContractNeedsProvider contractNeedsProvider =
-            new ContractNeedsProvider(web3j, credentials, gasProvider, permissions, circuitBreaker);
+            new ContractNeedsProvider(
+                    web3j,
+                    credentials,
+                    gasProvider,
+                    permissions,
+                    circuitBreaker,
+                    new Eip1559TransactionManager(web3j, credentials, CHAIN_ID, feeEngine));
 
     Medianizer.setMedianizerContract(contractNeedsProvider);
+    Medianizer.setPriceFeeds(javaProperties);
+    tickStore = openTickStore(javaProperties.getValue("tickStoreDirectory"));
+    Medianizer.getInstance().setTickStore(tickStore);
+    Medianizer.getInstance().start();
     Dai dai =
             new Dai(
                     contractNeedsProvider,
@@ -70,6 +95,8 @@ public class Main {
 
     Oasis oasis = new Oasis(contractNeedsProvider, compoundDai, weth);
     Uniswap uniswap = new Uniswap(contractNeedsProvider, javaProperties, compoundDai, weth);
+    oasis.setTickStore(tickStore);
+    uniswap.setTickStore(tickStore);
     Flipper flipper =
             new Flipper(
                     contractNeedsProvider,
@@ -80,32 +107,56 @@ public class Main {
     dai.getApproval().check(compoundDai);
     weth.getApproval().check(oasis);
 
-    while (circuitBreaker.getContinueRunning()) {
-      try {
-        balances.updateBalance(60);
-        if (circuitBreaker.isAllowingOperations(3)) {
-          // TODO: if infura backoff exception, then backoff
-          balances.checkEnoughEthereumForGas(ethereum);
-          oasis.checkIfSellDaiIsProfitableThenDoIt(balances);
-          oasis.checkIfBuyDaiIsProfitableThenDoIt(balances);
-          uniswap.checkIfSellDaiIsProfitableThenDoIt(balances);
-          uniswap.checkIfBuyDaiIsProfitableThenDoIt(balances);
-          compoundDai.lendDai(balances);
-          flipper.checkIfThereAreProfitableFlipAuctions(balances);
-        }
-      } catch (Exception e) {
-        logger.error("Exception", e);
-        shutdown();
-      }
-
-      List<Long> failedTransactions = circuitBreaker.getFailedTransactions();
-      if (!failedTransactions.isEmpty()) {
-        circuitBreaker.update();
-        gasProvider.updateFailedTransactions(failedTransactions);
-      }
+    TradingEngine engine =
+            new TradingEngine(
+                    TradingEngine.blocks(web3j),
+                    TradingEngine.medians(Medianizer.getInstance()),
+                    circuitBreaker);
+    balances.addBalanceListener(engine::balanceChanged);
+    // strategies without a read-only part do all their work in the serialized execution
+    engine.register("BALANCES", () -> () -> balances.updateBalance(60), Trigger.BLOCK);
+    // TODO: if infura backoff exception, then backoff
+    engine.register(
+            "GAS RESERVE",
+            whenAllowed(
+                    circuitBreaker,
+                    balances,
+                    () -> () -> balances.checkEnoughEthereumForGas(ethereum)),
+            Trigger.BALANCE);
+    engine.register(
+            "OASIS SELL DAI",
+            whenAllowed(circuitBreaker, balances, () -> oasis.evaluateSellDai(balances)),
+            Trigger.BLOCK,
+            Trigger.MEDIAN);
+    engine.register(
+            "OASIS BUY DAI",
+            whenAllowed(circuitBreaker, balances, () -> oasis.evaluateBuyDai(balances)),
+            Trigger.BLOCK,
+            Trigger.MEDIAN);
+    engine.register(
+            "UNISWAP SELL DAI",
+            whenAllowed(circuitBreaker, balances, () -> uniswap.evaluateSellDai(balances)),
+            Trigger.BLOCK,
+            Trigger.MEDIAN);
+    engine.register(
+            "UNISWAP BUY DAI",
+            whenAllowed(circuitBreaker, balances, () -> uniswap.evaluateBuyDai(balances)),
+            Trigger.BLOCK,
+            Trigger.MEDIAN);
+    engine.register(
+            "LEND DAI",
+            whenAllowed(circuitBreaker, balances, () -> compoundDai.evaluateLendDai(balances)),
+            Trigger.BALANCE);
+    engine.register(
+            "FLIP AUCTIONS",
+            whenAllowed(circuitBreaker, balances, () -> flipper.evaluateFlipAuctions(balances)),
+            Trigger.BLOCK,
+            Trigger.MEDIAN);
 
+    if (circuitBreaker.getContinueRunning()) {
+      engine.start();
       try {
-        TimeUnit.MILLISECONDS.sleep(8500);
+        engine.awaitTermination();
       } catch (InterruptedException e) {
         logger.error("Exception", e);
         Thread.currentThread().interrupt();
@@ -114,8 +165,42 @@ public class Main {
     shutdown();
   }
 
+  /**
+   * Strategies that send transactions pause while too many transactions failed recently. An
+   * opportunity is not executed if another transaction succeeded after its evaluation, because it
+   * was evaluated with outdated balances, the next trigger evaluates it again.
+   */
+  private static Strategy whenAllowed(
+          CircuitBreaker circuitBreaker, Balances balances, Strategy strategy) {
+    return () -> {
+      if (!circuitBreaker.isAllowingOperations(3)) return null;
+      long evaluated = System.currentTimeMillis();
+      Strategy.Execution execution = strategy.evaluate();
+      if (execution == null) return null;
+      return () -> {
+        if (balances.getLastSuccessfulTransaction() >= evaluated) {
+          logger.trace("OPPORTUNITY IS OUTDATED");
+          return;
+        }
+        execution.execute();
+      };
+    };
+  }
+
+  /** @return null if directory is not configured or the store can't be opened */
+  private static TickStore openTickStore(String directory) {
+    if (directory == null || directory.isBlank()) return null;
+    try {
+      return TickStore.open(Path.of(directory));
+    } catch (IOException e) {
+      logger.error("Exception", e);
+      return null;
+    }
+  }
+
   public static void shutdown() {
     logger.trace("EXIT");
+    if (tickStore != null) tickStore.flush();
     web3j.shutdown();
     System.exit(0);
   }
@@ -5,13 +5,16 @@ import peggy42.cn.contractneedsprovider.ContractNeedsProvider;
 import peggy42.cn.contractneedsprovider.Permissions;
 import peggy42.cn.contractuserutil.AddressMethod;
 import peggy42.cn.contractutil.Account;
+import peggy42.cn.engine.Strategy;
 import peggy42.cn.gasprovider.GasProvider;
 import peggy42.cn.medianizer.MedianException;
 import peggy42.cn.medianizer.Medianizer;
+import peggy42.cn.numberutil.DSMath;
 import peggy42.cn.numberutil.Sth28;
 import peggy42.cn.numberutil.Wad18;
 import peggy42.cn.util.Balances;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.LoggerFactory;
 import org.web3j.crypto.Credentials;
 import org.web3j.protocol.Web3j;
@@ -22,7 +25,7 @@ import java.lang.invoke.MethodHandles;
 import java.math.BigInteger;
 import java.util.concurrent.TimeUnit;
 
-import static peggy42.cn.numberutil.NumberUtil.getMachineReadable;
+import static peggy42.cn.numberutil.DecimalFormatter.lazy;
 import static peggy42.cn.util.TransactionUtil.getTransactionCosts;
 
 public class CompoundDai implements AddressMethod {
@@ -31,8 +34,10 @@ public class CompoundDai implements AddressMethod {
           BigInteger.valueOf(200000); // https://compound.finance/developers#gas-costs
   private static final org.slf4j.Logger logger =
           LoggerFactory.getLogger(MethodHandles.lookup().lookupClass().getSimpleName());
-  private static final Wad18 secondsPerYear = new Wad18(getMachineReadable(31557600.0));
-  private static final Wad18 timeBetweenBlocks = new Wad18(getMachineReadable(15.0));
+  private static final Wad18 secondsPerYear = Wad18.of("31557600");
+  private static final Wad18 timeBetweenBlocks = Wad18.of("15");
+  private static final long BLOCKS_PER_DAY = 24 * 60 * 60 / 15; // see timeBetweenBlocks
+  private static final BigInteger WAD_TO_RAY = BigInteger.TEN.pow(9);
   private static final int WAIT_TIME = 60 * 60 * 1000; // 60 minutes
   private static final Wad18 supplyRatePerYearMultiplicand =
           secondsPerYear.divide(timeBetweenBlocks);
@@ -50,7 +55,9 @@ public class CompoundDai implements AddressMethod {
     gasProvider = contractNeedsProvider.getGasProvider();
     permissions = contractNeedsProvider.getPermissions();
     circuitBreaker = contractNeedsProvider.getCircuitBreaker();
-    compoundDaiContract = CompoundDaiContract.load(ADDRESS, web3j, credentials, gasProvider);
+    compoundDaiContract =
+        CompoundDaiContract.load(
+            ADDRESS, web3j, contractNeedsProvider.getTransactionManager(), gasProvider);
     account = new Account(compoundDaiContract, credentials, "CDAI");
   }
 
@@ -62,6 +69,7 @@ public class CompoundDai implements AddressMethod {
         logger.debug("MINT DAI {}", mintAmount);
         TransactionReceipt transferReceipt =
             compoundDaiContract.mint(mintAmount.toBigInteger()).send();
+        gasProvider.recordGasUsed(CompoundDaiContract.FUNC_MINT, transferReceipt);
         afterTransaction(balances, medianEthereumPrice, transferReceipt);
       } catch (Exception e) {
         circuitBreaker.addTransactionFailedNow();
@@ -80,10 +88,12 @@ public class CompoundDai implements AddressMethod {
     Wad18 redeemAmount = account.getBalance();
     if (permissions.check("COMPOUND DAI REDEEM " + redeemAmount + " CDAI")) {
       try {
-        gasProvider.updateFastGasPrice(medianEthereumPrice, potentialProfit);
+        gasProvider.updateFastGasPrice(
+            CompoundDaiContract.FUNC_REDEEM, medianEthereumPrice, potentialProfit);
         logger.debug("REDEEM CDAI {}", redeemAmount);
         TransactionReceipt transferReceipt =
             compoundDaiContract.redeem(redeemAmount.toBigInteger()).send();
+        gasProvider.recordGasUsed(CompoundDaiContract.FUNC_REDEEM, transferReceipt);
         afterTransaction(balances, medianEthereumPrice, transferReceipt);
       } catch (Exception e) {
         circuitBreaker.addTransactionFailedNow();
@@ -154,62 +164,66 @@ public class CompoundDai implements AddressMethod {
    * median eth price < dai * compound_interest_rate / 365
    *
    * @param balances provides access to all balances
+   * @return minting cDAI with all DAI if lending is profitable, otherwise null
    */
-  public void lendDai(@NotNull Balances balances) {
+  @Nullable
+  public Strategy.Execution evaluateLendDai(@NotNull Balances balances) {
     logger.trace("");
     logger.trace("CHECKING IF LENDING DAI IS PROFITABLE");
-    if (balances.dai.isThereEnoughDaiForLending()) {
-      Wad18 slowGasPrice = gasProvider.updateSlowGasPrice();
-      if (slowGasPrice.compareTo(Wad18.ZERO) == 0) {
-        return;
-      }
-
-      Wad18 medianEthereumPrice;
-      try {
-        medianEthereumPrice = Medianizer.getPrice();
-      } catch (MedianException e) {
-        logger.error(EXCEPTION, e);
-        return;
-      }
-      Wad18 transactionCosts = getTransactionCosts(slowGasPrice, medianEthereumPrice, gasLimit, 2);
-
-      Wad18 possibleDailyInterest = getDailyInterest(balances.dai.getAccount().getBalance());
-      if (transactionCosts.compareTo(possibleDailyInterest) < 0) {
-        logger.trace("SUFFICIENT INTEREST TO LEND DAI ON COMPOUND");
-
-        if (System.currentTimeMillis() >= balances.getLastSuccessfulTransaction() + WAIT_TIME) {
-          mint(balances, medianEthereumPrice);
-        } else {
-          logger.warn(
-                  "CURRENT CODE REQUIRES {} MINUTES BETWEEN LAST SUCCESSFUL TRANSACTION AND MINTING CDAI",
-                  WAIT_TIME / 60 / 1000);
-        }
-      } else {
-        logger.warn(
-            "CURRENT CODE REQUIRES THAT THE TRANSACTION COSTS {} ARE LOWER THAN THE DAILY INTEREST {}",
-            transactionCosts,
-            possibleDailyInterest);
-      }
-      logger.trace(
-              "SLOW GAS PRICE {}{}",
-              Convert.fromWei(slowGasPrice.toBigDecimal(), Convert.Unit.GWEI),
-              " GWEI");
-      logger.trace("TRANSACTION COSTS {} DAI", transactionCosts.toString(2));
-    } else {
+    if (!balances.dai.isThereEnoughDaiForLending()) {
       logger.info("NOT ENOUGH DAI TO LEND DAI ON COMPOUND");
+      return null;
+    }
+    Wad18 slowGasPrice = gasProvider.getSlowGasPrice();
+    if (slowGasPrice.compareTo(Wad18.ZERO) == 0) {
+      return null;
+    }
+
+    Wad18 medianEthereumPrice;
+    try {
+      medianEthereumPrice = Medianizer.getPrice();
+    } catch (MedianException e) {
+      logger.error(EXCEPTION, e);
+      return null;
+    }
+    Wad18 transactionCosts = getTransactionCosts(slowGasPrice, medianEthereumPrice, gasLimit, 2);
+    logger.trace(
+            "SLOW GAS PRICE {}{}",
+            Convert.fromWei(slowGasPrice.toBigDecimal(), Convert.Unit.GWEI),
+            " GWEI");
+    logger.trace("TRANSACTION COSTS {} DAI", lazy(transactionCosts, 2));
+
+    Wad18 possibleDailyInterest = getDailyInterest(balances.dai.getAccount().getBalance());
+    if (transactionCosts.compareTo(possibleDailyInterest) >= 0) {
+      logger.warn(
+          "CURRENT CODE REQUIRES THAT THE TRANSACTION COSTS {} ARE LOWER THAN THE DAILY INTEREST {}",
+          transactionCosts,
+          possibleDailyInterest);
+      return null;
     }
+    logger.trace("SUFFICIENT INTEREST TO LEND DAI ON COMPOUND");
+    if (System.currentTimeMillis() < balances.getLastSuccessfulTransaction() + WAIT_TIME) {
+      logger.warn(
+              "CURRENT CODE REQUIRES {} MINUTES BETWEEN LAST SUCCESSFUL TRANSACTION AND MINTING CDAI",
+              WAIT_TIME / 60 / 1000);
+      return null;
+    }
+    return () -> mint(balances, medianEthereumPrice);
   }
 
   Wad18 getSupplyRate() {
-    Wad18 supplyRate = Wad18.ZERO;
+    Wad18 supplyRate = supplyRatePerYearMultiplicand.multiply(getSupplyRatePerBlock());
+    logger.info("SUPPLY RATE {}", supplyRate);
+    return supplyRate;
+  }
+
+  private Wad18 getSupplyRatePerBlock() {
     try {
-      Wad18 supplyRatePerBlock = new Wad18(compoundDaiContract.supplyRatePerBlock().send());
-      supplyRate = supplyRatePerYearMultiplicand.multiply(supplyRatePerBlock);
+      return new Wad18(compoundDaiContract.supplyRatePerBlock().send());
     } catch (Exception e) {
       logger.error(EXCEPTION, e);
     }
-    logger.info("SUPPLY RATE {}", supplyRate);
-    return supplyRate;
+    return Wad18.ZERO;
   }
 
   private Wad18 getCurrentDailyInterest() {
@@ -219,8 +233,11 @@ public class CompoundDai implements AddressMethod {
 
   Wad18 getDailyInterest(Wad18 amount) {
     logger.info("DAI OR SUPPLIED DAI BALANCE {} DAI", amount);
+    // compound interest accrues every block, so the per block rate is compounded over one day
+    BigInteger supplyRatePerBlock = getSupplyRatePerBlock().toBigInteger().multiply(WAD_TO_RAY);
+    BigInteger growthPerDay = DSMath.rpow(DSMath.RAY.add(supplyRatePerBlock), BLOCKS_PER_DAY);
     Wad18 dailyInterest =
-            amount.multiply(getSupplyRate()).divide(new Wad18(getMachineReadable(365.0)));
+            new Wad18(DSMath.rmul(amount.toBigInteger(), growthPerDay.subtract(DSMath.RAY)));
     logger.info("DAILY INTEREST {} DAI", dailyInterest);
     return dailyInterest;
   }
@@ -1,21 +1,21 @@
 package peggy42.cn.contractneedsprovider;
 
+import peggy42.cn.util.SlidingWindowCounter;
 import org.slf4j.LoggerFactory;
 
 import java.lang.invoke.MethodHandles;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class CircuitBreaker {
   private static final org.slf4j.Logger logger =
       LoggerFactory.getLogger(MethodHandles.lookup().lookupClass().getSimpleName());
-  final ArrayList<Long> failedTransactionsWithinTheLastTenMinutesForErrorBlockingArrayList;
+  private static final long FAILED_TRANSACTIONS_WINDOW = 10L * 60 * 1000; // 10 minutes
+  final SlidingWindowCounter failedTransactionsWithinTheLastTenMinutes =
+      new SlidingWindowCounter(FAILED_TRANSACTIONS_WINDOW, 600);
+  private final List<Runnable> failedTransactionListeners = new CopyOnWriteArrayList<>();
   private boolean continueRunning = true;
 
-  public CircuitBreaker() {
-    failedTransactionsWithinTheLastTenMinutesForErrorBlockingArrayList = new ArrayList<>();
-  }
-
   public boolean getContinueRunning() {
     return continueRunning;
   }
@@ -25,8 +25,7 @@ public class CircuitBreaker {
   }
 
   public boolean isAllowingOperations(int number) {
-    boolean isAllowingOperations =
-            failedTransactionsWithinTheLastTenMinutesForErrorBlockingArrayList.size() < number;
+    boolean isAllowingOperations = failedTransactionsWithinTheLastTenMinutes.count() < number;
     if (!isAllowingOperations) {
       logger.trace(
               "ALL TRANSACTIONS ARE CURRENTLY NOT ALLOWED BECAUSE THERE HAVE BEEN TOO MANY FAILED TRANSACTIONS RECENTLY");
@@ -36,20 +35,16 @@ public class CircuitBreaker {
 
   public void addTransactionFailedNow() {
     logger.trace("ADD A FAILED TRANSACTION");
-    failedTransactionsWithinTheLastTenMinutesForErrorBlockingArrayList.add(
-        System.currentTimeMillis());
+    failedTransactionsWithinTheLastTenMinutes.increment();
+    failedTransactionListeners.forEach(Runnable::run);
   }
 
-  public void update() {
-    if (System.currentTimeMillis()
-        >= failedTransactionsWithinTheLastTenMinutesForErrorBlockingArrayList.get(0)
-            + 10 * 60 * 1000) {
-      logger.trace("REMOVE FAILED TRANSACTION: 10 MINUTES");
-      failedTransactionsWithinTheLastTenMinutesForErrorBlockingArrayList.remove(0);
-    }
+  /** @param listener is called for every failed transaction, e.g. to raise the gas price */
+  public void addFailedTransactionListener(Runnable listener) {
+    failedTransactionListeners.add(listener);
   }
 
-  public List<Long> getFailedTransactions() {
-    return failedTransactionsWithinTheLastTenMinutesForErrorBlockingArrayList;
+  public int getFailedTransactions() {
+    return failedTransactionsWithinTheLastTenMinutes.count();
   }
 }
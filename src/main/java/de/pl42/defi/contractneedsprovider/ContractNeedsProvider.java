@@ -3,6 +3,8 @@ package peggy42.cn.contractneedsprovider;
 import peggy42.cn.gasprovider.GasProvider;
 import org.web3j.crypto.Credentials;
 import org.web3j.protocol.Web3j;
+import org.web3j.tx.RawTransactionManager;
+import org.web3j.tx.TransactionManager;
 
 public class ContractNeedsProvider {
   private final Web3j web3j;
@@ -10,6 +12,7 @@ public class ContractNeedsProvider {
   private final GasProvider gasProvider;
   private final Permissions permissions;
   private final CircuitBreaker circuitBreaker;
+  private final TransactionManager transactionManager;
 
   public ContractNeedsProvider(
       Web3j web3j,
@@ -17,11 +20,29 @@ public class ContractNeedsProvider {
       GasProvider gasProvider,
       Permissions permissions,
       CircuitBreaker circuitBreaker) {
+    this(
+        web3j,
+        credentials,
+        gasProvider,
+        permissions,
+        circuitBreaker,
+        new RawTransactionManager(web3j, credentials));
+  }
+
+  /** @param transactionManager signs and sends the transactions of the trade contracts */
+  public ContractNeedsProvider(
+      Web3j web3j,
+      Credentials credentials,
+      GasProvider gasProvider,
+      Permissions permissions,
+      CircuitBreaker circuitBreaker,
+      TransactionManager transactionManager) {
     this.web3j = web3j;
     this.credentials = credentials;
     this.gasProvider = gasProvider;
     this.permissions = permissions;
     this.circuitBreaker = circuitBreaker;
+    this.transactionManager = transactionManager;
   }
 
   public Web3j getWeb3j() {
@@ -43,4 +64,8 @@ public class ContractNeedsProvider {
   public CircuitBreaker getCircuitBreaker() {
     return circuitBreaker;
   }
+
+  public TransactionManager getTransactionManager() {
+    return transactionManager;
+  }
 }
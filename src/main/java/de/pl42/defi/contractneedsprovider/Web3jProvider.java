@@ -2,6 +2,7 @@ package peggy42.cn.contractneedsprovider;
 
 import org.slf4j.LoggerFactory;
 import org.web3j.protocol.Web3j;
+import org.web3j.protocol.Web3jService;
 import org.web3j.protocol.exceptions.ClientConnectionException;
 import org.web3j.protocol.http.HttpService;
 
@@ -12,9 +13,11 @@ public class Web3jProvider {
       LoggerFactory.getLogger(MethodHandles.lookup().lookupClass().getSimpleName());
 
   public final Web3j web3j;
+  public final Web3jService web3jService;
 
   public Web3jProvider(String infuraProjectId) {
-    this.web3j = Web3j.build(new HttpService("https://mainnet.infura.io/v3/" + infuraProjectId));
+    this.web3jService = new HttpService("https://mainnet.infura.io/v3/" + infuraProjectId);
+    this.web3j = Web3j.build(web3jService);
     try {
       logger.trace(
           "Connected to Ethereum client version: {}",
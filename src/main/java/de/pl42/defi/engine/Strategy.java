@@ -0,0 +1,20 @@
+package peggy42.cn.engine;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Checks an opportunity, e.g. selling DAI on Uniswap. The evaluation only reads and may run
+ * concurrently with the evaluations of other strategies, the returned execution trades.
+ */
+@FunctionalInterface
+public interface Strategy {
+  /** @return the trade of a profitable opportunity or null if there is none */
+  @Nullable
+  Execution evaluate() throws Exception;
+
+  /** Sends the transactions of an opportunity, executions run one after another */
+  @FunctionalInterface
+  interface Execution {
+    void execute() throws Exception;
+  }
+}
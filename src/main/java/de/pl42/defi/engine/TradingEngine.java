@@ -0,0 +1,222 @@
+package peggy42.cn.engine;
+
+import peggy42.cn.contractneedsprovider.CircuitBreaker;
+import peggy42.cn.medianizer.Medianizer;
+import peggy42.cn.medianizer.PriceSnapshot;
+import peggy42.cn.numberutil.Wad18;
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.flowables.ConnectableFlowable;
+import io.reactivex.processors.FlowableProcessor;
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.schedulers.Schedulers;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.LoggerFactory;
+import org.web3j.protocol.Web3j;
+
+import java.lang.invoke.MethodHandles;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Evaluates each strategy as soon as one of its triggers fires, instead of all strategies after a
+ * fixed sleep. New blocks, medians and balance updates are merged into one stream of triggers.
+ * Every strategy gets the triggers it subscribed to through onBackpressureLatest and a queue of
+ * one, so while it is evaluated at most one further evaluation waits and older triggers are
+ * dropped. The read-only evaluations of different strategies run concurrently, so a cycle takes as
+ * long as the slowest venue instead of all venues together. Their executions run one after another
+ * on the engine thread in the order the evaluations finished, because they share the wallet, the
+ * nonce and the balances. A strategy is evaluated again only after its execution. An execution
+ * that waited behind other trades until a new block arrived or for longer than
+ * MAXIMUM_EXECUTION_DELAY is dropped, because its offers, quotes and median are outdated. The
+ * strategy is evaluated again on the next trigger.
+ */
+public final class TradingEngine {
+  private static final org.slf4j.Logger logger =
+      LoggerFactory.getLogger(MethodHandles.lookup().lookupClass().getSimpleName());
+  static final long BLOCK_POLL_INTERVAL = 2L * 1000;
+  static final long MAXIMUM_EXECUTION_DELAY = 12L * 1000; // about one block
+
+  private final ConnectableFlowable<Trigger> triggers;
+  private final FlowableProcessor<Trigger> balanceChanges =
+      PublishProcessor.<Trigger>create().toSerialized();
+  private final CircuitBreaker circuitBreaker;
+  private final AtomicLong blockCount = new AtomicLong();
+  private final ExecutorService evaluators =
+      Executors.newCachedThreadPool(daemonThreads("strategy-evaluation"));
+  private final Scheduler evaluationScheduler = Schedulers.from(evaluators);
+  private final ExecutorService executor =
+      Executors.newSingleThreadExecutor(daemonThreads("trading-engine"));
+  private final CompositeDisposable subscriptions = new CompositeDisposable();
+  private final AtomicBoolean started = new AtomicBoolean();
+  private final CountDownLatch terminated = new CountDownLatch(1);
+
+  /**
+   * @param blocks emits the number of every new block
+   * @param medians emits every new median
+   */
+  public TradingEngine(
+      @NotNull Flowable<?> blocks,
+      @NotNull Flowable<?> medians,
+      @NotNull CircuitBreaker circuitBreaker) {
+    this.circuitBreaker = circuitBreaker;
+    this.triggers =
+        Flowable.merge(
+                blocks.map(
+                    block -> {
+                      blockCount.incrementAndGet();
+                      return Trigger.BLOCK;
+                    }),
+                medians.map(median -> Trigger.MEDIAN),
+                balanceChanges)
+            .publish();
+  }
+
+  private static ThreadFactory daemonThreads(String name) {
+    AtomicInteger count = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /** @return number of every new block, polled every BLOCK_POLL_INTERVAL, errors are retried */
+  public static Flowable<BigInteger> blocks(@NotNull Web3j web3j) {
+    return Flowable.interval(
+            BLOCK_POLL_INTERVAL, BLOCK_POLL_INTERVAL, TimeUnit.MILLISECONDS, Schedulers.io())
+        .onBackpressureDrop()
+        .map(tick -> web3j.ethBlockNumber().send().getBlockNumber())
+        .doOnError(throwable -> logger.warn("CAN'T GET BLOCK NUMBER {}", throwable.getMessage()))
+        .retry()
+        .distinctUntilChanged();
+  }
+
+  /** @return every new median value of medianizer */
+  public static Flowable<Wad18> medians(@NotNull Medianizer medianizer) {
+    Flowable<PriceSnapshot> snapshots =
+        Flowable.create(
+            emitter -> {
+              Consumer<PriceSnapshot> listener = emitter::onNext;
+              medianizer.addSnapshotListener(listener);
+              emitter.setCancellable(() -> medianizer.removeSnapshotListener(listener));
+            },
+            BackpressureStrategy.LATEST);
+    return snapshots.map(PriceSnapshot::getValue).distinctUntilChanged();
+  }
+
+  /** Fires the BALANCE trigger, e.g. as listener of the balances */
+  public void balanceChanged() {
+    balanceChanges.onNext(Trigger.BALANCE);
+  }
+
+  /**
+   * Evaluates strategy whenever one of triggers fires, after {@link #start()}, and executes its
+   * opportunity on the engine thread. An exception of a strategy stops the engine.
+   */
+  public void register(
+      @NotNull String name, @NotNull Strategy strategy, @NotNull Trigger... triggers) {
+    Set<Trigger> wanted = EnumSet.noneOf(Trigger.class);
+    wanted.addAll(Arrays.asList(triggers));
+    subscriptions.add(
+        this.triggers
+            .filter(wanted::contains)
+            .onBackpressureLatest()
+            .observeOn(evaluationScheduler, false, 1)
+            .subscribe(
+                trigger -> evaluate(name, strategy, trigger),
+                throwable -> failed(name, throwable)));
+  }
+
+  private void evaluate(String name, Strategy strategy, Trigger trigger) {
+    if (!circuitBreaker.getContinueRunning()) {
+      stop();
+      return;
+    }
+    logger.trace("{} EVALUATED ON {}", name, trigger);
+    long block = blockCount.get();
+    long evaluated = System.currentTimeMillis();
+    Strategy.Execution execution;
+    try {
+      execution = strategy.evaluate();
+    } catch (Exception e) {
+      failed(name, e);
+      return;
+    }
+    if (execution == null) return;
+    Future<?> executed;
+    try {
+      executed = executor.submit(() -> execute(name, execution, block, evaluated));
+    } catch (RejectedExecutionException e) {
+      return; // stopped
+    }
+    try {
+      executed.get();
+    } catch (ExecutionException e) {
+      failed(name, e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void execute(String name, Strategy.Execution execution, long block, long evaluated) {
+    if (subscriptions.isDisposed()) return; // stopped while the execution was waiting
+    if (blockCount.get() != block
+        || System.currentTimeMillis() - evaluated > MAXIMUM_EXECUTION_DELAY) {
+      logger.trace("{} OUTDATED, NOT EXECUTED", name);
+      return;
+    }
+    logger.trace("{} EXECUTED", name);
+    try {
+      execution.execute();
+    } catch (Exception e) {
+      failed(name, e);
+    }
+  }
+
+  private void failed(String name, Throwable throwable) {
+    logger.error("STRATEGY " + name + " FAILED", throwable);
+    stop();
+  }
+
+  /** Starts the triggers, later calls do nothing */
+  public void start() {
+    if (!started.compareAndSet(false, true)) return;
+    subscriptions.add(triggers.connect());
+    logger.trace("TRADING ENGINE STARTED");
+  }
+
+  /** Cancels all subscriptions, running evaluations and executions finish */
+  public void stop() {
+    subscriptions.dispose();
+    evaluators.shutdown();
+    executor.shutdown();
+    terminated.countDown();
+  }
+
+  /**
+   * Waits until the engine was stopped, e.g. by the circuit breaker or a failed strategy, and the
+   * running evaluations and executions finished
+   */
+  public void awaitTermination() throws InterruptedException {
+    terminated.await();
+    evaluators.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+  }
+}
@@ -0,0 +1,11 @@
+package peggy42.cn.engine;
+
+/** Input change that makes the trading engine evaluate the strategies that depend on it */
+public enum Trigger {
+  /** a new block, e.g. order books, pools and auctions may have changed */
+  BLOCK,
+  /** a new ETH/USD median */
+  MEDIAN,
+  /** the balances were updated */
+  BALANCE
+}
@@ -3,6 +3,7 @@ package peggy42.cn.flipper;
 import peggy42.cn.contractneedsprovider.CircuitBreaker;
 import peggy42.cn.contractneedsprovider.ContractNeedsProvider;
 import peggy42.cn.contractneedsprovider.Permissions;
+import peggy42.cn.engine.Strategy;
 import peggy42.cn.gasprovider.ArrayListUtil;
 import peggy42.cn.gasprovider.GasProvider;
 import peggy42.cn.medianizer.MedianException;
@@ -10,6 +11,7 @@ import peggy42.cn.medianizer.Medianizer;
 import peggy42.cn.numberutil.Wad18;
 import peggy42.cn.util.Balances;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.LoggerFactory;
 import org.web3j.crypto.Credentials;
 import org.web3j.protocol.Web3j;
@@ -19,6 +21,7 @@ import org.web3j.tuples.generated.Tuple8;
 import java.lang.invoke.MethodHandles;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.List;
 
 import static peggy42.cn.numberutil.NumberUtil.getMachineReadable;
 
@@ -31,6 +34,7 @@ public class Flipper {
   private final Credentials credentials;
   private final Permissions permissions;
   private final CircuitBreaker circuitBreaker;
+  private final GasProvider gasProvider;
   private final Wad18 minimumBidIncrease; // beg
   private final BigInteger startingBiddingBeforeEnd;
   private final Wad18 minimumFlipAuctionProfit;
@@ -43,8 +47,10 @@ public class Flipper {
     credentials = contractNeedsProvider.getCredentials();
     permissions = contractNeedsProvider.getPermissions();
     circuitBreaker = contractNeedsProvider.getCircuitBreaker();
-    GasProvider gasProvider = contractNeedsProvider.getGasProvider();
-    flipperContract = FlipperContract.load(ADDRESS, web3j, credentials, gasProvider);
+    gasProvider = contractNeedsProvider.getGasProvider();
+    flipperContract =
+        FlipperContract.load(
+            ADDRESS, web3j, contractNeedsProvider.getTransactionManager(), gasProvider);
     pastTotalAuctionCount = BigInteger.ZERO;
     minimumBidIncrease = getMinimumBidIncrease();
     activeAuctionList = new ArrayList<>();
@@ -71,6 +77,7 @@ public class Flipper {
                     auction.collateralForSale.toBigInteger(),
                     auction.bidAmountInDai.multiply(getMinimumBidIncrease()).toBigInteger())
                 .send();
+        gasProvider.recordGasUsed(FlipperContract.FUNC_TEND, transferReceipt);
         logger.trace(
             "Transaction complete, view it at https://etherscan.io/tx/{}",
             transferReceipt.getTransactionHash());
@@ -91,6 +98,7 @@ public class Flipper {
                     auction.collateralForSale.divide(getMinimumBidIncrease()).toBigInteger(),
                     auction.bidAmountInDai.toBigInteger())
                 .send();
+        gasProvider.recordGasUsed(FlipperContract.FUNC_DENT, transferReceipt);
         logger.trace(
             "Transaction complete, view it at https://etherscan.io/tx/{}",
             transferReceipt.getTransactionHash());
@@ -101,42 +109,55 @@ public class Flipper {
     }
   }
 
-  public void checkIfThereAreProfitableFlipAuctions(Balances balances) {
+  /** @return the bids on the profitable flip auctions, null if there is none */
+  @Nullable
+  public Strategy.Execution evaluateFlipAuctions(Balances balances) {
     logger.trace("");
     logger.trace("CHECKING IF THERE ARE ANY PROFITABLE FLIP AUCTIONS");
     BigInteger totalAuctionCount = getTotalAuctionCount();
-    if (totalAuctionCount.compareTo(BigInteger.ZERO) == 0) return;
+    if (totalAuctionCount.compareTo(BigInteger.ZERO) == 0) return null;
     ArrayList<Auction> auctionList = getActiveAffordableAuctionList(totalAuctionCount, balances);
     Wad18 median;
     try {
       median = Medianizer.getPrice();
     } catch (MedianException e) {
       logger.error(EXCEPTION, e);
-      return;
+      return null;
     }
+    List<Strategy.Execution> bids = new ArrayList<>();
     for (Auction auction : auctionList) {
       Wad18 potentialProfit = auction.getPotentialProfit(minimumBidIncrease, median);
       boolean isDent = auction.isDent(minimumBidIncrease);
       if (!auction.isInDefinedBiddingPhase(startingBiddingBeforeEnd, isDent)) {
         logger.trace("AUCTION IS NOT IN DEFINED BIDDING PHASE");
-        return;
+        break;
       }
       if (potentialProfit.compareTo(minimumFlipAuctionProfit) < 0) {
         logger.trace("FLIP AUCTION IS LESS PROFITABLE THAN MINIMUM PROFIT");
-        return;
+        break;
       }
       if (auction.amIHighestBidder(credentials)) {
         logger.trace("I AM THE HIGHEST BIDDER");
-        return;
+        break;
       }
       if (!auction.isAffordable(minimumBidIncrease, balances.getMaxDaiToSell())) {
         logger.trace("THERE IS A PROFITABLE FLIP AUCTION, BUT CONVERSION IS NOT YET IMPLEMENTED");
-        return;
+        break;
       }
-      balances.weth.checkIfWeth2EthConversionNecessaryThenDoIt(
-              auction.bidAmountInDai.multiply(minimumBidIncrease), balances, potentialProfit, median);
-      bid(auction, isDent);
+      bids.add(
+          () -> {
+            balances.weth.checkIfWeth2EthConversionNecessaryThenDoIt(
+                auction.bidAmountInDai.multiply(minimumBidIncrease),
+                balances,
+                potentialProfit,
+                median);
+            bid(auction, isDent);
+          });
     }
+    if (bids.isEmpty()) return null;
+    return () -> {
+      for (Strategy.Execution bid : bids) bid.execute();
+    };
   }
 
   BigInteger getAuctionLength() {
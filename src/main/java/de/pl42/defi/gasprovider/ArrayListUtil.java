@@ -2,7 +2,6 @@ package peggy42.cn.gasprovider;
 
 import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class ArrayListUtil {
@@ -10,17 +9,6 @@ public class ArrayListUtil {
     throw new IllegalStateException("Utility class");
   }
 
-  @NotNull
-  public static <T> List<T> removeDuplicates(@NotNull List<T> list) {
-    ArrayList<T> newList = new ArrayList<>();
-    for (T element : list) {
-      if (!newList.contains(element)) {
-        newList.add(element);
-      }
-    }
-    return newList;
-  }
-
   public static <T> String toString(@NotNull List<T> list) {
     StringBuilder sb = new StringBuilder();
     for (T s : list) {
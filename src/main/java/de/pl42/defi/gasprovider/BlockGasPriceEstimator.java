@@ -0,0 +1,139 @@
+package peggy42.cn.gasprovider;
+
+import peggy42.cn.numberutil.Wad18;
+import peggy42.cn.util.TDigest;
+import io.reactivex.disposables.Disposable;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.LoggerFactory;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.methods.response.EthBlock;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.math.BigInteger;
+
+/**
+ * Gas oracle on our own node. Streams the blocks with their transactions and keeps one t-digest of
+ * the gas prices per block for the last BLOCKS blocks. After every block the digests are merged
+ * and the safe low, standard and fast gas prices are read from the merged digest, so asking for
+ * them is O(1). Transactions without gas price, e.g. of miners, are ignored.
+ */
+final class BlockGasPriceEstimator implements GasOracleCache.GasOracle {
+  private static final org.slf4j.Logger logger =
+      LoggerFactory.getLogger(MethodHandles.lookup().lookupClass().getSimpleName());
+  static final int BLOCKS = 100; // about 20 minutes
+  static final double SAFE_LOW_QUANTILE = 0.3;
+  static final double STANDARD_QUANTILE = 0.6;
+  static final double FAST_QUANTILE = 0.9;
+  // without a new block for this long the node is lagging and its gas prices are not returned
+  static final long MAXIMUM_BLOCK_AGE = 5L * 60 * 1000;
+  private static final double COMPRESSION = 100;
+
+  private final Web3j web3j;
+  private final TDigest[] digests = new TDigest[BLOCKS];
+  private final long[] blockNumbers = new long[BLOCKS];
+  private long latestBlockNumber = -1;
+  private volatile GasPrices gasPrices;
+  private Disposable subscription;
+
+  /** @param web3j for the blocks, can be null, then only added blocks are used */
+  BlockGasPriceEstimator(Web3j web3j) {
+    this.web3j = web3j;
+  }
+
+  /** Subscribes to the blocks, starting BLOCKS blocks back, later calls do nothing */
+  synchronized void start() throws IOException {
+    if (web3j == null || subscription != null && !subscription.isDisposed()) return;
+    long from =
+        latestBlockNumber >= 0
+            ? latestBlockNumber + 1
+            : web3j.ethBlockNumber().send().getBlockNumber().longValueExact() - BLOCKS + 1;
+    subscription =
+        web3j
+            .replayPastAndFutureBlocksFlowable(
+                DefaultBlockParameter.valueOf(BigInteger.valueOf(from)), true)
+            .subscribe(
+                ethBlock -> addBlock(ethBlock.getBlock()),
+                throwable -> logger.error("BLOCK SUBSCRIPTION FAILED", throwable));
+    logger.trace("BLOCK GAS PRICES FROM BLOCK {}", from);
+  }
+
+  @Override
+  public synchronized void stop() {
+    if (subscription != null) subscription.dispose();
+  }
+
+  /** @return fast, standard and safe low gas price, starts the subscription if necessary */
+  @Override
+  public Wad18[] fetch() throws GasPriceException {
+    try {
+      start();
+    } catch (IOException e) {
+      throw new GasPriceException("BLOCK NUMBER IS UNAVAILABLE " + e.getMessage());
+    }
+    GasPrices current = gasPrices;
+    if (current == null) throw new GasPriceException("NO BLOCK WITH GAS PRICES YET");
+    long age = System.currentTimeMillis() - current.time;
+    if (age > MAXIMUM_BLOCK_AGE)
+      throw new GasPriceException("NO NEW BLOCK FOR " + age / 1000 + " SECONDS");
+    return new Wad18[] {current.fast, current.standard, current.safeLow};
+  }
+
+  /** Adds the gas prices of block, a block with a known number replaces the previous one */
+  synchronized void addBlock(@NotNull EthBlock.Block block) {
+    long number = block.getNumber().longValueExact();
+    TDigest digest = new TDigest(COMPRESSION);
+    for (EthBlock.TransactionResult<?> result : block.getTransactions()) {
+      if (!(result instanceof EthBlock.TransactionObject)) continue;
+      BigInteger gasPrice = ((EthBlock.TransactionObject) result).getGasPrice();
+      if (gasPrice != null && gasPrice.signum() > 0) digest.add(gasPrice.doubleValue());
+    }
+    int index = (int) (number % BLOCKS);
+    digests[index] = digest;
+    blockNumbers[index] = number;
+    latestBlockNumber = Math.max(latestBlockNumber, number);
+
+    TDigest window = new TDigest(COMPRESSION);
+    for (int i = 0; i < BLOCKS; i++) {
+      if (digests[i] != null && blockNumbers[i] > latestBlockNumber - BLOCKS)
+        window.add(digests[i]);
+    }
+    if (window.size() == 0) return;
+    gasPrices =
+        new GasPrices(
+            gasPrice(window, SAFE_LOW_QUANTILE),
+            gasPrice(window, STANDARD_QUANTILE),
+            gasPrice(window, FAST_QUANTILE),
+            System.currentTimeMillis());
+    logger.trace("BLOCK {} GAS PRICES {}", number, gasPrices);
+  }
+
+  private static Wad18 gasPrice(TDigest window, double quantile) {
+    return new Wad18((long) Math.ceil(window.quantile(quantile)));
+  }
+
+  private static final class GasPrices {
+    private final Wad18 safeLow;
+    private final Wad18 standard;
+    private final Wad18 fast;
+    private final long time;
+
+    private GasPrices(Wad18 safeLow, Wad18 standard, Wad18 fast, long time) {
+      this.safeLow = safeLow;
+      this.standard = standard;
+      this.fast = fast;
+      this.time = time;
+    }
+
+    @Override
+    public String toString() {
+      return "SAFE LOW "
+          + safeLow.toBigInteger()
+          + " STANDARD "
+          + standard.toBigInteger()
+          + " FAST "
+          + fast.toBigInteger();
+    }
+  }
+}
@@ -1,21 +1,25 @@
 package peggy42.cn.gasprovider;
 
 import peggy42.cn.numberutil.Wad18;
+import peggy42.cn.util.HttpUtil;
+import peggy42.cn.util.JsonPath;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.LoggerFactory;
 import org.web3j.utils.Convert;
 
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
-import java.math.BigInteger;
-import java.net.URL;
-import java.net.URLConnection;
-import java.nio.charset.StandardCharsets;
-import java.util.Scanner;
+import java.net.URI;
 
 public class ETHGasStation {
   private static final org.slf4j.Logger logger =
       LoggerFactory.getLogger(MethodHandles.lookup().lookupClass().getSimpleName());
+  private static final int TENTH_GWEI_DECIMALS = 8; // the API returns gas prices in 0.1 GWEI
+  private static final URI ETH_GAS_API =
+      URI.create("https://ethgasstation.info/json/ethgasAPI.json");
+  private static final JsonPath FASTEST = JsonPath.compile("fastest");
+  private static final JsonPath SAFE_LOW = JsonPath.compile("safeLow");
+  private static final JsonPath FASTEST_AND_SAFE_LOW = JsonPath.compile("fastest", "safeLow");
 
   private ETHGasStation() {
     throw new IllegalStateException("Utility class");
@@ -23,7 +27,7 @@ public class ETHGasStation {
 
   @NotNull
   static Wad18 getFastestGasPrice() throws GasPriceException {
-    Wad18 gasPrice = getGasPrice(4);
+    Wad18 gasPrice = getGasPrice(FASTEST);
     logger.trace(
         "ETHERGASSTATION SUGGESTS GP {}{}",
         Convert.fromWei(gasPrice.toBigDecimal(), Convert.Unit.GWEI),
@@ -33,7 +37,7 @@ public class ETHGasStation {
 
   @NotNull
   static Wad18 getSafeLowGasPrice() throws GasPriceException {
-    Wad18 gasPrice = getGasPrice(6);
+    Wad18 gasPrice = getGasPrice(SAFE_LOW);
     logger.trace(
         "ETHERGASSTATION SUGGESTS GP {}{}",
         Convert.fromWei(gasPrice.toBigDecimal(), Convert.Unit.GWEI),
@@ -41,19 +45,26 @@ public class ETHGasStation {
     return gasPrice;
   }
 
-  private static Wad18 getGasPrice(int i) throws GasPriceException {
+  /** @return fastest and safe low gas price of a single request */
+  @NotNull
+  static Wad18[] getFastestAndSafeLowGasPrice() throws GasPriceException {
+    Wad18[] gasPrices = getGasPrices(FASTEST_AND_SAFE_LOW);
+    logger.trace(
+        "ETHERGASSTATION SUGGESTS GP {}{} AND SAFE LOW GP {}{}",
+        Convert.fromWei(gasPrices[0].toBigDecimal(), Convert.Unit.GWEI),
+        " GWEI",
+        Convert.fromWei(gasPrices[1].toBigDecimal(), Convert.Unit.GWEI),
+        " GWEI");
+    return gasPrices;
+  }
+
+  private static Wad18 getGasPrice(JsonPath jsonPath) throws GasPriceException {
+    return getGasPrices(jsonPath)[0];
+  }
+
+  private static Wad18[] getGasPrices(JsonPath jsonPath) throws GasPriceException {
     try {
-      URL url = new URL("https://ethgasstation.info/json/ethgasAPI.json");
-      URLConnection hc = url.openConnection();
-      hc.setRequestProperty(
-          "User-Agent",
-          "Mozilla/5.0 (Macintosh; U; Intel Mac OS X 10.4; en-US; rv:1.9.2.2) Gecko/20100316 Firefox/3.6.2");
-      String out =
-          new Scanner(hc.getInputStream(), StandardCharsets.UTF_8).useDelimiter("\\A").next();
-      String[] parts = out.split("\"");
-      String clean = parts[i].replaceAll("[^\\d.]", "");
-      return new Wad18(
-          Convert.toWei(clean, Convert.Unit.GWEI).toBigInteger().divide(BigInteger.TEN));
+      return HttpUtil.getJson(ETH_GAS_API, jsonPath, TENTH_GWEI_DECIMALS);
     } catch (IOException e) {
       logger.error("IOException ", e);
       throw new GasPriceException("ETHGasStationException");
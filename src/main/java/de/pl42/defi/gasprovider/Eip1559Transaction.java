@@ -0,0 +1,84 @@
+package peggy42.cn.gasprovider;
+
+import org.jetbrains.annotations.NotNull;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Sign;
+import org.web3j.rlp.RlpEncoder;
+import org.web3j.rlp.RlpList;
+import org.web3j.rlp.RlpString;
+import org.web3j.rlp.RlpType;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Type-2 transaction of EIP-1559, which this version of web3j can't encode. The signed form is
+ * 0x02 || rlp([chainId, nonce, maxPriorityFeePerGas, maxFeePerGas, gasLimit, to, value, data,
+ * accessList, yParity, r, s]), the signature covers the same without the last three fields.
+ */
+final class Eip1559Transaction {
+  static final byte TYPE = 0x02;
+
+  private final long chainId;
+  private final BigInteger nonce;
+  private final Fees fees;
+  private final BigInteger gasLimit;
+  private final String to;
+  private final BigInteger value;
+  private final String data;
+
+  Eip1559Transaction(
+      long chainId,
+      @NotNull BigInteger nonce,
+      @NotNull Fees fees,
+      @NotNull BigInteger gasLimit,
+      @NotNull String to,
+      BigInteger value,
+      String data) {
+    this.chainId = chainId;
+    this.nonce = nonce;
+    this.fees = fees;
+    this.gasLimit = gasLimit;
+    this.to = to;
+    this.value = value == null ? BigInteger.ZERO : value;
+    this.data = data == null ? "" : data;
+  }
+
+  /** @return bytes that are signed, keccak256 of them is the signature hash */
+  byte[] encodeUnsigned() {
+    return typed(RlpEncoder.encode(new RlpList(fields())));
+  }
+
+  /** @return hex of the signed transaction for eth_sendRawTransaction */
+  String sign(@NotNull Credentials credentials) {
+    Sign.SignatureData signature = Sign.signMessage(encodeUnsigned(), credentials.getEcKeyPair());
+    List<RlpType> fields = fields();
+    fields.add(RlpString.create(signature.getV()[0] - 27L)); // y parity
+    fields.add(RlpString.create(Numeric.toBigInt(signature.getR())));
+    fields.add(RlpString.create(Numeric.toBigInt(signature.getS())));
+    return Numeric.toHexString(typed(RlpEncoder.encode(new RlpList(fields))));
+  }
+
+  private List<RlpType> fields() {
+    List<RlpType> fields = new ArrayList<>();
+    fields.add(RlpString.create(chainId));
+    fields.add(RlpString.create(nonce));
+    fields.add(RlpString.create(fees.getMaxPriorityFeePerGas().toBigInteger()));
+    fields.add(RlpString.create(fees.getMaxFeePerGas().toBigInteger()));
+    fields.add(RlpString.create(gasLimit));
+    fields.add(RlpString.create(Numeric.hexStringToByteArray(to)));
+    fields.add(RlpString.create(value));
+    fields.add(RlpString.create(Numeric.hexStringToByteArray(data)));
+    fields.add(new RlpList()); // access list
+    return fields;
+  }
+
+  private static byte[] typed(byte[] rlp) {
+    byte[] typed = new byte[rlp.length + 1];
+    typed[0] = TYPE;
+    System.arraycopy(rlp, 0, typed, 1, rlp.length);
+    return typed;
+  }
+}
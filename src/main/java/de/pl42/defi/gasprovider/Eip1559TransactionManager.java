@@ -0,0 +1,157 @@
+package peggy42.cn.gasprovider;
+
+import peggy42.cn.numberutil.Wad18;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.LoggerFactory;
+import org.web3j.crypto.Credentials;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthCall;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+import org.web3j.tx.RawTransactionManager;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.math.BigInteger;
+
+/**
+ * Sends contract transactions as type-2 transactions with the fees of the {@link FeeEngine} for the
+ * urgency of the called function. For FAST functions the legacy gas price of the GasProvider is
+ * the minimum effective gas price. If the node has no fee history, a legacy transaction is sent.
+ * Type-2 transactions are watched by the {@link PendingTransactionTracker} until they are mined,
+ * which bumps or cancels them.
+ */
+public class Eip1559TransactionManager extends RawTransactionManager {
+  private static final org.slf4j.Logger logger =
+      LoggerFactory.getLogger(MethodHandles.lookup().lookupClass().getSimpleName());
+
+  private final Web3j web3j;
+  private final Credentials credentials;
+  private final long chainId;
+  private final FeeEngine feeEngine;
+  private final PendingTransactionTracker tracker;
+  private final PendingTransactionTracker.Replacer replacer = new Replacer();
+
+  public Eip1559TransactionManager(
+      Web3j web3j, Credentials credentials, long chainId, FeeEngine feeEngine) {
+    this(web3j, credentials, chainId, feeEngine, new PendingTransactionTracker(web3j, feeEngine));
+  }
+
+  public Eip1559TransactionManager(
+      Web3j web3j,
+      Credentials credentials,
+      long chainId,
+      FeeEngine feeEngine,
+      PendingTransactionTracker tracker) {
+    super(web3j, credentials, chainId, tracker);
+    this.web3j = web3j;
+    this.credentials = credentials;
+    this.chainId = chainId;
+    this.feeEngine = feeEngine;
+    this.tracker = tracker;
+  }
+
+  @Override
+  public EthSendTransaction sendTransaction(
+      BigInteger gasPrice,
+      BigInteger gasLimit,
+      String to,
+      String data,
+      BigInteger value,
+      boolean constructor)
+      throws IOException {
+    if (constructor || to == null)
+      return super.sendTransaction(gasPrice, gasLimit, to, data, value, constructor);
+    Urgency urgency = FeeEngine.getUrgency(data == null ? "" : data);
+    Fees fees;
+    try {
+      // the gas price of trades includes the GasProvider's share of the profit
+      fees =
+          urgency == Urgency.FAST
+              ? feeEngine.getFees(urgency, new Wad18(gasPrice))
+              : feeEngine.getFees(urgency);
+    } catch (IOException e) {
+      logger.warn("NO FEE HISTORY, SENDING LEGACY TRANSACTION {}", e.getMessage());
+      return super.sendTransaction(gasPrice, gasLimit, to, data, value, false);
+    }
+    BigInteger nonce = getNonce();
+    logger.trace("SEND {} TYPE-2 TRANSACTION {}", urgency, fees);
+    EthSendTransaction response = send(nonce, fees, gasLimit, to, value, data);
+    if (!response.hasError()) {
+      try {
+        tracker.track(
+            new PendingTransactionTracker.PendingTransaction(
+                response.getTransactionHash(),
+                nonce,
+                urgency,
+                fees,
+                gasLimit,
+                to,
+                data,
+                value,
+                replacer));
+      } catch (IOException e) {
+        logger.warn("CAN'T TRACK {} {}", response.getTransactionHash(), e.getMessage());
+      }
+    }
+    return response;
+  }
+
+  private EthSendTransaction send(
+      BigInteger nonce, Fees fees, BigInteger gasLimit, String to, BigInteger value, String data)
+      throws IOException {
+    Eip1559Transaction transaction =
+        new Eip1559Transaction(chainId, nonce, fees, gasLimit, to, value, data);
+    return web3j.ethSendRawTransaction(transaction.sign(credentials)).send();
+  }
+
+  private static String hashOf(EthSendTransaction response) throws IOException {
+    if (response.hasError()) throw new IOException(response.getError().getMessage());
+    return response.getTransactionHash();
+  }
+
+  private class Replacer implements PendingTransactionTracker.Replacer {
+    @Override
+    public String resend(
+        @NotNull PendingTransactionTracker.PendingTransaction pending, @NotNull Fees fees)
+        throws IOException {
+      return hashOf(
+          send(pending.nonce, fees, pending.gasLimit, pending.to, pending.value, pending.data));
+    }
+
+    @Override
+    public String cancel(
+        @NotNull PendingTransactionTracker.PendingTransaction pending, @NotNull Fees fees)
+        throws IOException {
+      String self = credentials.getAddress();
+      return hashOf(
+          send(
+              pending.nonce,
+              fees,
+              PendingTransactionTracker.TRANSFER_GAS_LIMIT,
+              self,
+              BigInteger.ZERO,
+              ""));
+    }
+
+    @Override
+    public boolean isStillValid(@NotNull PendingTransactionTracker.PendingTransaction pending)
+        throws IOException {
+      EthCall call =
+          web3j
+              .ethCall(
+                  Transaction.createFunctionCallTransaction(
+                      credentials.getAddress(),
+                      null,
+                      null,
+                      null,
+                      pending.to,
+                      pending.value,
+                      pending.data),
+                  DefaultBlockParameterName.LATEST)
+              .send();
+      return !call.hasError() && !call.isReverted();
+    }
+  }
+}
@@ -1,20 +1,23 @@
 package peggy42.cn.gasprovider;
 
 import peggy42.cn.numberutil.Wad18;
+import peggy42.cn.util.HttpUtil;
+import peggy42.cn.util.JsonPath;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.LoggerFactory;
 import org.web3j.utils.Convert;
 
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
-import java.net.URL;
-import java.net.URLConnection;
-import java.nio.charset.StandardCharsets;
-import java.util.Scanner;
+import java.net.URI;
 
 public class Etherchain {
   private static final org.slf4j.Logger logger =
       LoggerFactory.getLogger(MethodHandles.lookup().lookupClass().getSimpleName());
+  private static final int GWEI_DECIMALS = 9;
+  private static final URI GAS_PRICE_ORACLE =
+      URI.create("https://www.etherchain.org/api/gasPriceOracle");
+  private static final JsonPath FASTEST = JsonPath.compile("fastest");
 
   private Etherchain() {
     throw new IllegalStateException("Utility class");
@@ -23,15 +26,7 @@ public class Etherchain {
   @NotNull
   static Wad18 getFastestGasPrice() throws GasPriceException {
     try {
-      URL url = new URL("https://www.etherchain.org/api/gasPriceOracle");
-      URLConnection hc = url.openConnection();
-      hc.setRequestProperty(
-          "User-Agent",
-          "Mozilla/5.0 (Macintosh; U; Intel Mac OS X 10.4; en-US; rv:1.9.2.2) Gecko/20100316 Firefox/3.6.2");
-      String out =
-          new Scanner(hc.getInputStream(), StandardCharsets.UTF_8).useDelimiter("\\A").next();
-      String[] parts = out.split("\"");
-      Wad18 gasPrice = new Wad18(Convert.toWei(parts[15], Convert.Unit.GWEI).toBigInteger());
+      Wad18 gasPrice = HttpUtil.getJson(GAS_PRICE_ORACLE, FASTEST, GWEI_DECIMALS)[0];
 
       logger.trace(
           "ETHERCHAIN SUGGESTS GP {}{}",
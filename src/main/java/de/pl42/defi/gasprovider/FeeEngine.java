@@ -0,0 +1,127 @@
+package peggy42.cn.gasprovider;
+
+import peggy42.cn.numberutil.Wad18;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.LoggerFactory;
+import org.web3j.crypto.Hash;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.Request;
+import org.web3j.utils.Convert;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * EIP-1559 fees from eth_feeHistory. The fee cap is the base fee of the next block times the
+ * multiplier of the urgency plus the tip, the tip is a percentile of the tips of the last
+ * BLOCK_COUNT blocks. The fee history is cached for FEE_HISTORY_TTL, about half a block.
+ */
+public final class FeeEngine {
+  private static final org.slf4j.Logger logger =
+      LoggerFactory.getLogger(MethodHandles.lookup().lookupClass().getSimpleName());
+  static final int BLOCK_COUNT = 20;
+  static final long FEE_HISTORY_TTL = 6L * 1000;
+  static final Wad18 DEFAULT_PRIORITY_FEE = new Wad18(1_500000000L); // 1.5 GWEI
+  private static final int[] PERCENTILES =
+      Arrays.stream(Urgency.values()).mapToInt(Urgency::getRewardPercentile).toArray();
+  private static final Map<String, Urgency> URGENCIES = new HashMap<>();
+
+  static {
+    // trades race other bots, lending can wait
+    urgency("buy(uint256,uint256)", Urgency.FAST); // Oasis
+    urgency("ethToTokenSwapInput(uint256,uint256)", Urgency.FAST); // Uniswap
+    urgency("tokenToEthSwapInput(uint256,uint256,uint256)", Urgency.FAST); // Uniswap
+    urgency("tend(uint256,uint256,uint256)", Urgency.FAST); // Flipper
+    urgency("dent(uint256,uint256,uint256)", Urgency.FAST); // Flipper
+    urgency("redeem(uint256)", Urgency.FAST); // Compound DAI, pays for a trade
+    urgency("withdraw(uint256)", Urgency.FAST); // WETH, pays for a trade
+    urgency("deposit()", Urgency.FAST); // WETH, pays for a trade
+    urgency("mint(uint256)", Urgency.SLOW); // Compound DAI
+  }
+
+  private final Web3jService web3jService;
+  private final Wad18 maximumFeePerGas;
+  private volatile FeeHistory feeHistory;
+  private volatile long feeHistoryTime;
+
+  /** @param maximumFeePerGas upper limit of every fee cap, e.g. the maximum gas price */
+  public FeeEngine(@NotNull Web3jService web3jService, @NotNull Wad18 maximumFeePerGas) {
+    this.web3jService = web3jService;
+    this.maximumFeePerGas = maximumFeePerGas;
+  }
+
+  private static void urgency(String signature, Urgency urgency) {
+    URGENCIES.put(Hash.sha3String(signature).substring(0, 10), urgency);
+  }
+
+  /** @return urgency of an encoded function call, STANDARD for functions that are not trades */
+  public static Urgency getUrgency(@NotNull String data) {
+    if (data.length() < 10) return Urgency.STANDARD;
+    return URGENCIES.getOrDefault(data.substring(0, 10).toLowerCase(), Urgency.STANDARD);
+  }
+
+  /** @throws IOException if the node has no fee history, e.g. before EIP-1559 */
+  public Fees getFees(@NotNull Urgency urgency) throws IOException {
+    return getFees(urgency, Wad18.ZERO);
+  }
+
+  /**
+   * @param minimumGasPrice the tip is raised so that base fee and tip reach it, up to the maximum
+   *     fee, e.g. the gas price of the GasProvider, which rises with the profit of a trade
+   * @throws IOException if the node has no fee history, e.g. before EIP-1559
+   */
+  public Fees getFees(@NotNull Urgency urgency, @NotNull Wad18 minimumGasPrice)
+      throws IOException {
+    FeeHistory history = getFeeHistory();
+    long baseFee = history.getNextBaseFee();
+    long tip = history.getPriorityFee(urgency.getRewardPercentile());
+    Wad18 priorityFee = tip < 0 ? DEFAULT_PRIORITY_FEE : new Wad18(tip);
+    long minimumTip = minimumGasPrice.toBigInteger().longValueExact() - baseFee;
+    if (minimumTip > 0) priorityFee = priorityFee.max(new Wad18(minimumTip));
+    Wad18 maxFee =
+        new Wad18((long) Math.ceil(baseFee * urgency.getBaseFeeMultiplier()))
+            .add(priorityFee)
+            .min(maximumFeePerGas);
+    Fees fees = new Fees(maxFee, priorityFee.min(maxFee));
+    logger.trace(
+        "{} FEES: BASE FEE {} MAX FEE {} TIP {}{}",
+        urgency,
+        gwei(new Wad18(baseFee)),
+        gwei(fees.getMaxFeePerGas()),
+        gwei(fees.getMaxPriorityFeePerGas()),
+        GasProvider.GWEI);
+    return fees;
+  }
+
+  Wad18 getMaximumFeePerGas() {
+    return maximumFeePerGas;
+  }
+
+  private static Object gwei(Wad18 wei) {
+    return Convert.fromWei(wei.toBigDecimal(), Convert.Unit.GWEI);
+  }
+
+  private FeeHistory getFeeHistory() throws IOException {
+    FeeHistory cached = feeHistory;
+    if (cached != null && System.currentTimeMillis() - feeHistoryTime < FEE_HISTORY_TTL)
+      return cached;
+    List<Object> params =
+        List.of(
+            Numeric.encodeQuantity(BigInteger.valueOf(BLOCK_COUNT)),
+            "latest",
+            Arrays.stream(PERCENTILES).boxed().toArray());
+    FeeHistory.Response response =
+        new Request<>("eth_feeHistory", params, web3jService, FeeHistory.Response.class).send();
+    if (response.hasError()) throw new IOException(response.getError().getMessage());
+    FeeHistory fetched = FeeHistory.of(response.getResult(), PERCENTILES);
+    feeHistory = fetched;
+    feeHistoryTime = System.currentTimeMillis();
+    return fetched;
+  }
+}
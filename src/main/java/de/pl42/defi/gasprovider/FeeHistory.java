@@ -0,0 +1,102 @@
+package peggy42.cn.gasprovider;
+
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Answer of eth_feeHistory in wei: base fees of the last blocks and of the next block, how full the
+ * blocks were and the tips paid at the requested percentiles.
+ */
+final class FeeHistory {
+  private static final int ELASTICITY_MULTIPLIER = 2;
+  private static final int BASE_FEE_MAX_CHANGE_DENOMINATOR = 8;
+
+  private final long[] baseFees;
+  private final double[] gasUsedRatios;
+  private final long[][] rewards;
+  private final int[] percentiles;
+
+  /**
+   * @param baseFees of every block, optionally followed by the base fee of the next block
+   * @param rewards of every block, one tip per percentile
+   */
+  FeeHistory(long[] baseFees, double[] gasUsedRatios, long[][] rewards, int[] percentiles) {
+    this.baseFees = baseFees;
+    this.gasUsedRatios = gasUsedRatios;
+    this.rewards = rewards;
+    this.percentiles = percentiles;
+  }
+
+  static FeeHistory of(Result result, int[] percentiles) throws IOException {
+    if (result == null || result.baseFeePerGas == null || result.baseFeePerGas.isEmpty())
+      throw new IOException("FEE HISTORY HAS NO BASE FEES");
+    long[] baseFees = result.baseFeePerGas.stream().mapToLong(FeeHistory::decode).toArray();
+    double[] gasUsedRatios =
+        result.gasUsedRatio == null
+            ? new double[0]
+            : result.gasUsedRatio.stream().mapToDouble(Double::doubleValue).toArray();
+    long[][] rewards = new long[0][];
+    if (result.reward != null) {
+      rewards = new long[result.reward.size()][];
+      for (int i = 0; i < rewards.length; i++) {
+        rewards[i] = result.reward.get(i).stream().mapToLong(FeeHistory::decode).toArray();
+      }
+    }
+    return new FeeHistory(baseFees, gasUsedRatios, rewards, percentiles);
+  }
+
+  private static long decode(String quantity) {
+    return Numeric.decodeQuantity(quantity).longValueExact();
+  }
+
+  /**
+   * Base fee of the next block. Nodes return it as the last base fee, otherwise it is computed from
+   * the base fee and the gas used of the latest block.
+   */
+  long getNextBaseFee() {
+    int latest = gasUsedRatios.length - 1;
+    if (baseFees.length > gasUsedRatios.length || latest < 0)
+      return baseFees[baseFees.length - 1];
+    return predictBaseFee(baseFees[latest], gasUsedRatios[latest]);
+  }
+
+  /** Base fee of the block after a block with baseFee that used gasUsedRatio of its gas limit */
+  static long predictBaseFee(long baseFee, double gasUsedRatio) {
+    // (gasUsed - gasTarget) / gasTarget with gasTarget = gasLimit / ELASTICITY_MULTIPLIER
+    double change = (gasUsedRatio * ELASTICITY_MULTIPLIER - 1) / BASE_FEE_MAX_CHANGE_DENOMINATOR;
+    return baseFee + (long) (baseFee * change);
+  }
+
+  /**
+   * Median over the blocks of the tip at percentile. Empty blocks have no tips and are skipped.
+   *
+   * @return the tip in wei or -1 if no block has a tip at percentile
+   */
+  long getPriorityFee(int percentile) {
+    int column = -1;
+    for (int i = 0; i < percentiles.length; i++) if (percentiles[i] == percentile) column = i;
+    if (column < 0)
+      throw new IllegalArgumentException("Argument 'percentile' was not requested");
+    int finalColumn = column;
+    long[] tips =
+        Arrays.stream(rewards)
+            .filter(reward -> reward.length > finalColumn && reward[finalColumn] > 0)
+            .mapToLong(reward -> reward[finalColumn])
+            .sorted()
+            .toArray();
+    return tips.length == 0 ? -1 : tips[tips.length / 2];
+  }
+
+  /** JSON of eth_feeHistory, quantities are hex strings */
+  static final class Result {
+    public String oldestBlock;
+    public List<String> baseFeePerGas;
+    public List<Double> gasUsedRatio;
+    public List<List<String>> reward;
+  }
+
+  static final class Response extends org.web3j.protocol.core.Response<Result> {}
+}
@@ -0,0 +1,35 @@
+package peggy42.cn.gasprovider;
+
+import peggy42.cn.numberutil.Wad18;
+import org.jetbrains.annotations.NotNull;
+
+/** Fees of a type-2 transaction in wei, maxPriorityFeePerGas is never above maxFeePerGas */
+public final class Fees {
+  private final Wad18 maxFeePerGas;
+  private final Wad18 maxPriorityFeePerGas;
+
+  public Fees(@NotNull Wad18 maxFeePerGas, @NotNull Wad18 maxPriorityFeePerGas) {
+    if (maxPriorityFeePerGas.compareTo(maxFeePerGas) > 0)
+      throw new IllegalArgumentException(
+          "Argument 'maxPriorityFeePerGas' is greater than 'maxFeePerGas'");
+    this.maxFeePerGas = maxFeePerGas;
+    this.maxPriorityFeePerGas = maxPriorityFeePerGas;
+  }
+
+  public Wad18 getMaxFeePerGas() {
+    return maxFeePerGas;
+  }
+
+  public Wad18 getMaxPriorityFeePerGas() {
+    return maxPriorityFeePerGas;
+  }
+
+  @Override
+  public String toString() {
+    return "Fees{maxFeePerGas="
+        + maxFeePerGas.toBigInteger()
+        + ", maxPriorityFeePerGas="
+        + maxPriorityFeePerGas.toBigInteger()
+        + '}';
+  }
+}
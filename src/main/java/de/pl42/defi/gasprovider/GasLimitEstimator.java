@@ -0,0 +1,108 @@
+package peggy42.cn.gasprovider;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.LoggerFactory;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.request.Transaction;
+
+import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gas limits learned per contract function. eth_estimateGas answers are cached and every receipt
+ * adds its gas used, of which the last SAMPLES are kept. The gas limit is the larger of the 95th
+ * percentile of the gas used and the latest estimate, plus SAFETY_MARGIN. A function without
+ * estimate and receipt keeps its default gas limit.
+ */
+final class GasLimitEstimator {
+  private static final org.slf4j.Logger logger =
+      LoggerFactory.getLogger(MethodHandles.lookup().lookupClass().getSimpleName());
+  static final double SAFETY_MARGIN = 1.2;
+  static final int SAMPLES = 64;
+  private static final double LIMIT_PERCENTILE = 0.95;
+  private static final double EXPECTED_PERCENTILE = 0.5;
+
+  private final Web3j web3j;
+  private final Map<String, Long> estimates = new ConcurrentHashMap<>();
+  private final Map<String, GasUsed> gasUsed = new ConcurrentHashMap<>();
+
+  /** @param web3j for eth_estimateGas, can be null, then only receipts are learned */
+  GasLimitEstimator(Web3j web3j) {
+    this.web3j = web3j;
+  }
+
+  /**
+   * Asks the node for the gas of transaction without waiting for the answer, so that the estimate
+   * is cached when the transaction is sent. A failing estimate, e.g. of a reverting transaction,
+   * is logged and ignored.
+   */
+  void estimateAsync(@NotNull String contractFunc, @NotNull Transaction transaction) {
+    if (web3j == null) return;
+    web3j
+        .ethEstimateGas(transaction)
+        .sendAsync()
+        .whenComplete(
+            (response, throwable) -> {
+              if (throwable != null) {
+                logger.warn("CAN'T ESTIMATE GAS OF {} {}", contractFunc, throwable.getMessage());
+              } else if (response.hasError()) {
+                logger.warn(
+                    "CAN'T ESTIMATE GAS OF {} {}", contractFunc, response.getError().getMessage());
+              } else {
+                recordEstimate(contractFunc, response.getAmountUsed().longValueExact());
+              }
+            });
+  }
+
+  void recordEstimate(@NotNull String contractFunc, long gas) {
+    estimates.put(contractFunc, gas);
+    logger.trace("{} ESTIMATED GAS {}", contractFunc, gas);
+  }
+
+  void recordGasUsed(@NotNull String contractFunc, long gas) {
+    gasUsed.computeIfAbsent(contractFunc, key -> new GasUsed()).add(gas);
+    logger.trace("{} USED GAS {}", contractFunc, gas);
+  }
+
+  /** @return gas limit of contractFunc including the safety margin */
+  long getGasLimit(@NotNull String contractFunc, long defaultGasLimit) {
+    long learned = learned(contractFunc, LIMIT_PERCENTILE);
+    if (learned == 0) return defaultGasLimit;
+    return (long) Math.ceil(learned * SAFETY_MARGIN);
+  }
+
+  /** @return gas that contractFunc most likely uses, without safety margin */
+  long getExpectedGas(@NotNull String contractFunc, long defaultGas) {
+    GasUsed used = gasUsed.get(contractFunc);
+    if (used != null) return used.percentile(EXPECTED_PERCENTILE);
+    return estimates.getOrDefault(contractFunc, defaultGas);
+  }
+
+  private long learned(String contractFunc, double percentile) {
+    GasUsed used = gasUsed.get(contractFunc);
+    long fromReceipts = used == null ? 0 : used.percentile(percentile);
+    return Math.max(fromReceipts, estimates.getOrDefault(contractFunc, 0L));
+  }
+
+  /** Ring buffer of the last SAMPLES gas used of one function */
+  private static final class GasUsed {
+    private final long[] samples = new long[SAMPLES];
+    private int count;
+    private int next;
+
+    private synchronized void add(long gas) {
+      samples[next] = gas;
+      next = (next + 1) % SAMPLES;
+      count = Math.min(count + 1, SAMPLES);
+    }
+
+    private synchronized long percentile(double percentile) {
+      long[] sorted = Arrays.copyOf(samples, count);
+      Arrays.sort(sorted);
+      int rank = (int) Math.ceil(percentile * count) - 1;
+      return sorted[Math.max(rank, 0)];
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package peggy42.cn.gasprovider;
+
+import peggy42.cn.numberutil.Wad18;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Latest gas prices of the gas oracles, e.g. Etherchain and ETHGasStation. A background thread
+ * asks every oracle each REFRESH_INTERVAL, so reading a price never waits for HTTP. A price older
+ * than the time to live is not returned, the caller has to fall back to something else.
+ */
+final class GasOracleCache {
+  private static final org.slf4j.Logger logger =
+      LoggerFactory.getLogger(MethodHandles.lookup().lookupClass().getSimpleName());
+  private static final String GAS_PRICE_EXCEPTION = "GasPriceException";
+  static final long REFRESH_INTERVAL = 10L * 1000;
+  // a few failed refreshes are fine, gas prices rarely move much within a minute
+  static final long TIME_TO_LIVE = 60L * 1000;
+
+  /** Asks an oracle once, one gas price per name it was registered with */
+  @FunctionalInterface
+  interface GasOracle {
+    Wad18[] fetch() throws GasPriceException;
+
+    /** Releases what the oracle holds, e.g. a subscription, called by {@link #stop()} */
+    default void stop() {}
+  }
+
+  private final Map<String, CachedGasPrice> gasPrices = new ConcurrentHashMap<>();
+  private final List<Registration> oracles = new CopyOnWriteArrayList<>();
+  private final AtomicBoolean started = new AtomicBoolean();
+  private final ScheduledExecutorService refresher =
+      Executors.newSingleThreadScheduledExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "gas-oracle");
+            thread.setDaemon(true);
+            return thread;
+          });
+  private final long refreshInterval;
+  private final long timeToLive;
+
+  GasOracleCache() {
+    this(REFRESH_INTERVAL, TIME_TO_LIVE);
+  }
+
+  GasOracleCache(long refreshInterval, long timeToLive) {
+    this.refreshInterval = refreshInterval;
+    this.timeToLive = timeToLive;
+  }
+
+  /** @param names the names of the gas prices that oracle returns, in the same order */
+  void register(@NotNull GasOracle oracle, @NotNull String... names) {
+    oracles.add(new Registration(oracle, names));
+  }
+
+  /**
+   * Refreshes all oracles once and then every refresh interval in the background, later calls do
+   * nothing. The first refresh is synchronous, so that the first trade has gas prices.
+   */
+  void start() {
+    if (!started.compareAndSet(false, true)) return;
+    refresh();
+    refresher.scheduleWithFixedDelay(
+        this::refresh, refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
+    logger.trace("GAS ORACLE REFRESHER STARTED");
+  }
+
+  void stop() {
+    refresher.shutdownNow();
+    for (Registration registration : oracles) registration.oracle.stop();
+  }
+
+  /** Asks every oracle once, a failing oracle keeps its previous gas prices */
+  void refresh() {
+    for (Registration registration : oracles) {
+      try {
+        Wad18[] values = registration.oracle.fetch();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < registration.names.length && i < values.length; i++) {
+          gasPrices.put(registration.names[i], new CachedGasPrice(values[i], now));
+        }
+      } catch (GasPriceException e) {
+        logger.error(GAS_PRICE_EXCEPTION, e);
+      } catch (RuntimeException e) {
+        logger.error("Exception", e); // keeps the scheduled refresher alive
+      }
+    }
+  }
+
+  /**
+   * Cached gas price without waiting, starts the refresher if necessary.
+   *
+   * @return the gas price or null if there is none or it is older than the time to live
+   */
+  @Nullable
+  Wad18 get(@NotNull String name) {
+    if (!started.get()) start();
+    CachedGasPrice cached = gasPrices.get(name);
+    if (cached == null) {
+      logger.warn("NO GAS PRICE FROM {}", name);
+      return null;
+    }
+    long age = System.currentTimeMillis() - cached.time;
+    if (age > timeToLive) {
+      logger.warn("GAS PRICE FROM {} IS STALE, {} MS OLD, IGNORED", name, age);
+      return null;
+    }
+    return cached.gasPrice;
+  }
+
+  private static final class Registration {
+    private final GasOracle oracle;
+    private final String[] names;
+
+    private Registration(GasOracle oracle, String[] names) {
+      this.oracle = oracle;
+      this.names = names;
+    }
+  }
+
+  private static final class CachedGasPrice {
+    private final Wad18 gasPrice;
+    private final long time;
+
+    private CachedGasPrice(Wad18 gasPrice, long time) {
+      this.gasPrice = gasPrice;
+      this.time = time;
+    }
+  }
+}
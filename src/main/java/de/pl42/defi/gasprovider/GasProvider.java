@@ -6,55 +6,124 @@ import peggy42.cn.flipper.FlipperContract;
 import peggy42.cn.numberutil.Wad18;
 import peggy42.cn.oasis.OasisContract;
 import peggy42.cn.uniswap.UniswapContract;
+import peggy42.cn.util.SlidingWindowCounter;
 import peggy42.cn.weth.WethContract;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.LoggerFactory;
 import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
 import org.web3j.tx.gas.ContractGasProvider;
 import org.web3j.utils.Convert;
 
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.math.BigInteger;
-import java.util.ArrayList;
-import java.util.List;
 
 import static peggy42.cn.numberutil.NumberUtil.getMachineReadable;
 
 public class GasProvider implements ContractGasProvider {
   static final String GWEI = " GWEI";
   private static final String GAS_PRICE_EXCEPTION = "GasPriceException";
+  static final String ETHERCHAIN_FASTEST = "ETHERCHAIN_FASTEST";
+  static final String ETHGASSTATION_FASTEST = "ETHGASSTATION_FASTEST";
+  static final String ETHGASSTATION_SAFE_LOW = "ETHGASSTATION_SAFE_LOW";
+  static final String NODE_FAST = "NODE_FAST";
+  static final String NODE_STANDARD = "NODE_STANDARD";
+  static final String NODE_SAFE_LOW = "NODE_SAFE_LOW";
+  // gas of an unknown action for the gas price based on the profit
+  private static final double DEFAULT_EXPECTED_GAS = 300_000.0;
   private static final org.slf4j.Logger logger =
       LoggerFactory.getLogger(MethodHandles.lookup().lookupClass().getSimpleName());
   final Wad18 minimumGasPrice;
   final Wad18 maximumGasPrice;
   final Web3j web3j;
+  private final GasOracleCache gasOracles;
+  private final GasLimitEstimator gasLimits;
   Wad18 gasPrice;
-  private List<Long> failedTransactionsWithinTheLastTwelveHoursForGasPriceArrayList =
-      new ArrayList<>();
+  private final SlidingWindowCounter failedTransactionsWithinTheLastTwelveHours =
+      new SlidingWindowCounter(12L * 60 * 60 * 1000, 720); // 12 hours in minutes
 
   public GasProvider(Web3j web3j, Wad18 minimumGasPrice, Wad18 maximumGasPrice) {
+    this(web3j, minimumGasPrice, maximumGasPrice, defaultGasOracles(web3j));
+  }
+
+  GasProvider(
+      Web3j web3j, Wad18 minimumGasPrice, Wad18 maximumGasPrice, GasOracleCache gasOracles) {
     this.web3j = web3j;
     this.minimumGasPrice = minimumGasPrice;
     this.maximumGasPrice = maximumGasPrice;
+    this.gasOracles = gasOracles;
+    this.gasLimits = new GasLimitEstimator(web3j);
     this.gasPrice = new Wad18(BigInteger.valueOf(1_000000000));
   }
 
-  public void updateFailedTransactions(List<Long> list) {
-    failedTransactionsWithinTheLastTwelveHoursForGasPriceArrayList.addAll(list);
-    setFailedTransactionsWithinTheLastTwelveHoursForGasPriceArrayList(
-        ArrayListUtil.removeDuplicates(
-            failedTransactionsWithinTheLastTwelveHoursForGasPriceArrayList));
-    if (System.currentTimeMillis()
-        >= failedTransactionsWithinTheLastTwelveHoursForGasPriceArrayList.get(0)
-            + 12 * 60 * 60 * 1000) { // 12 hours
-      logger.trace("FAILED TRANSACTION REMOVED 12 HOURS");
-      failedTransactionsWithinTheLastTwelveHoursForGasPriceArrayList.remove(0);
-    }
+  private static GasOracleCache defaultGasOracles(Web3j web3j) {
+    GasOracleCache gasOracles = new GasOracleCache();
+    if (web3j != null)
+      gasOracles.register(
+          new BlockGasPriceEstimator(web3j), NODE_FAST, NODE_STANDARD, NODE_SAFE_LOW);
+    gasOracles.register(() -> new Wad18[] {Etherchain.getFastestGasPrice()}, ETHERCHAIN_FASTEST);
+    gasOracles.register(
+        ETHGasStation::getFastestAndSafeLowGasPrice, ETHGASSTATION_FASTEST, ETHGASSTATION_SAFE_LOW);
+    return gasOracles;
   }
 
+  /**
+   * Refreshes the gas oracles in the background from now on. Without this call the first gas price
+   * update starts the refresher.
+   */
+  public void start() {
+    gasOracles.start();
+  }
+
+  public void stop() {
+    gasOracles.stop();
+  }
+
+  /** Raises the share of the profit that is paid as gas for the next 12 hours */
+  public void recordFailedTransaction() {
+    failedTransactionsWithinTheLastTwelveHours.increment();
+  }
+
+  /** @return the learned gas limit of contractFunc, or its default gas limit */
   @Override
   public BigInteger getGasLimit(@NotNull String contractFunc) {
+    return BigInteger.valueOf(
+        gasLimits.getGasLimit(contractFunc, getDefaultGasLimit(contractFunc).longValueExact()));
+  }
+
+  /**
+   * Starts eth_estimateGas for a transaction that is about to be sent, without waiting. Call it
+   * before a slow step like the permission check, so that the estimate is there in time.
+   *
+   * @param data encoded function call, e.g. of RemoteFunctionCall.encodeFunctionCall()
+   */
+  public void estimateGasLimit(
+      @NotNull String contractFunc,
+      @NotNull String from,
+      @NotNull String contractAddress,
+      @NotNull String data,
+      BigInteger weiValue) {
+    gasLimits.estimateAsync(
+        contractFunc,
+        Transaction.createFunctionCallTransaction(
+            from, null, null, null, contractAddress, weiValue, data));
+  }
+
+  /** Learns the gas limit of contractFunc from the gas used by a sent transaction */
+  public void recordGasUsed(@NotNull String contractFunc, @NotNull TransactionReceipt receipt) {
+    if (receipt.getGasUsedRaw() != null)
+      gasLimits.recordGasUsed(contractFunc, receipt.getGasUsed().longValueExact());
+  }
+
+  /** @return gas that contractFunc most likely uses, learned or its default gas limit */
+  public Wad18 getExpectedGas(@NotNull String contractFunc) {
+    long defaultGas = getDefaultGasLimit(contractFunc).longValueExact();
+    return new Wad18(gasLimits.getExpectedGas(contractFunc, defaultGas));
+  }
+
+  static BigInteger getDefaultGasLimit(@NotNull String contractFunc) {
     switch (contractFunc) {
       case CompoundDaiContract.FUNC_MINT:
       case CompoundDaiContract.FUNC_REDEEM:
@@ -82,27 +151,43 @@ public class GasProvider implements ContractGasProvider {
     return gasPrice.toBigInteger();
   }
 
+  /**
+   * Highest of the cached oracle gas prices, the minimum gas price and a gas price based on the
+   * profit, capped by the maximum gas price. Reads the oracles from the cache, so it never waits
+   * for HTTP. If no oracle has a fresh gas price, it falls back to the minimum and the profit.
+   */
   public Wad18 updateFastGasPrice(Wad18 medianEthereumPrice, Wad18 potentialProfit) {
+    return updateFastGasPrice(medianEthereumPrice, potentialProfit, DEFAULT_EXPECTED_GAS);
+  }
+
+  /**
+   * @param contractFunc the function to send, its expected gas is used for the gas price based on
+   *     the profit
+   * @see #updateFastGasPrice(Wad18, Wad18)
+   */
+  public Wad18 updateFastGasPrice(
+      @NotNull String contractFunc, Wad18 medianEthereumPrice, Wad18 potentialProfit) {
+    double expectedGas = getExpectedGas(contractFunc).toBigInteger().doubleValue();
+    return updateFastGasPrice(medianEthereumPrice, potentialProfit, expectedGas);
+  }
+
+  private Wad18 updateFastGasPrice(
+      Wad18 medianEthereumPrice, Wad18 potentialProfit, double expectedGas) {
     Wad18 fastGasPrice = minimumGasPrice;
-    try {
-      Wad18 etherchainResult = Etherchain.getFastestGasPrice();
-      fastGasPrice = fastGasPrice.max(etherchainResult);
-    } catch (GasPriceException e) {
-      logger.error(GAS_PRICE_EXCEPTION, e);
-    }
-    try {
-      Wad18 ethGasStationResult = ETHGasStation.getFastestGasPrice();
-      fastGasPrice = fastGasPrice.max(ethGasStationResult);
-    } catch (GasPriceException e) {
-      logger.error(GAS_PRICE_EXCEPTION, e);
-    }
+    Wad18 etherchainResult = gasOracles.get(ETHERCHAIN_FASTEST);
+    if (etherchainResult != null) fastGasPrice = fastGasPrice.max(etherchainResult);
+    Wad18 ethGasStationResult = gasOracles.get(ETHGASSTATION_FASTEST);
+    if (ethGasStationResult != null) fastGasPrice = fastGasPrice.max(ethGasStationResult);
+    Wad18 nodeResult = gasOracles.get(NODE_FAST);
+    if (nodeResult != null) fastGasPrice = fastGasPrice.max(nodeResult);
+    if (etherchainResult == null && ethGasStationResult == null && nodeResult == null)
+      logger.warn("NO FRESH GAS ORACLE, FAST GAS PRICE FALLS BACK TO MINIMUM AND PROFIT");
     try {
       double percentageOfProfitAsFee =
-          getPercentageOfProfitAsFee(
-                  failedTransactionsWithinTheLastTwelveHoursForGasPriceArrayList.size());
+          getPercentageOfProfitAsFee(failedTransactionsWithinTheLastTwelveHours.count());
       Wad18 gasPriceBasedOnProfit =
               calculateGasPriceAsAPercentageOfProfit(
-                      medianEthereumPrice, potentialProfit, 300000.0, percentageOfProfitAsFee);
+                      medianEthereumPrice, potentialProfit, expectedGas, percentageOfProfitAsFee);
       // instead of fixed
       fastGasPrice = fastGasPrice.max(gasPriceBasedOnProfit);
     } catch (GasPriceException e) {
@@ -115,13 +200,21 @@ public class GasProvider implements ContractGasProvider {
   }
 
   public Wad18 updateSlowGasPrice() {
+    gasPrice = getSlowGasPrice();
+    logger.trace(
+            "GAS PRICE {}{}", Convert.fromWei(gasPrice.toBigDecimal(), Convert.Unit.GWEI), GWEI);
+    return gasPrice;
+  }
+
+  /** @return the slow gas price without changing the gas price of the next transaction */
+  public Wad18 getSlowGasPrice() {
     Wad18 slowGasPrice = maximumGasPrice;
-    try {
-      Wad18 ethGasStationResult = ETHGasStation.getSafeLowGasPrice();
-      slowGasPrice = slowGasPrice.min(ethGasStationResult);
-    } catch (GasPriceException e) {
-      logger.error(GAS_PRICE_EXCEPTION, e);
-    }
+    Wad18 ethGasStationResult = gasOracles.get(ETHGASSTATION_SAFE_LOW);
+    if (ethGasStationResult != null) slowGasPrice = slowGasPrice.min(ethGasStationResult);
+    Wad18 nodeResult = gasOracles.get(NODE_SAFE_LOW);
+    if (nodeResult != null) slowGasPrice = slowGasPrice.min(nodeResult);
+    if (ethGasStationResult == null && nodeResult == null)
+      logger.warn("NO FRESH SAFE LOW GAS PRICE, SLOW GAS PRICE FALLS BACK TO WEB3J");
     try {
       Wad18 web3jResult = new Wad18(web3j.ethGasPrice().send().getGasPrice());
       logger.trace(
@@ -132,10 +225,7 @@ public class GasProvider implements ContractGasProvider {
     } catch (IOException e) {
       logger.error("IOException", e);
     }
-    gasPrice = slowGasPrice;
-    logger.trace(
-            "GAS PRICE {}{}", Convert.fromWei(gasPrice.toBigDecimal(), Convert.Unit.GWEI), GWEI);
-    return gasPrice;
+    return slowGasPrice;
   }
 
   public double getPercentageOfProfitAsFee(
@@ -191,13 +281,7 @@ public class GasProvider implements ContractGasProvider {
     return null;
   }
 
-  public int getFailedTransactionsWithinTheLastTwelveHoursForGasPriceArrayList() {
-    return failedTransactionsWithinTheLastTwelveHoursForGasPriceArrayList.size();
-  }
-
-  public void setFailedTransactionsWithinTheLastTwelveHoursForGasPriceArrayList(
-      List<Long> failedTransactionsWithinTheLastTwelveHoursForGasPriceArrayList) {
-    this.failedTransactionsWithinTheLastTwelveHoursForGasPriceArrayList =
-        failedTransactionsWithinTheLastTwelveHoursForGasPriceArrayList;
+  public int getFailedTransactionsWithinTheLastTwelveHours() {
+    return failedTransactionsWithinTheLastTwelveHours.count();
   }
 }
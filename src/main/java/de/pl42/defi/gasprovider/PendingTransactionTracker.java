@@ -0,0 +1,325 @@
+package peggy42.cn.gasprovider;
+
+import peggy42.cn.numberutil.Wad18;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.LoggerFactory;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+import org.web3j.protocol.core.methods.response.EthGetTransactionReceipt;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.protocol.exceptions.TransactionException;
+import org.web3j.tx.response.TransactionReceiptProcessor;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.math.BigInteger;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Waits for the receipts of the sent transactions and watches their inclusion block by block. A
+ * transaction that is still pending after the blocks of its urgency is sent again with the same
+ * nonce and fees raised by BUMP_FACTOR, at most the maximum bumps of its urgency. A transaction
+ * that would revert by now, e.g. because the offer was taken, is cancelled by a 0-value transfer
+ * to ourselves with the same nonce. Whichever transaction of the nonce is mined ends the wait.
+ */
+public final class PendingTransactionTracker extends TransactionReceiptProcessor {
+  private static final org.slf4j.Logger logger =
+      LoggerFactory.getLogger(MethodHandles.lookup().lookupClass().getSimpleName());
+  // nodes replace a pending transaction only if both fees are at least 10% higher
+  static final double BUMP_FACTOR = 1.125;
+  private static final BigInteger MINIMUM_REPLACEMENT_PERCENTAGE = BigInteger.valueOf(110);
+  private static final BigInteger ONE_HUNDRED = BigInteger.valueOf(100);
+  static final long POLL_INTERVAL = 2L * 1000;
+  static final int TIMEOUT_BLOCKS = 40; // about web3j's default of 10 minutes
+  static final BigInteger TRANSFER_GAS_LIMIT = BigInteger.valueOf(21_000);
+
+  /** Sends the replacements of a pending transaction, with its nonce and the given fees */
+  interface Replacer {
+    String resend(@NotNull PendingTransaction pending, @NotNull Fees fees) throws IOException;
+
+    String cancel(@NotNull PendingTransaction pending, @NotNull Fees fees) throws IOException;
+
+    /** @return true if the transaction would still succeed in the latest block */
+    boolean isStillValid(@NotNull PendingTransaction pending) throws IOException;
+  }
+
+  private final Web3j web3j;
+  private final FeeEngine feeEngine;
+  private final long pollInterval;
+  private final Map<String, PendingTransaction> pendingTransactions = new ConcurrentHashMap<>();
+  private final Map<Urgency, InclusionMetrics> metrics = new EnumMap<>(Urgency.class);
+
+  public PendingTransactionTracker(@NotNull Web3j web3j, @NotNull FeeEngine feeEngine) {
+    this(web3j, feeEngine, POLL_INTERVAL);
+  }
+
+  PendingTransactionTracker(Web3j web3j, FeeEngine feeEngine, long pollInterval) {
+    super(web3j);
+    this.web3j = web3j;
+    this.feeEngine = feeEngine;
+    this.pollInterval = pollInterval;
+    for (Urgency urgency : Urgency.values()) metrics.put(urgency, new InclusionMetrics());
+  }
+
+  /** Watches pending from now on, the wait for its receipt bumps or cancels it */
+  void track(@NotNull PendingTransaction pending) throws IOException {
+    pending.firstBlock = getBlockNumber();
+    pending.sentBlock = pending.firstBlock;
+    pendingTransactions.put(pending.getHash(), pending);
+    logger.trace(
+        "TRACKING {} NONCE {} FROM BLOCK {}", pending.getHash(), pending.nonce, pending.firstBlock);
+  }
+
+  /**
+   * Waits for the receipt of the transaction with transactionHash or of one of its replacements.
+   *
+   * @throws TransactionException if the transaction was cancelled or nothing was mined in time
+   */
+  @Override
+  public TransactionReceipt waitForTransactionReceipt(String transactionHash)
+      throws IOException, TransactionException {
+    PendingTransaction pending = pendingTransactions.get(transactionHash);
+    try {
+      return pending == null ? waitForUntracked(transactionHash) : waitFor(pending);
+    } finally {
+      if (pending != null) pending.hashes.forEach(pendingTransactions::remove);
+    }
+  }
+
+  private TransactionReceipt waitForUntracked(String transactionHash)
+      throws IOException, TransactionException {
+    long timeoutBlock = getBlockNumber() + TIMEOUT_BLOCKS;
+    while (true) {
+      Optional<TransactionReceipt> receipt = getReceipt(transactionHash);
+      if (receipt.isPresent()) return receipt.get();
+      if (getBlockNumber() > timeoutBlock)
+        throw new TransactionException(
+            "TRANSACTION NOT MINED WITHIN " + TIMEOUT_BLOCKS + " BLOCKS", transactionHash);
+      sleep();
+    }
+  }
+
+  private TransactionReceipt waitFor(PendingTransaction pending)
+      throws IOException, TransactionException {
+    long lastBlock = -1;
+    while (true) {
+      long block = getBlockNumber();
+      if (block != lastBlock) {
+        lastBlock = block;
+        for (String hash : pending.hashes) {
+          Optional<TransactionReceipt> receipt = getReceipt(hash);
+          if (receipt.isPresent()) return included(pending, hash, receipt.get(), block);
+        }
+        if (block - pending.firstBlock > TIMEOUT_BLOCKS)
+          throw new TransactionException(
+              "TRANSACTION NOT MINED WITHIN " + TIMEOUT_BLOCKS + " BLOCKS", pending.getHash());
+        if (block - pending.sentBlock >= pending.urgency.getBlocksUntilBump()) {
+          try {
+            replace(pending, block);
+          } catch (IOException e) {
+            // e.g. the node rejected the replacement, the next block tries again
+            logger.warn("CAN'T REPLACE NONCE {} {}", pending.nonce, e.getMessage());
+          }
+        }
+      }
+      sleep();
+    }
+  }
+
+  private TransactionReceipt included(
+      PendingTransaction pending, String hash, TransactionReceipt receipt, long block)
+      throws TransactionException {
+    long blocks = block - pending.firstBlock;
+    long millis = System.currentTimeMillis() - pending.firstSent;
+    InclusionMetrics urgencyMetrics = metrics.get(pending.urgency);
+    if (hash.equals(pending.cancelHash)) {
+      urgencyMetrics.cancelled.increment();
+      logger.warn("NONCE {} CANCELLED AFTER {} BLOCKS", pending.nonce, blocks);
+      throw new TransactionException("TRANSACTION CANCELLED", receipt);
+    }
+    urgencyMetrics.record(blocks, millis);
+    logger.trace(
+        "{} INCLUDED AFTER {} BLOCKS {} MS {} BUMPS, {} MS ON AVERAGE",
+        hash,
+        blocks,
+        millis,
+        pending.bumps,
+        urgencyMetrics.getAverageMillis());
+    return receipt;
+  }
+
+  /**
+   * Cancels pending if it would revert by now, otherwise bumps its fees if its urgency allows. Both
+   * need fees that the node accepts as replacement, which is impossible at the maximum fee.
+   */
+  private void replace(PendingTransaction pending, long block) throws IOException {
+    if (pending.cancelHash != null || pending.uncancellable) return;
+    if (!pending.replacer.isStillValid(pending)) {
+      Fees fees = bump(pending.fees);
+      if (!isReplacement(pending.fees, fees)) {
+        pending.uncancellable = true;
+        logger.warn("NONCE {} WOULD REVERT, BUT ITS FEES ARE TOO HIGH TO CANCEL IT", pending.nonce);
+        return;
+      }
+      String hash = pending.replacer.cancel(pending, fees);
+      logger.warn("NONCE {} WOULD REVERT, CANCELLING WITH {}", pending.nonce, hash);
+      pending.cancelHash = hash;
+      sent(pending, hash, fees, block);
+      return;
+    }
+    if (pending.bumps >= pending.urgency.getMaximumBumps()) return;
+    Fees fees = bump(pending.fees);
+    if (!isReplacement(pending.fees, fees)) return; // capped by the maximum fee
+    String hash = pending.replacer.resend(pending, fees);
+    pending.bumps++;
+    metrics.get(pending.urgency).bumped.increment();
+    logger.trace("NONCE {} BUMPED TO {} WITH {}", pending.nonce, fees, hash);
+    sent(pending, hash, fees, block);
+  }
+
+  private void sent(PendingTransaction pending, String hash, Fees fees, long block) {
+    pending.hashes.add(hash);
+    pending.fees = fees;
+    pending.sentBlock = block;
+    pendingTransactions.put(hash, pending);
+  }
+
+  /** @return fees raised by BUMP_FACTOR, capped by the maximum fee of the FeeEngine */
+  Fees bump(@NotNull Fees fees) {
+    Wad18 maximum = feeEngine.getMaximumFeePerGas();
+    Wad18 maxFee = multiply(fees.getMaxFeePerGas()).min(maximum);
+    Wad18 priorityFee = multiply(fees.getMaxPriorityFeePerGas()).min(maxFee);
+    return new Fees(maxFee, priorityFee);
+  }
+
+  /** @return true if nodes accept bumped as replacement of a transaction with fees */
+  static boolean isReplacement(@NotNull Fees fees, @NotNull Fees bumped) {
+    return isIncreasedEnough(fees.getMaxFeePerGas(), bumped.getMaxFeePerGas())
+        && isIncreasedEnough(fees.getMaxPriorityFeePerGas(), bumped.getMaxPriorityFeePerGas());
+  }
+
+  private static boolean isIncreasedEnough(Wad18 wei, Wad18 bumpedWei) {
+    BigInteger minimum = wei.toBigInteger().multiply(MINIMUM_REPLACEMENT_PERCENTAGE);
+    return bumpedWei.toBigInteger().multiply(ONE_HUNDRED).compareTo(minimum) >= 0;
+  }
+
+  private static Wad18 multiply(Wad18 wei) {
+    double bumped = Math.ceil(wei.toBigInteger().doubleValue() * BUMP_FACTOR);
+    return new Wad18(BigInteger.valueOf((long) bumped));
+  }
+
+  private long getBlockNumber() throws IOException {
+    EthBlockNumber response = web3j.ethBlockNumber().send();
+    if (response.hasError()) throw new IOException(response.getError().getMessage());
+    return response.getBlockNumber().longValueExact();
+  }
+
+  private Optional<TransactionReceipt> getReceipt(String hash) throws IOException {
+    EthGetTransactionReceipt response = web3j.ethGetTransactionReceipt(hash).send();
+    if (response.hasError()) throw new IOException(response.getError().getMessage());
+    return response.getTransactionReceipt();
+  }
+
+  private void sleep() throws TransactionException {
+    try {
+      Thread.sleep(pollInterval);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TransactionException(e);
+    }
+  }
+
+  /** @return number of transactions of urgency that were mined, not counting cancellations */
+  public long getIncludedTransactions(@NotNull Urgency urgency) {
+    return metrics.get(urgency).included.sum();
+  }
+
+  /** @return average time from the first send to the inclusion of urgency, 0 if none */
+  public long getAverageInclusionMillis(@NotNull Urgency urgency) {
+    return metrics.get(urgency).getAverageMillis();
+  }
+
+  public long getAverageInclusionBlocks(@NotNull Urgency urgency) {
+    InclusionMetrics urgencyMetrics = metrics.get(urgency);
+    long included = urgencyMetrics.included.sum();
+    return included == 0 ? 0 : urgencyMetrics.blocks.sum() / included;
+  }
+
+  public long getBumps(@NotNull Urgency urgency) {
+    return metrics.get(urgency).bumped.sum();
+  }
+
+  public long getCancellations(@NotNull Urgency urgency) {
+    return metrics.get(urgency).cancelled.sum();
+  }
+
+  /** A sent transaction and its replacements, which share its nonce */
+  static final class PendingTransaction {
+    final BigInteger nonce;
+    final Urgency urgency;
+    final BigInteger gasLimit;
+    final String to;
+    final String data;
+    final BigInteger value;
+    private final Replacer replacer;
+    private final List<String> hashes = new CopyOnWriteArrayList<>();
+    private final long firstSent = System.currentTimeMillis();
+    private volatile long firstBlock;
+    private volatile Fees fees;
+    private volatile long sentBlock;
+    private volatile int bumps;
+    private volatile String cancelHash;
+    private volatile boolean uncancellable;
+
+    PendingTransaction(
+        @NotNull String hash,
+        @NotNull BigInteger nonce,
+        @NotNull Urgency urgency,
+        @NotNull Fees fees,
+        @NotNull BigInteger gasLimit,
+        @NotNull String to,
+        String data,
+        BigInteger value,
+        @NotNull Replacer replacer) {
+      this.nonce = nonce;
+      this.urgency = urgency;
+      this.fees = fees;
+      this.gasLimit = gasLimit;
+      this.to = to;
+      this.data = data;
+      this.value = value;
+      this.replacer = replacer;
+      hashes.add(hash);
+    }
+
+    /** @return hash of the first transaction, the one the caller waits for */
+    String getHash() {
+      return hashes.get(0);
+    }
+  }
+
+  private static final class InclusionMetrics {
+    private final LongAdder included = new LongAdder();
+    private final LongAdder millis = new LongAdder();
+    private final LongAdder blocks = new LongAdder();
+    private final LongAdder bumped = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+
+    private void record(long inclusionBlocks, long inclusionMillis) {
+      included.increment();
+      blocks.add(inclusionBlocks);
+      millis.add(inclusionMillis);
+    }
+
+    private long getAverageMillis() {
+      long count = included.sum();
+      return count == 0 ? 0 : millis.sum() / count;
+    }
+  }
+}
@@ -0,0 +1,44 @@
+package peggy42.cn.gasprovider;
+
+/**
+ * How soon a transaction should be mined. The tip is a percentile of the tips of recent blocks,
+ * the fee cap covers the base fee rising by 12.5% per block for some blocks. A transaction that is
+ * still pending after some blocks is replaced with higher fees a limited number of times.
+ */
+public enum Urgency {
+  /** e.g. lending, 10th percentile tip, survives about two full blocks, bumped after 10 blocks */
+  SLOW(10, 1.25, 10, 2),
+  /** 50th percentile tip, survives about four full blocks, bumped after 3 blocks */
+  STANDARD(50, 1.6, 3, 3),
+  /** e.g. taking an offer, 90th percentile tip, survives about six full blocks, bumped per block */
+  FAST(90, 2.0, 1, 5);
+
+  private final int rewardPercentile;
+  private final double baseFeeMultiplier;
+  private final int blocksUntilBump;
+  private final int maximumBumps;
+
+  Urgency(int rewardPercentile, double baseFeeMultiplier, int blocksUntilBump, int maximumBumps) {
+    this.rewardPercentile = rewardPercentile;
+    this.baseFeeMultiplier = baseFeeMultiplier;
+    this.blocksUntilBump = blocksUntilBump;
+    this.maximumBumps = maximumBumps;
+  }
+
+  int getRewardPercentile() {
+    return rewardPercentile;
+  }
+
+  double getBaseFeeMultiplier() {
+    return baseFeeMultiplier;
+  }
+
+  /** @return blocks without inclusion after which a transaction is sent again with higher fees */
+  int getBlocksUntilBump() {
+    return blocksUntilBump;
+  }
+
+  int getMaximumBumps() {
+    return maximumBumps;
+  }
+}
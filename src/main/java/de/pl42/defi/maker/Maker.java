@@ -13,7 +13,7 @@ import org.web3j.utils.Numeric;
 import java.lang.invoke.MethodHandles;
 import java.math.BigInteger;
 
-import static peggy42.cn.numberutil.NumberUtil.getMachineReadable;
+import static peggy42.cn.numberutil.DecimalFormatter.lazy;
 
 /**
  * @deprecated This class is currently unused. It was created for SCD and has to be updated to MCD.
@@ -23,10 +23,10 @@ public class Maker {
   private static final org.slf4j.Logger logger =
       LoggerFactory.getLogger(MethodHandles.lookup().lookupClass().getSimpleName());
   private static final String ADDRESS = "0x448a5065aeBB8E423F0896E6c5D525C040f59af3";
-  private static final Wad18 liquidationRatio = new Wad18(getMachineReadable(1.5));
+  private static final Wad18 liquidationRatio = Wad18.of("1.5");
   private static final String CDP_ID =
       "0x0000000000000000000000000000000000000000000000000000000000000000"; // TODO: Get own cdp ID
-  private static final Wad18 MAX_LIQUIDATION_PRICE = new Wad18(getMachineReadable(100.0));
+  private static final Wad18 MAX_LIQUIDATION_PRICE = Wad18.of("100");
   private final MakerContract makerContract;
   private Wad18 drawableDai;
 
@@ -62,7 +62,7 @@ public class Maker {
     logger.trace("LOCKED ETH (INK) {}", lockedEth);
     logger.trace("OUTSTANDING DAI DEBT (ART) {}", outstandingDaiDebt);
     logger.trace("COLLATERAL-FEES (IRE) {}", collateralLessFees);
-    logger.trace("LIQUIDATION PRICE {}", currentLiquidationPrice.toString(5));
+    logger.trace("LIQUIDATION PRICE {}", lazy(currentLiquidationPrice, 5));
     logger.trace("DRAWABLE DAI {}", drawableDai);
     Wad18 potentialDai = drawableDai.add(balances.dai.getAccount().getBalance());
     logger.trace("POTENTIAL DAI {}", potentialDai);
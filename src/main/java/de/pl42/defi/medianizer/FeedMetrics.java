@@ -0,0 +1,181 @@
+package peggy42.cn.medianizer;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of every price feed: latency histogram, errors, timeouts, age of the last price and how
+ * often the feed was part of a median. Recording is lock-free, so it can be called from the feed
+ * threads and the streams. {@link #dump(long)} formats all feeds in one line for the log.
+ */
+public final class FeedMetrics {
+  /** upper bounds of the latency buckets in milliseconds, the last bucket has no upper bound */
+  static final long[] LATENCY_BOUNDS = {10, 25, 50, 100, 250, 500, 1000, 2500, 5000};
+
+  private final Map<String, Source> sources = new ConcurrentHashMap<>();
+
+  /** @return the metrics of name, created on first use */
+  public Source get(@NotNull String name) {
+    return sources.computeIfAbsent(name, key -> new Source());
+  }
+
+  /** @return all feeds sorted by name */
+  public Map<String, Source> getSources() {
+    return Collections.unmodifiableMap(new TreeMap<>(sources));
+  }
+
+  /** A price that was requested and arrived after latency milliseconds */
+  public void recordSuccess(@NotNull String name, long latency) {
+    Source source = get(name);
+    source.recordLatency(latency);
+    source.successes.increment();
+    source.lastSuccess = System.currentTimeMillis();
+  }
+
+  /** A pushed price, which has no request and therefore no latency */
+  public void recordStreamedPrice(@NotNull String name) {
+    Source source = get(name);
+    source.successes.increment();
+    source.lastSuccess = System.currentTimeMillis();
+  }
+
+  /** An exception or a price of zero after latency milliseconds */
+  public void recordError(@NotNull String name, long latency) {
+    Source source = get(name);
+    source.recordLatency(latency);
+    source.errors.increment();
+  }
+
+  /** The feed missed the deadline of a refresh */
+  public void recordTimeout(@NotNull String name) {
+    get(name).timeouts.increment();
+  }
+
+  /** @param included true if the price of the feed was part of the median */
+  public void recordMedian(@NotNull String name, boolean included) {
+    Source source = get(name);
+    if (included) source.included.increment();
+    else source.excluded.increment();
+  }
+
+  /**
+   * Compact form of all feeds for the log, input example:
+   * KRAKEN ok=120 err=1 timeout=2 age=3s p50=100ms p99=500ms median=118/4; MAKERDAO ...
+   */
+  public String dump(long now) {
+    StringBuilder builder = new StringBuilder();
+    for (Map.Entry<String, Source> entry : getSources().entrySet()) {
+      Source source = entry.getValue();
+      if (builder.length() > 0) builder.append("; ");
+      builder
+          .append(entry.getKey())
+          .append(" ok=")
+          .append(source.getSuccesses())
+          .append(" err=")
+          .append(source.getErrors())
+          .append(" timeout=")
+          .append(source.getTimeouts())
+          .append(" age=");
+      long age = source.getLastSuccessAge(now);
+      if (age < 0) builder.append('-');
+      else builder.append(age / 1000).append('s');
+      builder
+          .append(" p50=")
+          .append(source.getLatencyPercentile(0.5))
+          .append("ms p99=")
+          .append(source.getLatencyPercentile(0.99))
+          .append("ms median=")
+          .append(source.getIncluded())
+          .append('/')
+          .append(source.getExcluded());
+    }
+    return builder.toString();
+  }
+
+  /** Metrics of a single feed */
+  public static final class Source {
+    private final AtomicLongArray latencyCounts = new AtomicLongArray(LATENCY_BOUNDS.length + 1);
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder included = new LongAdder();
+    private final LongAdder excluded = new LongAdder();
+    private volatile long maxLatency;
+    private volatile long lastSuccess;
+
+    private Source() {}
+
+    private void recordLatency(long latency) {
+      int bucket = 0;
+      while (bucket < LATENCY_BOUNDS.length && latency > LATENCY_BOUNDS[bucket]) bucket++;
+      latencyCounts.incrementAndGet(bucket);
+      if (latency > maxLatency) maxLatency = latency; // a lost race only loses a maximum
+    }
+
+    public long getSuccesses() {
+      return successes.sum();
+    }
+
+    public long getErrors() {
+      return errors.sum();
+    }
+
+    public long getTimeouts() {
+      return timeouts.sum();
+    }
+
+    public long getIncluded() {
+      return included.sum();
+    }
+
+    public long getExcluded() {
+      return excluded.sum();
+    }
+
+    /** @return milliseconds since the epoch, 0 before the first price */
+    public long getLastSuccess() {
+      return lastSuccess;
+    }
+
+    /** @return milliseconds since the last price, -1 before the first price */
+    public long getLastSuccessAge(long now) {
+      long last = lastSuccess;
+      return last == 0 ? -1 : Math.max(now - last, 0);
+    }
+
+    /** @return count of latencies per bucket, see LATENCY_BOUNDS */
+    public long[] getLatencyCounts() {
+      long[] counts = new long[latencyCounts.length()];
+      for (int i = 0; i < counts.length; i++) counts[i] = latencyCounts.get(i);
+      return counts;
+    }
+
+    /**
+     * Upper bound of the bucket that contains the quantile, the largest latency for the last
+     * bucket. Accurate to the bucket width, e.g. 0.99 is the 99th percentile.
+     *
+     * @return latency in milliseconds, 0 before the first request
+     */
+    public long getLatencyPercentile(double quantile) {
+      if (quantile < 0 || quantile > 1)
+        throw new IllegalArgumentException("Argument 'quantile' is not between 0 and 1");
+      long[] counts = getLatencyCounts();
+      long total = 0;
+      for (long count : counts) total += count;
+      if (total == 0) return 0;
+      long rank = Math.max((long) Math.ceil(quantile * total), 1);
+      long seen = 0;
+      for (int i = 0; i < LATENCY_BOUNDS.length; i++) {
+        seen += counts[i];
+        if (seen >= rank) return Math.min(LATENCY_BOUNDS[i], maxLatency);
+      }
+      return maxLatency;
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package peggy42.cn.medianizer;
+
+import peggy42.cn.numberutil.Wad18;
+import peggy42.cn.util.HttpUtil;
+import peggy42.cn.util.JavaProperties;
+import peggy42.cn.util.JsonPath;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.Arrays;
+
+/**
+ * Price feed of a JSON ticker over HTTP. The price is the average of the numbers at the given key
+ * paths of the response, e.g. "result.XETHZUSD.a[0]" and "result.XETHZUSD.b[0]" are the ask and
+ * bid of Kraken. Further exchanges can be added in the config with priceFeed.NAME.url and
+ * priceFeed.NAME.paths.
+ */
+public final class HttpPriceFeed implements PriceFeed {
+  private static final int WAD18_DECIMALS = 18;
+
+  private final String name;
+  private final URI uri;
+  private final JsonPath jsonPath;
+  private final Wad18 pathCount;
+
+  /** @param paths key paths of the prices, see {@link JsonPath#compile(String...)} */
+  public HttpPriceFeed(@NotNull String name, @NotNull String url, @NotNull String... paths) {
+    if (paths.length == 0) throw new IllegalArgumentException("Argument 'paths' is empty");
+    this.name = name;
+    this.uri = URI.create(url);
+    this.jsonPath = JsonPath.compile(paths);
+    this.pathCount = Wad18.ofDecimal(BigDecimal.valueOf(paths.length));
+  }
+
+  /**
+   * input example:
+   * {"error":[],"result":{"XETHZUSD":{"a":["251.29000","4","4.000"],"b":["250.99000","6","6.000"],"c":["251.04000","2.00000000"],"v":["25489.49597316","35276.40048677"],"p":["249.36880","248.99603"],"t":[3542,4754],"l":["245.85000","245.85000"],"h":["252.58000","253.35000"],"o":"252.05000"}}}
+   */
+  public static HttpPriceFeed kraken() {
+    return new HttpPriceFeed(
+        "KRAKEN",
+        "https://api.kraken.com/0/public/Ticker?pair=ETHUSD",
+        "result.XETHZUSD.a[0]",
+        "result.XETHZUSD.b[0]");
+  }
+
+  /** input example: {"data":{"base":"ETH","currency":"USD","amount":"237.49"}} */
+  public static HttpPriceFeed coinbase() {
+    return new HttpPriceFeed(
+        "COINBASE", "https://api.coinbase.com/v2/prices/ETH-USD/spot", "data.amount");
+  }
+
+  /**
+   * successful input example: {"USD":268.35}
+   *
+   * <p>input rate limit error example: {"Response":"Error","Message":"You are over your rate limit
+   * please upgrade your account!","HasWarning":false,"Type":99,...}
+   */
+  public static HttpPriceFeed cryptocompare() {
+    return new HttpPriceFeed(
+        "CRYPTOCOMPARE", "https://min-api.cryptocompare.com/data/price?fsym=ETH&tsyms=USD", "USD");
+  }
+
+  /**
+   * @param name upper case name of the feed, e.g. BITSTAMP
+   * @return the feed configured by priceFeed.NAME.url and priceFeed.NAME.paths, e.g. bid,ask
+   * @throws IllegalArgumentException if the feed is not configured
+   */
+  public static HttpPriceFeed fromConfig(
+      @NotNull String name, @NotNull JavaProperties javaProperties) {
+    String url = javaProperties.getValue("priceFeed." + name + ".url");
+    String paths = javaProperties.getValue("priceFeed." + name + ".paths");
+    if (url == null || url.isEmpty() || paths == null || paths.isEmpty())
+      throw new IllegalArgumentException("Price feed " + name + " is not configured");
+    return new HttpPriceFeed(
+        name, url, Arrays.stream(paths.split(",")).map(String::trim).toArray(String[]::new));
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public Wad18 getPrice() throws IOException {
+    return average(HttpUtil.getJson(uri, jsonPath, WAD18_DECIMALS));
+  }
+
+  Wad18 parse(@NotNull InputStream input) throws IOException {
+    return average(jsonPath.read(input, WAD18_DECIMALS));
+  }
+
+  private Wad18 average(Wad18[] prices) {
+    Wad18 sum = Wad18.ZERO;
+    for (Wad18 price : prices) sum = sum.add(price);
+    return prices.length == 1 ? sum : sum.divide(pathCount);
+  }
+}
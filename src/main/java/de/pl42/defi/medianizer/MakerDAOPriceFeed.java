@@ -0,0 +1,26 @@
+package peggy42.cn.medianizer;
+
+import peggy42.cn.numberutil.Wad18;
+import org.jetbrains.annotations.NotNull;
+
+import java.math.BigInteger;
+
+/** Price of the MakerDAO medianizer contract in ETH/DAI */
+public final class MakerDAOPriceFeed implements PriceFeed {
+  private final MedianizerContract medianizerContract;
+
+  public MakerDAOPriceFeed(@NotNull MedianizerContract medianizerContract) {
+    this.medianizerContract = medianizerContract;
+  }
+
+  @Override
+  public String getName() {
+    return "MAKERDAO";
+  }
+
+  @Override
+  public Wad18 getPrice() throws Exception {
+    byte[] result = medianizerContract.read().send();
+    return new Wad18(new BigInteger(result));
+  }
+}
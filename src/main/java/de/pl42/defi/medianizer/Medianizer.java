@@ -3,20 +3,42 @@ package peggy42.cn.medianizer;
 import peggy42.cn.contractneedsprovider.ContractNeedsProvider;
 import peggy42.cn.gasprovider.GasProvider;
 import peggy42.cn.numberutil.Wad18;
+import peggy42.cn.tickstore.Tick;
+import peggy42.cn.tickstore.TickKind;
+import peggy42.cn.tickstore.TickStore;
+import peggy42.cn.util.JavaProperties;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.LoggerFactory;
 import org.web3j.crypto.Credentials;
 import org.web3j.protocol.Web3j;
 
 import java.lang.invoke.MethodHandles;
 import java.math.BigInteger;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
-import java.util.Scanner;
-
-import static peggy42.cn.numberutil.NumberUtil.getMachineReadable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
+/**
+ * Median price of one asset from several price feeds. A single refresher thread polls the feeds
+ * every PRICE_UPDATE_INTERVAL and streaming feeds add their prices as they arrive. Every update
+ * publishes a new immutable {@link PriceSnapshot}, so readers never lock and never refresh.
+ */
 public class Medianizer {
   static final int PRICE_UPDATE_INTERVAL = 8 * 1000;
   private static final org.slf4j.Logger logger =
@@ -25,12 +47,65 @@ public class Medianizer {
   private static final String ETH_DAI = " ETH/DAI";
   private static final String ADDRESS = "0x729D19f657BD0614b4985Cf1D82531c67569197B";
   private static final String EXCEPTION = "Exception";
+  private static final Wad18 TWO = Wad18.of("2");
+  private static final String PRICE_FEEDS = "priceFeeds";
+  private static final String MAKERDAO = "MAKERDAO";
+  // at least three feeds, so that one failing feed still leaves a median of two
+  static final int MINIMUM_QUORUM = 3;
+  private static final int MAXIMUM_FEEDS = 5;
+  static final int FEED_DEADLINE = 2 * 1000;
+  // a request that takes longer than a socket could legitimately take is cancelled
+  private static final long HUNG_REQUEST_TIMEOUT = 5L * 1000;
+  // late answers are used in the next cycle, older prices are dropped
+  static final long MAX_PRICE_AGE = 2L * PRICE_UPDATE_INTERVAL;
+  // readers get an exception instead of a median that missed several refreshes
+  static final long MAX_SNAPSHOT_AGE = 4L * PRICE_UPDATE_INTERVAL;
+  static final long METRICS_DUMP_INTERVAL = 60L * 1000;
+  private static final ExecutorService executor =
+      Executors.newCachedThreadPool(
+          runnable -> {
+            Thread thread = new Thread(runnable, "price-feed");
+            thread.setDaemon(true);
+            return thread;
+          });
+  private static final Medianizer ethUsd = new Medianizer(ETH_USD.trim());
   private static MedianizerContract medianizerContract;
-  private static Wad18 median;
-  private static long pastTimeMedian;
 
-  private Medianizer() {
-    throw new IllegalStateException("Utility class");
+  static {
+    ethUsd.register(HttpPriceFeed.kraken());
+    ethUsd.register(HttpPriceFeed.coinbase());
+  }
+
+  private final String asset;
+  private final Map<String, PendingRequest> pendingRequests = new ConcurrentHashMap<>();
+  private final Map<String, TimedPrice> latestPrices = new ConcurrentHashMap<>();
+  private final PriceFeedRegistry registry = new PriceFeedRegistry(MINIMUM_QUORUM, MAXIMUM_FEEDS);
+  private final List<WebSocketPriceFeed> streams = new CopyOnWriteArrayList<>();
+  private final List<Consumer<PriceSnapshot>> listeners = new CopyOnWriteArrayList<>();
+  private final FeedMetrics metrics = new FeedMetrics();
+  private final AtomicReference<PriceSnapshot> snapshot =
+      new AtomicReference<>(PriceSnapshot.EMPTY);
+  private final CountDownLatch firstSnapshot = new CountDownLatch(1);
+  private final ScheduledExecutorService refresher;
+  private final AtomicBoolean started = new AtomicBoolean();
+  private volatile Web3j web3j;
+  private volatile TickStore tickStore;
+
+  /** @param asset name of the asset in log messages and thread names, e.g. ETH/USD */
+  public Medianizer(@NotNull String asset) {
+    this.asset = asset;
+    this.refresher =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "medianizer-" + asset);
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /** @return the ETH/USD medianizer used by the static methods */
+  public static Medianizer getInstance() {
+    return ethUsd;
   }
 
   public static void setMedianizerContract(@NotNull ContractNeedsProvider contractNeedsProvider) {
@@ -39,133 +114,406 @@ public class Medianizer {
     GasProvider gasProvider = contractNeedsProvider.getGasProvider();
     Medianizer.medianizerContract =
         MedianizerContract.load(ADDRESS, web3j, credentials, gasProvider);
+    ethUsd.register(new MakerDAOPriceFeed(medianizerContract));
+    ethUsd.setWeb3j(web3j);
+  }
+
+  /** @see #configure(JavaProperties) */
+  public static void setPriceFeeds(@NotNull JavaProperties javaProperties) {
+    ethUsd.configure(javaProperties);
   }
 
+  /**
+   * Median of the ETH/USD medianizer, which is started by the first call.
+   *
+   * @throws MedianException if there is no median yet or the median is outdated
+   */
   public static Wad18 getPrice() throws MedianException {
-    long currentTime = System.currentTimeMillis();
-    //    BigInteger currentBlock = getCurrentBlock();
-
-    if (currentTime >= pastTimeMedian + PRICE_UPDATE_INTERVAL) {
-      logger.trace("MEDIAN: TIME");
-      pastTimeMedian = currentTime;
-      updateMedian();
-    }
-    //    if (!pastBlock.equals(currentBlock)) {
-    //      logger.trace("MEDIAN: BLOCK");
-    //      pastBlock = currentBlock;
-    //      updateMedian();
-    //    }
+    Wad18 median = ethUsd.getSnapshot().getValue();
     logger.trace("MEDIAN {}{}", median, ETH_DAI);
     return median;
   }
 
-  private static void updateMedian() throws MedianException {
-    Wad18 newMedian =
-        getMedian(
-            new Wad18[] {getKrakenEthPrice(), getMakerDAOEthPrice(), getCoinbaseProEthPrice()});
-    if (newMedian.equals(Wad18.ZERO)) throw new MedianException("MEDIAN IS ZERO EXCEPTION");
-    median = newMedian;
+  public String getAsset() {
+    return asset;
   }
 
-  static Wad18 getMedian(Wad18[] array) throws MedianException {
-    array =
-        Arrays.stream(array)
-            .filter(n -> n.compareTo(Wad18.ZERO) > 0)
-            .sorted()
-            .toArray(Wad18[]::new);
+  /** @return latency, errors, timeouts and median inclusion of every feed */
+  public FeedMetrics getMetrics() {
+    return metrics;
+  }
 
-    logger.trace("MEDIAN {}", Arrays.toString(array));
-    if (array.length == 0) throw new MedianException("ARRAY IS EMPTY");
-    if (array.length == 1) throw new MedianException("TOO FEW PRICE FEEDS");
-    if (array.length % 2 == 0)
-      return array[array.length / 2]
-          .add(array[array.length / 2 - 1])
-          .divide(getMachineReadable(2.0));
-    else return array[array.length / 2];
+  PriceFeedRegistry getRegistry() {
+    return registry;
   }
 
-  private static Wad18 getMakerDAOEthPrice() {
-    Wad18 ethPrice = Wad18.ZERO;
-    try {
-      byte[] result = medianizerContract.read().send();
-      ethPrice = new Wad18(new BigInteger(result));
-    } catch (Exception e) {
-      logger.error(EXCEPTION, e);
+  public void register(@NotNull PriceFeed feed) {
+    registry.register(feed);
+  }
+
+  /** @param web3j is asked for the current block number of every polled snapshot */
+  public void setWeb3j(@Nullable Web3j web3j) {
+    this.web3j = web3j;
+  }
+
+  /**
+   * Records every feed price and median in tickStore. Feed prices within MAX_PRICE_AGE and a median
+   * within MAX_SNAPSHOT_AGE are loaded from it, so that a restart does not start cold.
+   */
+  public void setTickStore(@Nullable TickStore tickStore) {
+    this.tickStore = tickStore;
+    if (tickStore == null) return;
+    long now = System.currentTimeMillis();
+    Map<String, Wad18> sources = new LinkedHashMap<>();
+    for (PriceFeed feed : registry.getFeeds()) {
+      Tick tick = tickStore.last(TickKind.FEED_PRICE, feed.getName());
+      if (tick == null || tick.getTimestamp() < now - MAX_PRICE_AGE) continue;
+      latestPrices.putIfAbsent(
+          feed.getName(), new TimedPrice(tick.getPrice(), tick.getTimestamp()));
+      sources.put(feed.getName(), tick.getPrice());
+    }
+    Tick median = tickStore.last(TickKind.MEDIAN, asset);
+    if (median == null || median.getTimestamp() < now - MAX_SNAPSHOT_AGE) return;
+    BigInteger block =
+        median.getBlockNumber() == Tick.UNKNOWN_BLOCK
+            ? null
+            : BigInteger.valueOf(median.getBlockNumber());
+    PriceSnapshot warm =
+        new PriceSnapshot(median.getPrice(), sources, median.getTimestamp(), block);
+    if (snapshot.compareAndSet(PriceSnapshot.EMPTY, warm)) {
+      firstSnapshot.countDown();
+      logger.trace("{} WARM START WITH MEDIAN {}", asset, median.getPrice());
     }
-    logger.trace("MAKERDAO {}{}", ethPrice, ETH_DAI);
-    return ethPrice;
   }
 
   /**
-   * successful input example: {"USD":268.35}
-   *
-   * <p>input rate limit error example: {"Response":"Error","Message":"You are over your rate limit
-   * please upgrade your
-   * account!","HasWarning":false,"Type":99,"RateLimit":{"calls_made":{"second":1,"minute":1,"hour":76,"day":20003,"month":57172,"total_calls":57172},"max_calls":{"second":20,"minute":300,"hour":3000,"day":20000,"month":180000}},"Data":{}}
-   *
-   * @return BigInteger
+   * Registers the feeds of the config key priceFeeds, e.g. KRAKEN_WS,COINBASE,MAKERDAO. KRAKEN_WS
+   * and COINBASE_WS are streaming feeds that update the median as soon as a new price arrives.
+   * Names other than these, KRAKEN, COINBASE, CRYPTOCOMPARE and MAKERDAO are HTTP feeds configured
+   * with priceFeed.NAME.url and priceFeed.NAME.paths. Keeps the default feeds if the key is
+   * missing.
    */
-  private static Wad18 getCryptocompareEthPrice() {
-    Wad18 ethPrice = Wad18.ZERO;
-    try (Scanner scanner =
-        new Scanner(
-            new URL("https://min-api.cryptocompare.com/data/price?fsym=ETH&tsyms=USD").openStream(),
-            StandardCharsets.UTF_8)) {
-      String input = scanner.useDelimiter("\\A").next();
-      String[] parts = input.split("\"");
-      ethPrice =
-          new Wad18(
-              getMachineReadable(Double.valueOf(parts[2].substring(1, parts[2].length() - 1))));
-    } catch (Exception e) {
-      logger.error(EXCEPTION, e);
+  public void configure(@NotNull JavaProperties javaProperties) {
+    String names = javaProperties.getValue(PRICE_FEEDS);
+    if (names == null || names.isEmpty()) return;
+    registry.clear();
+    streams.forEach(WebSocketPriceFeed::close);
+    streams.clear();
+    for (String name : names.split(",")) {
+      switch (name.trim()) {
+        case "KRAKEN_WS":
+          startStream(WebSocketPriceFeed.kraken());
+          break;
+        case "COINBASE_WS":
+          startStream(WebSocketPriceFeed.coinbase());
+          break;
+        case "KRAKEN":
+          registry.register(HttpPriceFeed.kraken());
+          break;
+        case "COINBASE":
+          registry.register(HttpPriceFeed.coinbase());
+          break;
+        case "CRYPTOCOMPARE":
+          registry.register(HttpPriceFeed.cryptocompare());
+          break;
+        case MAKERDAO:
+          if (medianizerContract != null) {
+            registry.register(new MakerDAOPriceFeed(medianizerContract));
+          } else {
+            logger.warn("MAKERDAO PRICE FEED NEEDS THE MEDIANIZER CONTRACT");
+          }
+          break;
+        default:
+          registry.register(HttpPriceFeed.fromConfig(name.trim(), javaProperties));
+      }
     }
-    logger.trace("CRYPTOCOMPARE {}{}", ethPrice, ETH_USD);
-    return ethPrice;
+    if (registry.getFeeds().size() < MINIMUM_QUORUM)
+      logger.warn("FEWER PRICE FEEDS THAN THE MINIMUM QUORUM OF {}", MINIMUM_QUORUM);
+  }
+
+  /** Registers feed and feeds its prices into the median as they arrive */
+  public void startStream(@NotNull WebSocketPriceFeed feed) {
+    registry.register(feed);
+    streams.add(feed);
+    feed.start(price -> onStreamedPrice(feed.getName(), price));
+  }
+
+  /** listener gets every new snapshot on the thread that published it, e.g. the refresher */
+  public void addSnapshotListener(@NotNull Consumer<PriceSnapshot> listener) {
+    listeners.add(listener);
+  }
+
+  public void removeSnapshotListener(@NotNull Consumer<PriceSnapshot> listener) {
+    listeners.remove(listener);
+  }
+
+  /** Starts the refresher thread, which also logs the feed metrics, later calls do nothing */
+  public void start() {
+    if (!started.compareAndSet(false, true)) return;
+    logger.trace("{} MEDIANIZER STARTED", asset);
+    refresher.scheduleWithFixedDelay(
+        this::refreshSafely, 0, PRICE_UPDATE_INTERVAL, TimeUnit.MILLISECONDS);
+    refresher.scheduleAtFixedRate(
+        () -> logger.info("{} FEED METRICS {}", asset, metrics.dump(System.currentTimeMillis())),
+        METRICS_DUMP_INTERVAL,
+        METRICS_DUMP_INTERVAL,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /** Stops the refresher thread and all streams */
+  public void stop() {
+    refresher.shutdownNow();
+    streams.forEach(WebSocketPriceFeed::close);
   }
 
   /**
-   * input example:
-   * {"error":[],"result":{"XETHZUSD":{"a":["251.29000","4","4.000"],"b":["250.99000","6","6.000"],"c":["251.04000","2.00000000"],"v":["25489.49597316","35276.40048677"],"p":["249.36880","248.99603"],"t":[3542,4754],"l":["245.85000","245.85000"],"h":["252.58000","253.35000"],"o":"252.05000"}}}
+   * Latest snapshot without locking. Starts the refresher and waits for the first snapshot if
+   * necessary.
    *
-   * @return BigInteger
+   * @throws MedianException if there is no median yet or the median is older than
+   *     MAX_SNAPSHOT_AGE
    */
-  private static Wad18 getKrakenEthPrice() {
-    Wad18 ethPrice = Wad18.ZERO;
-    try (Scanner scanner =
-        new Scanner(
-            new URL("https://api.kraken.com/0/public/Ticker?pair=ETHUSD").openStream(),
-            StandardCharsets.UTF_8)) {
-      String input = scanner.useDelimiter("\\A").next();
-      String[] parts = input.split("\"");
-      BigInteger bid = getMachineReadable(Double.valueOf(parts[9]));
-      BigInteger ask = getMachineReadable(Double.valueOf(parts[17]));
-      ethPrice = new Wad18(bid.add(ask).divide(BigInteger.valueOf(2)));
+  public PriceSnapshot getSnapshot() throws MedianException {
+    PriceSnapshot current = snapshot.get();
+    if (current.isEmpty()) {
+      start();
+      try {
+        firstSnapshot.await(2L * FEED_DEADLINE, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      current = snapshot.get();
+      if (current.isEmpty()) throw new MedianException(asset + " HAS NO MEDIAN YET");
+    }
+    if (System.currentTimeMillis() - current.getTimestamp() > MAX_SNAPSHOT_AGE)
+      throw new MedianException(asset + " MEDIAN IS OUTDATED");
+    return current;
+  }
+
+  private void refreshSafely() {
+    try {
+      refresh();
+    } catch (MedianException e) {
+      logger.warn("{} {}", asset, e.getMessage());
+    } catch (RuntimeException e) {
+      logger.error(EXCEPTION, e); // keeps the scheduled refresher alive
+    }
+  }
+
+  /** Polls the selected feeds once and publishes the new median */
+  void refresh() throws MedianException {
+    long start = System.currentTimeMillis();
+    List<PriceFeed> feeds = registry.select();
+    requestPrices(feeds, FEED_DEADLINE);
+    Map<String, Wad18> prices = freshPrices(feeds, start - MAX_PRICE_AGE);
+    recordMedianInclusion(feeds, prices);
+    Wad18 newMedian = getMedian(prices.values().toArray(new Wad18[0]));
+    if (newMedian.equals(Wad18.ZERO)) throw new MedianException("MEDIAN IS ZERO EXCEPTION");
+    publish(new PriceSnapshot(newMedian, prices, System.currentTimeMillis(), currentBlock()));
+  }
+
+  /**
+   * Updates the median with a streamed price and the latest prices of all other registered feeds.
+   * Keeps the previous median if fewer than two fresh prices are known.
+   */
+  void onStreamedPrice(@NotNull String name, @NotNull Wad18 price) {
+    long now = System.currentTimeMillis();
+    latestPrices.put(name, new TimedPrice(price, now));
+    metrics.recordStreamedPrice(name);
+    recordTick(now, snapshot.get().getBlockNumber(), TickKind.FEED_PRICE, name, price);
+    List<PriceFeed> feeds = registry.getFeeds();
+    Map<String, Wad18> prices = freshPrices(feeds, now - MAX_PRICE_AGE);
+    recordMedianInclusion(feeds, prices);
+    try {
+      Wad18 newMedian = getMedian(prices.values().toArray(new Wad18[0]));
+      publish(new PriceSnapshot(newMedian, prices, now, snapshot.get().getBlockNumber()));
+      logger.trace("STREAMED MEDIAN {}{}", newMedian, ETH_DAI);
+    } catch (MedianException e) {
+      logger.trace("STREAMED PRICE {} {}{}", name, price, ETH_USD);
+    }
+  }
+
+  /** Every feed without a fresh positive price is excluded from the median */
+  private void recordMedianInclusion(List<PriceFeed> feeds, Map<String, Wad18> prices) {
+    for (PriceFeed feed : feeds) {
+      Wad18 price = prices.get(feed.getName());
+      metrics.recordMedian(feed.getName(), price != null && price.compareTo(Wad18.ZERO) > 0);
+    }
+  }
+
+  /** Compare-and-set, so that a slow refresh never replaces a newer streamed snapshot */
+  private void publish(PriceSnapshot next) {
+    PriceSnapshot published =
+        snapshot.accumulateAndGet(
+            next,
+            (current, candidate) ->
+                candidate.getTimestamp() >= current.getTimestamp() ? candidate : current);
+    firstSnapshot.countDown();
+    if (published != next) return;
+    recordTick(next.getTimestamp(), next.getBlockNumber(), TickKind.MEDIAN, asset, next.getValue());
+    for (Consumer<PriceSnapshot> listener : listeners) {
+      try {
+        listener.accept(next);
+      } catch (RuntimeException e) {
+        logger.error(EXCEPTION, e); // keeps publishing to the other listeners
+      }
+    }
+  }
+
+  private void recordTick(
+      long timestamp, @Nullable BigInteger block, TickKind kind, String source, Wad18 price) {
+    TickStore currentTickStore = tickStore;
+    if (currentTickStore == null) return;
+    long blockNumber = block == null ? Tick.UNKNOWN_BLOCK : block.longValue();
+    currentTickStore.tryAppend(new Tick(timestamp, blockNumber, kind, source, price, Wad18.ZERO));
+  }
+
+  @Nullable
+  private BigInteger currentBlock() {
+    Web3j currentWeb3j = web3j;
+    if (currentWeb3j == null) return null;
+    try {
+      return currentWeb3j.ethBlockNumber().send().getBlockNumber();
     } catch (Exception e) {
-      logger.error(EXCEPTION, e);
+      logger.warn("{} CAN'T GET CURRENT BLOCK {}", asset, e.getMessage());
+      return snapshot.get().getBlockNumber();
     }
-    logger.trace("KRAKEN {}{}", ethPrice, ETH_USD);
-    return ethPrice;
   }
 
   /**
-   * input example:
-   * {"sequence":6998278453,"bids":[["237.49","3.61796708",1]],"asks":[["237.64","48.303",2]]}
+   * Requests all feeds concurrently and waits at most deadline milliseconds.
    *
-   * @return BigInteger
+   * @return the prices of all feeds whose price is not older than MAX_PRICE_AGE
+   * @see #requestPrices(List, long)
+   */
+  Wad18[] fetchPrices(@NotNull List<PriceFeed> feeds, long deadline) {
+    long start = System.currentTimeMillis();
+    requestPrices(feeds, deadline);
+    return freshPrices(feeds, start - MAX_PRICE_AGE).values().toArray(new Wad18[0]);
+  }
+
+  /**
+   * Requests all feeds concurrently and waits at most deadline milliseconds. A feed whose previous
+   * request is still running is not requested again, unless that request hangs. Answers that
+   * arrive after the deadline are recorded and used in the next cycle.
    */
-  static Wad18 getCoinbaseProEthPrice() {
-    Wad18 ethPrice = Wad18.ZERO;
-    try (Scanner scanner =
-        new Scanner(
-            new URL("https://api.coinbase.com/v2/prices/ETH-USD/spot").openStream(),
-            StandardCharsets.UTF_8)) {
-      String input = scanner.useDelimiter("\\A").next();
-      String[] parts = input.split("\"");
-      ethPrice = new Wad18(getMachineReadable(Double.valueOf(parts[13])));
+  private void requestPrices(List<PriceFeed> feeds, long deadline) {
+    long start = System.currentTimeMillis();
+    Map<String, Future<?>> futures = new LinkedHashMap<>();
+    for (PriceFeed feed : feeds) {
+      PendingRequest pendingRequest = pendingRequests.get(feed.getName());
+      if (pendingRequest != null && !pendingRequest.future.isDone()) {
+        if (start - pendingRequest.startTime < HUNG_REQUEST_TIMEOUT) {
+          logger.trace("{} IS STILL PENDING", feed.getName());
+          futures.put(feed.getName(), pendingRequest.future);
+          continue;
+        }
+        logger.warn("{} HANGS, CANCELLING REQUEST", feed.getName());
+        pendingRequest.future.cancel(true);
+        registry.recordFailure(feed.getName(), start - pendingRequest.startTime);
+      }
+      Future<?> future = executor.submit(() -> recordPrice(feed));
+      pendingRequests.put(feed.getName(), new PendingRequest(future, start));
+      futures.put(feed.getName(), future);
+    }
+    for (Map.Entry<String, Future<?>> entry : futures.entrySet()) {
+      long remaining = start + deadline - System.currentTimeMillis();
+      try {
+        entry.getValue().get(Math.max(remaining, 0), TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+        logger.trace("{} MISSED THE DEADLINE", entry.getKey());
+        metrics.recordTimeout(entry.getKey());
+      } catch (ExecutionException e) {
+        logger.error(EXCEPTION, e);
+      } catch (InterruptedException e) {
+        logger.error(EXCEPTION, e);
+        Thread.currentThread().interrupt();
+        break;
+      } catch (CancellationException e) {
+        logger.trace("PRICE FEED WAS CANCELLED");
+      }
+    }
+  }
+
+  /** @return the latest price of every feed that is not older than since, by feed name */
+  private Map<String, Wad18> freshPrices(List<PriceFeed> feeds, long since) {
+    Map<String, Wad18> prices = new LinkedHashMap<>();
+    for (PriceFeed feed : feeds) {
+      TimedPrice timedPrice = latestPrices.get(feed.getName());
+      if (timedPrice != null && timedPrice.time >= since)
+        prices.put(feed.getName(), timedPrice.price);
+    }
+    return prices;
+  }
+
+  private void recordPrice(PriceFeed feed) {
+    long start = System.currentTimeMillis();
+    Wad18 price = Wad18.ZERO;
+    try {
+      price = feed.getPrice();
     } catch (Exception e) {
       logger.error(EXCEPTION, e);
     }
-    logger.trace("COINBASE {}{}", ethPrice, ETH_USD);
-    return ethPrice;
+    long latency = System.currentTimeMillis() - start;
+    logger.trace("{} {}{}", feed.getName(), price, ETH_USD);
+    if (Thread.currentThread().isInterrupted()) return;
+    if (price.compareTo(Wad18.ZERO) > 0) {
+      // a streamed price keeps the time it arrived, so the price of a dead stream is not fresh
+      TimedPrice timedPrice = new TimedPrice(price, feed.getPriceTime());
+      registry.recordSuccess(feed.getName(), latency);
+      metrics.recordSuccess(feed.getName(), latency);
+      if (latestPrices.merge(feed.getName(), timedPrice, TimedPrice::newer) == timedPrice)
+        recordTick(
+            timedPrice.time,
+            snapshot.get().getBlockNumber(),
+            TickKind.FEED_PRICE,
+            feed.getName(),
+            price);
+    } else {
+      registry.recordFailure(feed.getName(), latency);
+      metrics.recordError(feed.getName(), latency);
+    }
+  }
+
+  static Wad18 getMedian(Wad18[] array) throws MedianException {
+    array =
+        Arrays.stream(array)
+            .filter(n -> n.compareTo(Wad18.ZERO) > 0)
+            .sorted()
+            .toArray(Wad18[]::new);
+
+    logger.trace("MEDIAN {}", Arrays.toString(array));
+    if (array.length == 0) throw new MedianException("ARRAY IS EMPTY");
+    if (array.length == 1) throw new MedianException("TOO FEW PRICE FEEDS");
+    if (array.length % 2 == 0)
+      return array[array.length / 2]
+          .add(array[array.length / 2 - 1])
+          .divide(TWO);
+    else return array[array.length / 2];
+  }
+
+  private static final class PendingRequest {
+    private final Future<?> future;
+    private final long startTime;
+
+    private PendingRequest(Future<?> future, long startTime) {
+      this.future = future;
+      this.startTime = startTime;
+    }
+  }
+
+  private static final class TimedPrice {
+    private final Wad18 price;
+    private final long time;
+
+    private TimedPrice(Wad18 price, long time) {
+      this.price = price;
+      this.time = time;
+    }
+
+    /** @return candidate if it is newer, so an older answer never replaces a known price */
+    private static TimedPrice newer(TimedPrice current, TimedPrice candidate) {
+      return candidate.time > current.time ? candidate : current;
+    }
   }
 }
@@ -0,0 +1,24 @@
+package peggy42.cn.medianizer;
+
+import peggy42.cn.numberutil.Wad18;
+
+/**
+ * Source of the ethereum price for the median, e.g. an exchange ticker. Implementations are
+ * registered in a {@link PriceFeedRegistry} and called concurrently, so they have to be
+ * thread-safe and should time out on their own.
+ */
+public interface PriceFeed {
+  /** @return unique upper case name, e.g. KRAKEN */
+  String getName();
+
+  /** @return the price of one ETH in USD or DAI, e.g. 251290000000000000000 for 251.29 */
+  Wad18 getPrice() throws Exception;
+
+  /**
+   * @return milliseconds since the epoch at which the price of the last getPrice call was current,
+   *     by default now, because a polled feed answers with the current price
+   */
+  default long getPriceTime() {
+    return System.currentTimeMillis();
+  }
+}
@@ -0,0 +1,126 @@
+package peggy42.cn.medianizer;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Registered price feeds and their health. Latency and error rate of every feed are exponentially
+ * weighted moving averages, so that a feed recovers after a few good answers. {@link #select()}
+ * prefers the fastest healthy feeds, but always returns at least minimumQuorum feeds if that many
+ * are registered. Unhealthy feeds are retried after RETRY_INTERVAL, so they can recover.
+ */
+public final class PriceFeedRegistry {
+  private static final org.slf4j.Logger logger =
+      LoggerFactory.getLogger(MethodHandles.lookup().lookupClass().getSimpleName());
+  static final double MAX_ERROR_RATE = 0.5;
+  static final long RETRY_INTERVAL = 60L * 1000;
+  private static final double SMOOTHING = 0.2;
+
+  private final Map<String, PriceFeed> feeds = new ConcurrentHashMap<>();
+  private final Map<String, Statistics> statistics = new ConcurrentHashMap<>();
+  private final List<String> order = new ArrayList<>();
+  private final int minimumQuorum;
+  private final int maximumFeeds;
+
+  /**
+   * @param minimumQuorum minimum number of selected feeds, even if some of them are unhealthy
+   * @param maximumFeeds maximum number of selected healthy feeds
+   */
+  public PriceFeedRegistry(int minimumQuorum, int maximumFeeds) {
+    if (minimumQuorum > maximumFeeds)
+      throw new IllegalArgumentException("Argument 'minimumQuorum' is greater than 'maximumFeeds'");
+    this.minimumQuorum = minimumQuorum;
+    this.maximumFeeds = maximumFeeds;
+  }
+
+  /** Adds the feed or replaces the registered feed with the same name */
+  public synchronized void register(@NotNull PriceFeed priceFeed) {
+    if (feeds.put(priceFeed.getName(), priceFeed) == null) order.add(priceFeed.getName());
+    statistics.putIfAbsent(priceFeed.getName(), new Statistics());
+    logger.trace("REGISTERED PRICE FEED {}", priceFeed.getName());
+  }
+
+  public synchronized void clear() {
+    feeds.clear();
+    statistics.clear();
+    order.clear();
+  }
+
+  public synchronized List<PriceFeed> getFeeds() {
+    return order.stream().map(feeds::get).collect(Collectors.toList());
+  }
+
+  /** @return the feeds for the next median, fastest healthy feeds first */
+  public synchronized List<PriceFeed> select() {
+    long now = System.currentTimeMillis();
+    List<PriceFeed> selected =
+        getFeeds().stream()
+            .filter(feed -> statistics(feed).isHealthy())
+            .sorted(Comparator.comparingDouble(feed -> statistics(feed).latency))
+            .limit(maximumFeeds)
+            .collect(Collectors.toCollection(ArrayList::new));
+    List<PriceFeed> unhealthy =
+        getFeeds().stream()
+            .filter(feed -> !statistics(feed).isHealthy())
+            .sorted(Comparator.comparingDouble(feed -> statistics(feed).errorRate))
+            .collect(Collectors.toList());
+    for (PriceFeed feed : unhealthy) {
+      if (selected.size() < minimumQuorum
+          || now - statistics(feed).lastAttempt >= RETRY_INTERVAL) selected.add(feed);
+    }
+    return selected;
+  }
+
+  public void recordSuccess(@NotNull String name, long latency) {
+    Statistics feedStatistics = statistics.get(name);
+    if (feedStatistics != null) feedStatistics.record(latency, false);
+  }
+
+  public void recordFailure(@NotNull String name, long latency) {
+    Statistics feedStatistics = statistics.get(name);
+    if (feedStatistics != null) feedStatistics.record(latency, true);
+    logger.trace("PRICE FEED {} FAILED", name);
+  }
+
+  /** @return smoothed latency in milliseconds, 0 before the first answer */
+  public double getLatency(@NotNull String name) {
+    Statistics feedStatistics = statistics.get(name);
+    return feedStatistics == null ? 0 : feedStatistics.latency;
+  }
+
+  /** @return smoothed share of failed requests between 0 and 1 */
+  public double getErrorRate(@NotNull String name) {
+    Statistics feedStatistics = statistics.get(name);
+    return feedStatistics == null ? 0 : feedStatistics.errorRate;
+  }
+
+  private Statistics statistics(PriceFeed priceFeed) {
+    return statistics.get(priceFeed.getName());
+  }
+
+  private static final class Statistics {
+    private volatile double latency;
+    private volatile double errorRate;
+    private volatile long lastAttempt;
+    private boolean answered;
+
+    private synchronized void record(long latency, boolean failed) {
+      this.latency = answered ? this.latency + SMOOTHING * (latency - this.latency) : latency;
+      this.errorRate += SMOOTHING * ((failed ? 1 : 0) - errorRate);
+      this.lastAttempt = System.currentTimeMillis();
+      answered = true;
+    }
+
+    private boolean isHealthy() {
+      return errorRate <= MAX_ERROR_RATE;
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package peggy42.cn.medianizer;
+
+import peggy42.cn.numberutil.Wad18;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable median of one asset together with the prices it was calculated from. A snapshot is
+ * never changed after it was published, so readers on any thread see a consistent set of values.
+ */
+public final class PriceSnapshot {
+  static final PriceSnapshot EMPTY = new PriceSnapshot(Wad18.ZERO, Map.of(), 0L, null);
+
+  private final Wad18 value;
+  private final Map<String, Wad18> sources;
+  private final long timestamp;
+  private final BigInteger blockNumber;
+
+  /**
+   * @param sources price of every feed that was used, by feed name
+   * @param timestamp milliseconds since the epoch at which the median was calculated
+   * @param blockNumber latest known block at that time, or null if unknown
+   */
+  public PriceSnapshot(
+      @NotNull Wad18 value,
+      @NotNull Map<String, Wad18> sources,
+      long timestamp,
+      @Nullable BigInteger blockNumber) {
+    this.value = value;
+    this.sources = Collections.unmodifiableMap(new LinkedHashMap<>(sources));
+    this.timestamp = timestamp;
+    this.blockNumber = blockNumber;
+  }
+
+  public Wad18 getValue() {
+    return value;
+  }
+
+  public Map<String, Wad18> getSources() {
+    return sources;
+  }
+
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  @Nullable
+  public BigInteger getBlockNumber() {
+    return blockNumber;
+  }
+
+  /** @return true if no median was published yet */
+  public boolean isEmpty() {
+    return this == EMPTY;
+  }
+
+  @Override
+  public String toString() {
+    return "PriceSnapshot{value="
+        + value
+        + ", sources="
+        + sources
+        + ", timestamp="
+        + timestamp
+        + ", blockNumber="
+        + blockNumber
+        + '}';
+  }
+}
@@ -0,0 +1,313 @@
+package peggy42.cn.medianizer;
+
+import peggy42.cn.numberutil.DecimalParser;
+import peggy42.cn.numberutil.Wad18;
+import peggy42.cn.util.HttpUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.net.URI;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Streaming ticker of an exchange. Every ticker message updates the latest price and is pushed to
+ * the listener right away, so the median does not wait for the next poll. Lost connections are
+ * reopened with exponential backoff. A connection is pinged regularly and reopened if neither a
+ * message nor a pong arrived within the idle timeout, because a half-open connection is never
+ * closed. {@link #getPrice()} returns the latest streamed price and {@link #getPriceTime()} its
+ * arrival time, so the feed can also be used like a polled feed.
+ */
+public final class WebSocketPriceFeed implements PriceFeed {
+  private static final org.slf4j.Logger logger =
+      LoggerFactory.getLogger(MethodHandles.lookup().lookupClass().getSimpleName());
+  private static final int WAD18_DECIMALS = 18;
+  private static final Wad18 TWO = Wad18.of("2");
+  private static final long CONNECT_TIMEOUT = 5L * 1000;
+  private static final long IDLE_TIMEOUT = 30L * 1000;
+  private static final ByteBuffer PING = ByteBuffer.allocate(0);
+  static final long MAX_PRICE_AGE = 60L * 1000;
+  private static final ScheduledExecutorService reconnectExecutor =
+      Executors.newSingleThreadScheduledExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "price-stream-reconnect");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  private final String name;
+  private final URI uri;
+  private final String subscription;
+  private final Function<CharSequence, Wad18> parser;
+  private final long initialBackoff;
+  private final long maximumBackoff;
+  private final long idleTimeout;
+  private volatile Consumer<Wad18> listener = price -> {};
+  private volatile Wad18 price = Wad18.ZERO;
+  private volatile long priceTime;
+  private volatile Connection connection;
+  private volatile boolean closed = true;
+  private long backoff;
+  private ScheduledFuture<?> watchdog;
+
+  /**
+   * @param subscription message that is sent after connecting, e.g. to subscribe to a ticker
+   * @param parser returns the price of a ticker message, or null for other messages
+   * @param initialBackoff milliseconds before the first reconnect, doubled after every failure
+   * @param idleTimeout milliseconds without a message or pong before the connection is reopened,
+   *     pings are sent three times as often
+   */
+  public WebSocketPriceFeed(
+      @NotNull String name,
+      @NotNull URI uri,
+      @NotNull String subscription,
+      @NotNull Function<CharSequence, Wad18> parser,
+      long initialBackoff,
+      long maximumBackoff,
+      long idleTimeout) {
+    this.name = name;
+    this.uri = uri;
+    this.subscription = subscription;
+    this.parser = parser;
+    this.initialBackoff = initialBackoff;
+    this.maximumBackoff = maximumBackoff;
+    this.backoff = initialBackoff;
+    this.idleTimeout = idleTimeout;
+  }
+
+  /**
+   * input example:
+   * [340,{"a":["251.29000",4,"4.000"],"b":["250.99000",6,"6.000"],"c":["251.04000","2.00000000"]},"ticker","ETH/USD"]
+   */
+  public static WebSocketPriceFeed kraken() {
+    return new WebSocketPriceFeed(
+        "KRAKEN_WS",
+        URI.create("wss://ws.kraken.com"),
+        "{\"event\":\"subscribe\",\"pair\":[\"ETH/USD\"],\"subscription\":{\"name\":\"ticker\"}}",
+        message -> {
+          Wad18 ask = parseValue(message, "a");
+          Wad18 bid = parseValue(message, "b");
+          return ask == null || bid == null ? null : ask.add(bid).divide(TWO);
+        },
+        1000,
+        60L * 1000,
+        IDLE_TIMEOUT);
+  }
+
+  /**
+   * input example:
+   * {"type":"ticker","sequence":6998278453,"product_id":"ETH-USD","price":"237.49","best_bid":"237.49","best_ask":"237.64"}
+   */
+  public static WebSocketPriceFeed coinbase() {
+    return new WebSocketPriceFeed(
+        "COINBASE_WS",
+        URI.create("wss://ws-feed.pro.coinbase.com"),
+        "{\"type\":\"subscribe\",\"product_ids\":[\"ETH-USD\"],\"channels\":[\"ticker\"]}",
+        message -> parseValue(message, "price"),
+        1000,
+        60L * 1000,
+        IDLE_TIMEOUT);
+  }
+
+  /**
+   * @return the first number after "key": in a JSON message, also if it is quoted or the first
+   *     element of an array, or null if the key does not exist
+   */
+  @Nullable
+  static Wad18 parseValue(@NotNull CharSequence message, @NotNull String key) {
+    int start = indexOfKey(message, key);
+    if (start == -1) return null;
+    while (start < message.length() && "[\" \t".indexOf(message.charAt(start)) != -1) start++;
+    int end = start;
+    while (end < message.length() && isNumberPart(message.charAt(end))) end++;
+    if (end == start) return null;
+    return DecimalParser.parse(message, start, end, WAD18_DECIMALS);
+  }
+
+  private static int indexOfKey(CharSequence message, String key) {
+    String quotedKey = '"' + key + '"';
+    int index = message.toString().indexOf(quotedKey);
+    while (index != -1) {
+      int colon = index + quotedKey.length();
+      while (colon < message.length() && message.charAt(colon) == ' ') colon++;
+      if (colon < message.length() && message.charAt(colon) == ':') return colon + 1;
+      index = message.toString().indexOf(quotedKey, index + 1);
+    }
+    return -1;
+  }
+
+  private static boolean isNumberPart(char c) {
+    return (c >= '0' && c <= '9') || c == '.' || c == '-' || c == '+' || c == 'e' || c == 'E';
+  }
+
+  /** Connects and pushes every new price to listener, also after reconnects */
+  public synchronized void start(@NotNull Consumer<Wad18> listener) {
+    this.listener = listener;
+    closed = false;
+    connect();
+    if (watchdog == null) {
+      long pingInterval = Math.max(idleTimeout / 3, 1);
+      watchdog =
+          reconnectExecutor.scheduleWithFixedDelay(
+              this::checkConnection, pingInterval, pingInterval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  public synchronized void close() {
+    closed = true;
+    if (watchdog != null) watchdog.cancel(false);
+    watchdog = null;
+    Connection currentConnection = connection;
+    WebSocket currentWebSocket = currentConnection == null ? null : currentConnection.webSocket;
+    if (currentWebSocket != null) currentWebSocket.sendClose(WebSocket.NORMAL_CLOSURE, "");
+  }
+
+  private void connect() {
+    if (closed) return;
+    logger.trace("{} CONNECTING", name);
+    Connection newConnection = new Connection();
+    connection = newConnection;
+    HttpUtil.getHttpClient()
+        .newWebSocketBuilder()
+        .connectTimeout(Duration.ofMillis(CONNECT_TIMEOUT))
+        .buildAsync(uri, newConnection)
+        .whenComplete(
+            (newWebSocket, throwable) -> {
+              if (throwable != null) {
+                logger.warn("{} CONNECTION FAILED {}", name, throwable.getMessage());
+                newConnection.disconnected();
+                return;
+              }
+              newConnection.webSocket = newWebSocket;
+              if (closed) {
+                newWebSocket.sendClose(WebSocket.NORMAL_CLOSURE, "");
+                return;
+              }
+              newWebSocket.sendText(subscription, true);
+            });
+  }
+
+  /** Pings the connection, or aborts and reopens it if it was silent for idleTimeout */
+  private void checkConnection() {
+    Connection currentConnection = connection;
+    if (closed || currentConnection == null) return;
+    WebSocket currentWebSocket = currentConnection.webSocket;
+    if (currentWebSocket == null) return; // still connecting, CONNECT_TIMEOUT applies
+    long idle = System.currentTimeMillis() - currentConnection.lastActivity;
+    if (idle > idleTimeout) {
+      logger.warn("{} SILENT FOR {} MS, RECONNECTING", name, idle);
+      currentWebSocket.abort();
+      currentConnection.disconnected();
+      return;
+    }
+    currentWebSocket.sendPing(PING.duplicate());
+  }
+
+  private synchronized void scheduleReconnect() {
+    if (closed) return;
+    long delay = backoff;
+    backoff = Math.min(backoff * 2, maximumBackoff);
+    logger.trace("{} RECONNECTING IN {} MS", name, delay);
+    reconnectExecutor.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+  }
+
+  private synchronized void resetBackoff() {
+    backoff = initialBackoff;
+  }
+
+  private void onMessage(CharSequence message) {
+    Wad18 newPrice;
+    try {
+      newPrice = parser.apply(message);
+    } catch (RuntimeException e) {
+      logger.warn("{} UNEXPECTED MESSAGE {}", name, message);
+      return;
+    }
+    if (newPrice == null || newPrice.compareTo(Wad18.ZERO) <= 0) return;
+    resetBackoff();
+    price = newPrice;
+    priceTime = System.currentTimeMillis();
+    listener.accept(newPrice);
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  /** @throws IOException if no price was streamed within MAX_PRICE_AGE */
+  @Override
+  public Wad18 getPrice() throws IOException {
+    if (System.currentTimeMillis() - priceTime > MAX_PRICE_AGE)
+      throw new IOException(name + " HAS NO RECENT PRICE");
+    return price;
+  }
+
+  /** @return arrival time of the latest streamed price */
+  @Override
+  public long getPriceTime() {
+    return priceTime;
+  }
+
+  /** Listener of one connection, every connection is reopened at most once */
+  private final class Connection implements WebSocket.Listener {
+    private final StringBuilder message = new StringBuilder();
+    private final AtomicBoolean disconnected = new AtomicBoolean();
+    private volatile WebSocket webSocket;
+    private volatile long lastActivity = System.currentTimeMillis();
+
+    private void disconnected() {
+      if (disconnected.compareAndSet(false, true)) scheduleReconnect();
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+      lastActivity = System.currentTimeMillis();
+      message.append(data);
+      if (last) {
+        onMessage(message);
+        message.setLength(0);
+      }
+      webSocket.request(1);
+      return null;
+    }
+
+    @Override
+    public CompletionStage<?> onPing(WebSocket webSocket, ByteBuffer payload) {
+      lastActivity = System.currentTimeMillis();
+      return WebSocket.Listener.super.onPing(webSocket, payload);
+    }
+
+    @Override
+    public CompletionStage<?> onPong(WebSocket webSocket, ByteBuffer payload) {
+      lastActivity = System.currentTimeMillis();
+      webSocket.request(1);
+      return null;
+    }
+
+    @Override
+    public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+      logger.trace("{} CLOSED {} {}", name, statusCode, reason);
+      disconnected();
+      return null;
+    }
+
+    @Override
+    public void onError(WebSocket webSocket, Throwable error) {
+      logger.warn("{} ERROR {}", name, error.getMessage());
+      disconnected();
+    }
+  }
+}
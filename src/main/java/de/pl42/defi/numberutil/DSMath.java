@@ -0,0 +1,101 @@
+package peggy42.cn.numberutil;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.math.BigInteger;
+
+/**
+ * Integer fixed point math with the semantics of DSMath (https://github.com/dapphub/ds-math) and
+ * the rpow of MakerDAO's jug and pot. Arguments are raw uint256 values, e.g. a wad of 1.5 is
+ * 1500000000000000000. wmul, rmul, wdiv, rdiv and rpow round half up like the contracts, so
+ * results are identical to on-chain results. Overflows beyond 256 bits and underflows below zero
+ * throw an ArithmeticException with the revert reason of the contract.
+ */
+public final class DSMath {
+  public static final BigInteger WAD = BigInteger.TEN.pow(18);
+  public static final BigInteger RAY = BigInteger.TEN.pow(27);
+  public static final BigInteger RAD = BigInteger.TEN.pow(45);
+  private static final BigInteger HALF_WAD = WAD.shiftRight(1);
+  private static final BigInteger HALF_RAY = RAY.shiftRight(1);
+  private static final BigInteger TWO = BigInteger.valueOf(2);
+  private static final int UINT256_BITS = 256;
+
+  private DSMath() {
+    throw new IllegalStateException("Utility class");
+  }
+
+  @NotNull
+  public static BigInteger add(@NotNull BigInteger x, @NotNull BigInteger y) {
+    BigInteger z = x.add(y);
+    if (z.bitLength() > UINT256_BITS) throw new ArithmeticException("ds-math-add-overflow");
+    return z;
+  }
+
+  @NotNull
+  public static BigInteger sub(@NotNull BigInteger x, @NotNull BigInteger y) {
+    BigInteger z = x.subtract(y);
+    if (z.signum() < 0) throw new ArithmeticException("ds-math-sub-underflow");
+    return z;
+  }
+
+  @NotNull
+  public static BigInteger mul(@NotNull BigInteger x, @NotNull BigInteger y) {
+    BigInteger z = x.multiply(y);
+    if (z.bitLength() > UINT256_BITS) throw new ArithmeticException("ds-math-mul-overflow");
+    return z;
+  }
+
+  /** @return x * y / 10^18, rounded half up */
+  @NotNull
+  public static BigInteger wmul(@NotNull BigInteger x, @NotNull BigInteger y) {
+    return add(mul(x, y), HALF_WAD).divide(WAD);
+  }
+
+  /** @return x * y / 10^27, rounded half up */
+  @NotNull
+  public static BigInteger rmul(@NotNull BigInteger x, @NotNull BigInteger y) {
+    return add(mul(x, y), HALF_RAY).divide(RAY);
+  }
+
+  /** @return x * 10^18 / y, rounded half up */
+  @NotNull
+  public static BigInteger wdiv(@NotNull BigInteger x, @NotNull BigInteger y) {
+    if (y.signum() == 0) throw new IllegalArgumentException("Argument 'divisor' is 0");
+    return add(mul(x, WAD), y.shiftRight(1)).divide(y);
+  }
+
+  /** @return x * 10^27 / y, rounded half up */
+  @NotNull
+  public static BigInteger rdiv(@NotNull BigInteger x, @NotNull BigInteger y) {
+    if (y.signum() == 0) throw new IllegalArgumentException("Argument 'divisor' is 0");
+    return add(mul(x, RAY), y.shiftRight(1)).divide(y);
+  }
+
+  /**
+   * Exponentiation by squaring of a ray, e.g. to compound a rate per block or per second.
+   *
+   * @return x^n as a ray
+   */
+  @NotNull
+  public static BigInteger rpow(@NotNull BigInteger x, long n) {
+    return rpow(x, n, RAY);
+  }
+
+  /**
+   * rpow(x, n, base) of MakerDAO's jug and pot, e.g. base is RAY for rates with 27 decimals.
+   *
+   * @return x^n with the decimals of base, every multiplication is rounded half up
+   */
+  @NotNull
+  public static BigInteger rpow(@NotNull BigInteger x, long n, @NotNull BigInteger base) {
+    if (n < 0) throw new IllegalArgumentException("Argument 'n' is negative");
+    if (x.signum() == 0) return n == 0 ? base : BigInteger.ZERO;
+    BigInteger half = base.divide(TWO);
+    BigInteger z = n % 2 != 0 ? x : base;
+    for (n /= 2; n != 0; n /= 2) {
+      x = add(mul(x, x), half).divide(base);
+      if (n % 2 != 0) z = add(mul(z, x), half).divide(base);
+    }
+    return z;
+  }
+}
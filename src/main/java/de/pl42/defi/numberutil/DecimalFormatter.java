@@ -0,0 +1,134 @@
+package peggy42.cn.numberutil;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.RoundingMode;
+
+/**
+ * Writes human-readable decimals, e.g. "204.12" for a Wad18 of 204120000000000000000 and 2 digits,
+ * to any Appendable. The digits of compact Wad18 values are written straight from the long limbs,
+ * without BigDecimal or intermediate Strings. All other values fall back to BigDecimal. Both paths
+ * round down (towards zero) like BigDecimal.setScale(digits, RoundingMode.DOWN).
+ */
+public final class DecimalFormatter {
+  private static final int WAD18_DECIMALS = 18;
+  private static final long WAD = 1_000000000_000000000L;
+  private static final long[] POWERS_OF_TEN = new long[WAD18_DECIMALS + 1];
+
+  static {
+    POWERS_OF_TEN[0] = 1L;
+    for (int i = 1; i <= WAD18_DECIMALS; i++) POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+  }
+
+  private DecimalFormatter() {
+    throw new IllegalStateException("Utility class");
+  }
+
+  /**
+   * @param digits number of fraction digits, e.g. 2 for USD
+   * @return appendable with numberWrapper / 10^decimals appended
+   */
+  public static <A extends Appendable> A format(
+      @NotNull A appendable, @NotNull NumberWrapper numberWrapper, int digits) throws IOException {
+    if (digits < 0) throw new IllegalArgumentException("Argument 'digits' is negative");
+    if (numberWrapper instanceof Wad18 && ((Wad18) numberWrapper).isCompact()) {
+      Wad18 wad18 = (Wad18) numberWrapper;
+      formatCompact(appendable, wad18.high(), wad18.low(), digits);
+    } else {
+      appendable.append(
+          numberWrapper
+              .toBigDecimal()
+              .movePointLeft(numberWrapper.decimals)
+              .setScale(digits, RoundingMode.DOWN)
+              .toPlainString());
+    }
+    return appendable;
+  }
+
+  /** @return stringBuilder with numberWrapper / 10^decimals appended */
+  public static StringBuilder format(
+      @NotNull StringBuilder stringBuilder, @NotNull NumberWrapper numberWrapper, int digits) {
+    try {
+      format((Appendable) stringBuilder, numberWrapper, digits);
+      return stringBuilder;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // StringBuilder does not throw IOExceptions
+    }
+  }
+
+  /**
+   * Wraps a log argument, so that it is only formatted if the log level is enabled, e.g.
+   * logger.trace("PROFIT {}", lazy(profit, 2)). A MutableWad18 is formatted with its value at the
+   * time the logger builds the message.
+   */
+  public static Object lazy(@NotNull NumberWrapper numberWrapper, int digits) {
+    return new Lazy(numberWrapper, digits);
+  }
+
+  /** @see #lazy(NumberWrapper, int) */
+  public static Object lazy(@NotNull MutableWad18 mutableWad18, int digits) {
+    return new Lazy(mutableWad18, digits);
+  }
+
+  private static void formatCompact(Appendable appendable, long hi, long lo, int digits)
+      throws IOException {
+    boolean negative = hi < 0;
+    if (negative) {
+      lo = -lo;
+      hi = ~hi + (lo == 0 ? 1 : 0);
+    }
+    // magnitude hi:lo = integer * 10^18 + fraction, the integer part has at most 21 digits
+    long q1 = Long.divideUnsigned(hi, WAD);
+    long q0 = Int128.divideUnsigned128By64(Long.remainderUnsigned(hi, WAD), lo, WAD);
+    long fraction = lo - q0 * WAD;
+    long integerHigh = Int128.divideUnsigned128By64(q1, q0, WAD);
+    long integerLow = q0 - integerHigh * WAD;
+    int fractionDigits = Math.min(digits, WAD18_DECIMALS);
+    long shownFraction = fraction / POWERS_OF_TEN[WAD18_DECIMALS - fractionDigits];
+
+    if (negative && (q1 | q0 | shownFraction) != 0) appendable.append('-');
+    if (integerHigh != 0) {
+      appendDigits(appendable, integerHigh, digitCount(integerHigh));
+      appendDigits(appendable, integerLow, WAD18_DECIMALS);
+    } else {
+      appendDigits(appendable, integerLow, digitCount(integerLow));
+    }
+    if (digits == 0) return;
+    appendable.append('.');
+    appendDigits(appendable, shownFraction, fractionDigits);
+    for (int i = fractionDigits; i < digits; i++) appendable.append('0');
+  }
+
+  /** @param value between 0 and 10^18 - 1 */
+  private static int digitCount(long value) {
+    int count = 1;
+    while (count < WAD18_DECIMALS && value >= POWERS_OF_TEN[count]) count++;
+    return count;
+  }
+
+  /** Appends the lowest width digits of value, padded with leading zeros */
+  private static void appendDigits(Appendable appendable, long value, int width)
+      throws IOException {
+    for (int i = width - 1; i >= 0; i--) {
+      appendable.append((char) ('0' + (value / POWERS_OF_TEN[i]) % 10));
+    }
+  }
+
+  private static final class Lazy {
+    private final Object value;
+    private final int digits;
+
+    private Lazy(Object value, int digits) {
+      this.value = value;
+      this.digits = digits;
+    }
+
+    @Override
+    public String toString() {
+      if (value instanceof MutableWad18) return ((MutableWad18) value).toString(digits);
+      return ((NumberWrapper) value).toString(digits);
+    }
+  }
+}
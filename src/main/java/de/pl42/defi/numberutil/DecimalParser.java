@@ -0,0 +1,152 @@
+package peggy42.cn.numberutil;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses ASCII decimal numbers, e.g. prices and gas prices from HTTP responses, straight into a
+ * scaled Wad18 without intermediate Strings or doubles. The result is value * 10^decimals, extra
+ * decimals are rounded down (towards zero). Numbers with at most 18 significant digits are parsed
+ * into long limbs. Longer numbers and numbers with an exponent fall back to BigDecimal.
+ */
+public final class DecimalParser {
+  private static final int WAD18_DECIMALS = 18;
+  private static final int MAX_LONG_DIGITS = 18;
+  private static final long[] POWERS_OF_TEN = new long[MAX_LONG_DIGITS + 1];
+
+  static {
+    POWERS_OF_TEN[0] = 1L;
+    for (int i = 1; i <= MAX_LONG_DIGITS; i++) POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+  }
+
+  private DecimalParser() {
+    throw new IllegalStateException("Utility class");
+  }
+
+  /** @return e.g. 251290000000000000000 for "251.29" */
+  public static Wad18 parseWad18(@NotNull CharSequence chars) {
+    return parse(null, chars, 0, chars.length(), WAD18_DECIMALS);
+  }
+
+  /** @return e.g. 251290000000000000000 for "251.29" */
+  public static Wad18 parseWad18(@NotNull byte[] bytes, int start, int end) {
+    return parse(bytes, null, start, end, WAD18_DECIMALS);
+  }
+
+  /**
+   * @param decimals between 0 and 18, e.g. 9 to convert a price in GWEI to WEI
+   * @return the number between start (inclusive) and end (exclusive) times 10^decimals
+   */
+  public static Wad18 parse(@NotNull CharSequence chars, int start, int end, int decimals) {
+    return parse(null, chars, start, end, decimals);
+  }
+
+  /**
+   * @param decimals between 0 and 18, e.g. 9 to convert a price in GWEI to WEI
+   * @return the number between start (inclusive) and end (exclusive) times 10^decimals
+   */
+  public static Wad18 parse(@NotNull byte[] bytes, int start, int end, int decimals) {
+    return parse(bytes, null, start, end, decimals);
+  }
+
+  /**
+   * Parses the number in the given segment of input, e.g. 251.29 for segment 9 of a Kraken ticker.
+   * Segments are numbered like the array elements of input.split(delimiter). Characters around the
+   * number, like ':' and ',' of JSON, are ignored.
+   *
+   * @throws NumberFormatException if the segment does not exist or contains no number
+   */
+  public static Wad18 parseSegment(
+      @NotNull CharSequence input, char delimiter, int segment, int decimals) {
+    int start = 0;
+    for (int i = 0; i < segment; i++) {
+      start = indexOf(input, delimiter, start) + 1;
+      if (start == 0) throw new NumberFormatException("Segment " + segment + " does not exist");
+    }
+    int end = indexOf(input, delimiter, start);
+    if (end == -1) end = input.length();
+    while (start < end && !isNumberStart(input.charAt(start))) start++;
+    int numberEnd = start + 1;
+    while (numberEnd < end && isNumberPart(input.charAt(numberEnd))) numberEnd++;
+    return parse(null, input, start, Math.min(numberEnd, end), decimals);
+  }
+
+  private static int indexOf(CharSequence input, char c, int fromIndex) {
+    for (int i = fromIndex; i < input.length(); i++) {
+      if (input.charAt(i) == c) return i;
+    }
+    return -1;
+  }
+
+  private static boolean isNumberStart(char c) {
+    return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.';
+  }
+
+  private static boolean isNumberPart(char c) {
+    return (c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '-' || c == '+';
+  }
+
+  private static Wad18 parse(byte[] bytes, CharSequence chars, int start, int end, int decimals) {
+    if (decimals < 0 || decimals > MAX_LONG_DIGITS)
+      throw new IllegalArgumentException("Argument 'decimals' is not between 0 and 18");
+    int i = start;
+    boolean negative = false;
+    if (i < end) {
+      char sign = charAt(bytes, chars, i);
+      if (sign == '-' || sign == '+') {
+        negative = sign == '-';
+        i++;
+      }
+    }
+    long significand = 0;
+    int digits = 0;
+    int fractionDigits = 0;
+    boolean fraction = false;
+    boolean anyDigit = false;
+    for (; i < end; i++) {
+      char c = charAt(bytes, chars, i);
+      if (c >= '0' && c <= '9') {
+        anyDigit = true;
+        if (fraction && fractionDigits == decimals) continue; // rounded down
+        if (digits == MAX_LONG_DIGITS) return parseBigDecimal(bytes, chars, start, end, decimals);
+        significand = significand * 10 + (c - '0');
+        if (significand != 0) digits++;
+        if (fraction) fractionDigits++;
+      } else if (c == '.' && !fraction) {
+        fraction = true;
+      } else if (c == 'e' || c == 'E') {
+        return parseBigDecimal(bytes, chars, start, end, decimals);
+      } else {
+        throw new NumberFormatException("Character '" + c + "' is not part of a decimal");
+      }
+    }
+    if (!anyDigit) throw new NumberFormatException("No digits found");
+
+    // significand < 10^18 and the power of ten <= 10^18, so the product fits into 127 bits
+    long powerOfTen = POWERS_OF_TEN[decimals - fractionDigits];
+    long hi = Math.multiplyHigh(significand, powerOfTen);
+    long lo = significand * powerOfTen;
+    if (negative) {
+      lo = -lo;
+      hi = ~hi + (lo == 0 ? 1 : 0);
+    }
+    return Wad18.ofLimbs(hi, lo);
+  }
+
+  private static char charAt(byte[] bytes, CharSequence chars, int index) {
+    return bytes != null ? (char) (bytes[index] & 0xFF) : chars.charAt(index);
+  }
+
+  private static Wad18 parseBigDecimal(
+      byte[] bytes, CharSequence chars, int start, int end, int decimals) {
+    String number =
+        bytes != null
+            ? new String(bytes, start, end - start, StandardCharsets.US_ASCII)
+            : chars.subSequence(start, end).toString();
+    return new Wad18(
+        new BigDecimal(number).movePointRight(decimals).setScale(0, RoundingMode.DOWN));
+  }
+}
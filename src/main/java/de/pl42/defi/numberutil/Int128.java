@@ -0,0 +1,278 @@
+package peggy42.cn.numberutil;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Signed 128-bit two's complement arithmetic on a pair of long limbs (hi is signed, lo is
+ * unsigned). Backs the compact representation of {@link Wad18} and {@link MutableWad18}. Every
+ * operation hands its result to a {@link Sink} and returns null instead, if the result does not
+ * fit into 128 bits, so that the caller can fall back to BigDecimal. Multiplication and division
+ * round down (towards zero) like the BigDecimal path.
+ */
+final class Int128 {
+  private static final long WAD = 1_000000000_000000000L;
+  private static final long MASK32 = 0xFFFFFFFFL;
+  private static final long BASE32 = 1L << 32;
+  private static final int MAX_BIT_LENGTH = 127;
+
+  private Int128() {
+    throw new IllegalStateException("Utility class");
+  }
+
+  /**
+   * Receives the limbs of a result, either to create a new Wad18 or to update the target, e.g. a
+   * MutableWad18. The target is an argument, so one static sink serves all targets.
+   */
+  interface Sink<T> {
+    T limbs(@Nullable T target, long hi, long lo);
+  }
+
+  static int compare(long hi1, long lo1, long hi2, long lo2) {
+    if (hi1 != hi2) return hi1 < hi2 ? -1 : 1;
+    return Long.compareUnsigned(lo1, lo2);
+  }
+
+  @Nullable
+  static <T> T add(
+      long hi1, long lo1, long hi2, long lo2, @Nullable T target, @NotNull Sink<T> sink) {
+    long lo = lo1 + lo2;
+    long hi = hi1 + hi2 + (Long.compareUnsigned(lo, lo1) < 0 ? 1 : 0);
+    if (((hi1 ^ hi) & (hi2 ^ hi)) < 0) return null;
+    return sink.limbs(target, hi, lo);
+  }
+
+  @Nullable
+  static <T> T subtract(
+      long hi1, long lo1, long hi2, long lo2, @Nullable T target, @NotNull Sink<T> sink) {
+    long lo = lo1 - lo2;
+    long hi = hi1 - hi2 - (Long.compareUnsigned(lo1, lo2) < 0 ? 1 : 0);
+    if (((hi1 ^ hi2) & (hi1 ^ hi)) < 0) return null;
+    return sink.limbs(target, hi, lo);
+  }
+
+  /** (a * b) / 10^18 */
+  @Nullable
+  static <T> T wmul(
+      long hi1, long lo1, long hi2, long lo2, @Nullable T target, @NotNull Sink<T> sink) {
+    boolean negative = (hi1 ^ hi2) < 0;
+    if (hi1 < 0) {
+      lo1 = -lo1;
+      hi1 = ~hi1 + (lo1 == 0 ? 1 : 0);
+    }
+    if (hi2 < 0) {
+      lo2 = -lo2;
+      hi2 = ~hi2 + (lo2 == 0 ? 1 : 0);
+    }
+    // 256 bit product r3:r2:r1:r0 of the two magnitudes
+    long r0 = lo1 * lo2;
+    long r1 = unsignedMultiplyHigh(lo1, lo2);
+    long l1 = lo1 * hi2;
+    long l2 = hi1 * lo2;
+    long r2 = unsignedMultiplyHigh(lo1, hi2);
+    long r3 = unsignedMultiplyHigh(hi1, hi2);
+    r1 += l1;
+    long carry = Long.compareUnsigned(r1, l1) < 0 ? 1 : 0;
+    r1 += l2;
+    carry += Long.compareUnsigned(r1, l2) < 0 ? 1 : 0;
+    long h2 = unsignedMultiplyHigh(hi1, lo2);
+    long l3 = hi1 * hi2;
+    r2 += h2;
+    r3 += Long.compareUnsigned(r2, h2) < 0 ? 1 : 0;
+    r2 += l3;
+    r3 += Long.compareUnsigned(r2, l3) < 0 ? 1 : 0;
+    r2 += carry;
+    r3 += Long.compareUnsigned(r2, carry) < 0 ? 1 : 0;
+
+    // the quotient only fits into 128 bits if r3:r2 < 10^18
+    if (r3 != 0 || Long.compareUnsigned(r2, WAD) >= 0) return null;
+    long q1 = divideUnsigned128By64(r2, r1, WAD);
+    long q0 = divideUnsigned128By64(r1 - q1 * WAD, r0, WAD);
+    return signed(q1, q0, negative, target, sink);
+  }
+
+  /** (a * 10^18) / b, b must not be zero */
+  @Nullable
+  static <T> T wdiv(
+      long hi1, long lo1, long hi2, long lo2, @Nullable T target, @NotNull Sink<T> sink) {
+    boolean negative = (hi1 ^ hi2) < 0;
+    if (hi1 < 0) {
+      lo1 = -lo1;
+      hi1 = ~hi1 + (lo1 == 0 ? 1 : 0);
+    }
+    if (hi2 < 0) {
+      lo2 = -lo2;
+      hi2 = ~hi2 + (lo2 == 0 ? 1 : 0);
+    }
+    // 192 bit numerator n2:n1:n0
+    long n0 = lo1 * WAD;
+    long n1 = hi1 * WAD;
+    long high = unsignedMultiplyHigh(lo1, WAD);
+    n1 += high;
+    long n2 = unsignedMultiplyHigh(hi1, WAD) + (Long.compareUnsigned(n1, high) < 0 ? 1 : 0);
+
+    long q1;
+    long q0;
+    if (hi2 == 0) {
+      if (Long.compareUnsigned(n2, lo2) >= 0) return null;
+      q1 = divideUnsigned128By64(n2, n1, lo2);
+      q0 = divideUnsigned128By64(n1 - q1 * lo2, n0, lo2);
+    } else {
+      // Knuth, TAOCP Vol. 2, 4.3.1, Algorithm D with two 64 bit digits in the divisor
+      int s = Long.numberOfLeadingZeros(hi2);
+      long v1 = shiftLeft(hi2, lo2, s);
+      long v0 = lo2 << s;
+      long u3 = s == 0 ? 0 : n2 >>> (64 - s);
+      long u2 = shiftLeft(n2, n1, s);
+      long u1 = shiftLeft(n1, n0, s);
+      long u0 = n0 << s;
+
+      q1 = quotientDigit(u3, u2, u1, v1, v0);
+      long p0 = q1 * v0;
+      long p1 = q1 * v1 + unsignedMultiplyHigh(q1, v0);
+      long r0 = u1 - p0;
+      long r1 = u2 - p1 - (Long.compareUnsigned(u1, p0) < 0 ? 1 : 0);
+
+      q0 = quotientDigit(r1, r0, u0, v1, v0);
+    }
+    return signed(q1, q0, negative, target, sink);
+  }
+
+  @NotNull
+  static BigInteger toBigInteger(long hi, long lo) {
+    if (hi == (lo >> 63)) return BigInteger.valueOf(lo);
+    byte[] bytes = new byte[16];
+    for (int i = 0; i < 8; i++) {
+      bytes[7 - i] = (byte) (hi >>> (i * 8));
+      bytes[15 - i] = (byte) (lo >>> (i * 8));
+    }
+    return new BigInteger(bytes);
+  }
+
+  @NotNull
+  static BigDecimal toBigDecimal(long hi, long lo) {
+    if (hi == (lo >> 63)) return BigDecimal.valueOf(lo);
+    return new BigDecimal(toBigInteger(hi, lo));
+  }
+
+  /** @return the value rounded to the nearest double, like BigDecimal.doubleValue() */
+  static double toDouble(long hi, long lo) {
+    if (hi == (lo >> 63)) return lo;
+    boolean negative = hi < 0;
+    if (negative) {
+      lo = -lo;
+      hi = ~hi + (lo == 0 ? 1 : 0);
+    }
+    // keep the highest 63 bits and a sticky bit for the dropped ones, so rounding happens once
+    int shift = 65 - Long.numberOfLeadingZeros(hi);
+    long top;
+    boolean sticky;
+    if (shift < 64) {
+      top = (hi << (64 - shift)) | (lo >>> shift);
+      sticky = (lo << (64 - shift)) != 0;
+    } else {
+      top = hi >>> (shift - 64);
+      sticky = lo != 0 || (shift > 64 && (hi << (128 - shift)) != 0);
+    }
+    double magnitude = Math.scalb((double) (top | (sticky ? 1 : 0)), shift);
+    return negative ? -magnitude : magnitude;
+  }
+
+  /** @return the value as an integer, if it is integral and fits into 128 bits, otherwise null */
+  @Nullable
+  static BigInteger integralValue(@NotNull BigDecimal bigDecimal) {
+    if (bigDecimal.signum() == 0) return BigInteger.ZERO;
+    if (bigDecimal.scale() > 0) return null;
+    BigInteger integer = bigDecimal.toBigInteger();
+    return integer.bitLength() <= MAX_BIT_LENGTH ? integer : null;
+  }
+
+  /** @return the high limb of an integer whose bit length is at most 127 */
+  static long high(@NotNull BigInteger integer) {
+    if (integer.bitLength() < 64) return integer.signum() < 0 ? -1L : 0L;
+    return integer.shiftRight(64).longValue();
+  }
+
+  @Nullable
+  private static <T> T signed(
+      long hi, long lo, boolean negative, @Nullable T target, @NotNull Sink<T> sink) {
+    if (hi < 0) return null;
+    if (negative) {
+      lo = -lo;
+      hi = ~hi + (lo == 0 ? 1 : 0);
+    }
+    return sink.limbs(target, hi, lo);
+  }
+
+  private static long shiftLeft(long hi, long lo, int s) {
+    return s == 0 ? hi : (hi << s) | (lo >>> (64 - s));
+  }
+
+  /**
+   * One step of Algorithm D: the quotient digit of u2:u1:u0 / v1:v0 for a normalized divisor and
+   * u2:u1 < v1:v0.
+   */
+  private static long quotientDigit(long u2, long u1, long u0, long v1, long v0) {
+    long qhat;
+    long rhat;
+    if (u2 == v1) {
+      qhat = -1L;
+      rhat = u1 + v1;
+      if (Long.compareUnsigned(rhat, v1) < 0) return qhat;
+    } else {
+      qhat = divideUnsigned128By64(u2, u1, v1);
+      rhat = u1 - qhat * v1;
+    }
+    while (compareUnsigned128(unsignedMultiplyHigh(qhat, v0), qhat * v0, rhat, u0) > 0) {
+      qhat--;
+      rhat += v1;
+      if (Long.compareUnsigned(rhat, v1) < 0) break;
+    }
+    return qhat;
+  }
+
+  private static int compareUnsigned128(long hi1, long lo1, long hi2, long lo2) {
+    if (hi1 != hi2) return Long.compareUnsigned(hi1, hi2);
+    return Long.compareUnsigned(lo1, lo2);
+  }
+
+  static long unsignedMultiplyHigh(long x, long y) {
+    return Math.multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
+  }
+
+  /**
+   * Hacker's Delight, divlu: divides the unsigned 128 bit number u1:u0 by v. Requires u1 < v
+   * (unsigned), so that the quotient fits into 64 bits.
+   */
+  static long divideUnsigned128By64(long u1, long u0, long v) {
+    int s = Long.numberOfLeadingZeros(v);
+    v <<= s;
+    long vn1 = v >>> 32;
+    long vn0 = v & MASK32;
+    long un32 = shiftLeft(u1, u0, s);
+    long un10 = u0 << s;
+    long un1 = un10 >>> 32;
+    long un0 = un10 & MASK32;
+
+    long q1 = Long.divideUnsigned(un32, vn1);
+    long rhat = un32 - q1 * vn1;
+    while (q1 >= BASE32 || Long.compareUnsigned(q1 * vn0, (rhat << 32) | un1) > 0) {
+      q1--;
+      rhat += vn1;
+      if (rhat >= BASE32) break;
+    }
+
+    long un21 = (un32 << 32) + un1 - q1 * v;
+    long q0 = Long.divideUnsigned(un21, vn1);
+    rhat = un21 - q0 * vn1;
+    while (q0 >= BASE32 || Long.compareUnsigned(q0 * vn0, (rhat << 32) | un0) > 0) {
+      q0--;
+      rhat += vn1;
+      if (rhat >= BASE32) break;
+    }
+    return (q1 << 32) | q0;
+  }
+}
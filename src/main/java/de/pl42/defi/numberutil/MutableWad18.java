@@ -0,0 +1,152 @@
+package peggy42.cn.numberutil;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Mutable counterpart of {@link Wad18} for chains of arithmetic operations, e.g. profit and
+ * balance calculations. Every operation updates this object in place and has exactly the same
+ * result as the equivalent Wad18 operation. Values that fit into 128 bits are kept in long limbs,
+ * so a chain does not allocate anything until {@link #toWad18()} freezes the result. Values that
+ * do not fit fall back to an intermediate Wad18.
+ *
+ * <p>Not thread-safe
+ */
+public final class MutableWad18 implements Comparable<MutableWad18> {
+  private static final Int128.Sink<MutableWad18> SINK = MutableWad18::setLimbs;
+  private long hi;
+  private long lo;
+  private Wad18 overflow; // only set if the current value is not compact
+
+  public MutableWad18() {
+    // zero
+  }
+
+  public MutableWad18(@NotNull Wad18 wad18) {
+    set(wad18);
+  }
+
+  public MutableWad18(@NotNull MutableWad18 mutableWad18) {
+    set(mutableWad18);
+  }
+
+  private MutableWad18 setLimbs(long hi, long lo) {
+    this.hi = hi;
+    this.lo = lo;
+    this.overflow = null;
+    return this;
+  }
+
+  private boolean isCompact() {
+    return overflow == null;
+  }
+
+  public MutableWad18 set(@NotNull Wad18 wad18) {
+    if (wad18.isCompact()) return setLimbs(wad18.high(), wad18.low());
+    overflow = wad18;
+    return this;
+  }
+
+  public MutableWad18 set(@NotNull MutableWad18 mutableWad18) {
+    hi = mutableWad18.hi;
+    lo = mutableWad18.lo;
+    overflow = mutableWad18.overflow;
+    return this;
+  }
+
+  public MutableWad18 add(@NotNull Wad18 augend) {
+    if (isCompact()
+        && augend.isCompact()
+        && Int128.add(hi, lo, augend.high(), augend.low(), this, SINK) != null) return this;
+    return set(toWad18().add(augend));
+  }
+
+  public MutableWad18 add(@NotNull MutableWad18 augend) {
+    if (isCompact()
+        && augend.isCompact()
+        && Int128.add(hi, lo, augend.hi, augend.lo, this, SINK) != null) return this;
+    return set(toWad18().add(augend.toWad18()));
+  }
+
+  public MutableWad18 subtract(@NotNull Wad18 subtrahend) {
+    if (isCompact()
+        && subtrahend.isCompact()
+        && Int128.subtract(hi, lo, subtrahend.high(), subtrahend.low(), this, SINK) != null)
+      return this;
+    return set(toWad18().subtract(subtrahend));
+  }
+
+  public MutableWad18 subtract(@NotNull MutableWad18 subtrahend) {
+    if (isCompact()
+        && subtrahend.isCompact()
+        && Int128.subtract(hi, lo, subtrahend.hi, subtrahend.lo, this, SINK) != null) return this;
+    return set(toWad18().subtract(subtrahend.toWad18()));
+  }
+
+  public MutableWad18 multiply(@NotNull Wad18 multiplicand) {
+    if (isCompact()
+        && multiplicand.isCompact()
+        && Int128.wmul(hi, lo, multiplicand.high(), multiplicand.low(), this, SINK) != null)
+      return this;
+    return set(toWad18().multiply(multiplicand));
+  }
+
+  public MutableWad18 divide(@NotNull Wad18 divisor) {
+    if (isCompact() && divisor.isCompact()) {
+      if (divisor.high() == 0 && divisor.low() == 0)
+        throw new IllegalArgumentException("Argument 'divisor' is 0");
+      if (Int128.wdiv(hi, lo, divisor.high(), divisor.low(), this, SINK) != null) return this;
+    }
+    return set(toWad18().divide(divisor));
+  }
+
+  public MutableWad18 min(@NotNull Wad18 compareObject) {
+    if (compareTo(compareObject) > 0) set(compareObject);
+    return this;
+  }
+
+  public MutableWad18 max(@NotNull Wad18 compareObject) {
+    if (compareTo(compareObject) < 0) set(compareObject);
+    return this;
+  }
+
+  public int compareTo(@NotNull Wad18 val) {
+    if (isCompact() && val.isCompact()) return Int128.compare(hi, lo, val.high(), val.low());
+    return toWad18().compareTo(val);
+  }
+
+  @Override
+  public int compareTo(@NotNull MutableWad18 val) {
+    if (isCompact() && val.isCompact()) return Int128.compare(hi, lo, val.hi, val.lo);
+    return toWad18().compareTo(val.toWad18());
+  }
+
+  /** @return an immutable Wad18 with the current value */
+  public Wad18 toWad18() {
+    if (isCompact()) return Wad18.ofLimbs(hi, lo);
+    return overflow;
+  }
+
+  public double doubleValue() {
+    return toWad18().doubleValue();
+  }
+
+  @Override
+  public boolean equals(Object compareObject) {
+    if (compareObject instanceof MutableWad18) return compareTo((MutableWad18) compareObject) == 0;
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    return toWad18().hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return toWad18().toString();
+  }
+
+  public String toString(int decimals) {
+    return toWad18().toString(decimals);
+  }
+}
@@ -1,14 +1,13 @@
 package peggy42.cn.numberutil;
 
 import org.jetbrains.annotations.NotNull;
-import org.web3j.utils.Convert;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
-import java.math.RoundingMode;
 
 public class NumberWrapper implements Comparable<NumberWrapper> {
-  final BigDecimal bigDecimal;
+  BigDecimal bigDecimal; // Wad18 creates it lazily from its compact representation
   final int decimals;
 
   public NumberWrapper(String number, int decimals) {
@@ -46,31 +45,25 @@ public class NumberWrapper implements Comparable<NumberWrapper> {
   }
 
   public NumberWrapper divide(@NotNull NumberWrapper divisorWrapper) {
-    if (decimals != divisorWrapper.decimals)
-      throw new IllegalArgumentException("Not yet implemented");
-    BigDecimal divisor = divisorWrapper.toBigDecimal();
-    if (divisor.compareTo(BigDecimal.ZERO) == 0)
-      throw new IllegalArgumentException("Argument 'divisor' is 0");
     return new NumberWrapper(
-            bigDecimal
-                    .multiply(BigDecimal.valueOf(Math.pow(10, decimals)))
-                    .divide(divisor, 0, RoundingMode.DOWN)
-                    .stripTrailingZeros(),
-            decimals);
+        Scale.divide(
+            toBigDecimal(),
+            decimals,
+            divisorWrapper.toBigDecimal(),
+            divisorWrapper.decimals,
+            decimals),
+        decimals);
   }
 
   public NumberWrapper multiply(@NotNull NumberWrapper multiplicand) {
-    if (decimals != multiplicand.decimals)
-      throw new IllegalArgumentException("Not yet implemented");
     return new NumberWrapper(
-            bigDecimal
-                    .multiply(multiplicand.toBigDecimal())
-                    .divide(BigDecimal.valueOf(Math.pow(10, decimals)), 0, RoundingMode.DOWN),
-            decimals);
+        Scale.multiply(
+            toBigDecimal(), decimals, multiplicand.toBigDecimal(), multiplicand.decimals, decimals),
+        decimals);
   }
 
   public BigInteger toBigInteger() {
-    return bigDecimal.toBigInteger();
+    return toBigDecimal().toBigInteger();
   }
 
   public BigDecimal toBigDecimal() {
@@ -79,72 +72,66 @@ public class NumberWrapper implements Comparable<NumberWrapper> {
 
   @Override
   public String toString() {
-    if (decimals == 18) {
-      return Convert.fromWei(bigDecimal, Convert.Unit.ETHER)
-          .setScale(decimals, RoundingMode.DOWN)
-          .toPlainString();
-    } else if (decimals > 18) {
-      return Convert.fromWei(
-              bigDecimal.divide(
-                  BigDecimal.valueOf(Math.pow(10, decimals - 18.0)), RoundingMode.DOWN),
-              Convert.Unit.ETHER)
-          .setScale(decimals, RoundingMode.DOWN)
-          .toPlainString();
-    }
-    throw new IllegalArgumentException("todo"); // todo
+    return toString(decimals);
+  }
+
+  /** @return e.g. "204.12" for 2 digits, rounded down (towards zero) */
+  public String toString(int digits) {
+    return DecimalFormatter.format(new StringBuilder(), this, digits).toString();
   }
 
-  public String toString(int decimals) {
-    // todo: only works for decimal == 18
-    return Convert.fromWei(bigDecimal, Convert.Unit.ETHER)
-        .setScale(decimals, RoundingMode.DOWN)
-        .toPlainString();
+  /** Like {@link #toString(int)}, but without creating a String */
+  public <A extends Appendable> A appendTo(@NotNull A appendable, int digits) throws IOException {
+    return DecimalFormatter.format(appendable, this, digits);
   }
 
   public NumberWrapper add(@NotNull NumberWrapper augend) {
-    return new Wad18(bigDecimal.add(augend.toBigDecimal()));
+    return new NumberWrapper(toBigDecimal().add(inThisScale(augend)), decimals);
   }
 
   public NumberWrapper subtract(@NotNull NumberWrapper subtrahend) {
-    return new Wad18(bigDecimal.subtract(subtrahend.toBigDecimal()));
+    return new NumberWrapper(toBigDecimal().subtract(inThisScale(subtrahend)), decimals);
+  }
+
+  /** @return the raw value of numberWrapper rescaled to the decimals of this, rounded down */
+  BigDecimal inThisScale(@NotNull NumberWrapper numberWrapper) {
+    return Scale.rescale(numberWrapper.toBigDecimal(), numberWrapper.decimals, decimals);
   }
 
   @Override
   public int compareTo(@NotNull NumberWrapper val) {
-    // TODO: check if this can be better
-    BigDecimal bigDecimal1 = bigDecimal.multiply(BigDecimal.valueOf(Math.pow(10, val.decimals)));
-    BigDecimal bigDecimal2 =
-            val.toBigDecimal().multiply(BigDecimal.valueOf(Math.pow(10, decimals)));
-    return bigDecimal1.compareTo(bigDecimal2);
+    return Scale.compare(toBigDecimal(), decimals, val.toBigDecimal(), val.decimals);
   }
 
   @Override
   public int hashCode() {
-    return bigDecimal.intValue(); // INFO: check if this is a good idea
+    return toBigDecimal().intValue(); // INFO: check if this is a good idea
   }
 
   @Override
   public boolean equals(Object compareObject) {
     if (compareObject instanceof NumberWrapper) {
       NumberWrapper numberWrapper = (NumberWrapper) compareObject;
-      return bigDecimal.compareTo(numberWrapper.toBigDecimal()) == 0;
+      return toBigDecimal().compareTo(numberWrapper.toBigDecimal()) == 0;
     }
     return false;
   } // todo: hashcode, null?
 
   public NumberWrapper min(@NotNull NumberWrapper compareObject) {
-    return new NumberWrapper(bigDecimal.min(compareObject.toBigDecimal()), this.decimals);
+    if (compareTo(compareObject) <= 0) return this;
+    return new NumberWrapper(inThisScale(compareObject), decimals);
   }
 
   public NumberWrapper max(@NotNull NumberWrapper compareObject) {
-    return new NumberWrapper(bigDecimal.max(compareObject.toBigDecimal()), this.decimals);
+    if (compareTo(compareObject) >= 0) return this;
+    return new NumberWrapper(inThisScale(compareObject), decimals);
   }
 
   public long longValue() {
-    return bigDecimal.longValue();
+    return toBigDecimal().longValue();
   }
 
   public double doubleValue() {
-    return bigDecimal.doubleValue();
+    return toBigDecimal().doubleValue();
   }
 }
@@ -1,38 +1,77 @@
 package peggy42.cn.numberutil;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
-import java.math.RoundingMode;
 
+/**
+ * Immutable
+ *
+ * <p>Values that fit into an uint256, e.g. the bids of flip auctions, are kept as {@link UInt256}.
+ * Comparisons and products with compact Wad18 values use the limbs directly, the BigDecimal is only
+ * created on demand.
+ */
 public class Rad45 extends NumberWrapper {
   public static final Rad45 ZERO = new Rad45(0);
   public static final Rad45 ONE = new Rad45(1);
   private static final int RAD45_DECIMALS = 45;
+  private static final int WAD18_DECIMALS = 18;
+  private static final int UINT256_BITS = 256;
+  private static final UInt256 RAD = UInt256.valueOf(Scale.bigIntegerPowerOfTen(RAD45_DECIMALS));
+  private static final UInt256 WAD = UInt256.valueOf(Scale.bigIntegerPowerOfTen(WAD18_DECIMALS));
+  private static final UInt256 WAD_TO_RAD =
+      UInt256.valueOf(Scale.bigIntegerPowerOfTen(RAD45_DECIMALS - WAD18_DECIMALS));
+
+  private final UInt256 uint256; // null if the value does not fit into an uint256
 
   public Rad45() {
     super(RAD45_DECIMALS);
+    uint256 = UInt256.ZERO;
   }
 
   public Rad45(int number) {
     super(number, RAD45_DECIMALS);
+    uint256 = number < 0 ? null : UInt256.valueOf(number);
   }
 
   public Rad45(String number) {
     super(number, RAD45_DECIMALS);
+    uint256 = toUInt256(bigDecimal);
   }
 
   public Rad45(long number) {
     super(number, RAD45_DECIMALS);
+    uint256 = number < 0 ? null : UInt256.valueOf(number);
   }
 
   public Rad45(BigInteger bigInteger) {
-    super(bigInteger, RAD45_DECIMALS);
+    super(isUInt256(bigInteger) ? null : new BigDecimal(bigInteger), RAD45_DECIMALS);
+    uint256 = isUInt256(bigInteger) ? UInt256.valueOf(bigInteger) : null;
   }
 
   public Rad45(BigDecimal bigDecimal) {
     super(bigDecimal, RAD45_DECIMALS);
+    uint256 = toUInt256(bigDecimal);
+  }
+
+  /** @param uint256 raw value, e.g. decoded with {@link UInt256#fromHex(CharSequence, int)} */
+  public Rad45(@NotNull UInt256 uint256) {
+    super((BigDecimal) null, RAD45_DECIMALS);
+    this.uint256 = uint256;
+  }
+
+  private static boolean isUInt256(@NotNull BigInteger bigInteger) {
+    return bigInteger.signum() >= 0 && bigInteger.bitLength() <= UINT256_BITS;
+  }
+
+  @Nullable
+  private static UInt256 toUInt256(@NotNull BigDecimal bigDecimal) {
+    if (bigDecimal.signum() == 0) return UInt256.ZERO;
+    if (bigDecimal.scale() > 0) return null;
+    BigInteger bigInteger = bigDecimal.toBigInteger();
+    return isUInt256(bigInteger) ? UInt256.valueOf(bigInteger) : null;
   }
 
   @Override
@@ -40,43 +79,108 @@ public class Rad45 extends NumberWrapper {
     return this.divide(new Rad45(divisorWrapper));
   }
 
+  /** @return the quotient as Wad18, exact for divisors of any scale and rounded down */
   @Override
   public Wad18 divide(@NotNull NumberWrapper divisorWrapper) {
-    BigDecimal divisor = divisorWrapper.toBigDecimal();
-    if (divisor.compareTo(BigDecimal.ZERO) == 0)
-      throw new IllegalArgumentException("Argument 'divisor' is 0");
+    if (uint256 != null
+        && divisorWrapper instanceof Rad45
+        && ((Rad45) divisorWrapper).uint256 != null)
+      return Wad18.ofUInt256(UInt256.mulDiv(uint256, WAD, ((Rad45) divisorWrapper).uint256));
     return new Wad18(
-            bigDecimal
-                    .multiply(BigDecimal.valueOf(Math.pow(10, RAD45_DECIMALS)))
-                    .divide(divisor, 0, RoundingMode.DOWN)
-                    .stripTrailingZeros());
+            Scale.divide(
+                    toBigDecimal(),
+                    RAD45_DECIMALS,
+                    divisorWrapper.toBigDecimal(),
+                    divisorWrapper.decimals,
+                    WAD18_DECIMALS));
   }
 
+  /** @return the product as Wad18, e.g. rad * wad, exact for any scale and rounded down */
   @Override
   public Wad18 multiply(@NotNull NumberWrapper multiplicand) {
-      return new Wad18(
-              bigDecimal
-                      .multiply(multiplicand.toBigDecimal())
-                      .divide(BigDecimal.valueOf(Math.pow(10, RAD45_DECIMALS)), 0, RoundingMode.DOWN));
+    if (uint256 != null && multiplicand instanceof Wad18) {
+      UInt256 wad = ((Wad18) multiplicand).toUInt256();
+      if (wad != null) return Wad18.ofUInt256(UInt256.mulDiv(uint256, wad, RAD));
+    }
+    return new Wad18(
+            Scale.multiply(
+                    toBigDecimal(),
+                    RAD45_DECIMALS,
+                    multiplicand.toBigDecimal(),
+                    multiplicand.decimals,
+                    WAD18_DECIMALS));
   }
 
   @Override
-  public Wad18 add(@NotNull NumberWrapper augend) {
-    return new Wad18(bigDecimal.add(augend.toBigDecimal()));
+  public Rad45 add(@NotNull NumberWrapper augend) {
+    return new Rad45(toBigDecimal().add(inThisScale(augend)));
   }
 
   @Override
-  public Wad18 subtract(@NotNull NumberWrapper subtrahend) {
-    return new Wad18(bigDecimal.subtract(subtrahend.toBigDecimal()));
+  public Rad45 subtract(@NotNull NumberWrapper subtrahend) {
+    return new Rad45(toBigDecimal().subtract(inThisScale(subtrahend)));
   }
 
   @Override
   public Rad45 min(@NotNull NumberWrapper compareObject) {
-    return new Rad45(bigDecimal.min(compareObject.toBigDecimal()));
+    if (compareTo(compareObject) <= 0) return this;
+    return new Rad45(inThisScale(compareObject));
   }
 
   @Override
   public Rad45 max(@NotNull NumberWrapper compareObject) {
-    return new Rad45(bigDecimal.max(compareObject.toBigDecimal()));
+    if (compareTo(compareObject) >= 0) return this;
+    return new Rad45(inThisScale(compareObject));
+  }
+
+  @Override
+  public int compareTo(@NotNull NumberWrapper val) {
+    if (uint256 != null) {
+      if (val instanceof Rad45 && ((Rad45) val).uint256 != null)
+        return uint256.compareTo(((Rad45) val).uint256);
+      if (val instanceof Wad18 && ((Wad18) val).isCompact()) {
+        UInt256 wad = ((Wad18) val).toUInt256();
+        if (wad == null) return 1; // negative
+        return uint256.compareTo(wad.multiply(WAD_TO_RAD)); // wad < 2^127, so no overflow
+      }
+    }
+    return super.compareTo(val);
+  }
+
+  /** @return the raw value, or null if it does not fit into an uint256 */
+  @Nullable
+  public UInt256 toUInt256() {
+    return uint256;
+  }
+
+  @Override
+  public BigDecimal toBigDecimal() {
+    BigDecimal value = bigDecimal;
+    if (value == null) {
+      value = new BigDecimal(uint256.toBigInteger());
+      bigDecimal = value;
+    }
+    return value;
+  }
+
+  @Override
+  public BigInteger toBigInteger() {
+    if (uint256 != null) return uint256.toBigInteger();
+    return super.toBigInteger();
+  }
+
+  @Override
+  public int hashCode() {
+    if (uint256 != null) return (int) uint256.limb(0);
+    return super.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object compareObject) {
+    if (uint256 != null
+        && compareObject instanceof Rad45
+        && ((Rad45) compareObject).uint256 != null)
+      return uint256.equals(((Rad45) compareObject).uint256);
+    return super.equals(compareObject);
   }
 }
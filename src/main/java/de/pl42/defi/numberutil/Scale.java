@@ -0,0 +1,88 @@
+package peggy42.cn.numberutil;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * Exact arithmetic between fixed point numbers of different scales, e.g. Wad18, Sth28 and Rad45.
+ * Every value is the raw integer of a number with the given decimals. Powers of ten come from
+ * precomputed tables instead of Math.pow, which is inexact above 10^22. All results round down
+ * (towards zero).
+ */
+final class Scale {
+  private static final int MAX_TABLE_EXPONENT = 96;
+  private static final BigInteger[] POWERS_OF_TEN = new BigInteger[MAX_TABLE_EXPONENT + 1];
+  private static final BigDecimal[] DECIMAL_POWERS_OF_TEN = new BigDecimal[MAX_TABLE_EXPONENT + 1];
+
+  static {
+    POWERS_OF_TEN[0] = BigInteger.ONE;
+    for (int i = 1; i <= MAX_TABLE_EXPONENT; i++) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1].multiply(BigInteger.TEN);
+    }
+    for (int i = 0; i <= MAX_TABLE_EXPONENT; i++) {
+      DECIMAL_POWERS_OF_TEN[i] = new BigDecimal(POWERS_OF_TEN[i]);
+    }
+  }
+
+  private Scale() {
+    throw new IllegalStateException("Utility class");
+  }
+
+  /** @return 10^exponent, exponent must not be negative */
+  @NotNull
+  static BigInteger bigIntegerPowerOfTen(int exponent) {
+    if (exponent < 0) throw new IllegalArgumentException("Argument 'exponent' is negative");
+    if (exponent <= MAX_TABLE_EXPONENT) return POWERS_OF_TEN[exponent];
+    return BigInteger.TEN.pow(exponent);
+  }
+
+  /** @return 10^exponent, exponent must not be negative */
+  @NotNull
+  static BigDecimal powerOfTen(int exponent) {
+    if (exponent < 0) throw new IllegalArgumentException("Argument 'exponent' is negative");
+    if (exponent <= MAX_TABLE_EXPONENT) return DECIMAL_POWERS_OF_TEN[exponent];
+    return new BigDecimal(BigInteger.TEN.pow(exponent));
+  }
+
+  /** value * 10^exponent, rounded down if exponent is negative */
+  @NotNull
+  private static BigDecimal shift(@NotNull BigDecimal value, int exponent) {
+    if (exponent == 0) return value;
+    if (exponent > 0) return value.multiply(powerOfTen(exponent));
+    return value.divide(powerOfTen(-exponent), 0, RoundingMode.DOWN);
+  }
+
+  /** Converts a raw value from one scale into another, e.g. Rad45 to Wad18 */
+  @NotNull
+  static BigDecimal rescale(@NotNull BigDecimal value, int fromDecimals, int toDecimals) {
+    return shift(value, toDecimals - fromDecimals);
+  }
+
+  /** @return the product of a and b with the given decimals */
+  @NotNull
+  static BigDecimal multiply(
+      @NotNull BigDecimal a, int aDecimals, @NotNull BigDecimal b, int bDecimals, int decimals) {
+    return shift(a.multiply(b), decimals - aDecimals - bDecimals);
+  }
+
+  /** @return the quotient of a and b with the given decimals */
+  @NotNull
+  static BigDecimal divide(
+      @NotNull BigDecimal a, int aDecimals, @NotNull BigDecimal b, int bDecimals, int decimals) {
+    if (b.signum() == 0) throw new IllegalArgumentException("Argument 'divisor' is 0");
+    int exponent = decimals + bDecimals - aDecimals;
+    if (exponent >= 0) return a.multiply(powerOfTen(exponent)).divide(b, 0, RoundingMode.DOWN);
+    return a.divide(b.multiply(powerOfTen(-exponent)), 0, RoundingMode.DOWN);
+  }
+
+  /** Compares two values of different scales exactly, values of the same scale without rescaling */
+  static int compare(@NotNull BigDecimal a, int aDecimals, @NotNull BigDecimal b, int bDecimals) {
+    if (aDecimals == bDecimals) return a.compareTo(b);
+    if (a.signum() != b.signum()) return Integer.compare(a.signum(), b.signum());
+    if (aDecimals < bDecimals) return a.multiply(powerOfTen(bDecimals - aDecimals)).compareTo(b);
+    return a.compareTo(b.multiply(powerOfTen(aDecimals - bDecimals)));
+  }
+}
@@ -9,6 +9,7 @@ public class Sth28 extends NumberWrapper {
   public static final Sth28 ZERO = new Sth28(0);
   public static final Sth28 ONE = new Sth28(1);
   private static final int STH32_DECIMALS = 28;
+  private static final int WAD18_DECIMALS = 18;
 
   public Sth28() {
     super(STH32_DECIMALS);
@@ -34,23 +35,49 @@ public class Sth28 extends NumberWrapper {
     super(bigDecimal, STH32_DECIMALS);
   }
 
+  /** @return the quotient as Wad18, exact for divisors of any scale and rounded down */
+  @Override
+  public Wad18 divide(@NotNull NumberWrapper divisorWrapper) {
+    return new Wad18(
+            Scale.divide(
+                    bigDecimal,
+                    STH32_DECIMALS,
+                    divisorWrapper.toBigDecimal(),
+                    divisorWrapper.decimals,
+                    WAD18_DECIMALS));
+  }
+
+  /** @return the product as Wad18, e.g. exchange rate * wad, exact and rounded down */
+  @Override
+  public Wad18 multiply(@NotNull NumberWrapper multiplicand) {
+    return new Wad18(
+            Scale.multiply(
+                    bigDecimal,
+                    STH32_DECIMALS,
+                    multiplicand.toBigDecimal(),
+                    multiplicand.decimals,
+                    WAD18_DECIMALS));
+  }
+
   @Override
   public Sth28 add(@NotNull NumberWrapper augend) {
-    return new Sth28(bigDecimal.add(augend.toBigDecimal()));
+    return new Sth28(bigDecimal.add(inThisScale(augend)));
   }
 
   @Override
   public Sth28 subtract(@NotNull NumberWrapper subtrahend) {
-    return new Sth28(bigDecimal.subtract(subtrahend.toBigDecimal()));
+    return new Sth28(bigDecimal.subtract(inThisScale(subtrahend)));
   }
 
   @Override
   public Sth28 min(@NotNull NumberWrapper compareObject) {
-    return new Sth28(bigDecimal.min(compareObject.toBigDecimal()));
+    if (compareTo(compareObject) <= 0) return this;
+    return new Sth28(inThisScale(compareObject));
   }
 
   @Override
   public Sth28 max(@NotNull NumberWrapper compareObject) {
-    return new Sth28(bigDecimal.max(compareObject.toBigDecimal()));
+    if (compareTo(compareObject) >= 0) return this;
+    return new Sth28(inThisScale(compareObject));
   }
 }
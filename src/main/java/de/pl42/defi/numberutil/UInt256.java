@@ -0,0 +1,372 @@
+package peggy42.cn.numberutil;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.math.BigInteger;
+
+/**
+ * Immutable unsigned 256-bit integer in four long limbs, e.g. a raw uint256 returned by a contract
+ * call. add, subtract, multiply, divide and mod wrap around like the EVM opcodes, so division by
+ * zero returns zero. The *Exact variants throw an ArithmeticException on overflow instead. mulDiv
+ * multiplies into 512 bits before it divides, so x * y / d is exact even if x * y overflows.
+ */
+public final class UInt256 implements Comparable<UInt256> {
+  public static final UInt256 ZERO = new UInt256(0, 0, 0, 0);
+  public static final UInt256 ONE = new UInt256(0, 0, 0, 1);
+  public static final UInt256 MAX_VALUE = new UInt256(-1L, -1L, -1L, -1L);
+  private static final int LIMBS = 4;
+  private static final int BYTES = 32;
+  private static final long MASK32 = 0xFFFFFFFFL;
+
+  // u3 is the most significant limb, all limbs are unsigned
+  private final long u3;
+  private final long u2;
+  private final long u1;
+  private final long u0;
+
+  private UInt256(long u3, long u2, long u1, long u0) {
+    this.u3 = u3;
+    this.u2 = u2;
+    this.u1 = u1;
+    this.u0 = u0;
+  }
+
+  static UInt256 ofLimbs(long u3, long u2, long u1, long u0) {
+    return new UInt256(u3, u2, u1, u0);
+  }
+
+  /** @return value modulo 2^256, i.e. negative values wrap around like in the EVM */
+  public static UInt256 valueOf(long value) {
+    long sign = value >> 63;
+    return new UInt256(sign, sign, sign, value);
+  }
+
+  /** @return value modulo 2^256, i.e. negative values wrap around like in the EVM */
+  public static UInt256 valueOf(@NotNull BigInteger value) {
+    if (value.signum() >= 0 && value.bitLength() < 64)
+      return new UInt256(0, 0, 0, value.longValue());
+    return new UInt256(
+        value.shiftRight(192).longValue(),
+        value.shiftRight(128).longValue(),
+        value.shiftRight(64).longValue(),
+        value.longValue());
+  }
+
+  /** Reads a big-endian ABI word, e.g. one of the return values of an eth_call. */
+  public static UInt256 fromBytes(@NotNull byte[] bytes, int offset) {
+    if (offset < 0 || offset + BYTES > bytes.length)
+      throw new IllegalArgumentException("Argument 'bytes' has no 32 bytes at offset " + offset);
+    return new UInt256(
+        readLong(bytes, offset),
+        readLong(bytes, offset + 8),
+        readLong(bytes, offset + 16),
+        readLong(bytes, offset + 24));
+  }
+
+  /**
+   * Reads the 64 hex digits of an ABI word, e.g. fromHex(result, 2 + 64 * i) for the i-th return
+   * value of an eth_call result with a 0x prefix.
+   */
+  public static UInt256 fromHex(@NotNull CharSequence hex, int offset) {
+    if (offset < 0 || offset + 2 * BYTES > hex.length())
+      throw new IllegalArgumentException("Argument 'hex' has no 64 digits at offset " + offset);
+    return new UInt256(
+        readHexLong(hex, offset),
+        readHexLong(hex, offset + 16),
+        readHexLong(hex, offset + 32),
+        readHexLong(hex, offset + 48));
+  }
+
+  private static long readLong(byte[] bytes, int offset) {
+    long value = 0;
+    for (int i = 0; i < 8; i++) value = (value << 8) | (bytes[offset + i] & 0xFF);
+    return value;
+  }
+
+  private static long readHexLong(CharSequence hex, int offset) {
+    long value = 0;
+    for (int i = 0; i < 16; i++) {
+      int digit = Character.digit(hex.charAt(offset + i), 16);
+      if (digit < 0)
+        throw new NumberFormatException("Character '" + hex.charAt(offset + i) + "' is not hex");
+      value = (value << 4) | digit;
+    }
+    return value;
+  }
+
+  long limb(int index) {
+    switch (index) {
+      case 0:
+        return u0;
+      case 1:
+        return u1;
+      case 2:
+        return u2;
+      case 3:
+        return u3;
+      default:
+        throw new IllegalArgumentException("Argument 'index' is not between 0 and 3");
+    }
+  }
+
+  private long[] toLimbs() {
+    return new long[] {u0, u1, u2, u3};
+  }
+
+  private static UInt256 ofLimbs(long[] limbs) {
+    return new UInt256(limbs[3], limbs[2], limbs[1], limbs[0]);
+  }
+
+  public boolean isZero() {
+    return (u3 | u2 | u1 | u0) == 0;
+  }
+
+  public int bitLength() {
+    if (u3 != 0) return 256 - Long.numberOfLeadingZeros(u3);
+    if (u2 != 0) return 192 - Long.numberOfLeadingZeros(u2);
+    if (u1 != 0) return 128 - Long.numberOfLeadingZeros(u1);
+    return 64 - Long.numberOfLeadingZeros(u0);
+  }
+
+  /** @return this + augend modulo 2^256 */
+  public UInt256 add(@NotNull UInt256 augend) {
+    long r0 = u0 + augend.u0;
+    long c = Long.compareUnsigned(r0, u0) < 0 ? 1 : 0;
+    long r1 = u1 + augend.u1 + c;
+    c = carry(u1, augend.u1, r1, c);
+    long r2 = u2 + augend.u2 + c;
+    c = carry(u2, augend.u2, r2, c);
+    long r3 = u3 + augend.u3 + c;
+    return new UInt256(r3, r2, r1, r0);
+  }
+
+  /** @throws ArithmeticException if the sum does not fit into 256 bits */
+  public UInt256 addExact(@NotNull UInt256 augend) {
+    UInt256 sum = add(augend);
+    if (sum.compareTo(this) < 0) throw new ArithmeticException("uint256 overflow");
+    return sum;
+  }
+
+  private static long carry(long x, long y, long sum, long carryIn) {
+    return (Long.compareUnsigned(sum, x) < 0 || (carryIn != 0 && sum == x)) ? 1 : 0;
+  }
+
+  /** @return this - subtrahend modulo 2^256 */
+  public UInt256 subtract(@NotNull UInt256 subtrahend) {
+    return add(subtrahend.negate());
+  }
+
+  /** @throws ArithmeticException if subtrahend is bigger than this */
+  public UInt256 subtractExact(@NotNull UInt256 subtrahend) {
+    if (compareTo(subtrahend) < 0) throw new ArithmeticException("uint256 underflow");
+    return subtract(subtrahend);
+  }
+
+  private UInt256 negate() {
+    return new UInt256(~u3, ~u2, ~u1, ~u0).add(ONE);
+  }
+
+  /** @return this * multiplicand modulo 2^256 */
+  public UInt256 multiply(@NotNull UInt256 multiplicand) {
+    long[] product = multiplyFull(toLimbs(), multiplicand.toLimbs());
+    return ofLimbs(product);
+  }
+
+  /** @throws ArithmeticException if the product does not fit into 256 bits */
+  public UInt256 multiplyExact(@NotNull UInt256 multiplicand) {
+    long[] product = multiplyFull(toLimbs(), multiplicand.toLimbs());
+    if ((product[4] | product[5] | product[6] | product[7]) != 0)
+      throw new ArithmeticException("uint256 overflow");
+    return ofLimbs(product);
+  }
+
+  /** @return this / divisor rounded down, or zero if divisor is zero like the EVM DIV opcode */
+  public UInt256 divide(@NotNull UInt256 divisor) {
+    if (divisor.isZero()) return ZERO;
+    return ofLimbs(divide(toLimbs(), divisor.toLimbs(), null));
+  }
+
+  /** @return this % divisor, or zero if divisor is zero like the EVM MOD opcode */
+  public UInt256 mod(@NotNull UInt256 divisor) {
+    if (divisor.isZero()) return ZERO;
+    long[] remainder = new long[LIMBS];
+    divide(toLimbs(), divisor.toLimbs(), remainder);
+    return ofLimbs(remainder);
+  }
+
+  /**
+   * @return x * y / divisor rounded down, computed with a 512-bit intermediate product
+   * @throws ArithmeticException if the quotient does not fit into 256 bits
+   */
+  public static UInt256 mulDiv(@NotNull UInt256 x, @NotNull UInt256 y, @NotNull UInt256 divisor) {
+    if (divisor.isZero()) throw new IllegalArgumentException("Argument 'divisor' is 0");
+    long[] quotient = divide(multiplyFull(x.toLimbs(), y.toLimbs()), divisor.toLimbs(), null);
+    for (int i = LIMBS; i < quotient.length; i++) {
+      if (quotient[i] != 0) throw new ArithmeticException("uint256 overflow");
+    }
+    return ofLimbs(quotient);
+  }
+
+  /** Schoolbook multiplication of little-endian limbs */
+  private static long[] multiplyFull(long[] x, long[] y) {
+    long[] product = new long[x.length + y.length];
+    for (int i = 0; i < x.length; i++) {
+      if (x[i] == 0) continue;
+      long carry = 0;
+      for (int j = 0; j < y.length; j++) {
+        long lo = x[i] * y[j];
+        long hi = Int128.unsignedMultiplyHigh(x[i], y[j]);
+        long sum = lo + product[i + j];
+        if (Long.compareUnsigned(sum, lo) < 0) hi++;
+        lo = sum;
+        sum = lo + carry;
+        if (Long.compareUnsigned(sum, lo) < 0) hi++;
+        product[i + j] = sum;
+        carry = hi;
+      }
+      product[i + y.length] = carry;
+    }
+    return product;
+  }
+
+  /**
+   * Divides little-endian limbs, divisor must not be zero. Divisors with one limb use
+   * {@link Int128#divideUnsigned128By64}, all others Knuth, TAOCP Vol. 2, 4.3.1, Algorithm D on
+   * 32-bit digits (Hacker's Delight, divmnu).
+   *
+   * @param remainder receives the remainder if not null
+   * @return the quotient with as many limbs as the dividend
+   */
+  private static long[] divide(long[] dividend, long[] divisor, long[] remainder) {
+    int n = digitCount(divisor);
+    long[] quotient = new long[dividend.length];
+    if (n <= 2) {
+      long v = divisor[0];
+      long rem = 0;
+      for (int i = dividend.length - 1; i >= 0; i--) {
+        quotient[i] = Int128.divideUnsigned128By64(rem, dividend[i], v);
+        rem = dividend[i] - quotient[i] * v;
+      }
+      if (remainder != null) remainder[0] = rem;
+      return quotient;
+    }
+    int m = digitCount(dividend);
+    if (m < n) {
+      if (remainder != null) System.arraycopy(dividend, 0, remainder, 0, LIMBS);
+      return quotient;
+    }
+    int[] u = toDigits(dividend, m);
+    int[] v = toDigits(divisor, n);
+    int[] q = new int[m - n + 1];
+
+    // normalize, so that the most significant digit of the divisor has its highest bit set
+    int s = Integer.numberOfLeadingZeros(v[n - 1]);
+    int[] vn = new int[n];
+    for (int i = n - 1; i > 0; i--) {
+      vn[i] = (int) (((v[i] & MASK32) << s) | ((v[i - 1] & MASK32) >>> (32 - s)));
+    }
+    vn[0] = v[0] << s;
+    int[] un = new int[m + 1];
+    un[m] = (int) ((u[m - 1] & MASK32) >>> (32 - s));
+    for (int i = m - 1; i > 0; i--) {
+      un[i] = (int) (((u[i] & MASK32) << s) | ((u[i - 1] & MASK32) >>> (32 - s)));
+    }
+    un[0] = u[0] << s;
+
+    long vTop = vn[n - 1] & MASK32;
+    long vNext = vn[n - 2] & MASK32;
+    for (int j = m - n; j >= 0; j--) {
+      long numerator = ((un[j + n] & MASK32) << 32) | (un[j + n - 1] & MASK32);
+      long qhat = Long.divideUnsigned(numerator, vTop);
+      long rhat = Long.remainderUnsigned(numerator, vTop);
+      while (qhat > MASK32
+          || Long.compareUnsigned(qhat * vNext, (rhat << 32) | (un[j + n - 2] & MASK32)) > 0) {
+        qhat--;
+        rhat += vTop;
+        if (rhat > MASK32) break;
+      }
+      // multiply and subtract
+      long borrow = 0;
+      long t;
+      for (int i = 0; i < n; i++) {
+        long p = qhat * (vn[i] & MASK32);
+        t = (un[i + j] & MASK32) - borrow - (p & MASK32);
+        un[i + j] = (int) t;
+        borrow = (p >>> 32) - (t >> 32);
+      }
+      t = (un[j + n] & MASK32) - borrow;
+      un[j + n] = (int) t;
+      q[j] = (int) qhat;
+      if (t < 0) {
+        // add back
+        q[j]--;
+        long carry = 0;
+        for (int i = 0; i < n; i++) {
+          t = (un[i + j] & MASK32) + (vn[i] & MASK32) + carry;
+          un[i + j] = (int) t;
+          carry = t >>> 32;
+        }
+        un[j + n] += (int) carry;
+      }
+    }
+    for (int i = 0; i < q.length; i++) {
+      quotient[i / 2] |= (q[i] & MASK32) << (32 * (i % 2));
+    }
+    if (remainder != null) {
+      for (int i = 0; i < n; i++) {
+        long digit = ((un[i] & MASK32) >>> s) | (((un[i + 1] & MASK32) << (32 - s)) & MASK32);
+        remainder[i / 2] |= digit << (32 * (i % 2));
+      }
+    }
+    return quotient;
+  }
+
+  private static int digitCount(long[] limbs) {
+    for (int i = limbs.length - 1; i >= 0; i--) {
+      if (limbs[i] != 0) return 2 * i + ((limbs[i] >>> 32) != 0 ? 2 : 1);
+    }
+    return 0;
+  }
+
+  private static int[] toDigits(long[] limbs, int count) {
+    int[] digits = new int[count];
+    for (int i = 0; i < count; i++) digits[i] = (int) (limbs[i / 2] >>> (32 * (i % 2)));
+    return digits;
+  }
+
+  @Override
+  public int compareTo(@NotNull UInt256 val) {
+    if (u3 != val.u3) return Long.compareUnsigned(u3, val.u3);
+    if (u2 != val.u2) return Long.compareUnsigned(u2, val.u2);
+    if (u1 != val.u1) return Long.compareUnsigned(u1, val.u1);
+    return Long.compareUnsigned(u0, val.u0);
+  }
+
+  @NotNull
+  public BigInteger toBigInteger() {
+    if (u3 == 0 && u2 == 0 && u1 == 0 && u0 >= 0) return BigInteger.valueOf(u0);
+    byte[] bytes = new byte[BYTES + 1]; // leading zero byte keeps the BigInteger positive
+    long[] limbs = {u3, u2, u1, u0};
+    for (int i = 0; i < LIMBS; i++) {
+      for (int j = 0; j < 8; j++) bytes[1 + 8 * i + j] = (byte) (limbs[i] >>> (56 - 8 * j));
+    }
+    return new BigInteger(bytes);
+  }
+
+  @Override
+  public boolean equals(Object compareObject) {
+    if (!(compareObject instanceof UInt256)) return false;
+    UInt256 uInt256 = (UInt256) compareObject;
+    return u3 == uInt256.u3 && u2 == uInt256.u2 && u1 == uInt256.u1 && u0 == uInt256.u0;
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(u3 ^ u2 ^ u1 ^ u0);
+  }
+
+  @Override
+  public String toString() {
+    return toBigInteger().toString();
+  }
+}
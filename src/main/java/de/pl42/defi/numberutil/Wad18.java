@@ -4,38 +4,132 @@ import org.jetbrains.annotations.NotNull;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
-import java.math.RoundingMode;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Immutable
+ *
+ * <p>Integral values that fit into 128 bits are kept in two long limbs and are added, multiplied
+ * and divided without BigDecimal (see {@link Int128}). The BigDecimal is only created on demand.
+ * All other values, and all results that overflow 128 bits, use the BigDecimal path. Both paths
+ * round down.
  */
 public class Wad18 extends NumberWrapper {
+  private static final Map<String, Wad18> CONSTANTS = new ConcurrentHashMap<>();
   public static final Wad18 ZERO = new Wad18(0);
   public static final Wad18 ONE = new Wad18(1);
   private static final int WAD18_DECIMALS = 18;
+  private static final Int128.Sink<Wad18> LIMBS = (target, hi, lo) -> new Wad18(hi, lo);
+
+  private final boolean compact;
+  private final long hi;
+  private final long lo;
 
   public Wad18() {
     super(WAD18_DECIMALS);
+    compact = true;
+    hi = 0;
+    lo = 0;
   }
 
   public Wad18(int number) {
     super(number, WAD18_DECIMALS);
+    compact = true;
+    hi = number < 0 ? -1L : 0L;
+    lo = number;
   }
 
   public Wad18(String number) {
     super(number, WAD18_DECIMALS);
+    BigInteger integer = Int128.integralValue(bigDecimal);
+    compact = integer != null;
+    hi = compact ? Int128.high(integer) : 0;
+    lo = compact ? integer.longValue() : 0;
   }
 
   public Wad18(long number) {
     super(number, WAD18_DECIMALS);
+    compact = true;
+    hi = number < 0 ? -1L : 0L;
+    lo = number;
   }
 
   public Wad18(BigInteger bigInteger) {
     super(bigInteger, WAD18_DECIMALS);
+    compact = bigInteger.bitLength() <= 127;
+    hi = compact ? Int128.high(bigInteger) : 0;
+    lo = compact ? bigInteger.longValue() : 0;
   }
 
   public Wad18(BigDecimal bigDecimal) {
     super(bigDecimal, WAD18_DECIMALS);
+    BigInteger integer = Int128.integralValue(bigDecimal);
+    compact = integer != null;
+    hi = compact ? Int128.high(integer) : 0;
+    lo = compact ? integer.longValue() : 0;
+  }
+
+  private Wad18(long hi, long lo) {
+    super((BigDecimal) null, WAD18_DECIMALS);
+    this.compact = true;
+    this.hi = hi;
+    this.lo = lo;
+  }
+
+  /**
+   * Parses a human-readable decimal without going through double, e.g. "0.0025" becomes
+   * 2500000000000000. Results are interned, so this is meant for literals and costs a map lookup
+   * after the first call.
+   *
+   * @throws IllegalArgumentException if decimal is not a number or has more than 18 decimals
+   */
+  public static Wad18 of(@NotNull String decimal) {
+    return CONSTANTS.computeIfAbsent(decimal, key -> ofDecimal(new BigDecimal(key)));
+  }
+
+  /**
+   * @param decimal human-readable decimal, e.g. 0.5
+   * @throws IllegalArgumentException if decimal has more than 18 decimals
+   */
+  public static Wad18 ofDecimal(@NotNull BigDecimal decimal) {
+    try {
+      return new Wad18(decimal.movePointRight(WAD18_DECIMALS).setScale(0));
+    } catch (ArithmeticException e) {
+      throw new IllegalArgumentException("Argument 'decimal' has more than 18 decimals", e);
+    }
+  }
+
+  static Wad18 ofLimbs(long hi, long lo) {
+    return new Wad18(hi, lo);
+  }
+
+  /** @return the limbs of a non-negative compact value, otherwise null */
+  UInt256 toUInt256() {
+    if (!compact || hi < 0) return null;
+    return UInt256.ofLimbs(0, 0, hi, lo);
+  }
+
+  static Wad18 ofUInt256(@NotNull UInt256 uint256) {
+    if (uint256.limb(3) == 0 && uint256.limb(2) == 0 && uint256.limb(1) >= 0)
+      return new Wad18(uint256.limb(1), uint256.limb(0));
+    return new Wad18(uint256.toBigInteger());
+  }
+
+  boolean isCompact() {
+    return compact;
+  }
+
+  long high() {
+    return hi;
+  }
+
+  long low() {
+    return lo;
+  }
+
+  private boolean isCompactWith(NumberWrapper numberWrapper) {
+    return compact && numberWrapper instanceof Wad18 && ((Wad18) numberWrapper).compact;
   }
 
   @Override
@@ -45,58 +139,145 @@ public class Wad18 extends NumberWrapper {
 
   @Override
   public Wad18 divide(@NotNull NumberWrapper divisorWrapper) {
-    BigDecimal divisor = divisorWrapper.toBigDecimal();
-    if (divisor.compareTo(BigDecimal.ZERO) == 0)
-      throw new IllegalArgumentException("Argument 'divisor' is 0");
+    if (isCompactWith(divisorWrapper)) {
+      Wad18 divisor = (Wad18) divisorWrapper;
+      if (divisor.hi == 0 && divisor.lo == 0)
+        throw new IllegalArgumentException("Argument 'divisor' is 0");
+      Wad18 quotient = Int128.wdiv(hi, lo, divisor.hi, divisor.lo, null, LIMBS);
+      if (quotient != null) return quotient;
+    }
     return new Wad18(
-            bigDecimal
-                    .multiply(BigDecimal.valueOf(Math.pow(10, WAD18_DECIMALS)))
-                    .divide(divisor, 0, RoundingMode.DOWN)
-                    .stripTrailingZeros());
+            Scale.divide(
+                    toBigDecimal(),
+                    WAD18_DECIMALS,
+                    divisorWrapper.toBigDecimal(),
+                    divisorWrapper.decimals,
+                    WAD18_DECIMALS));
   }
 
+  /** Multiplicands of any scale, e.g. Sth28 or Rad45, are multiplied exactly and rounded down */
   @Override
   public Wad18 multiply(@NotNull NumberWrapper multiplicandNumberWrapper) {
-    Wad18 multiplicand = new Wad18(multiplicandNumberWrapper.toBigDecimal());
-    int decimalsDifference = multiplicandNumberWrapper.decimals - decimals;
-    if (decimalsDifference > 0) {
-      multiplicand =
-              new Wad18(
-                      multiplicandNumberWrapper
-                              .toBigDecimal()
-                              .divide(
-                                      BigDecimal.valueOf(Math.pow(10, decimalsDifference)),
-                                      RoundingMode.HALF_EVEN));
-    } else if (decimalsDifference < 0) {
-      throw new IllegalArgumentException("Not yet implemented");
-    }
-    return multiply(multiplicand);
+    if (multiplicandNumberWrapper instanceof Wad18) return multiply((Wad18) multiplicandNumberWrapper);
+    if (multiplicandNumberWrapper instanceof Rad45)
+      return ((Rad45) multiplicandNumberWrapper).multiply(this);
+    return new Wad18(
+            Scale.multiply(
+                    toBigDecimal(),
+                    WAD18_DECIMALS,
+                    multiplicandNumberWrapper.toBigDecimal(),
+                    multiplicandNumberWrapper.decimals,
+                    WAD18_DECIMALS));
   }
 
   public Wad18 multiply(@NotNull Wad18 multiplicand) {
+    if (compact && multiplicand.compact) {
+      Wad18 product = Int128.wmul(hi, lo, multiplicand.hi, multiplicand.lo, null, LIMBS);
+      if (product != null) return product;
+    }
     return new Wad18(
-            bigDecimal
-                    .multiply(multiplicand.toBigDecimal())
-                    .divide(BigDecimal.valueOf(Math.pow(10, WAD18_DECIMALS)), 0, RoundingMode.DOWN));
+            Scale.multiply(
+                    toBigDecimal(),
+                    WAD18_DECIMALS,
+                    multiplicand.toBigDecimal(),
+                    WAD18_DECIMALS,
+                    WAD18_DECIMALS));
   }
 
   @Override
   public Wad18 add(@NotNull NumberWrapper augend) {
-    return new Wad18(bigDecimal.add(augend.toBigDecimal()));
+    if (isCompactWith(augend)) {
+      Wad18 wad18 = (Wad18) augend;
+      Wad18 sum = Int128.add(hi, lo, wad18.hi, wad18.lo, null, LIMBS);
+      if (sum != null) return sum;
+    }
+    return new Wad18(toBigDecimal().add(inThisScale(augend)));
   }
 
   @Override
   public Wad18 subtract(@NotNull NumberWrapper subtrahend) {
-    return new Wad18(bigDecimal.subtract(subtrahend.toBigDecimal()));
+    if (isCompactWith(subtrahend)) {
+      Wad18 wad18 = (Wad18) subtrahend;
+      Wad18 difference = Int128.subtract(hi, lo, wad18.hi, wad18.lo, null, LIMBS);
+      if (difference != null) return difference;
+    }
+    return new Wad18(toBigDecimal().subtract(inThisScale(subtrahend)));
   }
 
   @Override
   public Wad18 min(@NotNull NumberWrapper compareObject) {
-    return new Wad18(bigDecimal.min(compareObject.toBigDecimal()));
+    if (isCompactWith(compareObject)) {
+      Wad18 wad18 = (Wad18) compareObject;
+      return Int128.compare(hi, lo, wad18.hi, wad18.lo) <= 0 ? this : wad18;
+    }
+    if (compareTo(compareObject) <= 0) return this;
+    return toWad18(compareObject);
   }
 
   @Override
   public Wad18 max(@NotNull NumberWrapper compareObject) {
-    return new Wad18(bigDecimal.max(compareObject.toBigDecimal()));
+    if (isCompactWith(compareObject)) {
+      Wad18 wad18 = (Wad18) compareObject;
+      return Int128.compare(hi, lo, wad18.hi, wad18.lo) >= 0 ? this : wad18;
+    }
+    if (compareTo(compareObject) >= 0) return this;
+    return toWad18(compareObject);
+  }
+
+  private Wad18 toWad18(@NotNull NumberWrapper numberWrapper) {
+    if (numberWrapper instanceof Wad18) return (Wad18) numberWrapper;
+    return new Wad18(inThisScale(numberWrapper));
+  }
+
+  @Override
+  public int compareTo(@NotNull NumberWrapper val) {
+    if (isCompactWith(val)) {
+      Wad18 wad18 = (Wad18) val;
+      return Int128.compare(hi, lo, wad18.hi, wad18.lo);
+    }
+    return super.compareTo(val);
+  }
+
+  @Override
+  public BigDecimal toBigDecimal() {
+    BigDecimal value = bigDecimal;
+    if (value == null) {
+      value = Int128.toBigDecimal(hi, lo);
+      bigDecimal = value;
+    }
+    return value;
+  }
+
+  @Override
+  public BigInteger toBigInteger() {
+    if (compact && bigDecimal == null) return Int128.toBigInteger(hi, lo);
+    return super.toBigInteger();
+  }
+
+  @Override
+  public long longValue() {
+    if (compact) return lo;
+    return super.longValue();
+  }
+
+  @Override
+  public double doubleValue() {
+    if (compact) return Int128.toDouble(hi, lo);
+    return super.doubleValue();
+  }
+
+  @Override
+  public int hashCode() {
+    if (compact) return (int) lo;
+    return super.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object compareObject) {
+    if (compareObject instanceof Wad18 && isCompactWith((Wad18) compareObject)) {
+      Wad18 wad18 = (Wad18) compareObject;
+      return hi == wad18.hi && lo == wad18.lo;
+    }
+    return super.equals(compareObject);
   }
 }
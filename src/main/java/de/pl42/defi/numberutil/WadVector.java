@@ -0,0 +1,279 @@
+package peggy42.cn.numberutil;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Fixed-size vector of Wad18 values for evaluating many trade sizes at once, e.g. to find the most
+ * profitable size. Elements that fit into 128 bits are kept in two parallel long arrays, so
+ * elementwise operations do not allocate anything. Every operation updates this vector in place
+ * and each element has exactly the same result as the equivalent Wad18 operation. Elements that
+ * do not fit fall back to an intermediate Wad18, like {@link MutableWad18}.
+ *
+ * <p>Not thread-safe
+ */
+public final class WadVector {
+  private static final Int128.Sink<WadVector> SINK = WadVector::setLimbs;
+  private final long[] hi;
+  private final long[] lo;
+  private Wad18[] overflow; // created on the first element that is not compact
+  private int index; // element the sink writes to
+
+  /** @param size number of elements, all zero */
+  public WadVector(int size) {
+    if (size < 0) throw new IllegalArgumentException("Argument 'size' is negative");
+    hi = new long[size];
+    lo = new long[size];
+  }
+
+  /** @param size number of elements, all set to value */
+  public WadVector(int size, @NotNull Wad18 value) {
+    this(size);
+    fill(value);
+  }
+
+  public WadVector(@NotNull WadVector wadVector) {
+    hi = wadVector.hi.clone();
+    lo = wadVector.lo.clone();
+    overflow = wadVector.overflow == null ? null : wadVector.overflow.clone();
+  }
+
+  public static WadVector of(@NotNull Wad18... values) {
+    WadVector wadVector = new WadVector(values.length);
+    for (int i = 0; i < values.length; i++) wadVector.set(i, values[i]);
+    return wadVector;
+  }
+
+  /**
+   * Evenly spaced sizes up to maximum, e.g. 25, 50, 75 and 100 for a maximum of 100 and a count of
+   * 4. Element i is maximum * (i + 1) / count in wei, rounded down.
+   */
+  public static WadVector fractions(@NotNull Wad18 maximum, int count) {
+    if (count <= 0) throw new IllegalArgumentException("Argument 'count' is not positive");
+    WadVector wadVector = new WadVector(count);
+    if (maximum.isCompact() && maximum.high() == 0 && maximum.low() >= 0) {
+      long max = maximum.low();
+      for (int i = 0; i < count; i++) {
+        // max * (i + 1) / count <= max, so the quotient fits into 64 bits
+        long productHi = Math.multiplyHigh(max, i + 1L);
+        long productLo = max * (i + 1L);
+        wadVector.lo[i] = Int128.divideUnsigned128By64(productHi, productLo, count);
+      }
+      return wadVector;
+    }
+    BigInteger max = maximum.toBigInteger();
+    for (int i = 0; i < count; i++) {
+      wadVector.set(
+          i, new Wad18(max.multiply(BigInteger.valueOf(i + 1L)).divide(BigInteger.valueOf(count))));
+    }
+    return wadVector;
+  }
+
+  private WadVector setLimbs(long hi, long lo) {
+    this.hi[index] = hi;
+    this.lo[index] = lo;
+    if (overflow != null) overflow[index] = null;
+    return this;
+  }
+
+  private boolean isCompact(int i) {
+    return overflow == null || overflow[i] == null;
+  }
+
+  private void setElement(int i, Wad18 wad18) {
+    if (wad18.isCompact()) {
+      index = i;
+      setLimbs(wad18.high(), wad18.low());
+      return;
+    }
+    if (overflow == null) overflow = new Wad18[hi.length];
+    overflow[i] = wad18;
+  }
+
+  private void checkSize(WadVector wadVector) {
+    if (wadVector.size() != size())
+      throw new IllegalArgumentException("Argument 'wadVector' has a different size");
+  }
+
+  public int size() {
+    return hi.length;
+  }
+
+  public Wad18 get(int i) {
+    if (isCompact(i)) return Wad18.ofLimbs(hi[i], lo[i]);
+    return overflow[i];
+  }
+
+  public WadVector set(int i, @NotNull Wad18 value) {
+    Objects.checkIndex(i, size());
+    setElement(i, value);
+    return this;
+  }
+
+  public WadVector fill(@NotNull Wad18 value) {
+    if (value.isCompact()) {
+      Arrays.fill(hi, value.high());
+      Arrays.fill(lo, value.low());
+      overflow = null;
+      return this;
+    }
+    for (int i = 0; i < size(); i++) setElement(i, value);
+    return this;
+  }
+
+  public WadVector subtract(@NotNull Wad18 subtrahend) {
+    for (index = 0; index < size(); index++) {
+      if (isCompact(index)
+          && subtrahend.isCompact()
+          && Int128.subtract(hi[index], lo[index], subtrahend.high(), subtrahend.low(), this, SINK)
+              != null) continue;
+      setElement(index, get(index).subtract(subtrahend));
+    }
+    return this;
+  }
+
+  public WadVector subtract(@NotNull WadVector subtrahend) {
+    checkSize(subtrahend);
+    for (index = 0; index < size(); index++) {
+      if (isCompact(index)
+          && subtrahend.isCompact(index)
+          && Int128.subtract(
+                  hi[index], lo[index], subtrahend.hi[index], subtrahend.lo[index], this, SINK)
+              != null) continue;
+      setElement(index, get(index).subtract(subtrahend.get(index)));
+    }
+    return this;
+  }
+
+  public WadVector multiply(@NotNull Wad18 multiplicand) {
+    for (index = 0; index < size(); index++) {
+      if (isCompact(index)
+          && multiplicand.isCompact()
+          && Int128.wmul(hi[index], lo[index], multiplicand.high(), multiplicand.low(), this, SINK)
+              != null) continue;
+      setElement(index, get(index).multiply(multiplicand));
+    }
+    return this;
+  }
+
+  public WadVector multiply(@NotNull WadVector multiplicand) {
+    checkSize(multiplicand);
+    for (index = 0; index < size(); index++) {
+      if (isCompact(index)
+          && multiplicand.isCompact(index)
+          && Int128.wmul(
+                  hi[index], lo[index], multiplicand.hi[index], multiplicand.lo[index], this, SINK)
+              != null) continue;
+      setElement(index, get(index).multiply(multiplicand.get(index)));
+    }
+    return this;
+  }
+
+  public WadVector divide(@NotNull Wad18 divisor) {
+    if (divisor.isCompact() && divisor.high() == 0 && divisor.low() == 0)
+      throw new IllegalArgumentException("Argument 'divisor' is 0");
+    for (index = 0; index < size(); index++) {
+      if (isCompact(index)
+          && divisor.isCompact()
+          && Int128.wdiv(hi[index], lo[index], divisor.high(), divisor.low(), this, SINK) != null)
+        continue;
+      setElement(index, get(index).divide(divisor));
+    }
+    return this;
+  }
+
+  public WadVector divide(@NotNull WadVector divisor) {
+    checkSize(divisor);
+    for (index = 0; index < size(); index++) {
+      if (isCompact(index) && divisor.isCompact(index)) {
+        if (divisor.hi[index] == 0 && divisor.lo[index] == 0)
+          throw new IllegalArgumentException("Argument 'divisor' is 0");
+        if (Int128.wdiv(hi[index], lo[index], divisor.hi[index], divisor.lo[index], this, SINK)
+            != null) continue;
+      }
+      setElement(index, get(index).divide(divisor.get(index)));
+    }
+    return this;
+  }
+
+  public WadVector max(@NotNull Wad18 compareObject) {
+    for (int i = 0; i < size(); i++) {
+      if (compareTo(i, compareObject) < 0) setElement(i, compareObject);
+    }
+    return this;
+  }
+
+  public WadVector min(@NotNull Wad18 compareObject) {
+    for (int i = 0; i < size(); i++) {
+      if (compareTo(i, compareObject) > 0) setElement(i, compareObject);
+    }
+    return this;
+  }
+
+  private int compareTo(int i, Wad18 val) {
+    if (isCompact(i) && val.isCompact()) return Int128.compare(hi[i], lo[i], val.high(), val.low());
+    return get(i).compareTo(val);
+  }
+
+  private int compare(int i, int j) {
+    if (isCompact(i) && isCompact(j)) return Int128.compare(hi[i], lo[i], hi[j], lo[j]);
+    return get(i).compareTo(get(j));
+  }
+
+  /** @return the index of the first largest element, or -1 if this vector is empty */
+  public int argmax() {
+    if (size() == 0) return -1;
+    int best = 0;
+    for (int i = 1; i < size(); i++) {
+      if (compare(i, best) > 0) best = i;
+    }
+    return best;
+  }
+
+  /** @return the index of the first smallest element, or -1 if this vector is empty */
+  public int argmin() {
+    if (size() == 0) return -1;
+    int best = 0;
+    for (int i = 1; i < size(); i++) {
+      if (compare(i, best) < 0) best = i;
+    }
+    return best;
+  }
+
+  @Override
+  public boolean equals(Object compareObject) {
+    if (!(compareObject instanceof WadVector)) return false;
+    WadVector wadVector = (WadVector) compareObject;
+    if (wadVector.size() != size()) return false;
+    for (int i = 0; i < size(); i++) {
+      if (compare(wadVector, i) != 0) return false;
+    }
+    return true;
+  }
+
+  private int compare(WadVector wadVector, int i) {
+    if (isCompact(i) && wadVector.isCompact(i))
+      return Int128.compare(hi[i], lo[i], wadVector.hi[i], wadVector.lo[i]);
+    return get(i).compareTo(wadVector.get(i));
+  }
+
+  @Override
+  public int hashCode() {
+    int hashCode = 1;
+    for (int i = 0; i < size(); i++) hashCode = 31 * hashCode + get(i).hashCode();
+    return hashCode;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder("[");
+    for (int i = 0; i < size(); i++) {
+      if (i > 0) builder.append(", ");
+      builder.append(get(i));
+    }
+    return builder.append(']').toString();
+  }
+}
@@ -6,16 +6,22 @@ import peggy42.cn.contractneedsprovider.ContractNeedsProvider;
 import peggy42.cn.contractneedsprovider.Permissions;
 import peggy42.cn.contractuserutil.AddressMethod;
 import peggy42.cn.dai.Dai;
+import peggy42.cn.engine.Strategy;
 import peggy42.cn.gasprovider.GasProvider;
 import peggy42.cn.medianizer.MedianException;
 import peggy42.cn.medianizer.Medianizer;
+import peggy42.cn.numberutil.MutableWad18;
 import peggy42.cn.numberutil.Wad18;
+import peggy42.cn.tickstore.TickKind;
+import peggy42.cn.tickstore.TickStore;
 import peggy42.cn.util.Balances;
 import peggy42.cn.weth.Weth;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.LoggerFactory;
 import org.web3j.crypto.Credentials;
 import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.RemoteFunctionCall;
 import org.web3j.protocol.core.methods.response.TransactionReceipt;
 import org.web3j.tuples.generated.Tuple4;
 
@@ -25,7 +31,8 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
-import static peggy42.cn.util.ProfitCalculator.getPotentialProfit;
+import static peggy42.cn.numberutil.DecimalFormatter.lazy;
+import static peggy42.cn.util.ProfitCalculator.screenPotentialProfit;
 
 public class Oasis implements AddressMethod {
   public static final String ADDRESS = "0x794e6e91555438aFc3ccF1c5076A74F42133d08D";
@@ -38,19 +45,28 @@ public class Oasis implements AddressMethod {
   private final Permissions permissions;
   private final CircuitBreaker circuitBreaker;
   private final OasisContract uniswapContract;
+  private final Credentials credentials;
+  private TickStore tickStore;
 
   public Oasis(
       @NotNull ContractNeedsProvider contractNeedsProvider, CompoundDai compoundDai, Weth weth) {
     Web3j web3j = contractNeedsProvider.getWeb3j();
-    Credentials credentials = contractNeedsProvider.getCredentials();
+    credentials = contractNeedsProvider.getCredentials();
     permissions = contractNeedsProvider.getPermissions();
     gasProvider = contractNeedsProvider.getGasProvider();
     circuitBreaker = contractNeedsProvider.getCircuitBreaker();
-    uniswapContract = OasisContract.load(ADDRESS, web3j, credentials, gasProvider);
+    uniswapContract =
+        OasisContract.load(
+            ADDRESS, web3j, contractNeedsProvider.getTransactionManager(), gasProvider);
     this.compoundDai = compoundDai;
     this.weth = weth;
   }
 
+  /** @param tickStore records every best offer, can be null */
+  public void setTickStore(TickStore tickStore) {
+    this.tickStore = tickStore;
+  }
+
   /**
    * TODO: test this method
    *
@@ -90,91 +106,114 @@ public class Oasis implements AddressMethod {
     }
   }
 
-  public void checkIfBuyDaiIsProfitableThenDoIt(@NotNull Balances balances) {
+  /** @return taking the best buy-DAI offer if it is profitable, otherwise null */
+  @Nullable
+  public Strategy.Execution evaluateBuyDai(@NotNull Balances balances) {
     logger.trace("");
     logger.info("OASIS BUY DAI PROFIT CALCULATION");
     if (balances.isThereTooFewEthAndWethForSaleAndLending(balances.ethereum)) {
       logger.info("NOT ENOUGH WETH AND ETH TO BUY DAI ON OASIS");
-      return;
+      return null;
     }
+    Wad18 medianEthereumPrice;
     try {
-      Wad18 medianEthereumPrice = Medianizer.getPrice();
-      OasisOffer bestOffer =
-          buyDaiSellWethIsProfitable(
-              medianEthereumPrice,
-              balances,
-              gasProvider.getPercentageOfProfitAsFee(
-                  gasProvider.getFailedTransactionsWithinTheLastTwelveHoursForGasPriceArrayList()));
-      if (bestOffer.offerId.compareTo(BigInteger.ZERO) != 0) {
-        String weiValue = "100000000"; // INFO: seems to be necessary due to rounding error
-        Wad18 wethBalance = balances.weth.getAccount().getBalance();
-        Wad18 ethBalance = balances.ethereum.getBalanceWithoutMinimumEthereumReserveUpperLimit();
-        Wad18 ownConstraint =
-            wethBalance
-                .add(ethBalance)
-                .multiply(bestOffer.bestOfferDaiPerEth)
-                .subtract(new Wad18(new BigInteger(weiValue)));
-        Wad18 offerConstraint = bestOffer.offerValues.get(Dai.ADDRESS);
-        logger.debug("OWN CONSTRAINT {}", ownConstraint);
-        logger.debug("OFFER CONSTRAINT {}", offerConstraint);
-        if (balances
-                .ethereum
-                .getBalance()
-                .compareTo(balances.ethereum.minimumEthereumReserveUpperLimit)
-            > 0) {
-          weth.eth2Weth(
-              balances.ethereum.getBalanceWithoutMinimumEthereumReserveUpperLimit(),
-              bestOffer.profit,
-              medianEthereumPrice,
-              balances);
-        }
-        takeOrder(
-            bestOffer.offerId,
-            ownConstraint.min(offerConstraint),
-            bestOffer.profit,
-            medianEthereumPrice,
-            balances);
-      }
+      medianEthereumPrice = Medianizer.getPrice();
     } catch (MedianException e) {
       logger.error(EXCEPTION, e);
+      return null;
+    }
+    OasisOffer bestOffer =
+        buyDaiSellWethIsProfitable(
+            medianEthereumPrice,
+            balances,
+            gasProvider.getPercentageOfProfitAsFee(
+                gasProvider.getFailedTransactionsWithinTheLastTwelveHours()));
+    if (bestOffer.offerId.compareTo(BigInteger.ZERO) == 0) return null;
+    return () -> buyDai(bestOffer, medianEthereumPrice, balances);
+  }
+
+  private void buyDai(
+      @NotNull OasisOffer bestOffer, Wad18 medianEthereumPrice, @NotNull Balances balances) {
+    String weiValue = "100000000"; // INFO: seems to be necessary due to rounding error
+    Wad18 wethBalance = balances.weth.getAccount().getBalance();
+    Wad18 ethBalance = balances.ethereum.getBalanceWithoutMinimumEthereumReserveUpperLimit();
+    Wad18 ownConstraint =
+        new MutableWad18(wethBalance)
+            .add(ethBalance)
+            .multiply(bestOffer.bestOfferDaiPerEth)
+            .subtract(new Wad18(new BigInteger(weiValue)))
+            .toWad18();
+    Wad18 offerConstraint = bestOffer.offerValues.get(Dai.ADDRESS);
+    logger.debug("OWN CONSTRAINT {}", ownConstraint);
+    logger.debug("OFFER CONSTRAINT {}", offerConstraint);
+    if (balances
+            .ethereum
+            .getBalance()
+            .compareTo(balances.ethereum.minimumEthereumReserveUpperLimit)
+        > 0) {
+      weth.eth2Weth(
+          balances.ethereum.getBalanceWithoutMinimumEthereumReserveUpperLimit(),
+          bestOffer.profit,
+          medianEthereumPrice,
+          balances);
     }
+    takeOrder(
+        bestOffer.offerId,
+        ownConstraint.min(offerConstraint),
+        bestOffer.profit,
+        medianEthereumPrice,
+        balances);
   }
 
-  public void checkIfSellDaiIsProfitableThenDoIt(@NotNull Balances balances) {
+  /** @return taking the best sell-DAI offer if it is profitable, otherwise null */
+  @Nullable
+  public Strategy.Execution evaluateSellDai(@NotNull Balances balances) {
     logger.trace("");
     logger.trace("OASIS SELL DAI PROFIT CALCULATION");
     if (balances.isThereTooFewDaiAndDaiInCompoundForSale()) {
       logger.info("NOT ENOUGH DAI TO SELL DAI ON OASIS");
-      return;
+      return null;
     }
+    Wad18 medianEthereumPrice;
     try {
-      Wad18 medianEthereumPrice = Medianizer.getPrice();
-      Wad18 maxDaiToSell = balances.getMaxDaiToSell();
-      OasisOffer bestOffer =
-          sellDaiBuyWethIsProfitable(
-              medianEthereumPrice,
-              maxDaiToSell,
-              balances,
-              gasProvider.getPercentageOfProfitAsFee(
-                  gasProvider.getFailedTransactionsWithinTheLastTwelveHoursForGasPriceArrayList()));
-      if (bestOffer.offerId.compareTo(BigInteger.ZERO) != 0) {
-        Wad18 ownConstraint = balances.getMaxDaiToSell().divide(bestOffer.bestOfferDaiPerEth);
-        Wad18 offerConstraint = bestOffer.offerValues.get(Weth.ADDRESS);
-        logger.debug("OWN CONSTRAINT {}", ownConstraint);
-        logger.debug("OFFER CONSTRAINT {}", offerConstraint);
-        if (compoundDai.canOtherProfitMethodsWorkWithoutCDaiConversion(
-            balances, bestOffer.profit, medianEthereumPrice)) {
-          takeOrder(
-              bestOffer.offerId,
-              ownConstraint.min(offerConstraint),
-              bestOffer.profit,
-              medianEthereumPrice,
-              balances);
-        }
-      }
+      medianEthereumPrice = Medianizer.getPrice();
     } catch (MedianException e) {
       logger.error(EXCEPTION, e);
+      return null;
     }
+    Wad18 maxDaiToSell = balances.getMaxDaiToSell();
+    OasisOffer bestOffer =
+        sellDaiBuyWethIsProfitable(
+            medianEthereumPrice,
+            maxDaiToSell,
+            balances,
+            gasProvider.getPercentageOfProfitAsFee(
+                gasProvider.getFailedTransactionsWithinTheLastTwelveHours()));
+    if (bestOffer.offerId.compareTo(BigInteger.ZERO) == 0) return null;
+    return () -> sellDai(bestOffer, medianEthereumPrice, balances);
+  }
+
+  private void sellDai(
+      @NotNull OasisOffer bestOffer, Wad18 medianEthereumPrice, @NotNull Balances balances) {
+    // redeems the cDAI if selling is more profitable than lending
+    if (!compoundDai.canOtherProfitMethodsWorkWithoutCDaiConversion(
+        balances, bestOffer.profit, medianEthereumPrice)) {
+      return;
+    }
+    Wad18 ownConstraint = balances.getMaxDaiToSell().divide(bestOffer.bestOfferDaiPerEth);
+    Wad18 offerConstraint = bestOffer.offerValues.get(Weth.ADDRESS);
+    logger.debug("OWN CONSTRAINT {}", ownConstraint);
+    logger.debug("OFFER CONSTRAINT {}", offerConstraint);
+    takeOrder(
+        bestOffer.offerId,
+        ownConstraint.min(offerConstraint),
+        bestOffer.profit,
+        medianEthereumPrice,
+        balances);
+  }
+
+  private void recordTick(TickKind kind, Wad18 daiPerWeth, Wad18 wethAmount) {
+    if (tickStore != null) tickStore.tryAppend(kind, "OASIS", daiPerWeth, wethAmount);
   }
 
   @NotNull
@@ -195,16 +234,22 @@ public class Oasis implements AddressMethod {
       Wad18 bestOfferEthDaiRatioBuyDai =
           offerValues.get(Dai.ADDRESS).divide(offerValues.get(Weth.ADDRESS));
       Wad18 bestOfferMedianRatio = medianEthereumPrice.divide(bestOfferEthDaiRatioBuyDai);
-      logger.trace("DAI PER WETH {}{}", bestOfferEthDaiRatioBuyDai.toString(5), " WETH/DAI");
+      logger.trace("DAI PER WETH {}{}", lazy(bestOfferEthDaiRatioBuyDai, 5), " WETH/DAI");
+      recordTick(
+          TickKind.OASIS_BUY_DAI, bestOfferEthDaiRatioBuyDai, offerValues.get(Weth.ADDRESS));
       logger.trace("MEDIAN-OFFER RATIO {}", bestOfferMedianRatio);
       Wad18 wethBalance = balances.weth.getAccount().getBalance();
       Wad18 ethBalance = balances.ethereum.getBalanceWithoutMinimumEthereumReserveUpperLimit();
       Wad18 potentialProfit =
-          getPotentialProfit(
+          screenPotentialProfit(
               bestOfferMedianRatio,
-              ((wethBalance.add(ethBalance)).min(offerValues.get(Weth.ADDRESS)))
-                  .multiply(bestOfferEthDaiRatioBuyDai),
-              percentageOfProfitAsFee);
+              new MutableWad18(wethBalance)
+                  .add(ethBalance)
+                  .min(offerValues.get(Weth.ADDRESS))
+                  .multiply(bestOfferEthDaiRatioBuyDai)
+                  .toWad18(),
+              percentageOfProfitAsFee,
+              balances.getMinimumTradeProfitBuyDai());
       if (potentialProfit.compareTo(balances.getMinimumTradeProfitBuyDai()) > 0) {
         return new OasisOffer(bestOffer, offerValues, bestOfferEthDaiRatioBuyDai, potentialProfit);
       }
@@ -236,13 +281,16 @@ public class Oasis implements AddressMethod {
       Wad18 bestOfferEthDaiRatioSellDai =
           offerValues.get(Dai.ADDRESS).divide(offerValues.get(Weth.ADDRESS));
       Wad18 bestOfferMedianRatio = bestOfferEthDaiRatioSellDai.divide(medianEthereumPrice);
-      logger.trace("OFFER ETH PRICE {}{}", bestOfferEthDaiRatioSellDai.toString(5), " WETH/DAI");
-      logger.trace("OFFER-MEDIAN RATIO {}", bestOfferMedianRatio.toString(5));
+      logger.trace("OFFER ETH PRICE {}{}", lazy(bestOfferEthDaiRatioSellDai, 5), " WETH/DAI");
+      recordTick(
+          TickKind.OASIS_SELL_DAI, bestOfferEthDaiRatioSellDai, offerValues.get(Weth.ADDRESS));
+      logger.trace("OFFER-MEDIAN RATIO {}", lazy(bestOfferMedianRatio, 5));
       Wad18 potentialProfit =
-          getPotentialProfit(
+          screenPotentialProfit(
               bestOfferMedianRatio,
               maxDaiToSell.min(offerValues.get(Dai.ADDRESS)),
-              percentageOfProfitAsFee);
+              percentageOfProfitAsFee,
+              balances.getMinimumTradeProfitSellDai());
       // TODO: do constraints already here
 
       if (potentialProfit.compareTo(balances.getMinimumTradeProfitSellDai()) > 0) {
@@ -260,11 +308,16 @@ public class Oasis implements AddressMethod {
       Wad18 potentialProfit,
       Wad18 medianEthereumPrice,
       Balances balances) {
+    RemoteFunctionCall<TransactionReceipt> buy =
+        uniswapContract.buy(offerId, amountToBuy.toBigInteger());
+    gasProvider.estimateGasLimit(
+        OasisContract.FUNC_BUY, credentials.getAddress(), ADDRESS, buy.encodeFunctionCall(), null);
     if (permissions.check("OASIS BUY ORDER")) {
       try {
-        gasProvider.updateFastGasPrice(medianEthereumPrice, potentialProfit);
-        TransactionReceipt transferReceipt =
-            uniswapContract.buy(offerId, amountToBuy.toBigInteger()).send();
+        gasProvider.updateFastGasPrice(
+            OasisContract.FUNC_BUY, medianEthereumPrice, potentialProfit);
+        TransactionReceipt transferReceipt = buy.send();
+        gasProvider.recordGasUsed(OasisContract.FUNC_BUY, transferReceipt);
         logger.info(
             "Transaction complete, view it at https://etherscan.io/tx/{}",
             transferReceipt.getTransactionHash());
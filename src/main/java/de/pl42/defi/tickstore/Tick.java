@@ -0,0 +1,98 @@
+package peggy42.cn.tickstore;
+
+import peggy42.cn.numberutil.Wad18;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+
+/** One observed price, e.g. a median, a feed price, an Oasis offer or a Uniswap quote */
+public final class Tick {
+  public static final long UNKNOWN_BLOCK = -1L;
+
+  private final long timestamp;
+  private final long blockNumber;
+  private final TickKind kind;
+  private final String source;
+  private final Wad18 price;
+  private final Wad18 amount;
+
+  /**
+   * @param timestamp milliseconds since the epoch
+   * @param blockNumber block at that time or UNKNOWN_BLOCK
+   * @param source e.g. the feed name, at most 11 ASCII characters are stored
+   * @param amount size of the offer or quote, zero if there is none
+   */
+  public Tick(
+      long timestamp,
+      long blockNumber,
+      @NotNull TickKind kind,
+      @NotNull String source,
+      @NotNull Wad18 price,
+      @NotNull Wad18 amount) {
+    this.timestamp = timestamp;
+    this.blockNumber = blockNumber;
+    this.kind = kind;
+    this.source = source;
+    this.price = price;
+    this.amount = amount;
+  }
+
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public long getBlockNumber() {
+    return blockNumber;
+  }
+
+  public TickKind getKind() {
+    return kind;
+  }
+
+  public String getSource() {
+    return source;
+  }
+
+  public Wad18 getPrice() {
+    return price;
+  }
+
+  public Wad18 getAmount() {
+    return amount;
+  }
+
+  @Override
+  public boolean equals(Object compareObject) {
+    if (this == compareObject) return true;
+    if (!(compareObject instanceof Tick)) return false;
+    Tick tick = (Tick) compareObject;
+    return timestamp == tick.timestamp
+        && blockNumber == tick.blockNumber
+        && kind == tick.kind
+        && source.equals(tick.source)
+        && price.equals(tick.price)
+        && amount.equals(tick.amount);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(timestamp, blockNumber, kind, source, price, amount);
+  }
+
+  @Override
+  public String toString() {
+    return "Tick{timestamp="
+        + timestamp
+        + ", blockNumber="
+        + blockNumber
+        + ", kind="
+        + kind
+        + ", source="
+        + source
+        + ", price="
+        + price
+        + ", amount="
+        + amount
+        + '}';
+  }
+}
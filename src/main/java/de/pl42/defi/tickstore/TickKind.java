@@ -0,0 +1,17 @@
+package peggy42.cn.tickstore;
+
+/** What a tick observed. The ordinal is stored, so new kinds must be appended at the end. */
+public enum TickKind {
+  /** median of all price feeds */
+  MEDIAN,
+  /** price of a single price feed */
+  FEED_PRICE,
+  /** best Oasis offer to buy DAI, price in DAI per WETH, amount in WETH */
+  OASIS_BUY_DAI,
+  /** best Oasis offer to sell DAI, price in DAI per WETH, amount in WETH */
+  OASIS_SELL_DAI,
+  /** Uniswap quote to buy DAI, price in DAI per ETH, amount in ETH */
+  UNISWAP_BUY_DAI,
+  /** Uniswap quote to sell DAI, price in DAI per ETH, amount in DAI */
+  UNISWAP_SELL_DAI
+}
@@ -0,0 +1,260 @@
+package peggy42.cn.tickstore;
+
+import peggy42.cn.numberutil.Wad18;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Memory-mapped file of fixed-width tick records. The file has its full size from the start, so
+ * appending a record is a copy into the mapping. Layout of the 64 byte header: magic, version,
+ * record size, capacity, smallest block, largest block. Layout of a 64 byte record: timestamp,
+ * block, price high, price low, amount high, amount low (longs), kind (byte), source (11 ASCII
+ * bytes), CRC32C of the preceding 60 bytes.
+ *
+ * <p>One writer, any number of readers. Readers only read records below the volatile count.
+ */
+final class TickSegment {
+  static final int HEADER_SIZE = 64;
+  static final int RECORD_SIZE = 64;
+  static final int SOURCE_LENGTH = 11;
+  private static final int MAGIC = 0x5449434B; // "TICK"
+  private static final int VERSION = 1;
+  private static final int MIN_BLOCK_OFFSET = 16;
+  private static final int MAX_BLOCK_OFFSET = 24;
+  private static final int KIND_OFFSET = 48;
+  private static final int SOURCE_OFFSET = 49;
+  private static final int CHECKSUM_OFFSET = 60;
+  private static final BigInteger LONG_MASK = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+  private static final TickKind[] KINDS = TickKind.values();
+
+  private final Path path;
+  private final FileChannel channel;
+  private final MappedByteBuffer buffer;
+  private final ByteBuffer writeView;
+  private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+  private final CRC32C crc = new CRC32C();
+  private final int capacity;
+  private volatile int count;
+  private volatile long minBlock;
+  private volatile long maxBlock;
+
+  private TickSegment(Path path, FileChannel channel, MappedByteBuffer buffer, int capacity) {
+    this.path = path;
+    this.channel = channel;
+    this.buffer = buffer;
+    this.writeView = buffer.duplicate();
+    this.capacity = capacity;
+  }
+
+  /** Creates a new empty segment file */
+  static TickSegment create(Path path, int capacity) throws IOException {
+    FileChannel channel =
+        FileChannel.open(
+            path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    MappedByteBuffer buffer =
+        channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+    buffer.putInt(0, MAGIC);
+    buffer.putInt(4, VERSION);
+    buffer.putInt(8, RECORD_SIZE);
+    buffer.putInt(12, capacity);
+    TickSegment segment = new TickSegment(path, channel, buffer, capacity);
+    segment.setBlockRange(Long.MAX_VALUE, Long.MIN_VALUE);
+    return segment;
+  }
+
+  /**
+   * Opens an existing segment file. With recover, every record is checked and the first torn or
+   * empty record becomes the end of the segment. Everything behind it is zeroed, so that records
+   * of an earlier crash never reappear behind new ones. Without recover the segment is expected to
+   * be full.
+   */
+  static TickSegment open(Path path, boolean recover) throws IOException {
+    FileChannel channel =
+        FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      if (channel.size() < HEADER_SIZE) throw new IOException(path + " has no header");
+      MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+      if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+        throw new IOException(path + " is not a tick segment");
+      if (header.getInt(8) != RECORD_SIZE)
+        throw new IOException(path + " has a different record size");
+      int capacity = header.getInt(12);
+      long size = HEADER_SIZE + (long) capacity * RECORD_SIZE;
+      if (channel.size() < size) throw new IOException(path + " is truncated");
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+      TickSegment segment = new TickSegment(path, channel, buffer, capacity);
+      segment.minBlock = buffer.getLong(MIN_BLOCK_OFFSET);
+      segment.maxBlock = buffer.getLong(MAX_BLOCK_OFFSET);
+      segment.count = capacity;
+      if (recover) segment.recover();
+      return segment;
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private void recover() {
+    int valid = 0;
+    long recoveredMinBlock = Long.MAX_VALUE;
+    long recoveredMaxBlock = Long.MIN_VALUE;
+    while (valid < capacity && isValid(valid)) {
+      long block = buffer.getLong(offset(valid) + 8);
+      if (block != Tick.UNKNOWN_BLOCK) {
+        recoveredMinBlock = Math.min(recoveredMinBlock, block);
+        recoveredMaxBlock = Math.max(recoveredMaxBlock, block);
+      }
+      valid++;
+    }
+    for (int i = offset(valid); i < offset(capacity); i += Long.BYTES) buffer.putLong(i, 0L);
+    count = valid;
+    setBlockRange(recoveredMinBlock, recoveredMaxBlock);
+  }
+
+  private boolean isValid(int index) {
+    int offset = offset(index);
+    if (buffer.getLong(offset) == 0L) return false;
+    crc.reset();
+    crc.update(buffer.duplicate().position(offset).limit(offset + CHECKSUM_OFFSET));
+    return (int) crc.getValue() == buffer.getInt(offset + CHECKSUM_OFFSET);
+  }
+
+  private static int offset(int index) {
+    return HEADER_SIZE + index * RECORD_SIZE;
+  }
+
+  private void setBlockRange(long newMinBlock, long newMaxBlock) {
+    minBlock = newMinBlock;
+    maxBlock = newMaxBlock;
+    buffer.putLong(MIN_BLOCK_OFFSET, newMinBlock);
+    buffer.putLong(MAX_BLOCK_OFFSET, newMaxBlock);
+  }
+
+  Path getPath() {
+    return path;
+  }
+
+  int size() {
+    return count;
+  }
+
+  boolean isFull() {
+    return count == capacity;
+  }
+
+  long getMinBlock() {
+    return minBlock;
+  }
+
+  long getMaxBlock() {
+    return maxBlock;
+  }
+
+  /** Only called by the single writer, which checked isFull before */
+  void append(Tick tick) {
+    record.clear();
+    record.putLong(tick.getTimestamp());
+    record.putLong(tick.getBlockNumber());
+    putWad18(tick.getPrice());
+    putWad18(tick.getAmount());
+    record.put((byte) tick.getKind().ordinal());
+    byte[] source = tick.getSource().getBytes(StandardCharsets.US_ASCII);
+    record.put(source, 0, Math.min(source.length, SOURCE_LENGTH));
+    while (record.position() < CHECKSUM_OFFSET) record.put((byte) 0);
+    crc.reset();
+    crc.update(record.array(), 0, CHECKSUM_OFFSET);
+    record.putInt((int) crc.getValue());
+    writeView.position(offset(count));
+    writeView.put(record.array());
+    long block = tick.getBlockNumber();
+    if (block != Tick.UNKNOWN_BLOCK && (block < minBlock || block > maxBlock))
+      setBlockRange(Math.min(minBlock, block), Math.max(maxBlock, block));
+    count++; // publishes the record to readers
+  }
+
+  private void putWad18(Wad18 wad18) {
+    BigInteger value = wad18.toBigInteger();
+    if (value.bitLength() > 127)
+      throw new IllegalArgumentException("Argument 'tick' has a value above 128 bits");
+    record.putLong(value.shiftRight(64).longValue());
+    record.putLong(value.longValue());
+  }
+
+  long getTimestamp(int index) {
+    return buffer.getLong(offset(index));
+  }
+
+  long getBlockNumber(int index) {
+    return buffer.getLong(offset(index) + 8);
+  }
+
+  TickKind getKind(int index) {
+    return KINDS[buffer.get(offset(index) + KIND_OFFSET)];
+  }
+
+  /** @return true if the record has the given source, without decoding it */
+  boolean hasSource(int index, byte[] source) {
+    int offset = offset(index) + SOURCE_OFFSET;
+    for (int i = 0; i < SOURCE_LENGTH; i++) {
+      byte expected = i < source.length ? source[i] : 0;
+      if (buffer.get(offset + i) != expected) return false;
+    }
+    return true;
+  }
+
+  Tick get(int index) {
+    int offset = offset(index);
+    byte[] source = new byte[SOURCE_LENGTH];
+    int length = 0;
+    while (length < SOURCE_LENGTH && buffer.get(offset + SOURCE_OFFSET + length) != 0) {
+      source[length] = buffer.get(offset + SOURCE_OFFSET + length);
+      length++;
+    }
+    return new Tick(
+        buffer.getLong(offset),
+        buffer.getLong(offset + 8),
+        getKind(index),
+        new String(source, 0, length, StandardCharsets.US_ASCII),
+        getWad18(offset + 16),
+        getWad18(offset + 32));
+  }
+
+  private Wad18 getWad18(int offset) {
+    BigInteger hi = BigInteger.valueOf(buffer.getLong(offset)).shiftLeft(64);
+    return new Wad18(hi.or(BigInteger.valueOf(buffer.getLong(offset + 8)).and(LONG_MASK)));
+  }
+
+  /** @return the index of the first record with a timestamp of at least timestamp */
+  int firstIndexAt(long timestamp) {
+    int low = 0;
+    int high = count;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (getTimestamp(middle) < timestamp) low = middle + 1;
+      else high = middle;
+    }
+    return low;
+  }
+
+  void force() {
+    buffer.force();
+  }
+
+  void close() throws IOException {
+    force();
+    channel.close();
+  }
+
+  static boolean isSegment(Path path) {
+    return Files.isRegularFile(path) && path.getFileName().toString().endsWith(".ticks");
+  }
+}
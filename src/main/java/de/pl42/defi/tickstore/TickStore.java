@@ -0,0 +1,219 @@
+package peggy42.cn.tickstore;
+
+import peggy42.cn.numberutil.Wad18;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Append-only time series of everything the bot observes: medians, feed prices, Oasis offers and
+ * Uniswap quotes. Ticks are fixed-width records in memory-mapped segment files (see {@link
+ * TickSegment}), so appending never allocates a file buffer and a restart can warm up from the
+ * latest ticks. After a crash, a torn record at the end of the last segment is dropped on open.
+ *
+ * <p>Timestamps never decrease within the store, a tick older than its predecessor is stored with
+ * the timestamp of the predecessor. This keeps scans by time a binary search. Appends are
+ * serialized, scans run concurrently with appends and see every tick that was appended before.
+ */
+public final class TickStore implements AutoCloseable {
+  private static final org.slf4j.Logger logger =
+      LoggerFactory.getLogger(MethodHandles.lookup().lookupClass().getSimpleName());
+  public static final int DEFAULT_SEGMENT_CAPACITY = 1 << 16; // 4 MiB per segment
+
+  private final Path directory;
+  private final int segmentCapacity;
+  private final List<TickSegment> segments = new CopyOnWriteArrayList<>();
+  private TickSegment active;
+  private long lastTimestamp;
+  private volatile long lastBlock = Tick.UNKNOWN_BLOCK;
+
+  private TickStore(Path directory, int segmentCapacity) {
+    this.directory = directory;
+    this.segmentCapacity = segmentCapacity;
+  }
+
+  /** @see #open(Path, int) */
+  public static TickStore open(@NotNull Path directory) throws IOException {
+    return open(directory, DEFAULT_SEGMENT_CAPACITY);
+  }
+
+  /**
+   * Opens or creates the store in directory and recovers the tail of the last segment.
+   *
+   * @param segmentCapacity ticks per new segment file
+   */
+  public static TickStore open(@NotNull Path directory, int segmentCapacity) throws IOException {
+    if (segmentCapacity <= 0)
+      throw new IllegalArgumentException("Argument 'segmentCapacity' is not positive");
+    Files.createDirectories(directory);
+    TickStore tickStore = new TickStore(directory, segmentCapacity);
+    List<Path> paths;
+    try (Stream<Path> files = Files.list(directory)) {
+      paths = files.filter(TickSegment::isSegment).sorted().collect(Collectors.toList());
+    }
+    try {
+      for (int i = 0; i < paths.size(); i++) {
+        tickStore.segments.add(TickSegment.open(paths.get(i), i == paths.size() - 1));
+      }
+    } catch (IOException e) {
+      tickStore.close();
+      throw e;
+    }
+    if (!tickStore.segments.isEmpty()) {
+      tickStore.active = tickStore.segments.get(tickStore.segments.size() - 1);
+      Tick last = tickStore.last();
+      if (last != null) {
+        tickStore.lastTimestamp = last.getTimestamp();
+        for (TickSegment segment : tickStore.segments) {
+          tickStore.lastBlock = Math.max(tickStore.lastBlock, segment.getMaxBlock());
+        }
+      }
+    }
+    logger.trace("TICK STORE OPENED WITH {} TICKS", tickStore.size());
+    return tickStore;
+  }
+
+  /**
+   * Appends tick. A tick with an unknown block gets the largest block seen so far.
+   *
+   * @throws IOException if a new segment file can't be created
+   */
+  public synchronized void append(@NotNull Tick tick) throws IOException {
+    if (active == null || active.isFull()) roll();
+    long timestamp = Math.max(tick.getTimestamp(), lastTimestamp);
+    long block = tick.getBlockNumber();
+    if (block == Tick.UNKNOWN_BLOCK) block = lastBlock;
+    else if (block > lastBlock) lastBlock = block;
+    if (timestamp != tick.getTimestamp() || block != tick.getBlockNumber()) {
+      Wad18 amount = tick.getAmount();
+      tick = new Tick(timestamp, block, tick.getKind(), tick.getSource(), tick.getPrice(), amount);
+    }
+    active.append(tick);
+    lastTimestamp = timestamp;
+  }
+
+  /**
+   * Appends tick and logs instead of throwing, for callers that must not fail because of the
+   * store, e.g. a trade.
+   *
+   * @return true if tick was appended
+   */
+  public boolean tryAppend(@NotNull Tick tick) {
+    try {
+      append(tick);
+      return true;
+    } catch (IOException | RuntimeException e) {
+      logger.error("Exception", e);
+      return false;
+    }
+  }
+
+  /** Appends a tick with the current time and the latest known block */
+  public boolean tryAppend(
+      @NotNull TickKind kind, @NotNull String source, @NotNull Wad18 price, @NotNull Wad18 amount) {
+    return tryAppend(
+        new Tick(System.currentTimeMillis(), Tick.UNKNOWN_BLOCK, kind, source, price, amount));
+  }
+
+  private void roll() throws IOException {
+    if (active != null) active.force();
+    Path path = directory.resolve(String.format("%020d.ticks", segments.size()));
+    active = TickSegment.create(path, segmentCapacity);
+    segments.add(active);
+    logger.trace("NEW TICK SEGMENT {}", path.getFileName());
+  }
+
+  /** Ticks with fromTimestamp <= timestamp < toTimestamp, oldest first */
+  public void scan(long fromTimestamp, long toTimestamp, @NotNull Consumer<Tick> consumer) {
+    for (TickSegment segment : segments) {
+      int count = segment.size();
+      if (count == 0 || segment.getTimestamp(count - 1) < fromTimestamp) continue;
+      if (segment.getTimestamp(0) >= toTimestamp) return;
+      for (int i = segment.firstIndexAt(fromTimestamp); i < count; i++) {
+        if (segment.getTimestamp(i) >= toTimestamp) return;
+        consumer.accept(segment.get(i));
+      }
+    }
+  }
+
+  /** Ticks with fromBlock <= block < toBlock, in the order they were appended */
+  public void scanBlocks(long fromBlock, long toBlock, @NotNull Consumer<Tick> consumer) {
+    for (TickSegment segment : segments) {
+      if (segment.getMaxBlock() < fromBlock || segment.getMinBlock() >= toBlock) continue;
+      int count = segment.size();
+      for (int i = 0; i < count; i++) {
+        long block = segment.getBlockNumber(i);
+        if (block >= fromBlock && block < toBlock) consumer.accept(segment.get(i));
+      }
+    }
+  }
+
+  /** @return the latest tick, or null if the store is empty */
+  @Nullable
+  public Tick last() {
+    for (int s = segments.size() - 1; s >= 0; s--) {
+      TickSegment segment = segments.get(s);
+      int count = segment.size();
+      if (count > 0) return segment.get(count - 1);
+    }
+    return null;
+  }
+
+  /**
+   * Latest tick of a kind and source, e.g. the last price of a feed for a warm start.
+   *
+   * @return the tick, or null if there is none
+   */
+  @Nullable
+  public Tick last(@NotNull TickKind kind, @NotNull String source) {
+    byte[] sourceBytes = source.getBytes(StandardCharsets.US_ASCII);
+    if (sourceBytes.length > TickSegment.SOURCE_LENGTH)
+      sourceBytes = Arrays.copyOf(sourceBytes, TickSegment.SOURCE_LENGTH);
+    for (int s = segments.size() - 1; s >= 0; s--) {
+      TickSegment segment = segments.get(s);
+      for (int i = segment.size() - 1; i >= 0; i--) {
+        if (segment.getKind(i) == kind && segment.hasSource(i, sourceBytes)) return segment.get(i);
+      }
+    }
+    return null;
+  }
+
+  public long size() {
+    long size = 0;
+    for (TickSegment segment : segments) size += segment.size();
+    return size;
+  }
+
+  /** Writes all ticks to disk, ticks survive a process crash also without this */
+  public synchronized void flush() {
+    if (active != null) active.force();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    List<IOException> exceptions = new ArrayList<>();
+    for (TickSegment segment : segments) {
+      try {
+        segment.close();
+      } catch (IOException e) {
+        exceptions.add(e);
+      }
+    }
+    segments.clear();
+    active = null;
+    if (!exceptions.isEmpty()) throw exceptions.get(0);
+  }
+}
@@ -5,17 +5,24 @@ import peggy42.cn.contractneedsprovider.CircuitBreaker;
 import peggy42.cn.contractneedsprovider.ContractNeedsProvider;
 import peggy42.cn.contractneedsprovider.Permissions;
 import peggy42.cn.contractuserutil.AddressMethod;
+import peggy42.cn.engine.Strategy;
 import peggy42.cn.gasprovider.GasProvider;
 import peggy42.cn.medianizer.Medianizer;
+import peggy42.cn.numberutil.MutableWad18;
 import peggy42.cn.numberutil.Wad18;
+import peggy42.cn.numberutil.WadVector;
+import peggy42.cn.tickstore.TickKind;
+import peggy42.cn.tickstore.TickStore;
 import peggy42.cn.util.Balances;
 import peggy42.cn.util.JavaProperties;
 import peggy42.cn.weth.Weth;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.LoggerFactory;
 import org.web3j.crypto.Credentials;
 import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.RemoteFunctionCall;
 import org.web3j.protocol.core.methods.response.TransactionReceipt;
 
 import java.io.IOException;
@@ -24,11 +31,16 @@ import java.math.BigInteger;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
+import static peggy42.cn.numberutil.DecimalFormatter.lazy;
 import static peggy42.cn.numberutil.NumberUtil.getMachineReadable;
-import static peggy42.cn.util.ProfitCalculator.getPotentialProfit;
+import static peggy42.cn.util.ProfitCalculator.getBestSize;
+import static peggy42.cn.util.ProfitCalculator.screenPotentialProfit;
 
 public class Uniswap implements AddressMethod {
   public static final DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy_MM_dd HH_mm_ss");
@@ -39,6 +51,7 @@ public class Uniswap implements AddressMethod {
   private static final String ADDRESS = "0x2a1530C4C41db0B0b2bB646CB5Eb1A67b7158667";
   private static final String UNISWAP_BUY_PROFIT_PERCENTAGE = "uniswapBuyProfitPercentage";
   private static final String UNISWAP_SELL_PROFIT_PERCENTAGE = "uniswapSellProfitPercentage";
+  static final int BUY_DAI_SIZES = 4; // 25%, 50%, 75% and 100%
 
   private final UniswapContract uniswapContract;
   private final GasProvider gasProvider;
@@ -48,8 +61,10 @@ public class Uniswap implements AddressMethod {
   private final CircuitBreaker circuitBreaker;
   private final Weth weth;
   private final Web3j web3j;
-  private double buyProfitPercentage;
-  private double sellProfitPercentage;
+  private final Credentials credentials;
+  private volatile double buyProfitPercentage;
+  private volatile double sellProfitPercentage;
+  private TickStore tickStore;
 
   public Uniswap(
       @NotNull ContractNeedsProvider contractNeedsProvider,
@@ -57,9 +72,11 @@ public class Uniswap implements AddressMethod {
       CompoundDai compoundDai,
       Weth weth) {
     web3j = contractNeedsProvider.getWeb3j();
-    Credentials credentials = contractNeedsProvider.getCredentials();
+    credentials = contractNeedsProvider.getCredentials();
     gasProvider = contractNeedsProvider.getGasProvider();
-    uniswapContract = UniswapContract.load(ADDRESS, web3j, credentials, gasProvider);
+    uniswapContract =
+        UniswapContract.load(
+            ADDRESS, web3j, contractNeedsProvider.getTransactionManager(), gasProvider);
     permissions = contractNeedsProvider.getPermissions();
     circuitBreaker = contractNeedsProvider.getCircuitBreaker();
     this.javaProperties = javaProperties;
@@ -71,74 +88,145 @@ public class Uniswap implements AddressMethod {
         Double.parseDouble(javaProperties.getValue(UNISWAP_BUY_PROFIT_PERCENTAGE));
   }
 
-  public void checkIfBuyDaiIsProfitableThenDoIt(@NotNull Balances balances) {
+  /** @return the swap of ETH and WETH for DAI if it is profitable, otherwise null */
+  @Nullable
+  public Strategy.Execution evaluateBuyDai(@NotNull Balances balances) {
     logger.trace("");
     logger.trace("UNISWAP BUY DAI PROFIT CALCULATION");
     if (balances.isThereTooFewEthAndWethForSaleAndLending(balances.ethereum)) {
       logger.trace("NOT ENOUGH WETH AND ETH TO BUY DAI ON UNISWAP");
-      return;
+      return null;
     }
     try {
       Wad18 medianEthereumPrice = Medianizer.getPrice();
       EthToTokenSwapInput ethToTokenSwapInput = getBuyDaiParameters(balances, medianEthereumPrice);
-
-      if (ethToTokenSwapInput != null
-          && compoundDai.canOtherProfitMethodsWorkWithoutCDaiConversion(
-              balances, ethToTokenSwapInput.potentialProfit, medianEthereumPrice)) {
-        buyDaiTransaction(ethToTokenSwapInput, medianEthereumPrice, balances);
-      }
+      if (ethToTokenSwapInput == null) return null;
+      return () -> buyDai(ethToTokenSwapInput, medianEthereumPrice, balances);
     } catch (Exception e) {
       logger.error(EXCEPTION, e);
     }
+    return null;
+  }
+
+  private void buyDai(
+      @NotNull EthToTokenSwapInput ethToTokenSwapInput,
+      Wad18 medianEthereumPrice,
+      @NotNull Balances balances) {
+    if (!compoundDai.canOtherProfitMethodsWorkWithoutCDaiConversion(
+        balances, ethToTokenSwapInput.potentialProfit, medianEthereumPrice)) {
+      return;
+    }
+    Wad18 wethBalance = balances.weth.getAccount().getBalance();
+    if (wethBalance.compareTo(balances.ethereum.minimumEthereumReserveUpperLimit) > 0) {
+      logger.trace(PROFIT, ethToTokenSwapInput.potentialProfit);
+      weth.weth2Eth(
+          balances, ethToTokenSwapInput.potentialProfit, medianEthereumPrice, wethBalance);
+    }
+    // the unwrapping costs gas, so less ETH than expected may be left
+    Wad18 ethSold =
+        ethToTokenSwapInput.ethSold.min(
+            balances.ethereum.getBalanceWithoutMinimumEthereumReserveUpperLimit());
+    buyDaiTransaction(
+        new EthToTokenSwapInput(
+            ethToTokenSwapInput.minTokens,
+            ethToTokenSwapInput.deadline,
+            ethSold,
+            ethToTokenSwapInput.potentialProfit),
+        medianEthereumPrice,
+        balances);
   }
 
-  public void checkIfSellDaiIsProfitableThenDoIt(@NotNull Balances balances) {
+  /** @return the swap of DAI for ETH if it is profitable, otherwise null */
+  @Nullable
+  public Strategy.Execution evaluateSellDai(@NotNull Balances balances) {
     logger.trace("");
     logger.trace("UNISWAP SELL DAI PROFIT CALCULATION");
     if (balances.isThereTooFewDaiAndDaiInCompoundForSale()) {
       logger.trace("NOT ENOUGH DAI TO SELL DAI ON UNISWAP");
-      return;
+      return null;
     }
     try {
       Wad18 medianEthereumPrice = Medianizer.getPrice();
       TokenToEthSwapInput tokenToEthSwapInput = getSellDaiParameters(balances, medianEthereumPrice);
-      if (tokenToEthSwapInput != null
-          && compoundDai.canOtherProfitMethodsWorkWithoutCDaiConversion(
-              balances, tokenToEthSwapInput.potentialProfit, medianEthereumPrice)) {
-        sellDaiTransaction(tokenToEthSwapInput, medianEthereumPrice, balances);
-      }
+      if (tokenToEthSwapInput == null) return null;
+      return () -> {
+        // redeems the cDAI if selling is more profitable than lending
+        if (compoundDai.canOtherProfitMethodsWorkWithoutCDaiConversion(
+            balances, tokenToEthSwapInput.potentialProfit, medianEthereumPrice)) {
+          sellDaiTransaction(tokenToEthSwapInput, medianEthereumPrice, balances);
+        }
+      };
     } catch (Exception e) {
       logger.error(EXCEPTION, e);
     }
+    return null;
   }
 
+  /** @param tickStore records every quote, can be null */
+  public void setTickStore(TickStore tickStore) {
+    this.tickStore = tickStore;
+  }
+
+  private void recordTick(TickKind kind, Wad18 daiPerEth, Wad18 amount) {
+    if (tickStore != null) tickStore.tryAppend(kind, "UNISWAP", daiPerEth, amount);
+  }
+
+  /**
+   * Quotes BUY_DAI_SIZES sizes up to all ETH and WETH that can be sold. Because of the price impact
+   * a smaller size can be more profitable, the most profitable one is bought.
+   */
   EthToTokenSwapInput getBuyDaiParameters(@NotNull Balances balances, Wad18 medianEthereumPrice)
       throws Exception {
+    Wad18 ethToSell = balances.ethereum.getBalanceWithoutMinimumEthereumReserveUpperLimit();
     Wad18 wethBalance = balances.weth.getAccount().getBalance();
-    Wad18 ethToSell =
-        wethBalance.add(balances.ethereum.getBalanceWithoutMinimumEthereumReserveUpperLimit());
-    Wad18 buyableDaiAmount;
+    if (wethBalance.compareTo(balances.ethereum.minimumEthereumReserveUpperLimit) > 0) {
+      ethToSell = ethToSell.add(wethBalance); // unwrapped before the swap
+    }
+    if (ethToSell.compareTo(Wad18.ZERO) <= 0) return null;
+    WadVector sizes = WadVector.fractions(ethToSell, BUY_DAI_SIZES);
+    WadVector buyableDaiAmounts;
     try {
-      buyableDaiAmount =
-          new Wad18(this.uniswapContract.getEthToTokenInputPrice(ethToSell.toBigInteger()).send());
+      buyableDaiAmounts = quoteBuyDai(sizes);
     } catch (Exception e) {
       logger.error(EXCEPTION, e);
       return null;
     }
+    Wad18 buyableDaiAmount = buyableDaiAmounts.get(BUY_DAI_SIZES - 1);
+    if (tickStore != null)
+      recordTick(TickKind.UNISWAP_BUY_DAI, buyableDaiAmount.divide(ethToSell), ethToSell);
+    double percentageOfProfitAsFee =
+        gasProvider.getPercentageOfProfitAsFee(
+            gasProvider.getFailedTransactionsWithinTheLastTwelveHours());
+    int bestSize =
+        getBestBuyDaiSize(buyableDaiAmounts, sizes, medianEthereumPrice, percentageOfProfitAsFee);
+    if (bestSize == -1) return null;
     UniswapOffer offer =
         getProfitableBuyDaiOffer(
-            buyableDaiAmount,
-            ethToSell,
+            buyableDaiAmounts.get(bestSize),
+            sizes.get(bestSize),
             balances,
             medianEthereumPrice,
-            gasProvider.getPercentageOfProfitAsFee(
-                gasProvider.getFailedTransactionsWithinTheLastTwelveHoursForGasPriceArrayList()));
+            percentageOfProfitAsFee);
     if (offer.buyableAmount.compareTo(Wad18.ZERO) != 0) {
-      return calculateBuyDaiParameters(medianEthereumPrice, offer, balances);
+      return calculateBuyDaiParameters(medianEthereumPrice, offer, sizes.get(bestSize));
     }
     return null;
   }
 
+  /** @return the DAI bought with every element of ethToSell, the quotes are requested together */
+  private WadVector quoteBuyDai(@NotNull WadVector ethToSell) throws Exception {
+    List<CompletableFuture<BigInteger>> quotes = new ArrayList<>(ethToSell.size());
+    for (int i = 0; i < ethToSell.size(); i++) {
+      quotes.add(
+          uniswapContract.getEthToTokenInputPrice(ethToSell.get(i).toBigInteger()).sendAsync());
+    }
+    WadVector buyableDaiAmounts = new WadVector(ethToSell.size());
+    for (int i = 0; i < quotes.size(); i++) {
+      buyableDaiAmounts.set(i, new Wad18(quotes.get(i).get()));
+    }
+    return buyableDaiAmounts;
+  }
+
   TokenToEthSwapInput getSellDaiParameters(@NotNull Balances balances, Wad18 medianEthereumPrice)
       throws IOException {
     Wad18 daiToSell = balances.getMaxDaiToSell(); // TODO: test this line
@@ -148,7 +236,7 @@ public class Uniswap implements AddressMethod {
             balances,
             medianEthereumPrice,
             gasProvider.getPercentageOfProfitAsFee(
-                gasProvider.getFailedTransactionsWithinTheLastTwelveHoursForGasPriceArrayList()));
+                gasProvider.getFailedTransactionsWithinTheLastTwelveHours()));
     if (offer.buyableAmount.compareTo(Wad18.ZERO) != 0) {
       return calculateSellDaiParameters(medianEthereumPrice, daiToSell, offer);
     }
@@ -157,8 +245,7 @@ public class Uniswap implements AddressMethod {
 
   @NotNull
   private EthToTokenSwapInput calculateBuyDaiParameters(
-      Wad18 medianEthereumPrice, UniswapOffer offer, @NotNull Balances balances)
-      throws IOException {
+      Wad18 medianEthereumPrice, UniswapOffer offer, Wad18 ethSold) throws IOException {
     long currentUnixTimePlusFiveMinutes = System.currentTimeMillis() / 1000L + 300L;
     logger.info("UNISWAP BUY DAI PROFIT CALCULATION");
     logger.trace("ALTERNATIVE DEADLINE {}", currentUnixTimePlusFiveMinutes);
@@ -171,23 +258,10 @@ public class Uniswap implements AddressMethod {
                 .getBlock()
                 .getTimestamp()
                 .add(BigInteger.valueOf(300)));
-    Wad18 wethBalance = balances.weth.getAccount().getBalance();
-    if (wethBalance.compareTo(
-            balances
-                .ethereum
-                .minimumEthereumReserveUpperLimit) // TODO: move this line up in the method
-        // hierarchy
-        // hierarchy
-        > 0) { // TODO: check this line
-      logger.trace(PROFIT, offer.profit);
-      weth.weth2Eth(
-          balances, offer.profit, medianEthereumPrice, balances.weth.getAccount().getBalance());
-    }
     Wad18 profitWillingToGiveUp =
         offer.profit.multiply(new Wad18(getMachineReadable(buyProfitPercentage)));
     Wad18 actualProfitInUSD = offer.profit.subtract(profitWillingToGiveUp);
     Wad18 minTokens = offer.buyableAmount.subtract(profitWillingToGiveUp);
-    Wad18 ethSold = balances.ethereum.getBalanceWithoutMinimumEthereumReserveUpperLimit();
 
     // https://stackoverflow.com/questions/39506891/why-is-zoneoffset-utc-zoneid-ofutc
     String timeZone = TimeZone.getDefault().getID();
@@ -200,7 +274,7 @@ public class Uniswap implements AddressMethod {
     logger.trace("ETH SOLD {}", ethSold);
     logger.trace("MIN TOKENS {}", minTokens);
     logger.trace("DEADLINE {}", formattedDeadline);
-    logger.trace(PROFIT, actualProfitInUSD.toString(5));
+    logger.trace(PROFIT, lazy(actualProfitInUSD, 5));
     return new EthToTokenSwapInput(minTokens, deadline, ethSold, actualProfitInUSD);
   }
 
@@ -218,10 +292,10 @@ public class Uniswap implements AddressMethod {
                 .getTimestamp()
                 .add(BigInteger.valueOf(300)));
     Wad18 profitWillingToGiveUp =
-        offer
-            .profit
+        new MutableWad18(offer.profit)
             .multiply(new Wad18(getMachineReadable(sellProfitPercentage)))
-            .divide(daiToSell.divide(offer.buyableAmount));
+            .divide(daiToSell.divide(offer.buyableAmount))
+            .toWad18();
     Wad18 actualProfitInUSD =
         offer.profit.subtract(profitWillingToGiveUp.multiply(medianEthereumPrice));
     Wad18 minEth = offer.buyableAmount.subtract(profitWillingToGiveUp);
@@ -235,7 +309,7 @@ public class Uniswap implements AddressMethod {
     logger.info("TOKEN SOLD {}", minEth);
     logger.info("MIN ETH {}", minEth);
     logger.info("DEADLINE {}", formatedDeadline);
-    logger.info(PROFIT, actualProfitInUSD.toString(5));
+    logger.info(PROFIT, lazy(actualProfitInUSD, 5));
     return new TokenToEthSwapInput(minEth, deadline, daiToSell, actualProfitInUSD);
   }
 
@@ -249,7 +323,7 @@ public class Uniswap implements AddressMethod {
     logger.trace("BUYABLE DAI AMOUNT {} DAI", buyableDaiAmount);
 
     Wad18 uniswapBuyDaiPrice = buyableDaiAmount.divide(ethToSell);
-    logger.trace("DAI PER ETH {}{}", uniswapBuyDaiPrice.toString(5), " ETH/DAI");
+    logger.trace("DAI PER ETH {}{}", lazy(uniswapBuyDaiPrice, 5), " ETH/DAI");
 
     Wad18 bestOfferMedianRatio = medianEthereumPrice.divide(uniswapBuyDaiPrice);
     logger.trace("MEDIAN-OFFER RATIO {}", bestOfferMedianRatio);
@@ -258,13 +332,37 @@ public class Uniswap implements AddressMethod {
     // BigDecimal(buyableDaiAmount).subtract(multiply(medianEthereumPrice, new
     // BigDecimal(ethToSell))); // without transaction costs
     Wad18 potentialProfit =
-        getPotentialProfit(bestOfferMedianRatio, buyableDaiAmount, percentageOfProfitAsFee);
+        screenPotentialProfit(
+            bestOfferMedianRatio,
+            buyableDaiAmount,
+            percentageOfProfitAsFee,
+            balances.getMinimumTradeProfitBuyDai());
 
     if (potentialProfit.compareTo(balances.getMinimumTradeProfitBuyDai()) > 0)
       return new UniswapOffer(buyableDaiAmount, potentialProfit);
     return new UniswapOffer(Wad18.ZERO, Wad18.ZERO);
   }
 
+  /**
+   * Batch version for candidate trade sizes, element i of buyableDaiAmounts is the quote for
+   * element i of ethToSell. Because of the price impact every size has its own ratio.
+   *
+   * @return index of the most profitable size, whether it is profitable enough is checked by
+   *     {@link #getProfitableBuyDaiOffer(Wad18, Wad18, Balances, Wad18, double)}
+   */
+  static int getBestBuyDaiSize(
+      @NotNull WadVector buyableDaiAmounts,
+      @NotNull WadVector ethToSell,
+      Wad18 medianEthereumPrice,
+      double percentageOfProfitAsFee) {
+    WadVector bestOfferMedianRatios =
+        new WadVector(ethToSell.size(), medianEthereumPrice)
+            .divide(new WadVector(buyableDaiAmounts).divide(ethToSell));
+    int bestSize = getBestSize(bestOfferMedianRatios, buyableDaiAmounts, percentageOfProfitAsFee);
+    if (bestSize != -1) logger.trace("BEST SIZE {} ETH", ethToSell.get(bestSize));
+    return bestSize;
+  }
+
   @NotNull
   UniswapOffer getProfitableSellDaiOffer(
       Wad18 daiToSell,
@@ -277,13 +375,18 @@ public class Uniswap implements AddressMethod {
       logger.info("BUYABLE ETH AMOUNT {} ETH", buyableEthAmount);
 
       Wad18 ethDaiRatio = daiToSell.divide(buyableEthAmount);
-      logger.info("OFFER ETH PRICE {} ETH/DAI", ethDaiRatio.toString(5));
+      logger.info("OFFER ETH PRICE {} ETH/DAI", lazy(ethDaiRatio, 5));
+      recordTick(TickKind.UNISWAP_SELL_DAI, ethDaiRatio, daiToSell);
 
       Wad18 bestOfferMedianRatio = ethDaiRatio.divide(medianEthereumPrice);
-      logger.info("OFFER-MEDIAN RATIO {}", bestOfferMedianRatio.toString(5));
+      logger.info("OFFER-MEDIAN RATIO {}", lazy(bestOfferMedianRatio, 5));
 
       Wad18 potentialProfit =
-          getPotentialProfit(bestOfferMedianRatio, daiToSell, percentageOfProfitAsFee);
+          screenPotentialProfit(
+              bestOfferMedianRatio,
+              daiToSell,
+              percentageOfProfitAsFee,
+              balances.getMinimumTradeProfitSellDai());
 
       if (potentialProfit.compareTo(balances.getMinimumTradeProfitSellDai()) > 0)
         return new UniswapOffer(buyableEthAmount, potentialProfit);
@@ -297,17 +400,25 @@ public class Uniswap implements AddressMethod {
 
   private void buyDaiTransaction(
       EthToTokenSwapInput ethToTokenSwapInput, Wad18 medianEthereumPrice, Balances balances) {
+    RemoteFunctionCall<TransactionReceipt> swap =
+        this.uniswapContract.ethToTokenSwapInput(
+            ethToTokenSwapInput.minTokens.toBigInteger(),
+            ethToTokenSwapInput.deadline.toBigInteger(),
+            ethToTokenSwapInput.ethSold.toBigInteger());
+    gasProvider.estimateGasLimit(
+        UniswapContract.FUNC_ETHTOTOKENSWAPINPUT,
+        credentials.getAddress(),
+        ADDRESS,
+        swap.encodeFunctionCall(),
+        ethToTokenSwapInput.ethSold.toBigInteger());
     if (permissions.check("UNISWAP BUY DAI")) {
       try {
         this.gasProvider.updateFastGasPrice(
-            medianEthereumPrice, ethToTokenSwapInput.potentialProfit);
-        TransactionReceipt transferReceipt =
-            this.uniswapContract
-                .ethToTokenSwapInput(
-                    ethToTokenSwapInput.minTokens.toBigInteger(),
-                    ethToTokenSwapInput.deadline.toBigInteger(),
-                    ethToTokenSwapInput.ethSold.toBigInteger())
-                .send();
+            UniswapContract.FUNC_ETHTOTOKENSWAPINPUT,
+            medianEthereumPrice,
+            ethToTokenSwapInput.potentialProfit);
+        TransactionReceipt transferReceipt = swap.send();
+        gasProvider.recordGasUsed(UniswapContract.FUNC_ETHTOTOKENSWAPINPUT, transferReceipt);
         TimeUnit.SECONDS.sleep(
             1); // for Balances to update, otherwise same (buy/sell) type of transaction happens,
         // although not enough balance weth/dai
@@ -341,17 +452,25 @@ public class Uniswap implements AddressMethod {
 
   private void sellDaiTransaction(
       TokenToEthSwapInput tokenToEthSwapInput, Wad18 medianEthereumPrice, Balances balances) {
+    RemoteFunctionCall<TransactionReceipt> swap =
+        this.uniswapContract.tokenToEthSwapInput(
+            tokenToEthSwapInput.tokenSold.toBigInteger(),
+            tokenToEthSwapInput.minEth.toBigInteger(),
+            tokenToEthSwapInput.deadline.toBigInteger());
+    gasProvider.estimateGasLimit(
+        UniswapContract.FUNC_TOKENTOETHSWAPINPUT,
+        credentials.getAddress(),
+        ADDRESS,
+        swap.encodeFunctionCall(),
+        BigInteger.ZERO);
     if (permissions.check("UNISWAP SELL DAI")) {
       try {
         this.gasProvider.updateFastGasPrice(
-            medianEthereumPrice, tokenToEthSwapInput.potentialProfit);
-        TransactionReceipt transferReceipt =
-            this.uniswapContract
-                .tokenToEthSwapInput(
-                    tokenToEthSwapInput.tokenSold.toBigInteger(),
-                    tokenToEthSwapInput.minEth.toBigInteger(),
-                    tokenToEthSwapInput.deadline.toBigInteger())
-                .send();
+            UniswapContract.FUNC_TOKENTOETHSWAPINPUT,
+            medianEthereumPrice,
+            tokenToEthSwapInput.potentialProfit);
+        TransactionReceipt transferReceipt = swap.send();
+        gasProvider.recordGasUsed(UniswapContract.FUNC_TOKENTOETHSWAPINPUT, transferReceipt);
         TimeUnit.SECONDS.sleep(
             1); // for Balances to update, otherwise same (buy/sell) type of transaction happens,
         // although not enough balance weth/dai
@@ -4,6 +4,7 @@ import peggy42.cn.compounddai.CompoundDai;
 import peggy42.cn.dai.Dai;
 import peggy42.cn.medianizer.MedianException;
 import peggy42.cn.medianizer.Medianizer;
+import peggy42.cn.numberutil.MutableWad18;
 import peggy42.cn.numberutil.Wad18;
 import peggy42.cn.weth.Weth;
 import org.jetbrains.annotations.NotNull;
@@ -12,13 +13,19 @@ import org.slf4j.LoggerFactory;
 import java.lang.invoke.MethodHandles;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static peggy42.cn.Main.shutdown;
-import static peggy42.cn.numberutil.NumberUtil.getMachineReadable;
+import static peggy42.cn.numberutil.DecimalFormatter.lazy;
 
 public class Balances {
   private static final org.slf4j.Logger logger =
           LoggerFactory.getLogger(MethodHandles.lookup().lookupClass().getSimpleName());
+  private static final Wad18 MINIMUM_TRADE_PROFIT = Wad18.of("1.0");
+  private static final Wad18 MINIMUM_TRADE_PROFIT_BUY_DAI_SHARE = Wad18.of("0.00025");
+  private static final Wad18 MINIMUM_TRADE_PROFIT_SELL_DAI_SHARE = Wad18.of("0.0025");
+  private static final Wad18 BIG_LOSS_SHARE = Wad18.of("0.5");
 
   // contracts
   public final Dai dai;
@@ -40,12 +47,13 @@ public class Balances {
   private long pastTimeBalances;
 
   // lend dai
-  private long lastSuccessfulTransaction;
+  private volatile long lastSuccessfulTransaction;
 
   // current ownership ratio
   private double totalEthRatio;
   private double totalDaiRatio;
   private long pastTime;
+  private final List<Runnable> balanceListeners = new CopyOnWriteArrayList<>();
 
   public Balances(Dai dai, Weth weth, CompoundDai compoundDai, Ethereum ethereum) {
     usd = Wad18.ZERO;
@@ -55,9 +63,9 @@ public class Balances {
     totalDaiRatio = 0.0;
     totalEthRatio = 0.0;
 
-    minimumTradeProfit = new Wad18(getMachineReadable(1.0));
-    minimumTradeProfitBuyDai = new Wad18(getMachineReadable(1.0));
-    minimumTradeProfitSellDai = new Wad18(getMachineReadable(1.0));
+    minimumTradeProfit = MINIMUM_TRADE_PROFIT;
+    minimumTradeProfitBuyDai = MINIMUM_TRADE_PROFIT;
+    minimumTradeProfitSellDai = MINIMUM_TRADE_PROFIT;
 
     initialTotalUSD = Wad18.ZERO;
     initialTotalUSDCounter = 0;
@@ -77,6 +85,11 @@ public class Balances {
     return bd.doubleValue();
   }
 
+  /** listener runs after every update of the balances */
+  public void addBalanceListener(@NotNull Runnable listener) {
+    balanceListeners.add(listener);
+  }
+
   public void updateBalanceInformation(Wad18 medianEthereumPrice) {
     try {
       ethereum.updateBalance();
@@ -90,11 +103,12 @@ public class Balances {
       Wad18 ethBalance = ethereum.getBalance();
 
       usd =
-          ethBalance
+          new MutableWad18(ethBalance)
               .multiply(medianEthereumPrice)
-              .add(wethBalance.multiply(medianEthereumPrice))
+              .add(new MutableWad18(wethBalance).multiply(medianEthereumPrice))
               .add(daiBalance)
-              .add(cdaiBalance);
+              .add(cdaiBalance)
+              .toWad18();
 
       // Gets executed just once at the beginning. Initializes initialTotalUSD.
       if (initialTotalUSDCounter == 0) {
@@ -109,22 +123,22 @@ public class Balances {
       if (usd.subtract(initialTotalUSD).compareTo(Wad18.ZERO) != 0)
         logger.trace("TOTAL P&L DURING EXECUTION {}{}", usd.subtract(initialTotalUSD), " USD");
       if (usd.compareTo(Wad18.ZERO) != 0)
-        logger.trace("TOTAL IN USD {}{}", usd.toString(2), " USD");
+        logger.trace("TOTAL IN USD {}{}", lazy(usd, 2), " USD");
 
-      minimumTradeProfitBuyDai = usd.multiply(new Wad18(getMachineReadable(0.00025)));
+      minimumTradeProfitBuyDai = usd.multiply(MINIMUM_TRADE_PROFIT_BUY_DAI_SHARE);
       logger.trace(
-          "MINIMUM TRADE PROFIT BUY DAI {}{}", minimumTradeProfitBuyDai.toString(2), " DAI");
+          "MINIMUM TRADE PROFIT BUY DAI {}{}", lazy(minimumTradeProfitBuyDai, 2), " DAI");
 
-      minimumTradeProfitSellDai = usd.multiply(new Wad18(getMachineReadable(0.0025)));
+      minimumTradeProfitSellDai = usd.multiply(MINIMUM_TRADE_PROFIT_SELL_DAI_SHARE);
       logger.trace(
-          "MINIMUM TRADE PROFIT SELL DAI {}{}", minimumTradeProfitSellDai.toString(2), " DAI");
+          "MINIMUM TRADE PROFIT SELL DAI {}{}", lazy(minimumTradeProfitSellDai, 2), " DAI");
 
       // Checks if the bot made a big loss.
       // For some reason the DAI balance can be wrongly zero instead of the actual value. This means
       // that this If condition can be wrongly true.
       // If the DAI balance gets wrongly updated, the bot will do nothing for 60 secs until the next
       // update.
-      if (usd.compareTo(initialTotalUSD.multiply(new Wad18(getMachineReadable(0.5)))) < 1) {
+      if (usd.compareTo(initialTotalUSD.multiply(BIG_LOSS_SHARE)) < 1) {
         logger.warn("USD BALANCE MIGHT BE ZERO EXCEPTION");
         updateBalanceInformation(Medianizer.getPrice());
       }
@@ -134,6 +148,7 @@ public class Balances {
           // negative???
           round(
               currentOwnershipRatio(medianEthereumPrice, ethBalance, daiBalance, wethBalance), 2));
+      balanceListeners.forEach(Runnable::run);
 
     } catch (Exception e) {
       logger.error("Exception", e);
@@ -155,11 +170,19 @@ public class Balances {
     pastTime = System.currentTimeMillis();
 
     totalDaiRatio +=
-            timeDifference * (daiBalance.add(compoundDai.getBalanceInDai())).divide(usd).doubleValue();
+            timeDifference
+                    * new MutableWad18(daiBalance)
+                    .add(compoundDai.getBalanceInDai())
+                    .divide(usd)
+                    .doubleValue();
 
     totalEthRatio +=
             timeDifference
-                    * (ethBalance.add(wethBalance).multiply(medianEthereumPrice)).divide(usd).doubleValue();
+                    * new MutableWad18(ethBalance)
+                    .add(wethBalance)
+                    .multiply(medianEthereumPrice)
+                    .divide(usd)
+                    .doubleValue();
 
     if (totalDaiRatio == 0.0) return 0.0;
     return Math.round(totalDaiRatio / (totalEthRatio + totalDaiRatio) * 10000.0) / 100.0;
@@ -0,0 +1,78 @@
+package peggy42.cn.util;
+
+import peggy42.cn.numberutil.Wad18;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+/**
+ * One HttpClient for all REST feeds. It keeps connections alive between requests and uses HTTP/2
+ * where the server supports it, so a refresh does not pay for a new TCP and TLS handshake.
+ */
+public final class HttpUtil {
+  private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(2);
+  private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(3);
+  private static final String USER_AGENT =
+      "Mozilla/5.0 (Macintosh; U; Intel Mac OS X 10.4; en-US; rv:1.9.2.2) "
+          + "Gecko/20100316 Firefox/3.6.2";
+  private static final HttpClient httpClient =
+      HttpClient.newBuilder()
+          .version(HttpClient.Version.HTTP_2)
+          .connectTimeout(CONNECT_TIMEOUT)
+          .followRedirects(HttpClient.Redirect.NORMAL)
+          .executor(
+              Executors.newCachedThreadPool(
+                  runnable -> {
+                    Thread thread = new Thread(runnable, "http-client");
+                    thread.setDaemon(true);
+                    return thread;
+                  }))
+          .build();
+
+  private HttpUtil() {
+    throw new IllegalStateException("Utility class");
+  }
+
+  public static HttpClient getHttpClient() {
+    return httpClient;
+  }
+
+  /**
+   * GET request whose body is streamed into jsonPath.
+   *
+   * @return the numbers of jsonPath times 10^decimals
+   * @throws IOException if the request fails, the status is not 2xx or a path is missing
+   */
+  public static Wad18[] getJson(@NotNull URI uri, @NotNull JsonPath jsonPath, int decimals)
+      throws IOException {
+    HttpRequest request =
+        HttpRequest.newBuilder(uri)
+            .timeout(REQUEST_TIMEOUT)
+            .header("User-Agent", USER_AGENT)
+            .header("Accept", "application/json")
+            .GET()
+            .build();
+    HttpResponse<InputStream> response;
+    try {
+      response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Request to " + uri.getHost() + " was interrupted", e);
+    }
+    try (InputStream body = response.body()) {
+      if (response.statusCode() / 100 != 2)
+        throw new IOException(uri.getHost() + " responded with status " + response.statusCode());
+      Wad18[] values = jsonPath.read(body, decimals);
+      // an HTTP/1.1 connection is only reused if the whole body was read
+      body.skip(Long.MAX_VALUE);
+      return values;
+    }
+  }
+}
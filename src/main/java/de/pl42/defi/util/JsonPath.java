@@ -0,0 +1,267 @@
+package peggy42.cn.util;
+
+import peggy42.cn.numberutil.DecimalParser;
+import peggy42.cn.numberutil.Wad18;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Numbers at key paths of a JSON document, e.g. "result.XETHZUSD.a[0]" for the ask of a Kraken
+ * ticker or "fastest" for ETHGasStation. The document is read from a stream through a pooled
+ * buffer without building Strings, numbers are parsed straight from the bytes by {@link
+ * DecimalParser}, and reading stops as soon as all paths were found. The order of the keys in the
+ * document does not matter.
+ *
+ * <p>Instances are immutable and can be shared between threads.
+ */
+public final class JsonPath {
+  private static final int MAX_DEPTH = 64;
+  private static final int BUFFER_SIZE = 8 * 1024;
+  private static final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+
+  private final String[] paths;
+  // per path one element per level, either the UTF-8 bytes of a key or an Integer array index
+  private final Object[][] segments;
+
+  private JsonPath(String[] paths, Object[][] segments) {
+    this.paths = paths;
+    this.segments = segments;
+  }
+
+  /**
+   * @param paths keys separated by '.' with array indexes in brackets, e.g. "data.amount" or
+   *     "result.XETHZUSD.b[0]"
+   */
+  public static JsonPath compile(@NotNull String... paths) {
+    if (paths.length == 0) throw new IllegalArgumentException("Argument 'paths' is empty");
+    Object[][] segments = new Object[paths.length][];
+    for (int i = 0; i < paths.length; i++) segments[i] = compilePath(paths[i]);
+    return new JsonPath(paths.clone(), segments);
+  }
+
+  private static Object[] compilePath(String path) {
+    Object[] segments = new Object[MAX_DEPTH];
+    int count = 0;
+    for (String key : path.split("\\.", -1)) {
+      int bracket = key.indexOf('[');
+      String name = bracket == -1 ? key : key.substring(0, bracket);
+      if (name.isEmpty() && bracket != 0)
+        throw new IllegalArgumentException("Argument 'paths' has an empty key: " + path);
+      if (!name.isEmpty()) segments[count++] = name.getBytes(StandardCharsets.UTF_8);
+      while (bracket != -1) {
+        int close = key.indexOf(']', bracket);
+        if (close == -1) throw new IllegalArgumentException("Argument 'paths' has no ']': " + path);
+        segments[count++] = Integer.parseInt(key.substring(bracket + 1, close).trim());
+        bracket = key.indexOf('[', close);
+      }
+    }
+    return Arrays.copyOf(segments, count);
+  }
+
+  public int size() {
+    return paths.length;
+  }
+
+  /**
+   * Reads the numbers of all paths, quoted numbers like "251.29" included. Does not close input.
+   *
+   * @param decimals between 0 and 18, e.g. 9 for a gas price in GWEI
+   * @return the numbers times 10^decimals, in the order of the paths
+   * @throws IOException if input is not JSON or a path does not exist or is not a number
+   */
+  public Wad18[] read(@NotNull InputStream input, int decimals) throws IOException {
+    Reader reader = new Reader(input, buffers.get(), decimals);
+    try {
+      reader.value(0);
+    } catch (NumberFormatException e) {
+      throw new IOException("JSON number is invalid: " + e.getMessage(), e);
+    }
+    for (int i = 0; i < paths.length; i++) {
+      if (reader.values[i] == null) throw new IOException("JSON has no number at " + paths[i]);
+    }
+    return reader.values;
+  }
+
+  private static boolean isWhitespace(int c) {
+    return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+  }
+
+  private static final class Buffers {
+    private final byte[] input = new byte[BUFFER_SIZE];
+    private byte[] token = new byte[64];
+  }
+
+  /** Recursive descent parser that only keeps the values of the paths */
+  private final class Reader {
+    private final InputStream input;
+    private final Buffers buffers;
+    private final int decimals;
+    // number of leading segments of each path that match the current position
+    private final int[] matchedDepths = new int[segments.length];
+    private final Wad18[] values = new Wad18[segments.length];
+    private int missing = segments.length;
+    private int tokenLength;
+    private int position;
+    private int limit;
+
+    private Reader(InputStream input, Buffers buffers, int decimals) {
+      this.input = input;
+      this.buffers = buffers;
+      this.decimals = decimals;
+    }
+
+    /** @return true as soon as all paths were found */
+    private boolean value(int depth) throws IOException {
+      if (depth > MAX_DEPTH) throw new IOException("JSON is nested too deeply");
+      int c = nextNonWhitespace();
+      if (c == '{') return object(depth);
+      if (c == '[') return array(depth);
+      boolean target = isTarget(depth);
+      if (c == '"') {
+        readString(target);
+      } else {
+        readLiteral(c, target);
+      }
+      return target && found(depth);
+    }
+
+    private boolean object(int depth) throws IOException {
+      int c = nextNonWhitespace();
+      if (c == '}') return false;
+      while (true) {
+        if (c != '"') throw syntaxError(c);
+        readString(true);
+        matchKey(depth);
+        c = nextNonWhitespace();
+        if (c != ':') throw syntaxError(c);
+        if (value(depth + 1)) return true;
+        c = nextNonWhitespace();
+        if (c == '}') return false;
+        if (c != ',') throw syntaxError(c);
+        c = nextNonWhitespace();
+      }
+    }
+
+    private boolean array(int depth) throws IOException {
+      int c = nextNonWhitespace();
+      if (c == ']') return false;
+      if (c == -1) throw syntaxError(c);
+      position--;
+      for (int index = 0; ; index++) {
+        matchIndex(depth, index);
+        if (value(depth + 1)) return true;
+        c = nextNonWhitespace();
+        if (c == ']') return false;
+        if (c != ',') throw syntaxError(c);
+      }
+    }
+
+    private void matchKey(int depth) {
+      byte[] token = buffers.token;
+      for (int i = 0; i < segments.length; i++) {
+        if (matchedDepths[i] < depth) continue;
+        Object[] path = segments[i];
+        boolean match =
+            depth < path.length
+                && path[depth] instanceof byte[]
+                && Arrays.equals(
+                    (byte[]) path[depth], 0, ((byte[]) path[depth]).length, token, 0, tokenLength);
+        matchedDepths[i] = match ? depth + 1 : depth;
+      }
+    }
+
+    private void matchIndex(int depth, int index) {
+      for (int i = 0; i < segments.length; i++) {
+        if (matchedDepths[i] < depth) continue;
+        Object[] path = segments[i];
+        boolean match =
+            depth < path.length
+                && path[depth] instanceof Integer
+                && (Integer) path[depth] == index;
+        matchedDepths[i] = match ? depth + 1 : depth;
+      }
+    }
+
+    private boolean isTarget(int depth) {
+      for (int i = 0; i < segments.length; i++) {
+        if (segments[i].length == depth && matchedDepths[i] == depth && values[i] == null)
+          return true;
+      }
+      return false;
+    }
+
+    /** Stores the token as value of all paths at the current position */
+    private boolean found(int depth) {
+      Wad18 value = DecimalParser.parse(buffers.token, 0, tokenLength, decimals);
+      for (int i = 0; i < segments.length; i++) {
+        if (segments[i].length == depth && matchedDepths[i] == depth && values[i] == null) {
+          values[i] = value;
+          missing--;
+        }
+      }
+      return missing == 0;
+    }
+
+    /** Reads a string after its opening quote, escape sequences are kept as they are */
+    private void readString(boolean keep) throws IOException {
+      tokenLength = 0;
+      boolean escaped = false;
+      while (true) {
+        int c = next();
+        if (c == -1) throw new IOException("JSON ended inside a string");
+        if (c == '"' && !escaped) return;
+        escaped = c == '\\' && !escaped;
+        if (keep) append(c);
+      }
+    }
+
+    /** Reads a number, true, false or null */
+    private void readLiteral(int first, boolean keep) throws IOException {
+      if (first == -1) throw new IOException("JSON ended unexpectedly");
+      tokenLength = 0;
+      if (keep) append(first);
+      while (true) {
+        int c = next();
+        if (c == -1) return;
+        if (c == ',' || c == '}' || c == ']' || isWhitespace(c)) {
+          position--;
+          return;
+        }
+        if (keep) append(c);
+      }
+    }
+
+    private void append(int c) {
+      if (tokenLength == buffers.token.length)
+        buffers.token = Arrays.copyOf(buffers.token, 2 * tokenLength);
+      buffers.token[tokenLength++] = (byte) c;
+    }
+
+    private int next() throws IOException {
+      if (position == limit) {
+        limit = input.read(buffers.input, 0, buffers.input.length);
+        position = 0;
+        if (limit <= 0) {
+          limit = 0;
+          return -1;
+        }
+      }
+      return buffers.input[position++] & 0xFF;
+    }
+
+    private int nextNonWhitespace() throws IOException {
+      int c = next();
+      while (isWhitespace(c)) c = next();
+      return c;
+    }
+
+    private IOException syntaxError(int c) {
+      if (c == -1) return new IOException("JSON ended unexpectedly");
+      return new IOException("JSON has an unexpected '" + (char) c + "'");
+    }
+  }
+}
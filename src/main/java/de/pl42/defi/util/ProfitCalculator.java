@@ -1,16 +1,37 @@
 package peggy42.cn.util;
 
+import peggy42.cn.numberutil.MutableWad18;
 import peggy42.cn.numberutil.Wad18;
+import peggy42.cn.numberutil.WadVector;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.LoggerFactory;
 
 import java.lang.invoke.MethodHandles;
+import java.util.concurrent.atomic.LongAdder;
 
+import static peggy42.cn.numberutil.DecimalFormatter.lazy;
 import static peggy42.cn.numberutil.NumberUtil.getMachineReadable;
 
 public class ProfitCalculator {
   private static final org.slf4j.Logger logger =
       LoggerFactory.getLogger(MethodHandles.lookup().lookupClass().getSimpleName());
+  private static final Wad18 ONE = Wad18.of("1.0");
+  private static final Wad18 MINIMUM_TRANSACTION_COSTS = Wad18.of("0.50");
+  private static final double WAD = 1e18;
+  private static final double DOUBLE_MINIMUM_TRANSACTION_COSTS = 0.5;
+  // 2^-53 is the unit roundoff of double, 16 of them cover the 7 rounded operations of the estimate
+  private static final double RELATIVE_ERROR = 16 * 0x1p-53;
+  // the exact path rounds down to wei three times
+  private static final double ABSOLUTE_ERROR = 1e-17;
+  private static final LongAdder screenRejects = new LongAdder();
+  private static final LongAdder exactRejects = new LongAdder();
+  // strategies evaluate concurrently, so every thread reuses its own accumulators
+  private static final ThreadLocal<MutableWad18> profitAccumulator =
+      ThreadLocal.withInitial(MutableWad18::new);
+  private static final ThreadLocal<MutableWad18> costAccumulator =
+      ThreadLocal.withInitial(MutableWad18::new);
+  // the fee rarely changes, the last one is converted once and shared as an immutable pair
+  private static volatile FeeFactor feeFactor = new FeeFactor(0.0);
 
   private ProfitCalculator() {
     throw new IllegalStateException("Utility class");
@@ -21,23 +42,136 @@ public class ProfitCalculator {
   // tokentoethswapinput
   public static Wad18 getPotentialProfit(
       Wad18 bestOfferMedianRatio, Wad18 toSellInDAI, double percentageOfProfitAsFee) {
-    Wad18 potentialProfitBeforeCosts =
-        new Wad18(getMachineReadable(1.0)).subtract(bestOfferMedianRatio).multiply(toSellInDAI);
-    logger.trace(
-        "POTENTIAL PROFIT BEFORE COSTS {}{}", potentialProfitBeforeCosts.toString(5), " DAI");
-    Wad18 maxTransactionCosts =
-        new Wad18(getMachineReadable(0.50))
-            .max(
-                potentialProfitBeforeCosts.multiply(
-                    new Wad18(getMachineReadable(percentageOfProfitAsFee))));
-    Wad18 potentialProfitAfterCosts = potentialProfitBeforeCosts.subtract(maxTransactionCosts);
-
-    if (potentialProfitAfterCosts.compareTo(Wad18.ZERO) > 0) {
-      logger.trace("POTENTIAL PROFIT +{}{}", potentialProfitAfterCosts.toString(2), " DAI");
-    } else {
-      logger.trace("POTENTIAL PROFIT {}{}", potentialProfitAfterCosts.toString(2), " DAI");
+    MutableWad18 potentialProfit =
+        profitAccumulator.get().set(ONE).subtract(bestOfferMedianRatio).multiply(toSellInDAI);
+    if (logger.isTraceEnabled())
+      logger.trace("POTENTIAL PROFIT BEFORE COSTS {}{}", lazy(potentialProfit, 5), " DAI");
+    MutableWad18 maxTransactionCosts =
+        costAccumulator
+            .get()
+            .set(potentialProfit)
+            .multiply(getFeeFactor(percentageOfProfitAsFee))
+            .max(MINIMUM_TRANSACTION_COSTS);
+    potentialProfit.subtract(maxTransactionCosts);
+
+    if (logger.isTraceEnabled()) {
+      if (potentialProfit.compareTo(Wad18.ZERO) > 0) {
+        logger.trace("POTENTIAL PROFIT +{}{}", lazy(potentialProfit, 2), " DAI");
+      } else {
+        logger.trace("POTENTIAL PROFIT {}{}", lazy(potentialProfit, 2), " DAI");
+      }
+    }
+
+    return potentialProfit.toWad18();
+  }
+
+  /**
+   * Two-stage version of {@link #getPotentialProfit(Wad18, Wad18, double)} for a profitability
+   * check. A double estimate of the profit is compared with minimumProfit first and only
+   * candidates that are within its error bound of minimumProfit or above are calculated exactly.
+   *
+   * <p>Every intermediate value of the estimate is bounded by (1 + |ratio|) * |size| * (1 + |fee|),
+   * so the rounding errors of the conversions and operations sum up to at most RELATIVE_ERROR
+   * times this bound. The truncations of the exact path add at most ABSOLUTE_ERROR. If the estimate
+   * plus this bound is not greater than minimumProfit, neither is the exact profit.
+   *
+   * @return the exact potential profit, or minimumProfit if the profit is certainly not greater
+   */
+  @NotNull
+  public static Wad18 screenPotentialProfit(
+      @NotNull Wad18 bestOfferMedianRatio,
+      @NotNull Wad18 toSellInDAI,
+      double percentageOfProfitAsFee,
+      @NotNull Wad18 minimumProfit) {
+    double ratio = bestOfferMedianRatio.doubleValue() / WAD;
+    double size = toSellInDAI.doubleValue() / WAD;
+    double minimum = minimumProfit.doubleValue() / WAD;
+    double profitBeforeCosts = (1 - ratio) * size;
+    double estimate =
+        profitBeforeCosts
+            - Math.max(
+                profitBeforeCosts * percentageOfProfitAsFee, DOUBLE_MINIMUM_TRANSACTION_COSTS);
+    double magnitude =
+        (1 + Math.abs(ratio)) * Math.abs(size) * (1 + Math.abs(percentageOfProfitAsFee));
+    double errorBound = RELATIVE_ERROR * (magnitude + Math.abs(minimum)) + ABSOLUTE_ERROR;
+    if (estimate + errorBound <= minimum) {
+      screenRejects.increment();
+      logger.trace("POTENTIAL PROFIT ESTIMATE {} DAI IS TOO LOW", estimate);
+      return minimumProfit;
     }
+    Wad18 potentialProfit =
+        getPotentialProfit(bestOfferMedianRatio, toSellInDAI, percentageOfProfitAsFee);
+    if (potentialProfit.compareTo(minimumProfit) <= 0) exactRejects.increment();
+    return potentialProfit;
+  }
+
+  /** @return number of candidates rejected by the double estimate of screenPotentialProfit */
+  public static long getScreenRejects() {
+    return screenRejects.sum();
+  }
+
+  /** @return number of candidates rejected by the exact calculation of screenPotentialProfit */
+  public static long getExactRejects() {
+    return exactRejects.sum();
+  }
 
-    return potentialProfitAfterCosts;
+  /**
+   * Batch version of {@link #getPotentialProfit(Wad18, Wad18, double)} for many trade sizes, e.g.
+   * with a ratio per size because of price impact. Element i is exactly getPotentialProfit(
+   * bestOfferMedianRatios.get(i), toSellInDAI.get(i), percentageOfProfitAsFee).
+   */
+  @NotNull
+  public static WadVector getPotentialProfit(
+      @NotNull WadVector bestOfferMedianRatios,
+      @NotNull WadVector toSellInDAI,
+      double percentageOfProfitAsFee) {
+    WadVector potentialProfits =
+        new WadVector(bestOfferMedianRatios.size(), ONE)
+            .subtract(bestOfferMedianRatios)
+            .multiply(toSellInDAI);
+    WadVector maxTransactionCosts =
+        new WadVector(potentialProfits)
+            .multiply(getFeeFactor(percentageOfProfitAsFee))
+            .max(MINIMUM_TRANSACTION_COSTS);
+    return potentialProfits.subtract(maxTransactionCosts);
+  }
+
+  /** @return the fee as Wad18, converted only when it differs from the last one */
+  static Wad18 getFeeFactor(double percentageOfProfitAsFee) {
+    FeeFactor last = feeFactor;
+    if (Double.compare(last.percentage, percentageOfProfitAsFee) == 0) return last.factor;
+    FeeFactor current = new FeeFactor(percentageOfProfitAsFee);
+    feeFactor = current;
+    return current.factor;
+  }
+
+  /** @return the index of the most profitable size, the first one if several are equal */
+  public static int getBestSize(
+      @NotNull WadVector bestOfferMedianRatios,
+      @NotNull WadVector toSellInDAI,
+      double percentageOfProfitAsFee) {
+    int bestSize =
+        getPotentialProfit(bestOfferMedianRatios, toSellInDAI, percentageOfProfitAsFee).argmax();
+    logger.trace("BEST SIZE {} OF {}", bestSize, toSellInDAI.size());
+    return bestSize;
+  }
+
+  /** @return the index of the most profitable size at a fixed offer price */
+  public static int getBestSize(
+      Wad18 bestOfferMedianRatio, @NotNull WadVector toSellInDAI, double percentageOfProfitAsFee) {
+    return getBestSize(
+        new WadVector(toSellInDAI.size(), bestOfferMedianRatio),
+        toSellInDAI,
+        percentageOfProfitAsFee);
+  }
+
+  private static final class FeeFactor {
+    private final double percentage;
+    private final Wad18 factor;
+
+    private FeeFactor(double percentage) {
+      this.percentage = percentage;
+      this.factor = new Wad18(getMachineReadable(percentage));
+    }
   }
 }
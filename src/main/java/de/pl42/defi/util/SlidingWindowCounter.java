@@ -0,0 +1,75 @@
+package peggy42.cn.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Number of events within the last window milliseconds, e.g. failed transactions within the last
+ * ten minutes. The window is a ring of time buckets. Each bucket is one atomic long that packs the
+ * bucket's time slot and its count, so a bucket from an earlier round of the ring is reset by the
+ * same compare-and-set that counts the new event. Adding is O(1) and counting is O(buckets),
+ * independent of the number of events, and both are lock-free.
+ *
+ * <p>Events expire with the bucket they were counted in, i.e. between window - bucket width and
+ * window milliseconds after they happened.
+ */
+public final class SlidingWindowCounter {
+  private static final int COUNT_BITS = 20;
+  private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+  private final AtomicLongArray buckets;
+  private final long bucketWidth;
+
+  /**
+   * @param window length of the window in milliseconds
+   * @param bucketCount number of buckets, more buckets expire events more precisely
+   */
+  public SlidingWindowCounter(long window, int bucketCount) {
+    if (bucketCount <= 0)
+      throw new IllegalArgumentException("Argument 'bucketCount' is not positive");
+    if (window < bucketCount)
+      throw new IllegalArgumentException("Argument 'window' is shorter than 'bucketCount' ms");
+    this.buckets = new AtomicLongArray(bucketCount);
+    this.bucketWidth = (window + bucketCount - 1) / bucketCount;
+  }
+
+  public void increment() {
+    increment(System.currentTimeMillis());
+  }
+
+  /** Counts an event at time now, in milliseconds since the epoch */
+  public void increment(long now) {
+    long slot = now / bucketWidth;
+    int index = (int) (slot % buckets.length());
+    while (true) {
+      long bucket = buckets.get(index);
+      long bucketSlot = bucket >>> COUNT_BITS;
+      long next;
+      if (bucketSlot == slot) {
+        if ((bucket & COUNT_MASK) == COUNT_MASK) return; // saturated
+        next = bucket + 1;
+      } else if (bucketSlot < slot) {
+        next = (slot << COUNT_BITS) | 1;
+      } else {
+        return; // the bucket already belongs to a later round, the event has expired
+      }
+      if (buckets.compareAndSet(index, bucket, next)) return;
+    }
+  }
+
+  public int count() {
+    return count(System.currentTimeMillis());
+  }
+
+  /** @return the number of events within the window that ends at now */
+  public int count(long now) {
+    long slot = now / bucketWidth;
+    long oldestSlot = slot - buckets.length() + 1;
+    long count = 0;
+    for (int i = 0; i < buckets.length(); i++) {
+      long bucket = buckets.get(i);
+      long bucketSlot = bucket >>> COUNT_BITS;
+      if (bucketSlot >= oldestSlot && bucketSlot <= slot) count += bucket & COUNT_MASK;
+    }
+    return (int) Math.min(count, Integer.MAX_VALUE);
+  }
+}
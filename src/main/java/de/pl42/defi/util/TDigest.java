@@ -0,0 +1,148 @@
+package peggy42.cn.util;
+
+import java.util.Arrays;
+
+/**
+ * Merging t-digest, a sketch of the distribution of a stream of values that answers quantiles
+ * with a small relative error, most precisely near the tails. Values are buffered and merged into
+ * about compression / 2 centroids. A centroid spans at most one unit of the scale function
+ * k(q) = compression / (2 * PI) * asin(2q - 1), so centroids near the tails hold few values.
+ * Digests merge, so a rolling window can keep one digest per time slot.
+ *
+ * <p>Not thread-safe.
+ */
+public final class TDigest {
+  private final double compression;
+  private double[] means;
+  private double[] weights;
+  private int centroids;
+  private final double[] bufferedValues;
+  private final double[] bufferedWeights;
+  private int buffered;
+  private double totalWeight;
+  private double min = Double.POSITIVE_INFINITY;
+  private double max = Double.NEGATIVE_INFINITY;
+
+  /** @param compression twice the number of centroids, 100 keeps errors well below 1% */
+  public TDigest(double compression) {
+    if (compression < 10)
+      throw new IllegalArgumentException("Argument 'compression' is smaller than 10");
+    this.compression = compression;
+    int capacity = (int) Math.ceil(compression) + 10;
+    this.means = new double[capacity];
+    this.weights = new double[capacity];
+    this.bufferedValues = new double[capacity * 5];
+    this.bufferedWeights = new double[capacity * 5];
+  }
+
+  public void add(double value) {
+    add(value, 1);
+  }
+
+  public void add(double value, double weight) {
+    if (Double.isNaN(value)) throw new IllegalArgumentException("Argument 'value' is NaN");
+    if (weight <= 0) throw new IllegalArgumentException("Argument 'weight' is not positive");
+    if (buffered == bufferedValues.length) compress();
+    bufferedValues[buffered] = value;
+    bufferedWeights[buffered] = weight;
+    buffered++;
+    totalWeight += weight;
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+  }
+
+  /** Adds all values of other to this digest, other is not changed */
+  public void add(TDigest other) {
+    other.compress();
+    for (int i = 0; i < other.centroids; i++) add(other.means[i], other.weights[i]);
+    if (other.centroids > 0) {
+      min = Math.min(min, other.min);
+      max = Math.max(max, other.max);
+    }
+  }
+
+  /** @return the total weight of the added values, their number if all weights are 1 */
+  public double size() {
+    return totalWeight;
+  }
+
+  /**
+   * @param quantile between 0 and 1, e.g. 0.9 for the 90th percentile
+   * @return the estimated value at quantile or NaN if the digest is empty
+   */
+  public double quantile(double quantile) {
+    if (quantile < 0 || quantile > 1)
+      throw new IllegalArgumentException("Argument 'quantile' is not between 0 and 1");
+    compress();
+    if (centroids == 0) return Double.NaN;
+    if (centroids == 1) return means[0];
+    double index = quantile * totalWeight;
+    // the values of a centroid are spread around its mean, the first and last reach min and max
+    double left = weights[0] / 2;
+    if (index < left) return min + (means[0] - min) * index / left;
+    double cumulative = left;
+    for (int i = 0; i < centroids - 1; i++) {
+      double step = (weights[i] + weights[i + 1]) / 2;
+      if (index < cumulative + step) {
+        double fraction = (index - cumulative) / step;
+        return means[i] + (means[i + 1] - means[i]) * fraction;
+      }
+      cumulative += step;
+    }
+    double right = weights[centroids - 1] / 2;
+    double fraction = Math.min(1, (index - cumulative) / right);
+    return means[centroids - 1] + (max - means[centroids - 1]) * fraction;
+  }
+
+  /** Merges the buffered values into the centroids */
+  private void compress() {
+    if (buffered == 0) return;
+    int count = centroids + buffered;
+    double[] allMeans = Arrays.copyOf(means, count);
+    double[] allWeights = Arrays.copyOf(weights, count);
+    System.arraycopy(bufferedValues, 0, allMeans, centroids, buffered);
+    System.arraycopy(bufferedWeights, 0, allWeights, centroids, buffered);
+    Integer[] order = new Integer[count];
+    for (int i = 0; i < count; i++) order[i] = i;
+    Arrays.sort(order, (a, b) -> Double.compare(allMeans[a], allMeans[b]));
+
+    double[] mergedMeans = new double[means.length];
+    double[] mergedWeights = new double[weights.length];
+    int merged = 0;
+    double weightSoFar = 0;
+    double quantileLimit = quantileLimit(0);
+    double mean = allMeans[order[0]];
+    double weight = allWeights[order[0]];
+    for (int i = 1; i < count; i++) {
+      double nextMean = allMeans[order[i]];
+      double nextWeight = allWeights[order[i]];
+      double proposed = weight + nextWeight;
+      if ((weightSoFar + proposed) / totalWeight <= quantileLimit
+          || merged == mergedMeans.length - 1) {
+        mean += (nextMean - mean) * nextWeight / proposed;
+        weight = proposed;
+      } else {
+        mergedMeans[merged] = mean;
+        mergedWeights[merged] = weight;
+        merged++;
+        weightSoFar += weight;
+        quantileLimit = quantileLimit(weightSoFar / totalWeight);
+        mean = nextMean;
+        weight = nextWeight;
+      }
+    }
+    mergedMeans[merged] = mean;
+    mergedWeights[merged] = weight;
+    means = mergedMeans;
+    weights = mergedWeights;
+    centroids = merged + 1;
+    buffered = 0;
+  }
+
+  /** @return the highest quantile that a centroid starting at quantile may reach */
+  private double quantileLimit(double quantile) {
+    double k = compression / (2 * Math.PI) * Math.asin(2 * quantile - 1) + 1;
+    if (k >= compression / 4) return 1;
+    return (Math.sin(k * 2 * Math.PI / compression) + 1) / 2;
+  }
+}
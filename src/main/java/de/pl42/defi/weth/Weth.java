@@ -37,7 +37,9 @@ public class Weth {
     permissions = contractNeedsProvider.getPermissions();
     Credentials credentials = contractNeedsProvider.getCredentials();
     circuitBreaker = contractNeedsProvider.getCircuitBreaker();
-    wethContract = WethContract.load(ADDRESS, web3j, credentials, gasProvider);
+    wethContract =
+        WethContract.load(
+            ADDRESS, web3j, contractNeedsProvider.getTransactionManager(), gasProvider);
     ContractValidationUtil.isContractValid(wethContract, circuitBreaker);
     account = new Account(wethContract, credentials, "WETH");
     approval = new Approval(wethContract, contractNeedsProvider);
@@ -50,7 +52,8 @@ public class Weth {
       Wad18 amountOfWethToUnwrap) {
     if (permissions.check("WETH2ETH")) {
       try {
-        gasProvider.updateFastGasPrice(medianEthereumPrice, potentialProfit);
+        gasProvider.updateFastGasPrice(
+            WethContract.FUNC_WITHDRAW, medianEthereumPrice, potentialProfit);
         Wad18 wethBalance = balances.weth.getAccount().getBalance();
         if (amountOfWethToUnwrap.compareTo(wethBalance) > 0) {
           amountOfWethToUnwrap = wethBalance;
@@ -60,6 +63,7 @@ public class Weth {
         logger.warn("CONVERT {} WETH TO ETH", amountOfWethToUnwrap);
         TransactionReceipt transferReceipt =
             wethContract.withdraw(amountOfWethToUnwrap.toBigInteger()).send();
+        gasProvider.recordGasUsed(WethContract.FUNC_WITHDRAW, transferReceipt);
         TimeUnit.SECONDS.sleep(
             1); // for balances to update, otherwise same (buy/sell) type of transaction happens,
         // although not enough balance weth/dai
@@ -82,7 +86,8 @@ public class Weth {
       Balances balances) {
     if (permissions.check("ETH2WETH")) {
       try {
-        gasProvider.updateFastGasPrice(medianEthereumPrice, potentialProfit);
+        gasProvider.updateFastGasPrice(
+            WethContract.FUNC_DEPOSIT, medianEthereumPrice, potentialProfit);
         if (amountOfEthToWrap.compareTo(balances.ethereum.getBalance()) > 0) {
           amountOfEthToWrap = balances.ethereum.getBalanceWithoutMinimumEthereumReserveUpperLimit();
           logger.warn("ETH AMOUNT TO WRAP WAS TOO BIG {}", amountOfEthToWrap);
@@ -91,6 +96,7 @@ public class Weth {
         logger.warn("CONVERT {} ETH TO WETH", amountOfEthToWrap);
         TransactionReceipt transferReceipt =
             wethContract.deposit(amountOfEthToWrap.toBigInteger()).send();
+        gasProvider.recordGasUsed(WethContract.FUNC_DEPOSIT, transferReceipt);
         TimeUnit.SECONDS.sleep(1);
         logger.trace(
             "Transaction complete, view it at https://etherscan.io/tx/{}",
@@ -0,0 +1,31 @@
+package peggy42.cn.contractneedsprovider;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+  @Test
+  void isAllowingOperations_tooManyFailedTransactions_false() {
+    CircuitBreaker circuitBreaker = new CircuitBreaker();
+    assertTrue(circuitBreaker.isAllowingOperations(3));
+    circuitBreaker.addTransactionFailedNow();
+    circuitBreaker.addTransactionFailedNow();
+    assertTrue(circuitBreaker.isAllowingOperations(3));
+    circuitBreaker.addTransactionFailedNow();
+    assertFalse(circuitBreaker.isAllowingOperations(3));
+    assertEquals(3, circuitBreaker.getFailedTransactions());
+  }
+
+  @Test
+  void addTransactionFailedNow_listener_calledOncePerFailure() {
+    CircuitBreaker circuitBreaker = new CircuitBreaker();
+    AtomicInteger calls = new AtomicInteger();
+    circuitBreaker.addFailedTransactionListener(calls::incrementAndGet);
+    circuitBreaker.addTransactionFailedNow();
+    circuitBreaker.addTransactionFailedNow();
+    assertEquals(2, calls.get());
+  }
+}
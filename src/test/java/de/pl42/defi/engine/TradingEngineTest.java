@@ -0,0 +1,222 @@
+package peggy42.cn.engine;
+
+import peggy42.cn.contractneedsprovider.CircuitBreaker;
+import io.reactivex.processors.PublishProcessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TradingEngineTest {
+  private final PublishProcessor<Long> blocks = PublishProcessor.create();
+  private final PublishProcessor<Long> medians = PublishProcessor.create();
+  private final CircuitBreaker circuitBreaker = new CircuitBreaker();
+  private final TradingEngine engine = new TradingEngine(blocks, medians, circuitBreaker);
+
+  @AfterEach
+  void stopEngine() {
+    engine.stop();
+  }
+
+  /** Stops the engine and waits until the running evaluations and executions finished */
+  private void drain() throws InterruptedException {
+    engine.stop();
+    engine.awaitTermination();
+  }
+
+  @Test
+  void register_triggersOfStrategy_onlyThoseEvaluate() throws InterruptedException {
+    List<String> evaluations = new CopyOnWriteArrayList<>();
+    CountDownLatch evaluated = new CountDownLatch(1);
+    engine.register(
+        "MEDIAN ONLY",
+        () -> {
+          evaluations.add("MEDIAN ONLY");
+          evaluated.countDown();
+          return null;
+        },
+        Trigger.MEDIAN);
+    engine.register(
+        "BLOCK ONLY",
+        () -> {
+          evaluations.add("BLOCK ONLY");
+          return null;
+        },
+        Trigger.BLOCK);
+    engine.start();
+    medians.onNext(1L);
+    medians.onNext(2L);
+    assertTrue(evaluated.await(5, TimeUnit.SECONDS));
+    drain();
+    assertTrue(evaluations.contains("MEDIAN ONLY"));
+    assertFalse(evaluations.contains("BLOCK ONLY"));
+  }
+
+  @Test
+  void register_triggersDuringSlowEvaluation_outdatedTriggersDropped()
+      throws InterruptedException {
+    CountDownLatch running = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch evaluatedAgain = new CountDownLatch(2);
+    AtomicInteger evaluations = new AtomicInteger();
+    engine.register(
+        "SLOW",
+        () -> {
+          evaluations.incrementAndGet();
+          running.countDown();
+          evaluatedAgain.countDown();
+          release.await();
+          return null;
+        },
+        Trigger.BLOCK);
+    engine.start();
+    blocks.onNext(1L);
+    assertTrue(running.await(5, TimeUnit.SECONDS));
+    for (long block = 2; block < 100; block++) blocks.onNext(block);
+    release.countDown();
+    assertTrue(evaluatedAgain.await(5, TimeUnit.SECONDS));
+    drain();
+    assertTrue(evaluations.get() <= 3, "evaluations " + evaluations.get());
+    assertTrue(evaluations.get() >= 2, "the latest block is evaluated");
+  }
+
+  @Test
+  void register_failingStrategy_engineStops() throws InterruptedException {
+    engine.register(
+        "FAILING",
+        () -> {
+          throw new IllegalStateException("test");
+        },
+        Trigger.BLOCK);
+    engine.start();
+    blocks.onNext(1L);
+    engine.awaitTermination();
+    assertFalse(blocks.hasSubscribers());
+  }
+
+  @Test
+  void register_circuitBreakerStopped_engineStopsWithoutEvaluation()
+      throws InterruptedException {
+    AtomicInteger evaluations = new AtomicInteger();
+    engine.register(
+        "COUNT",
+        () -> {
+          evaluations.incrementAndGet();
+          return null;
+        },
+        Trigger.BLOCK);
+    engine.start();
+    circuitBreaker.stopRunning();
+    blocks.onNext(1L);
+    engine.awaitTermination();
+    assertEquals(0, evaluations.get());
+  }
+
+  @Test
+  void register_slowEvaluations_evaluatedConcurrently() throws InterruptedException {
+    // each evaluation waits for the other one, so they only finish if they run concurrently
+    CyclicBarrier bothEvaluating = new CyclicBarrier(2);
+    CountDownLatch evaluated = new CountDownLatch(2);
+    for (String name : new String[] {"OASIS", "UNISWAP"}) {
+      engine.register(
+          name,
+          () -> {
+            bothEvaluating.await(5, TimeUnit.SECONDS);
+            evaluated.countDown();
+            return null;
+          },
+          Trigger.BLOCK);
+    }
+    engine.start();
+    blocks.onNext(1L);
+    assertTrue(evaluated.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void register_executions_executedOneAfterAnotherOnEngineThread() throws InterruptedException {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maximumRunning = new AtomicInteger();
+    Set<String> threads = ConcurrentHashMap.newKeySet();
+    CountDownLatch executed = new CountDownLatch(3);
+    for (String name : new String[] {"OASIS", "UNISWAP", "COMPOUND"}) {
+      engine.register(
+          name,
+          () ->
+              () -> {
+                maximumRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                threads.add(Thread.currentThread().getName());
+                Thread.sleep(20);
+                running.decrementAndGet();
+                executed.countDown();
+              },
+          Trigger.BLOCK);
+    }
+    engine.start();
+    blocks.onNext(1L);
+    assertTrue(executed.await(5, TimeUnit.SECONDS));
+    assertEquals(1, maximumRunning.get());
+    assertEquals(1, threads.size());
+  }
+
+  @Test
+  void register_failingExecution_engineStops() throws InterruptedException {
+    engine.register(
+        "FAILING",
+        () ->
+            () -> {
+              throw new IllegalStateException("test");
+            },
+        Trigger.BLOCK);
+    engine.start();
+    blocks.onNext(1L);
+    engine.awaitTermination();
+    assertFalse(blocks.hasSubscribers());
+  }
+
+  @Test
+  void register_newBlockWhileExecutionWaits_executionDropped() throws InterruptedException {
+    CountDownLatch tradeRunning = new CountDownLatch(1);
+    CountDownLatch releaseTrade = new CountDownLatch(1);
+    CountDownLatch evaluated = new CountDownLatch(1);
+    // the strategy is evaluated again only after its first execution was dropped or executed
+    CountDownLatch evaluatedAgain = new CountDownLatch(2);
+    AtomicInteger evaluations = new AtomicInteger();
+    AtomicInteger outdatedExecutions = new AtomicInteger();
+    engine.register(
+        "SLOW TRADE",
+        () ->
+            () -> {
+              tradeRunning.countDown();
+              releaseTrade.await();
+            },
+        Trigger.MEDIAN);
+    engine.register(
+        "WAITING TRADE",
+        () -> {
+          evaluated.countDown();
+          evaluatedAgain.countDown();
+          if (evaluations.incrementAndGet() > 1) return null;
+          return outdatedExecutions::incrementAndGet;
+        },
+        Trigger.BALANCE);
+    engine.start();
+    medians.onNext(1L);
+    assertTrue(tradeRunning.await(5, TimeUnit.SECONDS));
+    engine.balanceChanged();
+    assertTrue(evaluated.await(5, TimeUnit.SECONDS));
+    blocks.onNext(1L);
+    releaseTrade.countDown();
+    engine.balanceChanged();
+    assertTrue(evaluatedAgain.await(5, TimeUnit.SECONDS));
+    assertEquals(0, outdatedExecutions.get());
+  }
+}
@@ -0,0 +1,67 @@
+package peggy42.cn.gasprovider;
+
+import peggy42.cn.numberutil.Wad18;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockGasPriceEstimatorTest {
+  private static final long GWEI = 1_000000000L;
+
+  private static EthBlock.Block block(long number, long... gasPrices) {
+    List<EthBlock.TransactionResult<?>> transactions = new ArrayList<>();
+    for (long gasPrice : gasPrices) {
+      EthBlock.TransactionObject transaction = new EthBlock.TransactionObject();
+      transaction.setGasPrice(Numeric.encodeQuantity(BigInteger.valueOf(gasPrice)));
+      transactions.add(transaction);
+    }
+    EthBlock.Block block = new EthBlock.Block();
+    block.setNumber(Numeric.encodeQuantity(BigInteger.valueOf(number)));
+    block.setTransactions(new ArrayList<>(transactions)); // web3j declares a raw type
+    return block;
+  }
+
+  private static long[] gwei(int from, int to) {
+    long[] gasPrices = new long[to - from + 1];
+    for (int i = 0; i < gasPrices.length; i++) gasPrices[i] = (from + i) * GWEI;
+    return gasPrices;
+  }
+
+  @Test
+  void fetch_blocks_fastStandardAndSafeLowQuantiles() throws GasPriceException {
+    BlockGasPriceEstimator estimator = new BlockGasPriceEstimator(null);
+    estimator.addBlock(block(1, gwei(1, 50)));
+    estimator.addBlock(block(2, gwei(51, 100)));
+    Wad18[] gasPrices = estimator.fetch();
+    assertEquals(90, gasPrices[0].toBigInteger().longValueExact() / (double) GWEI, 1);
+    assertEquals(60, gasPrices[1].toBigInteger().longValueExact() / (double) GWEI, 1);
+    assertEquals(30, gasPrices[2].toBigInteger().longValueExact() / (double) GWEI, 1);
+  }
+
+  @Test
+  void addBlock_olderThanWindow_dropped() throws GasPriceException {
+    BlockGasPriceEstimator estimator = new BlockGasPriceEstimator(null);
+    estimator.addBlock(block(1, gwei(500, 600)));
+    estimator.addBlock(block(1 + BlockGasPriceEstimator.BLOCKS, gwei(1, 10)));
+    assertTrue(estimator.fetch()[0].compareTo(new Wad18(10 * GWEI)) <= 0);
+  }
+
+  @Test
+  void addBlock_zeroGasPrices_ignored() throws GasPriceException {
+    BlockGasPriceEstimator estimator = new BlockGasPriceEstimator(null);
+    estimator.addBlock(block(1, 0, 0, 0, 0, 20 * GWEI));
+    assertEquals(new Wad18(20 * GWEI), estimator.fetch()[2]);
+  }
+
+  @Test
+  void fetch_noBlock_throwGasPriceException() {
+    BlockGasPriceEstimator estimator = new BlockGasPriceEstimator(null);
+    assertThrows(GasPriceException.class, estimator::fetch);
+  }
+}
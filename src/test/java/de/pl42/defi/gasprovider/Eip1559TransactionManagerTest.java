@@ -0,0 +1,164 @@
+package peggy42.cn.gasprovider;
+
+import peggy42.cn.numberutil.Wad18;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Keys;
+import org.web3j.crypto.Sign;
+import org.web3j.rlp.RlpDecoder;
+import org.web3j.rlp.RlpList;
+import org.web3j.rlp.RlpString;
+import org.web3j.rlp.RlpType;
+import org.web3j.tx.exceptions.TxHashMismatchException;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.SignatureException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Eip1559TransactionManagerTest {
+  private static final Credentials CREDENTIALS =
+      Credentials.create("0x4646464646464646464646464646464646464646464646464646464646464646");
+  private static final String TO = "0x794e6e91555438afc3ccf1c5076a74f42133d08d";
+  private static final String BUY_DATA = "0xd6febde8" + "00".repeat(63) + "01";
+  private static final String TRANSACTION_HASH = "0x" + "ab".repeat(32);
+  private static final String FEE_HISTORY =
+      "{\"oldestBlock\":\"0x10\",\"baseFeePerGas\":[\"0x174876e800\",\"0x174876e800\"],"
+          + "\"gasUsedRatio\":[0.5],\"reward\":[[\"0x3b9aca00\",\"0x77359400\",\"0x12a05f200\"]]}";
+
+  private JsonRpcStub node;
+  private Eip1559TransactionManager transactionManager;
+
+  @BeforeEach
+  void startNode() throws IOException {
+    node =
+        new JsonRpcStub()
+            .answer("eth_getTransactionCount", "\"0x7\"")
+            .answer("eth_sendRawTransaction", "\"" + TRANSACTION_HASH + "\"");
+    FeeEngine feeEngine = new FeeEngine(node.getService(), new Wad18(500_000000000L));
+    transactionManager = new Eip1559TransactionManager(node.getWeb3j(), CREDENTIALS, 1, feeEngine);
+  }
+
+  @AfterEach
+  void stopNode() {
+    node.close();
+  }
+
+  private byte[] sentTransaction() {
+    List<JsonNode> params = node.getParams("eth_sendRawTransaction");
+    assertEquals(1, params.size());
+    return Numeric.hexStringToByteArray(params.get(0).get(0).asText());
+  }
+
+  private static BigInteger number(RlpType rlpType) {
+    return ((RlpString) rlpType).asPositiveBigInteger();
+  }
+
+  @Test
+  void sendTransaction_feeHistory_typeTwoTransactionWithFees() throws IOException {
+    node.answer("eth_feeHistory", FEE_HISTORY);
+    String hash =
+        transactionManager
+            .sendTransaction(
+                BigInteger.TEN, BigInteger.valueOf(300000), TO, BUY_DATA, BigInteger.ZERO, false)
+            .getTransactionHash();
+    assertEquals(TRANSACTION_HASH, hash);
+
+    byte[] transaction = sentTransaction();
+    assertEquals(Eip1559Transaction.TYPE, transaction[0]);
+    List<RlpType> fields =
+        ((RlpList)
+                RlpDecoder.decode(Arrays.copyOfRange(transaction, 1, transaction.length))
+                    .getValues()
+                    .get(0))
+            .getValues();
+    assertEquals(12, fields.size());
+    assertEquals(BigInteger.ONE, number(fields.get(0))); // chain id
+    assertEquals(BigInteger.valueOf(7), number(fields.get(1))); // nonce
+    assertEquals(BigInteger.valueOf(5_000000000L), number(fields.get(2))); // FAST tip
+    assertEquals(BigInteger.valueOf(205_000000000L), number(fields.get(3))); // 2 * 100 + 5 GWEI
+    assertEquals(BigInteger.valueOf(300000), number(fields.get(4)));
+    assertEquals(TO, Numeric.toHexString(((RlpString) fields.get(5)).getBytes()));
+    assertEquals(BigInteger.ZERO, number(fields.get(6)));
+    assertEquals(BUY_DATA, Numeric.toHexString(((RlpString) fields.get(7)).getBytes()));
+    assertTrue(((RlpList) fields.get(8)).getValues().isEmpty());
+  }
+
+  @Test
+  void sendTransaction_gasPriceAboveFees_gasPriceIsMinimumForTrades() throws IOException {
+    node.answer("eth_feeHistory", FEE_HISTORY);
+    transactionManager.sendTransaction(
+        BigInteger.valueOf(130_000000000L),
+        BigInteger.valueOf(300000),
+        TO,
+        BUY_DATA,
+        BigInteger.ZERO,
+        false);
+
+    byte[] transaction = sentTransaction();
+    List<RlpType> fields =
+        ((RlpList)
+                RlpDecoder.decode(Arrays.copyOfRange(transaction, 1, transaction.length))
+                    .getValues()
+                    .get(0))
+            .getValues();
+    assertEquals(BigInteger.valueOf(30_000000000L), number(fields.get(2))); // 130 - 100 GWEI
+    assertEquals(BigInteger.valueOf(230_000000000L), number(fields.get(3)));
+  }
+
+  @Test
+  void sendTransaction_feeHistory_signedByCredentials() throws IOException, SignatureException {
+    node.answer("eth_feeHistory", FEE_HISTORY);
+    transactionManager.sendTransaction(
+        BigInteger.TEN, BigInteger.valueOf(300000), TO, BUY_DATA, BigInteger.ZERO, false);
+
+    byte[] transaction = sentTransaction();
+    List<RlpType> fields =
+        ((RlpList)
+                RlpDecoder.decode(Arrays.copyOfRange(transaction, 1, transaction.length))
+                    .getValues()
+                    .get(0))
+            .getValues();
+    Fees fees = new Fees(new Wad18(number(fields.get(3))), new Wad18(number(fields.get(2))));
+    byte[] unsigned =
+        new Eip1559Transaction(
+                1,
+                number(fields.get(1)),
+                fees,
+                number(fields.get(4)),
+                TO,
+                number(fields.get(6)),
+                BUY_DATA)
+            .encodeUnsigned();
+    Sign.SignatureData signature =
+        new Sign.SignatureData(
+            (byte) (27 + number(fields.get(9)).intValueExact()),
+            Numeric.toBytesPadded(number(fields.get(10)), 32),
+            Numeric.toBytesPadded(number(fields.get(11)), 32));
+    BigInteger publicKey = Sign.signedMessageToKey(unsigned, signature);
+    assertEquals(CREDENTIALS.getAddress(), Numeric.prependHexPrefix(Keys.getAddress(publicKey)));
+  }
+
+  @Test
+  void sendTransaction_noFeeHistory_legacyTransaction() {
+    // web3j checks the hash of legacy transactions, the stub answers a canned hash
+    assertThrows(
+        TxHashMismatchException.class,
+        () ->
+            transactionManager.sendTransaction(
+                BigInteger.TEN, BigInteger.valueOf(300000), TO, BUY_DATA, BigInteger.ZERO, false));
+
+    byte[] transaction = sentTransaction();
+    assertTrue((transaction[0] & 0xff) >= 0xc0); // RLP list, not a typed transaction
+    List<RlpType> fields =
+        ((RlpList) RlpDecoder.decode(transaction).getValues().get(0)).getValues();
+    assertEquals(BigInteger.TEN, number(fields.get(1))); // gas price
+  }
+}
@@ -0,0 +1,110 @@
+package peggy42.cn.gasprovider;
+
+import peggy42.cn.numberutil.Wad18;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeeEngineTest {
+  private static final Wad18 MAXIMUM_FEE = new Wad18(500_000000000L); // 500 GWEI
+  // base fee 100 GWEI, next block 110 GWEI, tips at 10%, 50% and 90% of 1, 2 and 5 GWEI
+  private static final String FEE_HISTORY =
+      "{\"oldestBlock\":\"0x10\","
+          + "\"baseFeePerGas\":[\"0x174876e800\",\"0x174876e800\",\"0x199c82cc00\"],"
+          + "\"gasUsedRatio\":[0.5,0.9],"
+          + "\"reward\":[[\"0x3b9aca00\",\"0x77359400\",\"0x12a05f200\"],"
+          + "[\"0x3b9aca00\",\"0x77359400\",\"0x12a05f200\"]]}";
+  private static final String EMPTY_BLOCKS =
+      "{\"oldestBlock\":\"0x10\",\"baseFeePerGas\":[\"0x174876e800\",\"0x174876e800\"],"
+          + "\"gasUsedRatio\":[0.0],\"reward\":[[\"0x0\",\"0x0\",\"0x0\"]]}";
+
+  private JsonRpcStub node;
+
+  @BeforeEach
+  void startNode() throws IOException {
+    node = new JsonRpcStub();
+  }
+
+  @AfterEach
+  void stopNode() {
+    node.close();
+  }
+
+  @Test
+  void predictBaseFee_fullBlock_plusTwelvePointFivePercent() {
+    assertEquals(112_500000000L, FeeHistory.predictBaseFee(100_000000000L, 1.0));
+    assertEquals(100_000000000L, FeeHistory.predictBaseFee(100_000000000L, 0.5));
+    assertEquals(87_500000000L, FeeHistory.predictBaseFee(100_000000000L, 0.0));
+  }
+
+  @Test
+  void getFees_fast_ninetiethPercentileTipAndDoubleBaseFee() throws IOException {
+    node.answer("eth_feeHistory", FEE_HISTORY);
+    Fees fees = new FeeEngine(node.getService(), MAXIMUM_FEE).getFees(Urgency.FAST);
+    assertEquals(new Wad18(5_000000000L), fees.getMaxPriorityFeePerGas());
+    assertEquals(new Wad18(225_000000000L), fees.getMaxFeePerGas());
+  }
+
+  @Test
+  void getFees_minimumGasPriceAboveBaseFeeAndTip_tipRaised() throws IOException {
+    node.answer("eth_feeHistory", FEE_HISTORY);
+    FeeEngine feeEngine = new FeeEngine(node.getService(), MAXIMUM_FEE);
+    Fees fees = feeEngine.getFees(Urgency.FAST, new Wad18(150_000000000L));
+    assertEquals(new Wad18(40_000000000L), fees.getMaxPriorityFeePerGas());
+    assertEquals(new Wad18(260_000000000L), fees.getMaxFeePerGas());
+    assertEquals(
+        new Wad18(5_000000000L),
+        feeEngine.getFees(Urgency.FAST, new Wad18(10_000000000L)).getMaxPriorityFeePerGas());
+  }
+
+  @Test
+  void getFees_slow_tenthPercentileTip() throws IOException {
+    node.answer("eth_feeHistory", FEE_HISTORY);
+    Fees fees = new FeeEngine(node.getService(), MAXIMUM_FEE).getFees(Urgency.SLOW);
+    assertEquals(new Wad18(1_000000000L), fees.getMaxPriorityFeePerGas());
+    assertEquals(new Wad18(138_500000000L), fees.getMaxFeePerGas());
+  }
+
+  @Test
+  void getFees_aboveMaximum_cappedByMaximum() throws IOException {
+    node.answer("eth_feeHistory", FEE_HISTORY);
+    Wad18 maximum = new Wad18(3_000000000L);
+    Fees fees = new FeeEngine(node.getService(), maximum).getFees(Urgency.FAST);
+    assertEquals(maximum, fees.getMaxFeePerGas());
+    assertEquals(maximum, fees.getMaxPriorityFeePerGas());
+  }
+
+  @Test
+  void getFees_emptyBlocks_defaultPriorityFee() throws IOException {
+    node.answer("eth_feeHistory", EMPTY_BLOCKS);
+    Fees fees = new FeeEngine(node.getService(), MAXIMUM_FEE).getFees(Urgency.STANDARD);
+    assertEquals(FeeEngine.DEFAULT_PRIORITY_FEE, fees.getMaxPriorityFeePerGas());
+  }
+
+  @Test
+  void getFees_repeatedCalls_oneFeeHistoryRequest() throws IOException {
+    node.answer("eth_feeHistory", FEE_HISTORY);
+    FeeEngine feeEngine = new FeeEngine(node.getService(), MAXIMUM_FEE);
+    for (Urgency urgency : Urgency.values()) feeEngine.getFees(urgency);
+    assertEquals(1, node.getParams("eth_feeHistory").size());
+    assertEquals("0x14", node.getParams("eth_feeHistory").get(0).get(0).asText());
+  }
+
+  @Test
+  void getFees_nodeWithoutFeeHistory_throwIOException() {
+    FeeEngine feeEngine = new FeeEngine(node.getService(), MAXIMUM_FEE);
+    assertThrows(IOException.class, () -> feeEngine.getFees(Urgency.FAST));
+  }
+
+  @Test
+  void getUrgency_tradesAndLending_fastAndSlow() {
+    assertEquals(Urgency.FAST, FeeEngine.getUrgency("0xd6febde8" + "00".repeat(64))); // buy
+    assertEquals(Urgency.SLOW, FeeEngine.getUrgency("0xa0712d68" + "00".repeat(32))); // mint
+    assertEquals(Urgency.STANDARD, FeeEngine.getUrgency("0x095ea7b3")); // approve
+    assertEquals(Urgency.STANDARD, FeeEngine.getUrgency("0x"));
+  }
+}
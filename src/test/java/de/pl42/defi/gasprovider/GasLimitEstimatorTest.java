@@ -0,0 +1,40 @@
+package peggy42.cn.gasprovider;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GasLimitEstimatorTest {
+  private final GasLimitEstimator gasLimits = new GasLimitEstimator(null);
+
+  @Test
+  void getGasLimit_nothingLearned_defaultGasLimit() {
+    assertEquals(65_000, gasLimits.getGasLimit("swap", 65_000));
+    assertEquals(65_000, gasLimits.getExpectedGas("swap", 65_000));
+  }
+
+  @Test
+  void getGasLimit_estimate_estimateWithSafetyMargin() {
+    gasLimits.recordEstimate("swap", 50_000);
+    assertEquals(60_000, gasLimits.getGasLimit("swap", 65_000));
+    assertEquals(50_000, gasLimits.getExpectedGas("swap", 65_000));
+  }
+
+  @Test
+  void getGasLimit_receipts_percentileWithSafetyMargin() {
+    for (int i = 1; i <= 100; i++) gasLimits.recordGasUsed("swap", 40_000 + i);
+    // the last 64 receipts are 40_037 to 40_100, the 95th percentile of them is 40_097
+    assertEquals(
+        (long) Math.ceil(40_097 * GasLimitEstimator.SAFETY_MARGIN),
+        gasLimits.getGasLimit("swap", 65_000));
+    assertEquals(40_068, gasLimits.getExpectedGas("swap", 65_000));
+  }
+
+  @Test
+  void getGasLimit_estimateAboveReceipts_estimate() {
+    gasLimits.recordGasUsed("swap", 40_000);
+    gasLimits.recordEstimate("swap", 50_000);
+    assertEquals(60_000, gasLimits.getGasLimit("swap", 65_000));
+    assertEquals(40_000, gasLimits.getExpectedGas("swap", 65_000));
+  }
+}
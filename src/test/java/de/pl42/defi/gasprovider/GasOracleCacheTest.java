@@ -0,0 +1,86 @@
+package peggy42.cn.gasprovider;
+
+import peggy42.cn.numberutil.Wad18;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GasOracleCacheTest {
+  private static final Wad18 TEN_GWEI = new Wad18(10_000000000L);
+  private static final Wad18 TWENTY_GWEI = new Wad18(20_000000000L);
+
+  @Test
+  void get_notStarted_startWithSynchronousRefresh() {
+    GasOracleCache gasOracles = new GasOracleCache();
+    gasOracles.register(() -> new Wad18[] {TEN_GWEI, TWENTY_GWEI}, "FASTEST", "SAFE_LOW");
+    assertEquals(TEN_GWEI, gasOracles.get("FASTEST"));
+    assertEquals(TWENTY_GWEI, gasOracles.get("SAFE_LOW"));
+    gasOracles.stop();
+  }
+
+  @Test
+  void get_repeatedReads_noRequestPerRead() {
+    AtomicInteger requests = new AtomicInteger();
+    GasOracleCache gasOracles = new GasOracleCache();
+    gasOracles.register(
+        () -> {
+          requests.incrementAndGet();
+          return new Wad18[] {TEN_GWEI};
+        },
+        "FASTEST");
+    for (int i = 0; i < 1000; i++) assertEquals(TEN_GWEI, gasOracles.get("FASTEST"));
+    assertEquals(1, requests.get());
+    gasOracles.stop();
+  }
+
+  @Test
+  void refresh_failingOracle_keepPreviousGasPrice() {
+    AtomicInteger requests = new AtomicInteger();
+    GasOracleCache gasOracles = new GasOracleCache();
+    gasOracles.register(
+        () -> {
+          if (requests.incrementAndGet() > 1) throw new GasPriceException("down");
+          return new Wad18[] {TEN_GWEI};
+        },
+        "FASTEST");
+    gasOracles.start();
+    gasOracles.refresh();
+    assertEquals(2, requests.get());
+    assertEquals(TEN_GWEI, gasOracles.get("FASTEST"));
+    gasOracles.stop();
+  }
+
+  @Test
+  void get_olderThanTimeToLive_null() throws InterruptedException {
+    AtomicInteger requests = new AtomicInteger();
+    GasOracleCache gasOracles = new GasOracleCache(60_000, 50);
+    gasOracles.register(
+        () -> {
+          if (requests.incrementAndGet() > 1) throw new GasPriceException("down");
+          return new Wad18[] {TEN_GWEI};
+        },
+        "FASTEST");
+    assertEquals(TEN_GWEI, gasOracles.get("FASTEST"));
+    Thread.sleep(100);
+    gasOracles.refresh();
+    assertNull(gasOracles.get("FASTEST"));
+    assertNull(gasOracles.get("UNKNOWN"));
+    gasOracles.stop();
+  }
+
+  @Test
+  void start_backgroundRefresh_newGasPriceWithoutRead() throws InterruptedException {
+    AtomicInteger requests = new AtomicInteger();
+    GasOracleCache gasOracles = new GasOracleCache(20, 60_000);
+    gasOracles.register(
+        () -> new Wad18[] {requests.incrementAndGet() == 1 ? TEN_GWEI : TWENTY_GWEI}, "FASTEST");
+    gasOracles.start();
+    assertEquals(TEN_GWEI, gasOracles.get("FASTEST"));
+    for (int i = 0; i < 100 && requests.get() < 2; i++) Thread.sleep(10);
+    Thread.sleep(10);
+    assertEquals(TWENTY_GWEI, gasOracles.get("FASTEST"));
+    gasOracles.stop();
+  }
+}
@@ -0,0 +1,95 @@
+package peggy42.cn.gasprovider;
+
+import peggy42.cn.numberutil.Wad18;
+import peggy42.cn.uniswap.UniswapContract;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+
+import java.math.BigInteger;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GasProviderTest {
+  private static final Wad18 MINIMUM_GAS_PRICE = new Wad18(1_000000000);
+  private static final Wad18 MAXIMUM_GAS_PRICE = new Wad18(200_000000000L);
+
+  private static GasProvider gasProvider(Wad18 etherchain, Wad18 ethGasStation) {
+    GasOracleCache gasOracles = new GasOracleCache();
+    gasOracles.register(() -> new Wad18[] {etherchain}, GasProvider.ETHERCHAIN_FASTEST);
+    gasOracles.register(
+        () -> new Wad18[] {ethGasStation, MINIMUM_GAS_PRICE},
+        GasProvider.ETHGASSTATION_FASTEST,
+        GasProvider.ETHGASSTATION_SAFE_LOW);
+    return new GasProvider(null, MINIMUM_GAS_PRICE, MAXIMUM_GAS_PRICE, gasOracles);
+  }
+
+  @Test
+  void updateFastGasPrice_cachedOracles_highestGasPrice() {
+    GasProvider gasProvider = gasProvider(new Wad18(30_000000000L), new Wad18(40_000000000L));
+    assertEquals(new Wad18(40_000000000L), gasProvider.updateFastGasPrice(Wad18.ZERO, Wad18.ZERO));
+    gasProvider.stop();
+  }
+
+  @Test
+  void updateFastGasPrice_oraclesAboveMaximum_maximumGasPrice() {
+    GasProvider gasProvider = gasProvider(new Wad18(300_000000000L), new Wad18(40_000000000L));
+    assertEquals(MAXIMUM_GAS_PRICE, gasProvider.updateFastGasPrice(Wad18.ZERO, Wad18.ZERO));
+    gasProvider.stop();
+  }
+
+  @Test
+  void updateFastGasPrice_nodeAboveOracles_nodeGasPrice() {
+    GasOracleCache gasOracles = new GasOracleCache();
+    Wad18 etherchain = new Wad18(30_000000000L);
+    gasOracles.register(() -> new Wad18[] {etherchain}, GasProvider.ETHERCHAIN_FASTEST);
+    BlockGasPriceEstimator blockGasPrices = new BlockGasPriceEstimator(null);
+    EthBlock.Block block = new EthBlock.Block();
+    block.setNumber("0x1");
+    EthBlock.TransactionObject transaction = new EthBlock.TransactionObject();
+    transaction.setGasPrice("0xba43b7400"); // 50 GWEI
+    block.setTransactions(List.of(transaction));
+    blockGasPrices.addBlock(block);
+    gasOracles.register(
+        blockGasPrices,
+        GasProvider.NODE_FAST,
+        GasProvider.NODE_STANDARD,
+        GasProvider.NODE_SAFE_LOW);
+    GasProvider gasProvider =
+        new GasProvider(null, MINIMUM_GAS_PRICE, MAXIMUM_GAS_PRICE, gasOracles);
+    assertEquals(new Wad18(50_000000000L), gasProvider.updateFastGasPrice(Wad18.ZERO, Wad18.ZERO));
+    gasProvider.stop();
+  }
+
+  @Test
+  void updateFastGasPrice_noOracle_minimumGasPrice() {
+    GasOracleCache gasOracles = new GasOracleCache();
+    GasProvider gasProvider =
+        new GasProvider(null, MINIMUM_GAS_PRICE, MAXIMUM_GAS_PRICE, gasOracles);
+    assertEquals(MINIMUM_GAS_PRICE, gasProvider.updateFastGasPrice(Wad18.ZERO, Wad18.ZERO));
+    gasProvider.stop();
+  }
+
+  @Test
+  void recordGasUsed_receipt_learnedGasLimitAndExpectedGas() {
+    GasProvider gasProvider = gasProvider(MINIMUM_GAS_PRICE, MINIMUM_GAS_PRICE);
+    String swap = UniswapContract.FUNC_ETHTOTOKENSWAPINPUT;
+    assertEquals(BigInteger.valueOf(65_000), gasProvider.getGasLimit(swap));
+    TransactionReceipt receipt = new TransactionReceipt();
+    receipt.setGasUsed("0xc350"); // 50_000
+    gasProvider.recordGasUsed(swap, receipt);
+    assertEquals(BigInteger.valueOf(60_000), gasProvider.getGasLimit(swap));
+    assertEquals(new Wad18(50_000), gasProvider.getExpectedGas(swap));
+    gasProvider.stop();
+  }
+
+  @Test
+  void recordFailedTransaction_twoFailures_countedForTwelveHours() {
+    GasProvider gasProvider = gasProvider(MINIMUM_GAS_PRICE, MINIMUM_GAS_PRICE);
+    gasProvider.recordFailedTransaction();
+    gasProvider.recordFailedTransaction();
+    assertEquals(2, gasProvider.getFailedTransactionsWithinTheLastTwelveHours());
+    gasProvider.stop();
+  }
+}
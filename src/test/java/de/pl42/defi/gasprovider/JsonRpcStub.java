@@ -0,0 +1,82 @@
+package peggy42.cn.gasprovider;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.http.HttpService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/** Local JSON-RPC node that answers every method with a canned JSON result */
+class JsonRpcStub implements AutoCloseable {
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  private final HttpServer server;
+  private final Map<String, Function<JsonNode, String>> results = new ConcurrentHashMap<>();
+  private final Map<String, List<JsonNode>> params = new ConcurrentHashMap<>();
+
+  JsonRpcStub() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext(
+        "/",
+        exchange -> {
+          JsonNode request = OBJECT_MAPPER.readTree(exchange.getRequestBody());
+          String method = request.get("method").asText();
+          params.computeIfAbsent(method, key -> new CopyOnWriteArrayList<>())
+              .add(request.get("params"));
+          Function<JsonNode, String> answer = results.get(method);
+          String result = answer == null ? null : answer.apply(request.get("params"));
+          String body =
+              "{\"jsonrpc\":\"2.0\",\"id\":"
+                  + request.get("id")
+                  + (result == null
+                      ? ",\"error\":{\"code\":-32601,\"message\":\"method not found\"}}"
+                      : ",\"result\":" + result + "}");
+          byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+          exchange.getResponseHeaders().add("Content-Type", "application/json");
+          exchange.sendResponseHeaders(200, bytes.length);
+          try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+          }
+        });
+    server.start();
+  }
+
+  /** @param result JSON of the result of method, methods without result answer an error */
+  JsonRpcStub answer(String method, String result) {
+    return answer(method, params -> result);
+  }
+
+  /** @param result JSON of the result for the params of a call, null to answer an error */
+  JsonRpcStub answer(String method, Function<JsonNode, String> result) {
+    results.put(method, result);
+    return this;
+  }
+
+  /** @return params of every call of method, in order */
+  List<JsonNode> getParams(String method) {
+    return params.getOrDefault(method, List.of());
+  }
+
+  HttpService getService() {
+    return new HttpService("http://127.0.0.1:" + server.getAddress().getPort());
+  }
+
+  Web3j getWeb3j() {
+    return Web3j.build(getService());
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+}
@@ -0,0 +1,208 @@
+package peggy42.cn.gasprovider;
+
+import peggy42.cn.numberutil.Wad18;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Hash;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.protocol.exceptions.TransactionException;
+import org.web3j.rlp.RlpDecoder;
+import org.web3j.rlp.RlpList;
+import org.web3j.rlp.RlpString;
+import org.web3j.rlp.RlpType;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PendingTransactionTrackerTest {
+  private static final Credentials CREDENTIALS =
+      Credentials.create("0x4646464646464646464646464646464646464646464646464646464646464646");
+  private static final String TO = "0x794e6e91555438afc3ccf1c5076a74f42133d08d";
+  private static final String BUY_DATA = "0xd6febde8" + "00".repeat(63) + "01";
+  private static final String FEE_HISTORY =
+      "{\"oldestBlock\":\"0x10\",\"baseFeePerGas\":[\"0x174876e800\",\"0x174876e800\"],"
+          + "\"gasUsedRatio\":[0.5],\"reward\":[[\"0x3b9aca00\",\"0x77359400\",\"0x12a05f200\"]]}";
+
+  private final AtomicLong blockNumber = new AtomicLong(100);
+  private final AtomicInteger sent = new AtomicInteger();
+  private final Set<String> mined = ConcurrentHashMap.newKeySet();
+  private JsonRpcStub node;
+  private PendingTransactionTracker tracker;
+  private Eip1559TransactionManager transactionManager;
+
+  @BeforeEach
+  void startNode() throws IOException {
+    node =
+        new JsonRpcStub()
+            .answer("eth_feeHistory", FEE_HISTORY)
+            .answer("eth_getTransactionCount", "\"0x7\"")
+            .answer("eth_call", "\"0x\"")
+            // every poll sees a new block
+            .answer("eth_blockNumber", params -> quantity(blockNumber.incrementAndGet()))
+            .answer(
+                "eth_getTransactionReceipt",
+                params -> {
+                  String hash = params.get(0).asText();
+                  return mined.contains(hash) ? receipt(hash) : "null";
+                });
+    minedOnSend(1);
+    FeeEngine feeEngine = new FeeEngine(node.getService(), new Wad18(500_000000000L));
+    tracker = new PendingTransactionTracker(node.getWeb3j(), feeEngine, 1);
+    transactionManager =
+        new Eip1559TransactionManager(node.getWeb3j(), CREDENTIALS, 1, feeEngine, tracker);
+  }
+
+  @AfterEach
+  void stopNode() {
+    node.close();
+  }
+
+  /** The transaction sent as number send is mined in the next block */
+  private void minedOnSend(int send) {
+    node.answer(
+        "eth_sendRawTransaction",
+        params -> {
+          String hash = Hash.sha3(params.get(0).asText());
+          if (sent.incrementAndGet() == send) mined.add(hash);
+          return "\"" + hash + "\"";
+        });
+  }
+
+  private static String quantity(long value) {
+    return "\"" + Numeric.encodeQuantity(BigInteger.valueOf(value)) + "\"";
+  }
+
+  private static String receipt(String hash) {
+    return "{\"transactionHash\":\"" + hash + "\",\"status\":\"0x1\",\"gasUsed\":\"0x5208\"}";
+  }
+
+  private List<RlpType> sentTransaction(int send) {
+    List<JsonNode> params = node.getParams("eth_sendRawTransaction");
+    byte[] transaction = Numeric.hexStringToByteArray(params.get(send - 1).get(0).asText());
+    assertEquals(Eip1559Transaction.TYPE, transaction[0]);
+    RlpList rlp = RlpDecoder.decode(Arrays.copyOfRange(transaction, 1, transaction.length));
+    return ((RlpList) rlp.getValues().get(0)).getValues();
+  }
+
+  private static BigInteger number(RlpType rlpType) {
+    return ((RlpString) rlpType).asPositiveBigInteger();
+  }
+
+  private String sendBuy() throws IOException {
+    return transactionManager
+        .sendTransaction(
+            BigInteger.TEN, BigInteger.valueOf(300000), TO, BUY_DATA, BigInteger.ZERO, false)
+        .getTransactionHash();
+  }
+
+  @Test
+  void waitForTransactionReceipt_minedInNextBlock_receiptWithoutBump()
+      throws IOException, TransactionException {
+    String hash = sendBuy();
+    TransactionReceipt receipt = tracker.waitForTransactionReceipt(hash);
+    assertEquals(hash, receipt.getTransactionHash());
+    assertEquals(1, node.getParams("eth_sendRawTransaction").size());
+    assertEquals(1, tracker.getIncludedTransactions(Urgency.FAST));
+    assertEquals(1, tracker.getAverageInclusionBlocks(Urgency.FAST));
+    assertEquals(0, tracker.getBumps(Urgency.FAST));
+  }
+
+  @Test
+  void waitForTransactionReceipt_pending_bumpedWithSameNonce()
+      throws IOException, TransactionException {
+    minedOnSend(2);
+    String hash = sendBuy();
+    TransactionReceipt receipt = tracker.waitForTransactionReceipt(hash);
+
+    assertNotEquals(hash, receipt.getTransactionHash());
+    List<RlpType> first = sentTransaction(1);
+    List<RlpType> bumped = sentTransaction(2);
+    assertEquals(number(first.get(1)), number(bumped.get(1))); // nonce
+    for (int fee = 2; fee <= 3; fee++) {
+      double factor = number(bumped.get(fee)).doubleValue() / number(first.get(fee)).doubleValue();
+      assertEquals(PendingTransactionTracker.BUMP_FACTOR, factor, 0.001);
+    }
+    assertEquals(BUY_DATA, Numeric.toHexString(((RlpString) bumped.get(7)).getBytes()));
+    assertEquals(1, tracker.getBumps(Urgency.FAST));
+    assertEquals(1, tracker.getIncludedTransactions(Urgency.FAST));
+  }
+
+  @Test
+  void waitForTransactionReceipt_wouldRevert_cancelledBySelfTransfer() throws IOException {
+    node.answer("eth_call", params -> null);
+    minedOnSend(2);
+    String hash = sendBuy();
+    assertThrows(TransactionException.class, () -> tracker.waitForTransactionReceipt(hash));
+
+    List<RlpType> cancel = sentTransaction(2);
+    assertEquals(BigInteger.valueOf(7), number(cancel.get(1)));
+    assertEquals(PendingTransactionTracker.TRANSFER_GAS_LIMIT, number(cancel.get(4)));
+    assertEquals(
+        CREDENTIALS.getAddress(), Numeric.toHexString(((RlpString) cancel.get(5)).getBytes()));
+    assertEquals(BigInteger.ZERO, number(cancel.get(6)));
+    assertEquals(0, ((RlpString) cancel.get(7)).getBytes().length);
+    assertEquals(1, tracker.getCancellations(Urgency.FAST));
+    assertEquals(0, tracker.getIncludedTransactions(Urgency.FAST));
+  }
+
+  @Test
+  void waitForTransactionReceipt_neverMined_bumpsLimitedByUrgency() throws IOException {
+    minedOnSend(0);
+    String hash = sendBuy();
+    assertThrows(TransactionException.class, () -> tracker.waitForTransactionReceipt(hash));
+    assertEquals(
+        1 + Urgency.FAST.getMaximumBumps(), node.getParams("eth_sendRawTransaction").size());
+  }
+
+  @Test
+  void bump_nearMaximum_cappedByMaximumFee() {
+    Wad18 maximum = new Wad18(100_000000000L);
+    PendingTransactionTracker cappedTracker =
+        new PendingTransactionTracker(node.getWeb3j(), new FeeEngine(node.getService(), maximum));
+    Fees fees = cappedTracker.bump(new Fees(new Wad18(95_000000000L), new Wad18(2_000000000L)));
+    assertEquals(maximum, fees.getMaxFeePerGas());
+    assertEquals(new Wad18(2_250000000L), fees.getMaxPriorityFeePerGas());
+  }
+
+  @Test
+  void waitForTransactionReceipt_wouldRevertAtMaximumFee_notCancelled() throws IOException {
+    node.answer("eth_call", params -> null);
+    minedOnSend(0);
+    FeeEngine cappedFeeEngine = new FeeEngine(node.getService(), new Wad18(100_000000000L));
+    PendingTransactionTracker cappedTracker =
+        new PendingTransactionTracker(node.getWeb3j(), cappedFeeEngine, 1);
+    transactionManager =
+        new Eip1559TransactionManager(
+            node.getWeb3j(), CREDENTIALS, 1, cappedFeeEngine, cappedTracker);
+    String hash = sendBuy();
+    assertThrows(TransactionException.class, () -> cappedTracker.waitForTransactionReceipt(hash));
+    assertEquals(1, node.getParams("eth_sendRawTransaction").size());
+    assertEquals(0, cappedTracker.getCancellations(Urgency.FAST));
+  }
+
+  @Test
+  void isReplacement_feesRaisedByLessThanTenPercent_false() {
+    Fees fees = new Fees(new Wad18(100_000000000L), new Wad18(2_000000000L));
+    assertTrue(
+        PendingTransactionTracker.isReplacement(
+            fees, new Fees(new Wad18(110_000000000L), new Wad18(2_200000000L))));
+    assertFalse(
+        PendingTransactionTracker.isReplacement(
+            fees, new Fees(new Wad18(105_000000000L), new Wad18(2_250000000L))));
+    assertFalse(
+        PendingTransactionTracker.isReplacement(
+            fees, new Fees(new Wad18(112_500000000L), new Wad18(2_000000000L))));
+  }
+}
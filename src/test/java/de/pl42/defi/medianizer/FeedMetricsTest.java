@@ -0,0 +1,69 @@
+package peggy42.cn.medianizer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeedMetricsTest {
+  private final FeedMetrics metrics = new FeedMetrics();
+
+  @Test
+  void getLatencyPercentile_hundredRequests_upperBoundOfBucket() {
+    for (int i = 0; i < 98; i++) metrics.recordSuccess("KRAKEN", 80);
+    metrics.recordSuccess("KRAKEN", 400);
+    metrics.recordError("KRAKEN", 7000);
+    FeedMetrics.Source source = metrics.get("KRAKEN");
+    assertEquals(100, source.getLatencyPercentile(0.5));
+    assertEquals(500, source.getLatencyPercentile(0.99));
+    assertEquals(7000, source.getLatencyPercentile(1));
+    assertEquals(98, source.getLatencyCounts()[3]);
+  }
+
+  @Test
+  void getLatencyPercentile_noRequests_zero() {
+    assertEquals(0, metrics.get("KRAKEN").getLatencyPercentile(0.99));
+    assertThrows(
+        IllegalArgumentException.class, () -> metrics.get("KRAKEN").getLatencyPercentile(1.5));
+  }
+
+  @Test
+  void record_allKinds_countedPerSource() {
+    metrics.recordSuccess("KRAKEN", 10);
+    metrics.recordStreamedPrice("KRAKEN");
+    metrics.recordError("COINBASE", 20);
+    metrics.recordTimeout("COINBASE");
+    metrics.recordMedian("KRAKEN", true);
+    metrics.recordMedian("COINBASE", false);
+    FeedMetrics.Source kraken = metrics.get("KRAKEN");
+    FeedMetrics.Source coinbase = metrics.get("COINBASE");
+    assertEquals(List.of(2L, 0L, 0L, 1L, 0L), counts(kraken));
+    assertEquals(List.of(0L, 1L, 1L, 0L, 1L), counts(coinbase));
+    assertTrue(kraken.getLastSuccessAge(System.currentTimeMillis()) >= 0);
+    assertEquals(-1, coinbase.getLastSuccessAge(System.currentTimeMillis()));
+    assertEquals(List.of("COINBASE", "KRAKEN"), List.copyOf(metrics.getSources().keySet()));
+  }
+
+  private static List<Long> counts(FeedMetrics.Source source) {
+    return List.of(
+        source.getSuccesses(),
+        source.getErrors(),
+        source.getTimeouts(),
+        source.getIncluded(),
+        source.getExcluded());
+  }
+
+  @Test
+  void dump_twoSources_oneLineSortedByName() {
+    metrics.recordSuccess("KRAKEN", 120);
+    metrics.recordMedian("KRAKEN", true);
+    metrics.recordTimeout("COINBASE");
+    metrics.recordMedian("COINBASE", false);
+    long now = metrics.get("KRAKEN").getLastSuccess() + 3500;
+    assertEquals(
+        "COINBASE ok=0 err=0 timeout=1 age=- p50=0ms p99=0ms median=0/1; "
+            + "KRAKEN ok=1 err=0 timeout=0 age=3s p50=120ms p99=120ms median=1/0",
+        metrics.dump(now));
+  }
+}
@@ -0,0 +1,57 @@
+package peggy42.cn.medianizer;
+
+import peggy42.cn.numberutil.Wad18;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpPriceFeedTest {
+  private static final String KRAKEN =
+      "{\"error\":[],\"result\":{\"XETHZUSD\":{\"a\":[\"251.29000\",\"4\",\"4.000\"],\"b\":[\"250.99000\",\"6\",\"6.000\"],\"c\":[\"251.04000\",\"2.00000000\"]}}}";
+  private static final String COINBASE =
+      "{\"data\":{\"base\":\"ETH\",\"currency\":\"USD\",\"amount\":\"237.49\"}}";
+  private static final String CRYPTOCOMPARE = "{\"USD\":268.35}";
+
+  private static InputStream stream(String json) {
+    return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void parse_kraken_averageOfBidAndAsk() throws IOException {
+    assertEquals(Wad18.of("251.14"), HttpPriceFeed.kraken().parse(stream(KRAKEN)));
+  }
+
+  @Test
+  void parse_coinbase_amount() throws IOException {
+    assertEquals(Wad18.of("237.49"), HttpPriceFeed.coinbase().parse(stream(COINBASE)));
+  }
+
+  @Test
+  void parse_cryptocompare_usd() throws IOException {
+    assertEquals(Wad18.of("268.35"), HttpPriceFeed.cryptocompare().parse(stream(CRYPTOCOMPARE)));
+  }
+
+  @Test
+  void parse_krakenWithReorderedKeys_averageOfBidAndAsk() throws IOException {
+    String reordered =
+        "{\"result\":{\"XETHZUSD\":{\"c\":[\"1\"],\"b\":[\"250.99000\",\"6\"],"
+            + "\"a\":[\"251.29000\",\"4\"]}},\"error\":[]}";
+    assertEquals(Wad18.of("251.14"), HttpPriceFeed.kraken().parse(stream(reordered)));
+  }
+
+  @Test
+  void parse_rateLimitError_IOException() {
+    String error = "{\"Response\":\"Error\",\"Message\":\"You are over your rate limit\"}";
+    assertThrows(IOException.class, () -> HttpPriceFeed.cryptocompare().parse(stream(error)));
+  }
+
+  @Test
+  void constructor_noPaths_IllegalArgumentException() {
+    assertThrows(IllegalArgumentException.class, () -> new HttpPriceFeed("X", "http://x"));
+  }
+}
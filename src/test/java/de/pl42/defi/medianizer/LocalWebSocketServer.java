@@ -0,0 +1,177 @@
+package peggy42.cn.medianizer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal in-process WebSocket server (RFC 6455) on localhost that stands in for an exchange. It
+ * accepts one client at a time, records the text messages of the client and pushes text messages
+ * to it. Only unfragmented text and close frames are supported.
+ */
+class LocalWebSocketServer implements AutoCloseable {
+  private static final String GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+  private final ServerSocket serverSocket;
+  private final Thread acceptThread;
+  private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+  private final AtomicInteger connections = new AtomicInteger();
+  private volatile Socket client;
+  private volatile OutputStream clientOutput;
+
+  LocalWebSocketServer() throws IOException {
+    serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+    acceptThread = new Thread(this::acceptClients, "local-websocket-server");
+    acceptThread.setDaemon(true);
+    acceptThread.start();
+  }
+
+  URI getUri() {
+    return URI.create("ws://127.0.0.1:" + serverSocket.getLocalPort() + "/");
+  }
+
+  int getConnections() {
+    return connections.get();
+  }
+
+  /** @return the next message of a client, or null after timeout milliseconds */
+  String receive(long timeout) throws InterruptedException {
+    return received.poll(timeout, TimeUnit.MILLISECONDS);
+  }
+
+  /** Waits until a client completed the handshake */
+  boolean awaitConnection(int count, long timeout) throws InterruptedException {
+    long end = System.currentTimeMillis() + timeout;
+    while (connections.get() < count || clientOutput == null) {
+      if (System.currentTimeMillis() > end) return false;
+      Thread.sleep(5);
+    }
+    return true;
+  }
+
+  synchronized void send(String message) throws IOException {
+    byte[] payload = message.getBytes(StandardCharsets.UTF_8);
+    OutputStream output = clientOutput;
+    if (output == null) throw new IOException("No client connected");
+    output.write(0x81);
+    if (payload.length < 126) {
+      output.write(payload.length);
+    } else if (payload.length < 65536) {
+      output.write(126);
+      output.write(payload.length >>> 8);
+      output.write(payload.length);
+    } else {
+      output.write(127);
+      for (int shift = 56; shift >= 0; shift -= 8) {
+        output.write((int) ((long) payload.length >>> shift));
+      }
+    }
+    output.write(payload);
+    output.flush();
+  }
+
+  /** Drops the connection without a close frame, like a network failure */
+  void disconnect() throws IOException {
+    Socket socket = client;
+    clientOutput = null;
+    if (socket != null) socket.close();
+  }
+
+  @Override
+  public void close() throws IOException {
+    serverSocket.close();
+    disconnect();
+  }
+
+  private void acceptClients() {
+    while (!serverSocket.isClosed()) {
+      try (Socket socket = serverSocket.accept()) {
+        socket.setTcpNoDelay(true);
+        client = socket;
+        InputStream input = socket.getInputStream();
+        OutputStream output = socket.getOutputStream();
+        handshake(input, output);
+        clientOutput = output;
+        connections.incrementAndGet();
+        readFrames(input);
+      } catch (IOException e) {
+        // client is gone, wait for the next one
+      } finally {
+        clientOutput = null;
+      }
+    }
+  }
+
+  private static void handshake(InputStream input, OutputStream output) throws IOException {
+    String key = null;
+    for (String line = readLine(input); !line.isEmpty(); line = readLine(input)) {
+      if (line.toLowerCase().startsWith("sec-websocket-key:"))
+        key = line.substring(line.indexOf(':') + 1).trim();
+    }
+    if (key == null) throw new IOException("No Sec-WebSocket-Key");
+    String response =
+        "HTTP/1.1 101 Switching Protocols\r\n"
+            + "Upgrade: websocket\r\n"
+            + "Connection: Upgrade\r\n"
+            + "Sec-WebSocket-Accept: "
+            + accept(key)
+            + "\r\n\r\n";
+    output.write(response.getBytes(StandardCharsets.US_ASCII));
+    output.flush();
+  }
+
+  private static String accept(String key) {
+    try {
+      MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+      byte[] digest = sha1.digest((key + GUID).getBytes(StandardCharsets.US_ASCII));
+      return Base64.getEncoder().encodeToString(digest);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String readLine(InputStream input) throws IOException {
+    ByteArrayOutputStream line = new ByteArrayOutputStream();
+    for (int b = input.read(); b != '\n'; b = input.read()) {
+      if (b == -1) throw new IOException("Connection closed during handshake");
+      if (b != '\r') line.write(b);
+    }
+    return line.toString(StandardCharsets.US_ASCII);
+  }
+
+  /** Client frames are always masked */
+  private void readFrames(InputStream input) throws IOException {
+    while (true) {
+      int opcode = readByte(input) & 0x0F;
+      long length = readByte(input) & 0x7F;
+      if (length == 126) length = (readByte(input) << 8) | readByte(input);
+      else if (length == 127) {
+        length = 0;
+        for (int i = 0; i < 8; i++) length = (length << 8) | readByte(input);
+      }
+      byte[] mask = input.readNBytes(4);
+      byte[] payload = input.readNBytes((int) length);
+      for (int i = 0; i < payload.length; i++) payload[i] ^= mask[i % 4];
+      if (opcode == 0x8) return;
+      if (opcode == 0x1) received.add(new String(payload, StandardCharsets.UTF_8));
+    }
+  }
+
+  private static int readByte(InputStream input) throws IOException {
+    int b = input.read();
+    if (b == -1) throw new IOException("Connection closed");
+    return b;
+  }
+}
@@ -9,6 +9,8 @@ import org.junit.jupiter.api.Test;
 import org.web3j.crypto.Credentials;
 import org.web3j.protocol.Web3j;
 
+import java.io.IOException;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -55,9 +57,8 @@ class MedianizerIT {
   }
 
   @Test
-  void getCoinbaseProEthPrice_simpleGet_returnPrice() {
-    Medianizer.setMedianizerContract(contractNeedsProvider);
-    Wad18 coinbaseEthPrice = Medianizer.getCoinbaseProEthPrice();
+  void getCoinbaseProEthPrice_simpleGet_returnPrice() throws IOException {
+    Wad18 coinbaseEthPrice = HttpPriceFeed.coinbase().getPrice();
     assertTrue(MINIMUM_ETH_PRICE.compareTo(coinbaseEthPrice) <= 0, TOO_LOW);
     assertTrue(MAXIMUM_ETH_PRICE.compareTo(coinbaseEthPrice) >= 0, TOO_HIGH);
   }
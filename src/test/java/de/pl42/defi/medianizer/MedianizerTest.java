@@ -1,15 +1,28 @@
 package peggy42.cn.medianizer;
 
 import peggy42.cn.numberutil.Wad18;
+import peggy42.cn.tickstore.TickKind;
+import peggy42.cn.tickstore.TickStore;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
 
 class MedianizerTest {
   private static final org.slf4j.Logger logger =
@@ -64,4 +77,178 @@ class MedianizerTest {
     Wad18[] array = {new Wad18(0), new Wad18(0), new Wad18(0), new Wad18(0)};
     Assertions.assertThrows(MedianException.class, () -> Medianizer.getMedian(array));
   }
+
+  private static PriceFeed delayed(String name, Wad18 price, long delay) {
+    return new PriceFeed() {
+      @Override
+      public String getName() {
+        return name;
+      }
+
+      @Override
+      public Wad18 getPrice() throws InterruptedException {
+        Thread.sleep(delay);
+        return price;
+      }
+    };
+  }
+
+  private final Medianizer medianizer = new Medianizer("TEST");
+
+  @Test
+  void fetchPrices_oneSlowFeed_otherPricesWithinDeadline() {
+    List<PriceFeed> feeds =
+        List.of(
+            delayed("FAST_A", new Wad18(1), 0),
+            delayed("FAST_B", new Wad18(2), 0),
+            delayed("SLOW", new Wad18(3), 1000));
+    long start = System.currentTimeMillis();
+    Wad18[] prices = medianizer.fetchPrices(feeds, 200);
+    long duration = System.currentTimeMillis() - start;
+    Assertions.assertTrue(duration < 900, "took " + duration + " ms");
+    Arrays.sort(prices);
+    Assertions.assertArrayEquals(new Wad18[] {new Wad18(1), new Wad18(2)}, prices);
+  }
+
+  @Test
+  void fetchPrices_lateAnswer_usedInNextCycle() throws InterruptedException {
+    Assertions.assertEquals(
+        0, medianizer.fetchPrices(List.of(delayed("LATE", new Wad18(7), 300)), 50).length);
+    Thread.sleep(500);
+    Wad18[] prices = medianizer.fetchPrices(List.of(delayed("LATE", new Wad18(8), 1000)), 50);
+    Assertions.assertArrayEquals(new Wad18[] {new Wad18(7)}, prices);
+  }
+
+  @Test
+  void fetchPrices_oldStreamedPrice_notFresh() {
+    PriceFeed deadStream =
+        new PriceFeed() {
+          @Override
+          public String getName() {
+            return "DEAD_STREAM";
+          }
+
+          @Override
+          public Wad18 getPrice() {
+            return new Wad18(9);
+          }
+
+          @Override
+          public long getPriceTime() {
+            return System.currentTimeMillis() - Medianizer.MAX_PRICE_AGE - 1000;
+          }
+        };
+    Wad18[] prices =
+        medianizer.fetchPrices(List.of(delayed("POLLED", new Wad18(1), 0), deadStream), 200);
+    Assertions.assertArrayEquals(new Wad18[] {new Wad18(1)}, prices);
+  }
+
+  @Test
+  void refresh_threeFeeds_publishSnapshotWithSources() throws MedianException {
+    medianizer.register(delayed("A", new Wad18(1), 0));
+    medianizer.register(delayed("B", new Wad18(5), 0));
+    medianizer.register(delayed("C", new Wad18(3), 0));
+    long start = System.currentTimeMillis();
+    medianizer.refresh();
+    PriceSnapshot snapshot = medianizer.getSnapshot();
+    assertEquals(new Wad18(3), snapshot.getValue());
+    assertEquals(
+        Map.of("A", new Wad18(1), "B", new Wad18(5), "C", new Wad18(3)), snapshot.getSources());
+    assertTrue(snapshot.getTimestamp() >= start);
+    assertNull(snapshot.getBlockNumber());
+  }
+
+  @Test
+  void addSnapshotListener_refreshAndStream_everyPublishedSnapshot() throws MedianException {
+    List<Wad18> medians = new ArrayList<>();
+    medianizer.addSnapshotListener(snapshot -> medians.add(snapshot.getValue()));
+    medianizer.register(delayed("A", new Wad18(1), 0));
+    medianizer.register(delayed("B", new Wad18(5), 0));
+    medianizer.register(delayed("STREAM", new Wad18(3), 0));
+    medianizer.refresh();
+    medianizer.onStreamedPrice("STREAM", new Wad18(9));
+    assertEquals(List.of(new Wad18(3), new Wad18(5)), medians);
+  }
+
+  @Test
+  void onStreamedPrice_afterRefresh_publishNewerSnapshot() throws MedianException {
+    medianizer.register(delayed("A", new Wad18(1), 0));
+    medianizer.register(delayed("B", new Wad18(5), 0));
+    medianizer.register(delayed("STREAM", new Wad18(3), 0));
+    medianizer.refresh();
+    PriceSnapshot polled = medianizer.getSnapshot();
+    medianizer.onStreamedPrice("STREAM", new Wad18(9));
+    PriceSnapshot streamed = medianizer.getSnapshot();
+    assertEquals(new Wad18(5), streamed.getValue());
+    assertEquals(new Wad18(9), streamed.getSources().get("STREAM"));
+    assertEquals(new Wad18(3), polled.getValue());
+    assertEquals(new Wad18(3), polled.getSources().get("STREAM"));
+  }
+
+  @Test
+  void getSnapshot_concurrentReadersDuringStream_consistentSnapshots() throws Exception {
+    medianizer.register(delayed("A", new Wad18(1), 0));
+    medianizer.register(delayed("STREAM", new Wad18(1), 0));
+    medianizer.refresh();
+    ExecutorService readers = Executors.newFixedThreadPool(4);
+    List<Future<Boolean>> results = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      results.add(
+          readers.submit(
+              () -> {
+                for (int j = 0; j < 10_000; j++) {
+                  PriceSnapshot snapshot = medianizer.getSnapshot();
+                  Map<String, Wad18> sources = snapshot.getSources();
+                  Wad18 expected =
+                      sources.get("A").add(sources.get("STREAM")).divide(Wad18.of("2"));
+                  if (!expected.equals(snapshot.getValue())) return false;
+                }
+                return true;
+              }));
+    }
+    for (int i = 2; i < 2_000; i++) medianizer.onStreamedPrice("STREAM", new Wad18(2L * i - 1));
+    for (Future<Boolean> result : results) assertTrue(result.get());
+    readers.shutdown();
+  }
+
+  @Test
+  void setTickStore_recentTicks_warmStartWithoutRefresh(@TempDir Path directory)
+      throws IOException, MedianException {
+    try (TickStore tickStore = TickStore.open(directory)) {
+      medianizer.register(delayed("A", new Wad18(1), 0));
+      medianizer.register(delayed("B", new Wad18(5), 0));
+      medianizer.register(delayed("C", new Wad18(3), 0));
+      medianizer.setTickStore(tickStore);
+      medianizer.refresh();
+      assertNotNull(tickStore.last(TickKind.MEDIAN, "TEST"));
+
+      Medianizer restarted = new Medianizer("TEST");
+      restarted.register(delayed("A", new Wad18(9), 2000));
+      restarted.register(delayed("B", new Wad18(9), 2000));
+      restarted.register(delayed("C", new Wad18(9), 2000));
+      restarted.setTickStore(tickStore);
+      PriceSnapshot snapshot = restarted.getSnapshot();
+      assertEquals(new Wad18(3), snapshot.getValue());
+      assertEquals(medianizer.getSnapshot().getTimestamp(), snapshot.getTimestamp());
+      assertEquals(3, snapshot.getSources().size());
+      restarted.stop();
+    }
+  }
+
+  @Test
+  void refresh_slowAndFailingFeeds_metricsPerFeed() throws MedianException {
+    medianizer.register(delayed("A", new Wad18(1), 0));
+    medianizer.register(delayed("B", new Wad18(5), 0));
+    medianizer.register(delayed("ZERO", Wad18.ZERO, 0));
+    medianizer.register(delayed("SLOW", new Wad18(3), 3 * Medianizer.FEED_DEADLINE));
+    medianizer.refresh();
+    FeedMetrics metrics = medianizer.getMetrics();
+    assertEquals(1, metrics.get("A").getSuccesses());
+    assertEquals(1, metrics.get("A").getIncluded());
+    assertEquals(1, metrics.get("ZERO").getErrors());
+    assertEquals(1, metrics.get("ZERO").getExcluded());
+    assertEquals(1, metrics.get("SLOW").getTimeouts());
+    assertEquals(1, metrics.get("SLOW").getExcluded());
+    assertTrue(metrics.dump(System.currentTimeMillis()).contains("SLOW ok=0 err=0 timeout=1"));
+  }
 }
@@ -0,0 +1,85 @@
+package peggy42.cn.medianizer;
+
+import peggy42.cn.numberutil.Wad18;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceFeedRegistryTest {
+
+  private static PriceFeed feed(String name) {
+    return new PriceFeed() {
+      @Override
+      public String getName() {
+        return name;
+      }
+
+      @Override
+      public Wad18 getPrice() {
+        return Wad18.ONE;
+      }
+    };
+  }
+
+  private static List<String> names(List<PriceFeed> feeds) {
+    return feeds.stream().map(PriceFeed::getName).collect(Collectors.toList());
+  }
+
+  @Test
+  void select_differentLatencies_fastestFirst() {
+    PriceFeedRegistry registry = new PriceFeedRegistry(2, 2);
+    registry.register(feed("SLOW"));
+    registry.register(feed("FAST"));
+    registry.register(feed("MEDIUM"));
+    registry.recordSuccess("SLOW", 900);
+    registry.recordSuccess("FAST", 100);
+    registry.recordSuccess("MEDIUM", 300);
+    assertEquals(List.of("FAST", "MEDIUM"), names(registry.select()));
+  }
+
+  @Test
+  void select_unhealthyFeeds_quorumStillMet() {
+    PriceFeedRegistry registry = new PriceFeedRegistry(3, 5);
+    registry.register(feed("A"));
+    registry.register(feed("B"));
+    registry.register(feed("C"));
+    for (int i = 0; i < 10; i++) {
+      registry.recordFailure("B", 100);
+      registry.recordFailure("C", 100);
+    }
+    registry.recordSuccess("C", 100);
+    assertTrue(registry.getErrorRate("B") > PriceFeedRegistry.MAX_ERROR_RATE);
+    assertEquals(List.of("A", "C", "B"), names(registry.select()));
+  }
+
+  @Test
+  void select_unhealthyFeedAboveQuorum_notSelectedUntilRetry() {
+    PriceFeedRegistry registry = new PriceFeedRegistry(1, 5);
+    registry.register(feed("A"));
+    registry.register(feed("B"));
+    for (int i = 0; i < 10; i++) registry.recordFailure("B", 100);
+    assertEquals(List.of("A"), names(registry.select()));
+  }
+
+  @Test
+  void recordSuccess_manyAnswers_smoothedLatency() {
+    PriceFeedRegistry registry = new PriceFeedRegistry(1, 1);
+    registry.register(feed("A"));
+    registry.recordSuccess("A", 1000);
+    assertEquals(1000, registry.getLatency("A"));
+    for (int i = 0; i < 50; i++) registry.recordSuccess("A", 100);
+    assertEquals(100, registry.getLatency("A"), 1);
+    assertEquals(0, registry.getErrorRate("A"));
+  }
+
+  @Test
+  void register_sameName_replaced() {
+    PriceFeedRegistry registry = new PriceFeedRegistry(1, 5);
+    registry.register(feed("A"));
+    registry.register(feed("A"));
+    assertEquals(1, registry.getFeeds().size());
+  }
+}
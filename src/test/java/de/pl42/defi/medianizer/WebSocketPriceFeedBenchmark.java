@@ -0,0 +1,72 @@
+package peggy42.cn.medianizer;
+
+import peggy42.cn.numberutil.Wad18;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency from a ticker message leaving the local WebSocket server until the listener of the
+ * WebSocketPriceFeed has the parsed price, i.e. how fresh a streamed price is compared to a polled
+ * one. Run with the main method from the test classpath.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WebSocketPriceFeedBenchmark {
+  private final SynchronousQueue<Wad18> prices = new SynchronousQueue<>();
+  private LocalWebSocketServer server;
+  private WebSocketPriceFeed feed;
+  private int sequence;
+
+  public static void main(String[] args) throws RunnerException {
+    Options options =
+        new OptionsBuilder().include(WebSocketPriceFeedBenchmark.class.getSimpleName()).build();
+    new Runner(options).run();
+  }
+
+  @Setup
+  public void setUp() throws IOException, InterruptedException {
+    server = new LocalWebSocketServer();
+    feed =
+        new WebSocketPriceFeed(
+            "LOCAL",
+            server.getUri(),
+            "{\"type\":\"subscribe\"}",
+            message -> WebSocketPriceFeed.parseValue(message, "price"),
+            50,
+            200,
+            60L * 1000);
+    feed.start(
+        price -> {
+          try {
+            prices.put(price);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+    if (!server.awaitConnection(1, 5000)) throw new IllegalStateException("Not connected");
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    feed.close();
+    server.close();
+  }
+
+  @Benchmark
+  public Wad18 pushToListener() throws IOException, InterruptedException {
+    sequence = sequence % 1000 + 1;
+    server.send("{\"type\":\"ticker\",\"price\":\"237." + sequence + "\"}");
+    return prices.take();
+  }
+}
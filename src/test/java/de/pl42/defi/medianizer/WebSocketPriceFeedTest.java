@@ -0,0 +1,101 @@
+package peggy42.cn.medianizer;
+
+import peggy42.cn.numberutil.Wad18;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebSocketPriceFeedTest {
+  private static final String KRAKEN_TICKER =
+      "[340,{\"a\":[\"251.29000\",4,\"4.000\"],\"b\":[\"250.99000\",6,\"6.000\"],\"c\":[\"251.04000\",\"2.00000000\"]},\"ticker\",\"ETH/USD\"]";
+  private static final String SUBSCRIBE = "{\"type\":\"subscribe\"}";
+  private LocalWebSocketServer server;
+  private WebSocketPriceFeed feed;
+  private final BlockingQueue<Wad18> prices = new LinkedBlockingQueue<>();
+
+  @BeforeEach
+  void setUp() throws IOException {
+    server = new LocalWebSocketServer();
+    feed =
+        new WebSocketPriceFeed(
+            "LOCAL",
+            server.getUri(),
+            SUBSCRIBE,
+            message -> WebSocketPriceFeed.parseValue(message, "price"),
+            50,
+            200,
+            60L * 1000);
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    feed.close();
+    server.close();
+  }
+
+  @Test
+  void parseValue_krakenTicker_firstElementOfArray() {
+    assertEquals(Wad18.of("251.29"), WebSocketPriceFeed.parseValue(KRAKEN_TICKER, "a"));
+    assertEquals(Wad18.of("250.99"), WebSocketPriceFeed.parseValue(KRAKEN_TICKER, "b"));
+  }
+
+  @Test
+  void parseValue_unknownKey_returnNull() {
+    assertNull(WebSocketPriceFeed.parseValue("{\"event\":\"heartbeat\"}", "price"));
+  }
+
+  @Test
+  void getPrice_noMessageYet_throwIOException() {
+    assertThrows(IOException.class, feed::getPrice);
+  }
+
+  @Test
+  void start_pushedTicker_listenerReceivesPrice() throws Exception {
+    feed.start(prices::add);
+    assertTrue(server.awaitConnection(1, 5000));
+    assertEquals(SUBSCRIBE, server.receive(5000));
+    server.send("{\"type\":\"subscriptions\"}");
+    server.send("{\"type\":\"ticker\",\"price\":\"237.49\"}");
+    assertEquals(Wad18.of("237.49"), prices.poll(5, TimeUnit.SECONDS));
+    assertEquals(Wad18.of("237.49"), feed.getPrice());
+    assertTrue(prices.isEmpty());
+  }
+
+  @Test
+  void start_serverDropsConnection_reconnectAndSubscribeAgain() throws Exception {
+    feed.start(prices::add);
+    assertTrue(server.awaitConnection(1, 5000));
+    assertEquals(SUBSCRIBE, server.receive(5000));
+    server.disconnect();
+    assertTrue(server.awaitConnection(2, 5000));
+    assertEquals(SUBSCRIBE, server.receive(5000));
+    server.send("{\"type\":\"ticker\",\"price\":\"240\"}");
+    assertEquals(Wad18.of("240"), prices.poll(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void start_silentConnection_reconnectAfterIdleTimeout() throws Exception {
+    feed =
+        new WebSocketPriceFeed(
+            "LOCAL",
+            server.getUri(),
+            SUBSCRIBE,
+            message -> WebSocketPriceFeed.parseValue(message, "price"),
+            50,
+            200,
+            300);
+    feed.start(prices::add);
+    assertTrue(server.awaitConnection(1, 5000));
+    assertEquals(SUBSCRIBE, server.receive(5000));
+    // the server neither sends messages nor answers pings, like a half-open connection
+    assertTrue(server.awaitConnection(2, 5000));
+    assertEquals(SUBSCRIBE, server.receive(5000));
+  }
+}
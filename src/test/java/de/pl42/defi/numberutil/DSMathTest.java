@@ -0,0 +1,80 @@
+package peggy42.cn.numberutil;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+
+import static peggy42.cn.numberutil.DSMath.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DSMathTest {
+  private static final BigInteger UINT256_MAX =
+      BigInteger.ONE.shiftLeft(256).subtract(BigInteger.ONE);
+
+  @Test
+  void wmul_halfWei_roundedUp() {
+    assertEquals(BigInteger.ONE, wmul(BigInteger.ONE, new BigInteger("500000000000000000")));
+    assertEquals(BigInteger.ZERO, wmul(BigInteger.ONE, new BigInteger("499999999999999999")));
+    assertEquals(
+        new BigInteger("3000000000000000000"),
+        wmul(new BigInteger("1500000000000000000"), new BigInteger("2000000000000000000")));
+  }
+
+  @Test
+  void wdiv_oneThirdAndTwoThirds_roundedHalfUp() {
+    BigInteger three = new BigInteger("3000000000000000000");
+    assertEquals(new BigInteger("333333333333333333"), wdiv(WAD, three));
+    assertEquals(new BigInteger("666666666666666667"), wdiv(WAD.add(WAD), three));
+  }
+
+  @Test
+  void rmulAndRdiv_ray_sameAsSolidityFormula() {
+    BigInteger x = new BigInteger("1000000000627937192491029810");
+    BigInteger y = new BigInteger("1234567890123456789012345678");
+    assertEquals(x.multiply(y).add(RAY.divide(BigInteger.TWO)).divide(RAY), rmul(x, y));
+    assertEquals(x.multiply(RAY).add(y.divide(BigInteger.TWO)).divide(y), rdiv(x, y));
+  }
+
+  @Test
+  void rpow_two_powerOfTwo() {
+    assertEquals(RAY.shiftLeft(10), rpow(RAY.add(RAY), 10));
+    assertEquals(RAY, rpow(RAY.add(RAY), 0));
+    assertEquals(RAY, rpow(BigInteger.ZERO, 0));
+    assertEquals(BigInteger.ZERO, rpow(BigInteger.ZERO, 5));
+  }
+
+  @Test
+  void rpow_wadBase_exact() {
+    BigInteger oneAndATenth = new BigInteger("1100000000000000000");
+    assertEquals(new BigInteger("1210000000000000000"), rpow(oneAndATenth, 2, WAD));
+  }
+
+  @Test
+  void rpow_dsrPerSecond_aboutTwoPercentPerYear() {
+    BigInteger perSecond = new BigInteger("1000000000627937192491029810"); // 2% DSR
+    BigDecimal actual = new BigDecimal(rpow(perSecond, 31536000)).movePointLeft(27);
+    BigDecimal expected =
+        new BigDecimal(perSecond).movePointLeft(27).pow(31536000, MathContext.DECIMAL128);
+    MathContext twentyDigits = new MathContext(20);
+    assertEquals(0, expected.round(twentyDigits).compareTo(actual.round(twentyDigits)));
+  }
+
+  @Test
+  void mul_overflow_ArithmeticException() {
+    Exception exception =
+        assertThrows(ArithmeticException.class, () -> mul(UINT256_MAX, BigInteger.TWO));
+    assertEquals("ds-math-mul-overflow", exception.getMessage());
+    assertThrows(ArithmeticException.class, () -> add(UINT256_MAX, BigInteger.ONE));
+    assertThrows(ArithmeticException.class, () -> sub(BigInteger.ONE, BigInteger.TWO));
+    assertThrows(ArithmeticException.class, () -> rpow(UINT256_MAX, 2));
+  }
+
+  @Test
+  void wdiv_DivideByZero_IllegalArgumentException() {
+    Exception exception =
+        assertThrows(IllegalArgumentException.class, () -> wdiv(WAD, BigInteger.ZERO));
+    assertTrue(exception.getMessage().contains("Argument 'divisor' is 0"));
+  }
+}
@@ -0,0 +1,83 @@
+package peggy42.cn.numberutil;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecimalFormatterTest {
+
+  private static String expected(NumberWrapper numberWrapper, int digits) {
+    return numberWrapper
+        .toBigDecimal()
+        .movePointLeft(numberWrapper.decimals)
+        .setScale(digits, RoundingMode.DOWN)
+        .toPlainString();
+  }
+
+  @Test
+  void format_randomWad18_sameAsBigDecimal() {
+    Random random = new Random(42);
+    for (int i = 0; i < 100_000; i++) {
+      BigInteger integer = new BigInteger(random.nextInt(128), random);
+      Wad18 wad18 = new Wad18(random.nextBoolean() ? integer.negate() : integer);
+      int digits = random.nextInt(22);
+      assertEquals(expected(wad18, digits), wad18.toString(digits), wad18.toBigInteger() + "");
+    }
+  }
+
+  @Test
+  void format_extremeWad18_sameAsBigDecimal() {
+    BigInteger max = BigInteger.ONE.shiftLeft(127).subtract(BigInteger.ONE);
+    Wad18[] wad18s = {
+      new Wad18(max), new Wad18(max.negate()), new Wad18(max.negate().subtract(BigInteger.ONE)),
+      new Wad18(BigInteger.TEN.pow(36)), new Wad18(-1), Wad18.ZERO
+    };
+    for (Wad18 wad18 : wad18s) {
+      for (int digits = 0; digits < 22; digits++) {
+        assertEquals(expected(wad18, digits), wad18.toString(digits));
+      }
+    }
+  }
+
+  @Test
+  void toString_otherDecimals_scaleAware() {
+    assertEquals("1.00", new Rad45(BigInteger.TEN.pow(45)).toString(2));
+    assertEquals("0.02047", new Sth28("204721618847438310000000000").toString(5));
+    assertEquals("-0.5", new NumberWrapper(-5, 1).toString(1));
+    assertEquals("-0.5", new NumberWrapper(-5, 1).toString());
+  }
+
+  @Test
+  void toString_smallNegative_noMinusZero() {
+    assertEquals("0.00", new Wad18(-1).toString(2));
+    assertEquals("-0.01", Wad18.of("-0.01").toString(2));
+  }
+
+  @Test
+  void appendTo_stringBuilder_appended() throws IOException {
+    StringBuilder builder = new StringBuilder("PROFIT ");
+    Wad18.of("204.12").appendTo(builder, 2).append(" DAI");
+    assertEquals("PROFIT 204.12 DAI", builder.toString());
+  }
+
+  @Test
+  void lazy_toString_formattedWithCurrentValue() {
+    MutableWad18 mutableWad18 = new MutableWad18(Wad18.of("1.5"));
+    Object lazy = DecimalFormatter.lazy(mutableWad18, 1);
+    mutableWad18.add(Wad18.of("1"));
+    assertEquals("2.5", lazy.toString());
+    Wad18 median = new Wad18(new BigDecimal("204120000000000000000"));
+    assertEquals("204.1", DecimalFormatter.lazy(median, 1).toString());
+  }
+
+  @Test
+  void format_negativeDigits_IllegalArgumentException() {
+    assertThrows(IllegalArgumentException.class, () -> Wad18.ONE.toString(-1));
+  }
+}
@@ -0,0 +1,82 @@
+package peggy42.cn.numberutil;
+
+import peggy42.cn.util.JsonPath;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.web3j.utils.Convert;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static peggy42.cn.numberutil.NumberUtil.getMachineReadable;
+
+/**
+ * Compares the DecimalParser and the streaming JsonPath with the split, Double.valueOf and
+ * Convert.toWei parsing the price and gas feeds used before. Run with the main method from the test classpath.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DecimalParserBenchmark {
+  private final String kraken =
+      "{\"error\":[],\"result\":{\"XETHZUSD\":{\"a\":[\"251.29000\",\"4\",\"4.000\"],\"b\":[\"250.99000\",\"6\",\"6.000\"],\"c\":[\"251.04000\",\"2.00000000\"]}}}";
+  private final byte[] krakenBytes = kraken.getBytes(StandardCharsets.UTF_8);
+  private final JsonPath krakenPaths =
+      JsonPath.compile("result.XETHZUSD.a[0]", "result.XETHZUSD.b[0]");
+  private final String ethGasStation =
+      "{\"fast\": 400.0, \"fastest\": 500.0, \"safeLow\": 313.0, \"average\": 350.0}";
+
+  public static void main(String[] args) throws RunnerException {
+    Options options =
+        new OptionsBuilder().include(DecimalParserBenchmark.class.getSimpleName()).build();
+    new Runner(options).run();
+  }
+
+  @Benchmark
+  public Wad18 krakenDecimalParser() {
+    return DecimalParser.parseSegment(kraken, '"', 9, 18)
+        .add(DecimalParser.parseSegment(kraken, '"', 17, 18));
+  }
+
+  @Benchmark
+  public Wad18 krakenJsonPath() throws IOException {
+    Wad18[] values = krakenPaths.read(new ByteArrayInputStream(krakenBytes), 18);
+    return values[0].add(values[1]);
+  }
+
+  @Benchmark
+  public Wad18 krakenDouble() {
+    String[] parts = kraken.split("\"");
+    BigInteger bid = getMachineReadable(Double.valueOf(parts[9]));
+    BigInteger ask = getMachineReadable(Double.valueOf(parts[17]));
+    return new Wad18(bid.add(ask));
+  }
+
+  @Benchmark
+  public Wad18 ethGasStationDecimalParser() {
+    return DecimalParser.parseSegment(ethGasStation, '"', 4, 8);
+  }
+
+  @Benchmark
+  public Wad18 ethGasStationConvert() {
+    String[] parts = ethGasStation.split("\"");
+    String clean = parts[4].replaceAll("[^\\d.]", "");
+    return new Wad18(
+        Convert.toWei(clean, Convert.Unit.GWEI).toBigInteger().divide(BigInteger.TEN));
+  }
+
+  @Benchmark
+  public BigDecimal bigDecimal() {
+    return new BigDecimal("251.29000").movePointRight(18);
+  }
+}
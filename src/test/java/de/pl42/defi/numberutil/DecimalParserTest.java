@@ -0,0 +1,105 @@
+package peggy42.cn.numberutil;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecimalParserTest {
+  private static final String KRAKEN =
+      "{\"error\":[],\"result\":{\"XETHZUSD\":{\"a\":[\"251.29000\",\"4\",\"4.000\"],\"b\":[\"250.99000\",\"6\",\"6.000\"],\"c\":[\"251.04000\",\"2.00000000\"]}}}";
+  private static final String COINBASE =
+      "{\"data\":{\"base\":\"ETH\",\"currency\":\"USD\",\"amount\":\"237.49\"}}";
+  private static final String ETH_GAS_STATION =
+      "{\"fast\": 400.0, \"fastest\": 500.0, \"safeLow\": 313.0, \"average\": 350.0}";
+
+  private static String randomDecimal(Random random) {
+    StringBuilder builder = new StringBuilder();
+    int sign = random.nextInt(3);
+    if (sign == 1) builder.append('-');
+    if (sign == 2) builder.append('+');
+    int integerDigits = random.nextInt(25);
+    for (int i = 0; i < integerDigits; i++) builder.append((char) ('0' + random.nextInt(10)));
+    if (integerDigits == 0 || random.nextBoolean()) {
+      builder.append('.');
+      int fractionDigits = random.nextInt(25) + (integerDigits == 0 ? 1 : 0);
+      for (int i = 0; i < fractionDigits; i++) builder.append((char) ('0' + random.nextInt(10)));
+    }
+    if (random.nextInt(20) == 0) builder.append('e').append(random.nextInt(11) - 5);
+    return builder.toString();
+  }
+
+  private static BigInteger expected(String decimal, int decimals) {
+    return new BigDecimal(decimal)
+        .movePointRight(decimals)
+        .setScale(0, RoundingMode.DOWN)
+        .toBigIntegerExact();
+  }
+
+  @Test
+  void parse_randomDecimals_sameAsBigDecimal() {
+    Random random = new Random(42);
+    for (int i = 0; i < 100_000; i++) {
+      String decimal = randomDecimal(random);
+      int decimals = random.nextInt(19);
+      byte[] bytes = ("x" + decimal + "y").getBytes(StandardCharsets.US_ASCII);
+      BigInteger expected = expected(decimal, decimals);
+      assertEquals(
+          expected,
+          DecimalParser.parse(decimal, 0, decimal.length(), decimals).toBigInteger(),
+          decimal);
+      assertEquals(
+          expected,
+          DecimalParser.parse(bytes, 1, bytes.length - 1, decimals).toBigInteger(),
+          decimal);
+    }
+  }
+
+  @Test
+  void parseWad18_price_wad18() {
+    assertEquals(Wad18.of("251.29"), DecimalParser.parseWad18("251.29000"));
+    byte[] bytes = "251.29000".getBytes(StandardCharsets.US_ASCII);
+    assertEquals(Wad18.of("251.29"), DecimalParser.parseWad18(bytes, 0, bytes.length));
+  }
+
+  @Test
+  void parse_invalidInput_NumberFormatException() {
+    assertThrows(NumberFormatException.class, () -> DecimalParser.parseWad18(""));
+    assertThrows(NumberFormatException.class, () -> DecimalParser.parseWad18("-."));
+    assertThrows(NumberFormatException.class, () -> DecimalParser.parseWad18("1.2.3"));
+    assertThrows(NumberFormatException.class, () -> DecimalParser.parseWad18("12a"));
+  }
+
+  @Test
+  void parse_decimalsOutOfRange_IllegalArgumentException() {
+    assertThrows(IllegalArgumentException.class, () -> DecimalParser.parse("1", 0, 1, 19));
+  }
+
+  @Test
+  void parseSegment_kraken_bidAndAsk() {
+    assertEquals(Wad18.of("251.29"), DecimalParser.parseSegment(KRAKEN, '"', 9, 18));
+    assertEquals(Wad18.of("250.99"), DecimalParser.parseSegment(KRAKEN, '"', 17, 18));
+  }
+
+  @Test
+  void parseSegment_coinbase_price() {
+    assertEquals(Wad18.of("237.49"), DecimalParser.parseSegment(COINBASE, '"', 13, 18));
+  }
+
+  @Test
+  void parseSegment_ethGasStation_gasPriceInWei() {
+    Wad18 expected = new Wad18(new BigInteger("50000000000")); // 50 GWEI
+    assertEquals(expected, DecimalParser.parseSegment(ETH_GAS_STATION, '"', 4, 8));
+  }
+
+  @Test
+  void parseSegment_missingSegment_NumberFormatException() {
+    assertThrows(
+        NumberFormatException.class, () -> DecimalParser.parseSegment(COINBASE, '"', 40, 18));
+  }
+}
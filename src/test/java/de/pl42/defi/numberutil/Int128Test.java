@@ -0,0 +1,153 @@
+package peggy42.cn.numberutil;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Int128Test {
+  private static final BigDecimal WAD = new BigDecimal("1000000000000000000");
+  private static final BigInteger MAX = BigInteger.ONE.shiftLeft(127).subtract(BigInteger.ONE);
+  private static final BigInteger MIN = BigInteger.ONE.shiftLeft(127).negate();
+  private static final Int128.Sink<Wad18> LIMBS = (target, hi, lo) -> Wad18.ofLimbs(hi, lo);
+
+  private static BigInteger randomInteger(Random random) {
+    BigInteger integer = new BigInteger(random.nextInt(128), random);
+    return random.nextBoolean() ? integer.negate() : integer;
+  }
+
+  private static Wad18 limbs(BigInteger integer) {
+    return Wad18.ofLimbs(Int128.high(integer), integer.longValue());
+  }
+
+  private static BigInteger orNull(BigInteger integer) {
+    return integer.compareTo(MAX) > 0 || integer.compareTo(MIN) < 0 ? null : integer;
+  }
+
+  private static BigInteger toBigInteger(Wad18 wad18) {
+    return wad18 == null ? null : wad18.toBigInteger();
+  }
+
+  @Test
+  void wmul_randomOperands_sameAsBigDecimal() {
+    Random random = new Random(42);
+    for (int i = 0; i < 100_000; i++) {
+      BigInteger a = randomInteger(random);
+      BigInteger b = randomInteger(random);
+      BigInteger expected =
+          orNull(
+              new BigDecimal(a)
+                  .multiply(new BigDecimal(b))
+                  .divide(WAD, 0, RoundingMode.DOWN)
+                  .toBigIntegerExact());
+      Wad18 actual =
+          Int128.wmul(Int128.high(a), a.longValue(), Int128.high(b), b.longValue(), null, LIMBS);
+      if (expected == null) {
+        assertNull(actual, a + " * " + b);
+      } else if (actual != null || !expected.equals(MIN)) {
+        assertEquals(expected, toBigInteger(actual), a + " * " + b);
+      }
+    }
+  }
+
+  @Test
+  void wdiv_randomOperands_sameAsBigDecimal() {
+    Random random = new Random(42);
+    for (int i = 0; i < 100_000; i++) {
+      BigInteger a = randomInteger(random);
+      BigInteger b = randomInteger(random);
+      if (b.signum() == 0) continue;
+      BigInteger expected =
+          orNull(
+              new BigDecimal(a)
+                  .multiply(WAD)
+                  .divide(new BigDecimal(b), 0, RoundingMode.DOWN)
+                  .toBigIntegerExact());
+      Wad18 actual =
+          Int128.wdiv(Int128.high(a), a.longValue(), Int128.high(b), b.longValue(), null, LIMBS);
+      if (expected == null) {
+        assertNull(actual, a + " / " + b);
+      } else if (actual != null || !expected.equals(MIN)) {
+        assertEquals(expected, toBigInteger(actual), a + " / " + b);
+      }
+    }
+  }
+
+  @Test
+  void addAndSubtract_randomOperands_sameAsBigInteger() {
+    Random random = new Random(42);
+    for (int i = 0; i < 100_000; i++) {
+      BigInteger a = randomInteger(random);
+      BigInteger b = randomInteger(random);
+      long highA = Int128.high(a);
+      long highB = Int128.high(b);
+      assertEquals(
+          orNull(a.add(b)),
+          toBigInteger(Int128.add(highA, a.longValue(), highB, b.longValue(), null, LIMBS)));
+      assertEquals(
+          orNull(a.subtract(b)),
+          toBigInteger(Int128.subtract(highA, a.longValue(), highB, b.longValue(), null, LIMBS)));
+    }
+  }
+
+  @Test
+  void compare_randomOperands_sameAsBigInteger() {
+    Random random = new Random(42);
+    for (int i = 0; i < 100_000; i++) {
+      BigInteger a = randomInteger(random);
+      BigInteger b = randomInteger(random);
+      assertEquals(
+          Integer.signum(a.compareTo(b)),
+          Integer.signum(
+              Int128.compare(Int128.high(a), a.longValue(), Int128.high(b), b.longValue())));
+    }
+  }
+
+  @Test
+  void toBigInteger_limits_roundTrip() {
+    assertEquals(MAX, limbs(MAX).toBigInteger());
+    assertEquals(MIN, limbs(MIN).toBigInteger());
+    assertEquals(BigInteger.ONE.negate(), limbs(BigInteger.ONE.negate()).toBigInteger());
+  }
+
+  @Test
+  void divideUnsigned128By64_largeValues_sameAsBigInteger() {
+    BigInteger u = new BigInteger("fffffffffffffffeffffffffffffffff", 16);
+    BigInteger v = new BigInteger("ffffffffffffffff", 16);
+    long expected = u.divide(v).longValue();
+    long actual =
+        Int128.divideUnsigned128By64(u.shiftRight(64).longValue(), u.longValue(), v.longValue());
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  void toDouble_randomValues_sameAsBigDecimal() {
+    Random random = new Random(42);
+    for (int i = 0; i < 100_000; i++) {
+      BigInteger a = randomInteger(random);
+      assertEquals(
+          new BigDecimal(a).doubleValue(), Int128.toDouble(Int128.high(a), a.longValue()), "" + a);
+    }
+  }
+
+  @Test
+  void toDouble_halfwayValues_roundedToEven() {
+    for (int bits = 54; bits < 127; bits++) {
+      BigInteger halfway = BigInteger.ONE.shiftLeft(bits).add(BigInteger.ONE.shiftLeft(bits - 53));
+      for (int delta = -1; delta <= 1; delta++) {
+        BigInteger a = halfway.add(BigInteger.valueOf(delta));
+        for (BigInteger value : new BigInteger[] {a, a.negate()}) {
+          assertEquals(
+              new BigDecimal(value).doubleValue(),
+              Int128.toDouble(Int128.high(value), value.longValue()),
+              "" + value);
+        }
+      }
+    }
+    assertEquals(new BigDecimal(MIN).doubleValue(), Int128.toDouble(Long.MIN_VALUE, 0));
+  }
+}
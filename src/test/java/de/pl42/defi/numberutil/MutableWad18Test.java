@@ -0,0 +1,97 @@
+package peggy42.cn.numberutil;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MutableWad18Test {
+
+  private static Wad18 randomWad18(Random random) {
+    BigInteger integer = new BigInteger(random.nextInt(140), random);
+    return new Wad18(random.nextBoolean() ? integer.negate() : integer);
+  }
+
+  @Test
+  void chain_randomOperations_sameAsWad18() {
+    Random random = new Random(42);
+    for (int i = 0; i < 10_000; i++) {
+      Wad18 expected = randomWad18(random);
+      MutableWad18 actual = new MutableWad18(expected);
+      for (int j = 0; j < 8; j++) {
+        Wad18 operand = randomWad18(random);
+        switch (random.nextInt(6)) {
+          case 0:
+            expected = expected.add(operand);
+            actual.add(operand);
+            break;
+          case 1:
+            expected = expected.subtract(operand);
+            actual.subtract(operand);
+            break;
+          case 2:
+            expected = expected.multiply(operand);
+            actual.multiply(operand);
+            break;
+          case 3:
+            if (operand.compareTo(Wad18.ZERO) == 0) continue;
+            expected = expected.divide(operand);
+            actual.divide(operand);
+            break;
+          case 4:
+            expected = expected.min(operand);
+            actual.min(operand);
+            break;
+          default:
+            expected = expected.max(operand);
+            actual.max(operand);
+        }
+        assertEquals(0, expected.compareTo(actual.toWad18()));
+      }
+    }
+  }
+
+  @Test
+  void add_mutableWad18_sameAsWad18() {
+    Wad18 median = new Wad18(new BigInteger("204120000000000000000"));
+    Wad18 eth = new Wad18(new BigInteger("1500000000000000000"));
+    Wad18 weth = new Wad18(new BigInteger("2500000000000000000"));
+    Wad18 dai = new Wad18(new BigInteger("300000000000000000000"));
+    BigDecimal expected = eth.multiply(median).add(weth.multiply(median)).add(dai).toBigDecimal();
+    BigDecimal actual =
+        new MutableWad18(eth)
+            .multiply(median)
+            .add(new MutableWad18(weth).multiply(median))
+            .add(dai)
+            .toWad18()
+            .toBigDecimal();
+    assertEquals(0, expected.compareTo(actual));
+  }
+
+  @Test
+  void toWad18_afterFreezing_notAffectedByLaterChanges() {
+    MutableWad18 mutableWad18 = new MutableWad18(new Wad18(5));
+    Wad18 frozen = mutableWad18.toWad18();
+    mutableWad18.add(new Wad18(1));
+    assertEquals(new Wad18(5), frozen);
+    assertEquals(new Wad18(6), mutableWad18.toWad18());
+  }
+
+  @Test
+  void add_overflowAndBack_sameAsWad18() {
+    Wad18 big = new Wad18(BigInteger.ONE.shiftLeft(126));
+    MutableWad18 mutableWad18 = new MutableWad18(big).add(big).add(big).subtract(big).subtract(big);
+    assertEquals(big, mutableWad18.toWad18());
+  }
+
+  @Test
+  void divide_DivideByZero_IllegalArgumentException() {
+    MutableWad18 mutableWad18 = new MutableWad18(Wad18.ONE);
+    Exception exception =
+        assertThrows(IllegalArgumentException.class, () -> mutableWad18.divide(Wad18.ZERO));
+    assertTrue(exception.getMessage().contains("Argument 'divisor' is 0"));
+  }
+}
@@ -4,7 +4,6 @@ import org.junit.jupiter.api.Test;
 
 import java.math.BigInteger;
 
-import static peggy42.cn.numberutil.NumberUtil.getMachineReadable;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 class NumberWrapperTest {
@@ -14,7 +13,7 @@ class NumberWrapperTest {
     Wad18 wad18 = new Wad18(BigInteger.ONE);
     Rad45 rad45 = new Rad45(BigInteger.ONE);
     Wad18 actual = wad18.divide(rad45);
-    Wad18 expected = new Wad18(getMachineReadable(1.0));
+    Wad18 expected = new Wad18(BigInteger.TEN.pow(45)); // 10^-18 / 10^-45 = 10^27
     assertEquals(0, expected.compareTo(actual));
   }
 }
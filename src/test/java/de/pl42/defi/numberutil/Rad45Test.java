@@ -0,0 +1,49 @@
+package peggy42.cn.numberutil;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Rad45Test {
+
+  @Test
+  void multiplyAndCompareTo_randomOperands_sameAsBigDecimal() {
+    Random random = new Random(42);
+    for (int i = 0; i < 10_000; i++) {
+      Rad45 rad45 = new Rad45(new BigInteger(random.nextInt(257), random));
+      BigInteger wad = new BigInteger(random.nextInt(127), random);
+      Wad18 wad18 = new Wad18(random.nextBoolean() ? wad : wad.negate());
+      BigDecimal rad = rad45.toBigDecimal();
+      Wad18 expected = new Wad18(Scale.multiply(rad, 45, wad18.toBigDecimal(), 18, 18));
+      assertEquals(expected, rad45.multiply(wad18));
+      assertEquals(Scale.compare(rad, 45, wad18.toBigDecimal(), 18), rad45.compareTo(wad18));
+    }
+  }
+
+  @Test
+  void divide_Rad45ByRad45_Wad18() {
+    Rad45 tab = new Rad45("37299123089429162514476831876850683361693243730");
+    Rad45 bid = new Rad45("18649561544714581257238415938425341680846621865");
+    assertEquals(Wad18.of("2"), tab.divide(bid));
+  }
+
+  @Test
+  void constructor_uint256_sameAsBigInteger() {
+    BigInteger bid = new BigInteger("37299123089429162514476831876850683361693243730");
+    Rad45 expected = new Rad45(bid);
+    Rad45 actual = new Rad45(UInt256.valueOf(bid));
+    assertEquals(expected, actual);
+    assertEquals(0, new BigDecimal(bid).compareTo(actual.toBigDecimal()));
+  }
+
+  @Test
+  void constructor_negative_noUInt256() {
+    Rad45 rad45 = new Rad45(BigInteger.ONE.negate());
+    assertNull(rad45.toUInt256());
+    assertTrue(rad45.compareTo(Rad45.ZERO) < 0);
+  }
+}
@@ -0,0 +1,125 @@
+package peggy42.cn.numberutil;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScaleTest {
+  private static final int[] DECIMALS = {18, 28, 45};
+
+  private static BigDecimal randomValue(Random random) {
+    BigInteger integer = new BigInteger(random.nextInt(200), random);
+    return new BigDecimal(random.nextBoolean() ? integer.negate() : integer);
+  }
+
+  @Test
+  void powerOfTen_exponents_sameAsBigInteger() {
+    for (int i = 0; i < 120; i++) {
+      assertEquals(BigInteger.TEN.pow(i), Scale.bigIntegerPowerOfTen(i));
+      assertEquals(0, new BigDecimal(BigInteger.TEN.pow(i)).compareTo(Scale.powerOfTen(i)));
+    }
+  }
+
+  @Test
+  void powerOfTen_negativeExponent_IllegalArgumentException() {
+    assertThrows(IllegalArgumentException.class, () -> Scale.powerOfTen(-1));
+  }
+
+  @Test
+  void rescale_randomValues_sameAsMovePoint() {
+    Random random = new Random(42);
+    for (int i = 0; i < 10_000; i++) {
+      BigDecimal value = randomValue(random);
+      int from = DECIMALS[random.nextInt(DECIMALS.length)];
+      int to = DECIMALS[random.nextInt(DECIMALS.length)];
+      BigDecimal expected = value.movePointRight(to - from).setScale(0, RoundingMode.DOWN);
+      assertEquals(0, expected.compareTo(Scale.rescale(value, from, to)));
+    }
+  }
+
+  @Test
+  void multiplyAndDivide_randomValues_sameAsDecimalArithmetic() {
+    Random random = new Random(42);
+    for (int i = 0; i < 10_000; i++) {
+      BigDecimal a = randomValue(random);
+      BigDecimal b = randomValue(random);
+      int aDecimals = DECIMALS[random.nextInt(DECIMALS.length)];
+      int bDecimals = DECIMALS[random.nextInt(DECIMALS.length)];
+      int decimals = DECIMALS[random.nextInt(DECIMALS.length)];
+      BigDecimal product = a.movePointLeft(aDecimals).multiply(b.movePointLeft(bDecimals));
+      assertEquals(
+          0,
+          product
+              .movePointRight(decimals)
+              .setScale(0, RoundingMode.DOWN)
+              .compareTo(Scale.multiply(a, aDecimals, b, bDecimals, decimals)));
+      if (b.signum() == 0) continue;
+      BigDecimal quotient =
+          a.movePointLeft(aDecimals)
+              .movePointRight(decimals)
+              .divide(b.movePointLeft(bDecimals), 0, RoundingMode.DOWN);
+      assertEquals(0, quotient.compareTo(Scale.divide(a, aDecimals, b, bDecimals, decimals)));
+    }
+  }
+
+  @Test
+  void compare_randomValues_sameAsDecimalComparison() {
+    Random random = new Random(42);
+    for (int i = 0; i < 10_000; i++) {
+      BigDecimal a = randomValue(random);
+      BigDecimal b = randomValue(random);
+      int aDecimals = DECIMALS[random.nextInt(DECIMALS.length)];
+      int bDecimals = DECIMALS[random.nextInt(DECIMALS.length)];
+      assertEquals(
+          a.movePointLeft(aDecimals).compareTo(b.movePointLeft(bDecimals)),
+          Scale.compare(a, aDecimals, b, bDecimals));
+    }
+  }
+
+  @Test
+  void divide_DivideByZero_IllegalArgumentException() {
+    Exception exception =
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> Scale.divide(BigDecimal.ONE, 18, BigDecimal.ZERO, 45, 18));
+    assertTrue(exception.getMessage().contains("Argument 'divisor' is 0"));
+  }
+
+  @Test
+  void multiply_Rad45MultipliedByWad18_Wad18() {
+    Rad45 rad45 = new Rad45("37299123089429162514476831876850683361693243730"); // 37.29...
+    Wad18 wad18 = new Wad18("1030000000000000000"); // 1.03
+    Wad18 expected = new Wad18("38418096782112037389");
+    assertEquals(expected, rad45.multiply(wad18));
+    assertEquals(expected, wad18.multiply(rad45));
+  }
+
+  @Test
+  void multiply_Sth28MultipliedByWad18_Wad18() {
+    Sth28 sth28 = new Sth28("204721618847438310000000000"); // 0.020472161884743831
+    Wad18 wad18 = new Wad18("10000000000000000000"); // 10.0
+    Wad18 expected = new Wad18("204721618847438310");
+    assertEquals(expected, sth28.multiply(wad18));
+    assertEquals(expected, wad18.multiply(sth28));
+  }
+
+  @Test
+  void compareTo_Rad45AndWad18_scaleAware() {
+    Rad45 rad45 = new Rad45(BigInteger.TEN.pow(45)); // 1.0
+    assertEquals(0, rad45.compareTo(new Wad18(BigInteger.TEN.pow(18))));
+    assertTrue(rad45.compareTo(new Wad18(BigInteger.TEN.pow(18).add(BigInteger.ONE))) < 0);
+    assertTrue(new Wad18(BigInteger.TEN.pow(18)).compareTo(rad45.add(Rad45.ONE)) < 0);
+  }
+
+  @Test
+  void add_Rad45ToWad18_rescaledAndRoundedDown() {
+    Rad45 rad45 = new Rad45(BigInteger.TEN.pow(27).add(BigInteger.ONE)); // 1 wei and a bit
+    assertEquals(new Wad18(2), new Wad18(1).add(rad45));
+    assertEquals(new Wad18(1), new Wad18(1).max(new Rad45(1)));
+  }
+}
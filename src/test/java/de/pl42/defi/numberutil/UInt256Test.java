@@ -0,0 +1,100 @@
+package peggy42.cn.numberutil;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UInt256Test {
+  private static final BigInteger MODULUS = BigInteger.ONE.shiftLeft(256);
+
+  private static BigInteger randomInteger(Random random) {
+    // mixes small, limb sized and full width values to reach every division path
+    return new BigInteger(1 + random.nextInt(256), random);
+  }
+
+  private static BigInteger wrap(BigInteger value) {
+    return value.mod(MODULUS);
+  }
+
+  @Test
+  void arithmetic_randomOperands_sameAsBigInteger() {
+    Random random = new Random(42);
+    for (int i = 0; i < 100_000; i++) {
+      BigInteger a = randomInteger(random);
+      BigInteger b = randomInteger(random);
+      UInt256 x = UInt256.valueOf(a);
+      UInt256 y = UInt256.valueOf(b);
+      String message = a + ", " + b;
+      assertEquals(wrap(a.add(b)), x.add(y).toBigInteger(), message);
+      assertEquals(wrap(a.subtract(b)), x.subtract(y).toBigInteger(), message);
+      assertEquals(wrap(a.multiply(b)), x.multiply(y).toBigInteger(), message);
+      assertEquals(Integer.signum(a.compareTo(b)), Integer.signum(x.compareTo(y)), message);
+      if (b.signum() == 0) continue;
+      assertEquals(a.divide(b), x.divide(y).toBigInteger(), message);
+      assertEquals(a.mod(b), x.mod(y).toBigInteger(), message);
+    }
+  }
+
+  @Test
+  void mulDiv_randomOperands_sameAsBigInteger() {
+    Random random = new Random(42);
+    for (int i = 0; i < 100_000; i++) {
+      BigInteger a = randomInteger(random);
+      BigInteger b = randomInteger(random);
+      BigInteger d = randomInteger(random);
+      if (d.signum() == 0) continue;
+      BigInteger expected = a.multiply(b).divide(d);
+      if (expected.bitLength() > 256) {
+        assertThrows(
+            ArithmeticException.class,
+            () -> UInt256.mulDiv(UInt256.valueOf(a), UInt256.valueOf(b), UInt256.valueOf(d)));
+      } else {
+        assertEquals(
+            expected,
+            UInt256.mulDiv(UInt256.valueOf(a), UInt256.valueOf(b), UInt256.valueOf(d))
+                .toBigInteger());
+      }
+    }
+  }
+
+  @Test
+  void divide_DivideByZero_ZeroLikeEvm() {
+    assertEquals(UInt256.ZERO, UInt256.MAX_VALUE.divide(UInt256.ZERO));
+    assertEquals(UInt256.ZERO, UInt256.MAX_VALUE.mod(UInt256.ZERO));
+  }
+
+  @Test
+  void valueOf_negative_wrapsAround() {
+    assertEquals(UInt256.MAX_VALUE, UInt256.valueOf(-1));
+    assertEquals(UInt256.MAX_VALUE, UInt256.valueOf(BigInteger.ONE.negate()));
+    assertEquals(UInt256.ZERO, UInt256.MAX_VALUE.add(UInt256.ONE));
+  }
+
+  @Test
+  void exactOperations_overflow_ArithmeticException() {
+    assertThrows(ArithmeticException.class, () -> UInt256.MAX_VALUE.addExact(UInt256.ONE));
+    assertThrows(ArithmeticException.class, () -> UInt256.ZERO.subtractExact(UInt256.ONE));
+    assertThrows(
+        ArithmeticException.class, () -> UInt256.MAX_VALUE.multiplyExact(UInt256.valueOf(2)));
+  }
+
+  @Test
+  void fromHexAndFromBytes_abiWord_sameAsBigInteger() {
+    BigInteger expected = new BigInteger("37299123089429162514476831876850683361693243730");
+    String word = String.format("%064x", expected);
+    String result = "0x" + "0".repeat(64) + word;
+    assertEquals(expected, UInt256.fromHex(result, 2 + 64).toBigInteger());
+    byte[] bytes = new byte[64];
+    byte[] magnitude = expected.toByteArray();
+    System.arraycopy(magnitude, 0, bytes, 64 - magnitude.length, magnitude.length);
+    assertEquals(expected, UInt256.fromBytes(bytes, 32).toBigInteger());
+  }
+
+  @Test
+  void fromHex_tooShort_IllegalArgumentException() {
+    assertThrows(IllegalArgumentException.class, () -> UInt256.fromHex("0x1234", 2));
+  }
+}
@@ -0,0 +1,89 @@
+package peggy42.cn.numberutil;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the compact Wad18 arithmetic with the plain BigDecimal arithmetic Wad18 used before.
+ * Run with the main method from the test classpath.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class Wad18Benchmark {
+  private final Wad18 median = new Wad18(new BigInteger("204120000000000000000"));
+  private final Wad18 offer = new Wad18(new BigInteger("201120000000000000000"));
+  private final Wad18 amount = new Wad18(new BigInteger("2500000000000000000000"));
+  private final BigDecimal medianBigDecimal = median.toBigDecimal();
+  private final BigDecimal offerBigDecimal = offer.toBigDecimal();
+  private final BigDecimal amountBigDecimal = amount.toBigDecimal();
+
+  public static void main(String[] args) throws RunnerException {
+    Options options =
+        new OptionsBuilder().include(Wad18Benchmark.class.getSimpleName()).build();
+    new Runner(options).run();
+  }
+
+  private static BigDecimal multiplyBigDecimal(BigDecimal multiplicand1, BigDecimal multiplicand2) {
+    return multiplicand1
+        .multiply(multiplicand2)
+        .divide(BigDecimal.valueOf(Math.pow(10, 18)), 0, RoundingMode.DOWN);
+  }
+
+  private static BigDecimal divideBigDecimal(BigDecimal dividend, BigDecimal divisor) {
+    return dividend
+        .multiply(BigDecimal.valueOf(Math.pow(10, 18)))
+        .divide(divisor, 0, RoundingMode.DOWN)
+        .stripTrailingZeros();
+  }
+
+  @Benchmark
+  public Wad18 multiplyWad18() {
+    return median.multiply(amount);
+  }
+
+  @Benchmark
+  public BigDecimal multiplyBigDecimal() {
+    return multiplyBigDecimal(medianBigDecimal, amountBigDecimal);
+  }
+
+  @Benchmark
+  public Wad18 divideWad18() {
+    return median.divide(offer);
+  }
+
+  @Benchmark
+  public BigDecimal divideBigDecimal() {
+    return divideBigDecimal(medianBigDecimal, offerBigDecimal);
+  }
+
+  @Benchmark
+  public Wad18 profitChainWad18() {
+    return Wad18.ONE
+        .multiply(new Wad18(1000000000000000000L))
+        .subtract(median.divide(offer))
+        .multiply(amount)
+        .max(offer);
+  }
+
+  @Benchmark
+  public BigDecimal profitChainBigDecimal() {
+    return multiplyBigDecimal(
+            BigDecimal.ONE, BigDecimal.valueOf(1000000000000000000L))
+        .subtract(divideBigDecimal(medianBigDecimal, offerBigDecimal))
+        .multiply(amountBigDecimal)
+        .divide(BigDecimal.valueOf(Math.pow(10, 18)), 0, RoundingMode.DOWN)
+        .max(offerBigDecimal);
+  }
+}
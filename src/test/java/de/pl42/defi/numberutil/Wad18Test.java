@@ -145,4 +145,73 @@ class Wad18Test {
     String actual = new Wad18(number).toString();
     assertEquals("0.000000000000000001", actual);
   }
+
+  @Test
+  void multiply_ResultBiggerThan128Bits_SameAsBigDecimal() {
+    Wad18 big = new Wad18(new BigInteger("100000000000000000000000000000000000000")); // 10^38
+    BigDecimal expected = new BigDecimal("10000000000000000000000000000000000000000000000000000000000");
+    BigDecimal actual = big.multiply(big).toBigDecimal();
+    assertEquals(0, expected.compareTo(actual));
+  }
+
+  @Test
+  void divide_NegativeDividend_RoundedTowardsZero() {
+    Wad18 minusTwoWei = new Wad18(new BigInteger("-2"));
+    Wad18 three = new Wad18(new BigInteger("3000000000000000000"));
+    BigDecimal expected = new BigDecimal("0");
+    BigDecimal actual = minusTwoWei.divide(three).toBigDecimal();
+    assertEquals(0, expected.compareTo(actual));
+  }
+
+  @Test
+  void multiply_NegativeMultiplicand_RoundedTowardsZero() {
+    Wad18 minusOneAndAHalf = new Wad18(new BigInteger("-1500000000000000000"));
+    Wad18 threeWei = new Wad18(new BigInteger("3"));
+    BigDecimal expected = new BigDecimal("-4");
+    BigDecimal actual = minusOneAndAHalf.multiply(threeWei).toBigDecimal();
+    assertEquals(0, expected.compareTo(actual));
+  }
+
+  @Test
+  void add_DecimalAndInteger_KeepsDecimal() {
+    Wad18 decimal = new Wad18(new BigDecimal("1.5"));
+    BigDecimal expected = new BigDecimal("3.5");
+    BigDecimal actual = decimal.add(new Wad18(2)).toBigDecimal();
+    assertEquals(0, expected.compareTo(actual));
+  }
+
+  @Test
+  void compareTo_CompactAndBigDecimal_Consistent() {
+    Wad18 compact = new Wad18(new BigInteger("204120000000000000000"));
+    Wad18 bigDecimal = new Wad18(new BigDecimal("204120000000000000000.5"));
+    assertTrue(compact.compareTo(bigDecimal) < 0);
+    assertTrue(bigDecimal.compareTo(compact) > 0);
+    assertEquals(compact, new Wad18(new BigDecimal("204120000000000000000.0")));
+  }
+
+  @Test
+  void of_Literal_Exact() {
+    assertEquals(new Wad18(new BigInteger("250000000000000")), Wad18.of("0.00025"));
+    assertEquals(new Wad18(new BigInteger("31557600000000000000000000")), Wad18.of("31557600"));
+    assertEquals(new Wad18(new BigInteger("-1500000000000000000")), Wad18.of("-1.5"));
+    assertEquals(Wad18.ONE, Wad18.of("0.000000000000000001"));
+  }
+
+  @Test
+  void of_SameLiteral_Interned() {
+    assertSame(Wad18.of("0.0025"), Wad18.of("0.0025"));
+  }
+
+  @Test
+  void ofDecimal_TooManyDecimals_IllegalArgumentException() {
+    BigDecimal decimal = new BigDecimal("0.0000000000000000001");
+    Exception exception =
+        assertThrows(IllegalArgumentException.class, () -> Wad18.ofDecimal(decimal));
+    assertTrue(exception.getMessage().contains("more than 18 decimals"));
+  }
+
+  @Test
+  void of_NotANumber_IllegalArgumentException() {
+    assertThrows(IllegalArgumentException.class, () -> Wad18.of("one"));
+  }
 }
@@ -0,0 +1,140 @@
+package peggy42.cn.numberutil;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WadVectorTest {
+  private static final int SIZE = 16;
+
+  private static Wad18 randomWad18(Random random) {
+    BigInteger integer = new BigInteger(random.nextInt(140), random);
+    return new Wad18(random.nextBoolean() ? integer.negate() : integer);
+  }
+
+  private static Wad18[] randomWad18s(Random random) {
+    Wad18[] wad18s = new Wad18[SIZE];
+    for (int i = 0; i < SIZE; i++) wad18s[i] = randomWad18(random);
+    return wad18s;
+  }
+
+  private static boolean containsZero(Wad18[] wad18s) {
+    for (Wad18 wad18 : wad18s) {
+      if (wad18.compareTo(Wad18.ZERO) == 0) return true;
+    }
+    return false;
+  }
+
+  @Test
+  void chain_randomOperations_sameAsWad18() {
+    Random random = new Random(42);
+    for (int i = 0; i < 2_000; i++) {
+      Wad18[] expected = randomWad18s(random);
+      WadVector actual = WadVector.of(expected);
+      for (int j = 0; j < 8; j++) {
+        Wad18 scalar = randomWad18(random);
+        Wad18[] operands = randomWad18s(random);
+        WadVector vector = WadVector.of(operands);
+        int operation = random.nextInt(8);
+        if (operation == 6 && scalar.compareTo(Wad18.ZERO) == 0) continue;
+        if (operation == 7 && containsZero(operands)) continue;
+        switch (operation) {
+          case 0:
+            actual.subtract(scalar);
+            break;
+          case 1:
+            actual.subtract(vector);
+            break;
+          case 2:
+            actual.multiply(scalar);
+            break;
+          case 3:
+            actual.multiply(vector);
+            break;
+          case 4:
+            actual.min(scalar);
+            break;
+          case 5:
+            actual.max(scalar);
+            break;
+          case 6:
+            actual.divide(scalar);
+            break;
+          default:
+            actual.divide(vector);
+        }
+        for (int k = 0; k < SIZE; k++) {
+          switch (operation) {
+            case 0:
+              expected[k] = expected[k].subtract(scalar);
+              break;
+            case 1:
+              expected[k] = expected[k].subtract(operands[k]);
+              break;
+            case 2:
+              expected[k] = expected[k].multiply(scalar);
+              break;
+            case 3:
+              expected[k] = expected[k].multiply(operands[k]);
+              break;
+            case 4:
+              expected[k] = expected[k].min(scalar);
+              break;
+            case 5:
+              expected[k] = expected[k].max(scalar);
+              break;
+            case 6:
+              expected[k] = expected[k].divide(scalar);
+              break;
+            default:
+              expected[k] = expected[k].divide(operands[k]);
+          }
+          assertEquals(0, expected[k].compareTo(actual.get(k)));
+        }
+      }
+    }
+  }
+
+  @Test
+  void argmax_randomValues_firstLargestElement() {
+    Random random = new Random(42);
+    for (int i = 0; i < 1_000; i++) {
+      Wad18[] wad18s = randomWad18s(random);
+      wad18s[random.nextInt(SIZE)] = wad18s[random.nextInt(SIZE)];
+      int expected = 0;
+      for (int k = 1; k < SIZE; k++) {
+        if (wad18s[k].compareTo(wad18s[expected]) > 0) expected = k;
+      }
+      assertEquals(expected, WadVector.of(wad18s).argmax());
+    }
+    assertEquals(-1, new WadVector(0).argmax());
+  }
+
+  @Test
+  void fractions_maximum_evenlySpacedAndRoundedDown() {
+    WadVector fractions = WadVector.fractions(new Wad18(10), 4);
+    assertEquals(WadVector.of(new Wad18(2), new Wad18(5), new Wad18(7), new Wad18(10)), fractions);
+    Wad18 big = new Wad18(BigInteger.TEN.pow(30));
+    assertEquals(big, WadVector.fractions(big, 3).get(2));
+    assertEquals(
+        new Wad18(BigInteger.TEN.pow(30).divide(BigInteger.valueOf(3))),
+        WadVector.fractions(big, 3).get(0));
+  }
+
+  @Test
+  void divide_divideByZero_IllegalArgumentException() {
+    WadVector wadVector = new WadVector(2, Wad18.ONE);
+    Exception exception =
+        assertThrows(IllegalArgumentException.class, () -> wadVector.divide(new WadVector(2)));
+    assertTrue(exception.getMessage().contains("Argument 'divisor' is 0"));
+  }
+
+  @Test
+  void multiply_differentSize_IllegalArgumentException() {
+    WadVector wadVector = new WadVector(2);
+    assertThrows(IllegalArgumentException.class, () -> wadVector.multiply(new WadVector(3)));
+  }
+}
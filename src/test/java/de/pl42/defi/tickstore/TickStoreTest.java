@@ -0,0 +1,139 @@
+package peggy42.cn.tickstore;
+
+import peggy42.cn.numberutil.Wad18;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TickStoreTest {
+  @TempDir Path directory;
+
+  private static Tick tick(long timestamp, long block, String source, long price) {
+    return new Tick(
+        timestamp, block, TickKind.FEED_PRICE, source, new Wad18(price), new Wad18(price * 2));
+  }
+
+  private static List<Tick> scan(TickStore tickStore, long from, long to) {
+    List<Tick> ticks = new ArrayList<>();
+    tickStore.scan(from, to, ticks::add);
+    return ticks;
+  }
+
+  private long segmentFiles() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(TickSegment::isSegment).count();
+    }
+  }
+
+  @Test
+  void scan_timeRange_ticksWithinRangeInOrder() throws IOException {
+    try (TickStore tickStore = TickStore.open(directory)) {
+      for (int i = 1; i <= 10; i++) tickStore.append(tick(i * 100L, i, "KRAKEN", i));
+      List<Tick> ticks = scan(tickStore, 300, 600);
+      assertEquals(
+          List.of(tick(300, 3, "KRAKEN", 3), tick(400, 4, "KRAKEN", 4), tick(500, 5, "KRAKEN", 5)),
+          ticks);
+      assertTrue(scan(tickStore, 1100, 2000).isEmpty());
+    }
+  }
+
+  @Test
+  void scanBlocks_blockRange_ticksWithinRange() throws IOException {
+    try (TickStore tickStore = TickStore.open(directory, 4)) {
+      for (int i = 1; i <= 10; i++) tickStore.append(tick(i, 100 + i, "KRAKEN", i));
+      List<Tick> ticks = new ArrayList<>();
+      tickStore.scanBlocks(104, 107, ticks::add);
+      assertEquals(
+          List.of(tick(4, 104, "KRAKEN", 4), tick(5, 105, "KRAKEN", 5), tick(6, 106, "KRAKEN", 6)),
+          ticks);
+    }
+  }
+
+  @Test
+  void append_moreThanSegmentCapacity_rollOverAndReopen() throws IOException {
+    try (TickStore tickStore = TickStore.open(directory, 4)) {
+      for (int i = 1; i <= 10; i++) tickStore.append(tick(i, i, "KRAKEN", i));
+    }
+    assertEquals(3, segmentFiles());
+    try (TickStore tickStore = TickStore.open(directory, 4)) {
+      assertEquals(10, tickStore.size());
+      assertEquals(10, scan(tickStore, 0, Long.MAX_VALUE).size());
+      tickStore.append(tick(11, 11, "KRAKEN", 11));
+      assertEquals(tick(11, 11, "KRAKEN", 11), tickStore.last());
+    }
+  }
+
+  @Test
+  void open_tornLastRecord_dropTornRecord() throws IOException {
+    try (TickStore tickStore = TickStore.open(directory)) {
+      for (int i = 1; i <= 3; i++) tickStore.append(tick(i, i, "KRAKEN", i));
+    }
+    Path segment = directory.resolve(String.format("%020d.ticks", 0));
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+      long price = TickSegment.HEADER_SIZE + 2L * TickSegment.RECORD_SIZE + 16;
+      channel.write(ByteBuffer.wrap(new byte[] {1, 2, 3}), price);
+    }
+    try (TickStore tickStore = TickStore.open(directory)) {
+      assertEquals(2, tickStore.size());
+      assertEquals(tick(2, 2, "KRAKEN", 2), tickStore.last());
+      tickStore.append(tick(4, 4, "KRAKEN", 4));
+      assertEquals(
+          List.of(tick(2, 2, "KRAKEN", 2), tick(4, 4, "KRAKEN", 4)), scan(tickStore, 2, 5));
+    }
+  }
+
+  @Test
+  void last_kindAndSource_latestMatchingTick() throws IOException {
+    try (TickStore tickStore = TickStore.open(directory, 2)) {
+      tickStore.append(tick(1, 1, "KRAKEN", 1));
+      tickStore.append(tick(2, 1, "COINBASE", 2));
+      tickStore.append(new Tick(3, 2, TickKind.MEDIAN, "ETH", new Wad18(3), Wad18.ZERO));
+      tickStore.append(tick(4, 2, "COINBASE", 4));
+      tickStore.append(tick(5, 3, "COINBASE_WEBSOCKET", 5));
+      assertEquals(tick(1, 1, "KRAKEN", 1), tickStore.last(TickKind.FEED_PRICE, "KRAKEN"));
+      assertEquals(tick(4, 2, "COINBASE", 4), tickStore.last(TickKind.FEED_PRICE, "COINBASE"));
+      assertEquals(new Wad18(3), tickStore.last(TickKind.MEDIAN, "ETH").getPrice());
+      assertEquals("COINBASE_WE", tickStore.last().getSource());
+      assertEquals(
+          new Wad18(5), tickStore.last(TickKind.FEED_PRICE, "COINBASE_WEBSOCKET").getPrice());
+      assertNull(tickStore.last(TickKind.OASIS_BUY_DAI, "OASIS"));
+    }
+  }
+
+  @Test
+  void append_olderTimestampAndUnknownBlock_clampedToPredecessor() throws IOException {
+    try (TickStore tickStore = TickStore.open(directory)) {
+      tickStore.append(tick(100, 7, "KRAKEN", 1));
+      tickStore.append(tick(90, Tick.UNKNOWN_BLOCK, "KRAKEN", 2));
+      assertEquals(tick(100, 7, "KRAKEN", 2), tickStore.last());
+      assertEquals(2, scan(tickStore, 100, 101).size());
+    }
+  }
+
+  @Test
+  void append_largeWad18_sameValueAfterReopen() throws IOException {
+    Wad18 large = Wad18.of("123456789012.123456789012345678");
+    try (TickStore tickStore = TickStore.open(directory)) {
+      tickStore.append(new Tick(1, 1, TickKind.MEDIAN, "ETH", large, Wad18.ONE));
+    }
+    try (TickStore tickStore = TickStore.open(directory)) {
+      assertEquals(large, tickStore.last().getPrice());
+    }
+  }
+
+  @Test
+  void open_notPositiveCapacity_IllegalArgumentException() {
+    assertThrows(IllegalArgumentException.class, () -> TickStore.open(directory, 0));
+  }
+}
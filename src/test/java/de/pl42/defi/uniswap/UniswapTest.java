@@ -0,0 +1,18 @@
+package peggy42.cn.uniswap;
+
+import peggy42.cn.numberutil.Wad18;
+import peggy42.cn.numberutil.WadVector;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UniswapTest {
+  @Test
+  void getBestBuyDaiSize_priceImpact_smallerSizeMoreProfitable() {
+    WadVector ethToSell = WadVector.fractions(Wad18.of("4"), Uniswap.BUY_DAI_SIZES);
+    // 210, 208, 204 and 200 DAI per ETH, the median is 200
+    WadVector buyableDaiAmounts =
+        WadVector.of(Wad18.of("210"), Wad18.of("416"), Wad18.of("612"), Wad18.of("800"));
+    assertEquals(1, Uniswap.getBestBuyDaiSize(buyableDaiAmounts, ethToSell, Wad18.of("200"), 0.1));
+  }
+}
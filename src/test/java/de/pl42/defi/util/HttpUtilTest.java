@@ -0,0 +1,74 @@
+package peggy42.cn.util;
+
+import com.sun.net.httpserver.HttpServer;
+import peggy42.cn.numberutil.Wad18;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpUtilTest {
+  private static final JsonPath PRICE = JsonPath.compile("data.amount");
+  private final Set<InetSocketAddress> clients = ConcurrentHashMap.newKeySet();
+  private HttpServer server;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext(
+        "/price",
+        exchange -> {
+          clients.add(exchange.getRemoteAddress());
+          byte[] body =
+              "{\"data\":{\"amount\":\"237.49\",\"padding\":\"xxxxxxxxxxxxxxxx\"}}"
+                  .getBytes(StandardCharsets.UTF_8);
+          exchange.sendResponseHeaders(200, body.length);
+          try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+          }
+        });
+    server.createContext(
+        "/error",
+        exchange -> {
+          exchange.sendResponseHeaders(503, -1);
+          exchange.close();
+        });
+    server.start();
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.stop(0);
+  }
+
+  private URI uri(String path) {
+    return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+  }
+
+  @Test
+  void getJson_localServer_valueOfPath() throws IOException {
+    assertArrayEquals(
+        new Wad18[] {Wad18.of("237.49")}, HttpUtil.getJson(uri("/price"), PRICE, 18));
+  }
+
+  @Test
+  void getJson_severalRequests_connectionReused() throws IOException {
+    for (int i = 0; i < 5; i++) HttpUtil.getJson(uri("/price"), PRICE, 18);
+    assertEquals(1, clients.size());
+  }
+
+  @Test
+  void getJson_serverError_IOException() {
+    assertThrows(IOException.class, () -> HttpUtil.getJson(uri("/error"), PRICE, 18));
+  }
+}
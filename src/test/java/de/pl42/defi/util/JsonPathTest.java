@@ -0,0 +1,105 @@
+package peggy42.cn.util;
+
+import peggy42.cn.numberutil.Wad18;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonPathTest {
+  private static final String ETH_GAS_STATION =
+      "{\"fast\": 400.0, \"fastest\": 500.0, \"safeLow\": 313.0, \"average\": 350.0,"
+          + " \"gasPriceRange\": {\"4\": 241.7, \"6\": 241.7}, \"speed\": 0.9823}";
+
+  private static InputStream stream(String json) {
+    return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** Returns one byte per read, like a slow network */
+  private static InputStream trickle(String json) {
+    return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)) {
+      @Override
+      public synchronized int read(byte[] bytes, int offset, int length) {
+        return super.read(bytes, offset, Math.min(length, 1));
+      }
+    };
+  }
+
+  @Test
+  void read_topLevelKeys_valuesInOrderOfPaths() throws IOException {
+    Wad18[] values = JsonPath.compile("safeLow", "fastest").read(stream(ETH_GAS_STATION), 8);
+    assertArrayEquals(new Wad18[] {new Wad18(31_300000000L), new Wad18(50_000000000L)}, values);
+  }
+
+  @Test
+  void read_nestedArrays_elementAtIndex() throws IOException {
+    String json = "{\"x\":[[1,2],[3,{\"y\":[\"4.5\",6]}]],\"z\":{\"x\":[[7]]}}";
+    assertArrayEquals(
+        new Wad18[] {Wad18.of("4.5"), Wad18.of("2"), Wad18.of("7")},
+        JsonPath.compile("x[1][1].y[0]", "x[0][1]", "z.x[0][0]").read(stream(json), 18));
+  }
+
+  @Test
+  void read_sameKeyOnOtherLevels_onlyExactPath() throws IOException {
+    String json = "{\"amount\":\"1\",\"data\":{\"other\":{\"amount\":\"2\"},\"amount\":\"3\"}}";
+    assertEquals(Wad18.of("3"), JsonPath.compile("data.amount").read(stream(json), 18)[0]);
+  }
+
+  @Test
+  void read_stringsWithEscapedQuotesAndBrackets_skipped() throws IOException {
+    String json = "{\"note\":\"a \\\"}]\\\\\",\"list\":[\"[\",\"{\"],\"price\":\"12.5\"}";
+    assertEquals(Wad18.of("12.5"), JsonPath.compile("price").read(stream(json), 18)[0]);
+  }
+
+  @Test
+  void read_oneByteAtATime_sameValues() throws IOException {
+    assertArrayEquals(
+        JsonPath.compile("average", "gasPriceRange.6").read(stream(ETH_GAS_STATION), 8),
+        JsonPath.compile("average", "gasPriceRange.6").read(trickle(ETH_GAS_STATION), 8));
+  }
+
+  @Test
+  void read_allPathsFound_stopReading() throws IOException {
+    InputStream input = stream("{\"a\":1,\"b\":\"" + "x".repeat(20_000) + "\"}");
+    JsonPath.compile("a").read(input, 0);
+    assertTrue(input.available() > 0);
+  }
+
+  @Test
+  void read_exponent_parsed() throws IOException {
+    assertEquals(new Wad18(1500), JsonPath.compile("gas").read(stream("{\"gas\":1.5e3}"), 0)[0]);
+  }
+
+  @Test
+  void read_missingPath_IOException() {
+    JsonPath jsonPath = JsonPath.compile("fastest", "slow");
+    assertThrows(IOException.class, () -> jsonPath.read(stream(ETH_GAS_STATION), 8));
+  }
+
+  @Test
+  void read_valueIsNotANumber_IOException() {
+    assertThrows(
+        IOException.class, () -> JsonPath.compile("a").read(stream("{\"a\":\"error\"}"), 18));
+    assertThrows(IOException.class, () -> JsonPath.compile("a").read(stream("{\"a\":{}}"), 18));
+  }
+
+  @Test
+  void read_truncatedDocument_IOException() {
+    assertThrows(IOException.class, () -> JsonPath.compile("b").read(stream("{\"a\":[1,2"), 18));
+  }
+
+  @Test
+  void read_truncatedAfterArrayStart_IOException() {
+    assertThrows(IOException.class, () -> JsonPath.compile("a[0]").read(stream("{\"a\":["), 0));
+  }
+
+  @Test
+  void compile_emptyKey_IllegalArgumentException() {
+    assertThrows(IllegalArgumentException.class, () -> JsonPath.compile("a..b"));
+    assertThrows(IllegalArgumentException.class, () -> JsonPath.compile("a[0"));
+  }
+}
@@ -0,0 +1,108 @@
+package peggy42.cn.util;
+
+import peggy42.cn.numberutil.Wad18;
+import peggy42.cn.numberutil.WadVector;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProfitCalculatorTest {
+  private static final double PERCENTAGE_OF_PROFIT_AS_FEE = 0.15;
+
+  @Test
+  void getPotentialProfit_wadVector_sameAsScalar() {
+    Random random = new Random(42);
+    int size = 200;
+    WadVector ratios = new WadVector(size);
+    WadVector sizes = WadVector.fractions(Wad18.of("5000"), size);
+    for (int i = 0; i < size; i++) {
+      ratios.set(i, Wad18.of("0.98").add(new Wad18(random.nextInt(Integer.MAX_VALUE) * 20_000L)));
+    }
+    WadVector profits =
+        ProfitCalculator.getPotentialProfit(ratios, sizes, PERCENTAGE_OF_PROFIT_AS_FEE);
+    int best = 0;
+    for (int i = 0; i < size; i++) {
+      Wad18 expected =
+          ProfitCalculator.getPotentialProfit(
+              ratios.get(i), sizes.get(i), PERCENTAGE_OF_PROFIT_AS_FEE);
+      assertEquals(expected, profits.get(i));
+      if (expected.compareTo(profits.get(best)) > 0) best = i;
+    }
+    assertEquals(best, ProfitCalculator.getBestSize(ratios, sizes, PERCENTAGE_OF_PROFIT_AS_FEE));
+  }
+
+  @Test
+  void getBestSize_fixedRatio_largestSize() {
+    WadVector sizes = WadVector.fractions(Wad18.of("1000"), 10);
+    assertEquals(
+        9, ProfitCalculator.getBestSize(Wad18.of("0.99"), sizes, PERCENTAGE_OF_PROFIT_AS_FEE));
+  }
+
+  @Test
+  void screenPotentialProfit_randomCandidates_sameDecisionAsExact() {
+    Random random = new Random(42);
+    long screenRejects = ProfitCalculator.getScreenRejects();
+    long exactRejects = ProfitCalculator.getExactRejects();
+    int expectedScreenRejects = 0;
+    int expectedExactRejects = 0;
+    for (int i = 0; i < 10_000; i++) {
+      Wad18 noise = new Wad18(random.nextLong() & Long.MAX_VALUE).divide(Wad18.of("50"));
+      Wad18 ratio = Wad18.of("0.95").add(noise);
+      Wad18 size = new Wad18(random.nextLong() & Long.MAX_VALUE).multiply(Wad18.of("1000"));
+      Wad18 minimumProfit = new Wad18(random.nextInt(Integer.MAX_VALUE)).multiply(Wad18.of("1e9"));
+      double fee = random.nextDouble() * 0.3;
+      Wad18 exact = ProfitCalculator.getPotentialProfit(ratio, size, fee);
+      Wad18 screened = ProfitCalculator.screenPotentialProfit(ratio, size, fee, minimumProfit);
+      if (exact.compareTo(minimumProfit) > 0) {
+        assertEquals(exact, screened);
+      } else {
+        assertTrue(screened.compareTo(minimumProfit) <= 0);
+        if (screened.equals(exact)) expectedExactRejects++;
+        else expectedScreenRejects++;
+      }
+    }
+    assertTrue(expectedScreenRejects > 0);
+    assertEquals(screenRejects + expectedScreenRejects, ProfitCalculator.getScreenRejects());
+    assertEquals(exactRejects + expectedExactRejects, ProfitCalculator.getExactRejects());
+  }
+
+  @Test
+  void screenPotentialProfit_closeToMinimum_exactCalculation() {
+    Wad18 ratio = Wad18.of("0.99");
+    Wad18 size = Wad18.of("1000");
+    Wad18 exact = ProfitCalculator.getPotentialProfit(ratio, size, PERCENTAGE_OF_PROFIT_AS_FEE);
+    Wad18 minimumProfit = exact.subtract(new Wad18(1));
+    assertEquals(
+        exact,
+        ProfitCalculator.screenPotentialProfit(
+            ratio, size, PERCENTAGE_OF_PROFIT_AS_FEE, minimumProfit));
+    long screenRejects = ProfitCalculator.getScreenRejects();
+    assertEquals(
+        exact,
+        ProfitCalculator.screenPotentialProfit(ratio, size, PERCENTAGE_OF_PROFIT_AS_FEE, exact));
+    assertEquals(screenRejects, ProfitCalculator.getScreenRejects());
+  }
+
+  @Test
+  void getFeeFactor_sameFee_cachedFactor() {
+    Wad18 factor = ProfitCalculator.getFeeFactor(PERCENTAGE_OF_PROFIT_AS_FEE);
+    assertEquals(Wad18.of("0.15"), factor);
+    assertSame(factor, ProfitCalculator.getFeeFactor(PERCENTAGE_OF_PROFIT_AS_FEE));
+    assertEquals(Wad18.of("0.2"), ProfitCalculator.getFeeFactor(0.2));
+  }
+
+  @Test
+  void getPotentialProfit_repeated_accumulatorsReset() {
+    Wad18 ratio = Wad18.of("0.98");
+    Wad18 size = Wad18.of("1000");
+    Wad18 first = ProfitCalculator.getPotentialProfit(ratio, size, PERCENTAGE_OF_PROFIT_AS_FEE);
+    ProfitCalculator.getPotentialProfit(Wad18.of("0.5"), size, 0.2);
+    assertEquals(Wad18.of("17"), first);
+    assertEquals(
+        first, ProfitCalculator.getPotentialProfit(ratio, size, PERCENTAGE_OF_PROFIT_AS_FEE));
+  }
+}
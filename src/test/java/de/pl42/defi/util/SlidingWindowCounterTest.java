@@ -0,0 +1,76 @@
+package peggy42.cn.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlidingWindowCounterTest {
+  private static final long WINDOW = 10_000;
+  private static final long START = 1_600_000_000_000L;
+
+  private final SlidingWindowCounter counter = new SlidingWindowCounter(WINDOW, 10);
+
+  @Test
+  void count_eventsWithinWindow_allCounted() {
+    counter.increment(START);
+    counter.increment(START + 1);
+    counter.increment(START + 5_000);
+    assertEquals(3, counter.count(START + 5_000));
+    assertEquals(3, counter.count(START + 9_000));
+  }
+
+  @Test
+  void count_afterWindow_eventsExpired() {
+    counter.increment(START);
+    counter.increment(START + 5_000);
+    assertEquals(1, counter.count(START + WINDOW + 1_000));
+    assertEquals(0, counter.count(START + 5_000 + WINDOW + 1_000));
+  }
+
+  @Test
+  void increment_bucketReusedInLaterRound_oldCountReset() {
+    for (int i = 0; i < 5; i++) counter.increment(START);
+    counter.increment(START + WINDOW);
+    assertEquals(1, counter.count(START + WINDOW));
+  }
+
+  @Test
+  void increment_expiredEvent_ignored() {
+    counter.increment(START + WINDOW);
+    counter.increment(START);
+    assertEquals(1, counter.count(START + WINDOW));
+  }
+
+  @Test
+  void count_noEvents_zero() {
+    assertEquals(0, counter.count());
+    counter.increment();
+    assertEquals(1, counter.count());
+  }
+
+  @Test
+  void increment_concurrentThreads_noLostEvents() throws InterruptedException {
+    SlidingWindowCounter shared = new SlidingWindowCounter(60_000, 60);
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      Thread thread =
+          new Thread(
+              () -> {
+                for (int i = 0; i < 10_000; i++) shared.increment(START + i % 1_000);
+              });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) thread.join();
+    assertEquals(80_000, shared.count(START + 1_000));
+  }
+
+  @Test
+  void constructor_invalidArguments_IllegalArgumentException() {
+    assertThrows(IllegalArgumentException.class, () -> new SlidingWindowCounter(1_000, 0));
+    assertThrows(IllegalArgumentException.class, () -> new SlidingWindowCounter(5, 10));
+  }
+}
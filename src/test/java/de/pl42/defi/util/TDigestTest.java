@@ -0,0 +1,69 @@
+package peggy42.cn.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TDigestTest {
+  @Test
+  void quantile_uniformValues_withinOnePercent() {
+    TDigest digest = new TDigest(100);
+    for (int i = 1; i <= 100_000; i++) digest.add(i);
+    assertEquals(100_000, digest.size());
+    for (double quantile : new double[] {0.01, 0.1, 0.3, 0.5, 0.6, 0.9, 0.99}) {
+      assertEquals(quantile * 100_000, digest.quantile(quantile), 1000, "quantile " + quantile);
+    }
+  }
+
+  @Test
+  void quantile_extremes_minAndMax() {
+    TDigest digest = new TDigest(100);
+    Random random = new Random(42);
+    for (int i = 0; i < 10_000; i++) digest.add(5 + random.nextDouble());
+    digest.add(2);
+    digest.add(9);
+    assertEquals(2, digest.quantile(0), 0);
+    assertEquals(9, digest.quantile(1), 0);
+  }
+
+  @Test
+  void add_mergedDigests_sameQuantilesAsOneDigest() {
+    TDigest first = new TDigest(100);
+    TDigest second = new TDigest(100);
+    TDigest all = new TDigest(100);
+    Random random = new Random(42);
+    for (int i = 0; i < 20_000; i++) {
+      double value = random.nextGaussian() * 10 + 100;
+      (i % 2 == 0 ? first : second).add(value);
+      all.add(value);
+    }
+    TDigest merged = new TDigest(100);
+    merged.add(first);
+    merged.add(second);
+    assertEquals(all.size(), merged.size());
+    for (double quantile : new double[] {0.1, 0.5, 0.9}) {
+      assertEquals(all.quantile(quantile), merged.quantile(quantile), 0.5);
+    }
+    assertEquals(10_000, first.size()); // not changed by the merge
+  }
+
+  @Test
+  void quantile_singleValue_thatValue() {
+    TDigest digest = new TDigest(100);
+    digest.add(7);
+    assertEquals(7, digest.quantile(0.5));
+  }
+
+  @Test
+  void quantile_empty_NaN() {
+    assertTrue(Double.isNaN(new TDigest(100).quantile(0.5)));
+  }
+
+  @Test
+  void quantile_outOfRange_throwIllegalArgumentException() {
+    TDigest digest = new TDigest(100);
+    assertThrows(IllegalArgumentException.class, () -> digest.quantile(1.5));
+  }
+}